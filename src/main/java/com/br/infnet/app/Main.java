@@ -2,12 +2,54 @@ package com.br.infnet.app;
 
 
 import com.br.infnet.controller.LivroController;
+import com.br.infnet.controller.ReplicacaoController;
+import com.br.infnet.replicacao.LiderReplicacao;
+import com.br.infnet.replicacao.LogReplicacao;
+import com.br.infnet.replicacao.SeguidorReplicacao;
+import com.br.infnet.service.LivroService;
 import io.javalin.Javalin;
 
+import java.nio.file.Path;
+
 public class Main {
     public static void main(String[] args) {
+        //-Dbiblioteca.dados=<diretório> persiste o acervo em disco; sem ele o acervo vive só em memória
+        String diretorioDados = System.getProperty("biblioteca.dados");
+        //-Dbiblioteca.particoes=<n> divide o acervo em n partições pelo id; 1 (padrão) mantém um acervo único
+        int particoes = Integer.getInteger("biblioteca.particoes", 1);
+        LivroService service = diretorioDados == null
+                ? new LivroService(particoes)
+                : new LivroService(Path.of(diretorioDados), particoes);
+        Runtime.getRuntime().addShutdownHook(new Thread(service::fechar));
+
         Javalin app = Javalin.create(config -> {
-        }).start(7000);
-        new LivroController(app);
+        });
+
+        //Replicação: -Dbiblioteca.replicacao.porta=<porta> sobe como líder, aceitando seguidores nessa porta;
+        //-Dbiblioteca.replicacao.lider=<host:porta> sobe como seguidor, com -Dbiblioteca.replicacao.lider.http
+        //apontando para o HTTP do líder, que recebe as escritas
+        Integer portaReplicacao = Integer.getInteger("biblioteca.replicacao.porta");
+        String lider = System.getProperty("biblioteca.replicacao.lider");
+        if (portaReplicacao != null) {
+            LogReplicacao log = service.iniciarLogReplicacao(LogReplicacao.RETENCAO_PADRAO);
+            LiderReplicacao replicacao = new LiderReplicacao(service, log, portaReplicacao);
+            replicacao.iniciar();
+            Runtime.getRuntime().addShutdownHook(new Thread(replicacao::close));
+            new ReplicacaoController(app, replicacao);
+        } else if (lider != null) {
+            String urlLider = System.getProperty("biblioteca.replicacao.lider.http");
+            if (urlLider == null) {
+                throw new IllegalArgumentException("Seguidor precisa de -Dbiblioteca.replicacao.lider.http=http://host:porta");
+            }
+            int separador = lider.lastIndexOf(':');
+            SeguidorReplicacao replicacao = new SeguidorReplicacao(service, lider.substring(0, separador),
+                    Integer.parseInt(lider.substring(separador + 1)));
+            replicacao.iniciar();
+            Runtime.getRuntime().addShutdownHook(new Thread(replicacao::close));
+            new ReplicacaoController(app, replicacao, urlLider);
+        }
+
+        app.start(Integer.getInteger("biblioteca.porta", 7000));
+        new LivroController(app, service);
     }
-}
\ No newline at end of file
+}
@@ -1,26 +1,59 @@
 package com.br.infnet.controller;
 
 import com.br.infnet.model.Livro;
+import com.br.infnet.service.ConflitoDeVersaoException;
+import com.br.infnet.service.FormatoExportacao;
 import com.br.infnet.service.LivroService;
+import com.br.infnet.service.OrdemListagem;
+import com.br.infnet.service.Pagina;
+import com.br.infnet.service.RelatorioImportacao;
+import com.br.infnet.service.RelatorioMultas;
+import com.br.infnet.service.ResultadoOperacao;
 import com.br.infnet.utils.FormValidator;
 import com.br.infnet.utils.ErrorHandler;
-import com.br.infnet.service.MultaPendenteException;
 import com.br.infnet.view.LivroView;
 import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.UploadedFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class LivroController {
-    private final LivroService service = new LivroService();
+    //Muda a cada subida do servidor: as revisões recomeçam em 1, então um formulário aberto antes
+    //do restart precisa dar conflito em vez de casar por acaso com a revisão nova
+    private static final String GERACAO_ETAG = Long.toString(System.currentTimeMillis(), 36);
+
+    private final LivroService service;
 
     public LivroController(Javalin app) {
+        this(app, new LivroService());
+    }
+
+    public LivroController(Javalin app, LivroService service) {
+        this.service = service;
+        service.iniciarVarreduraDeAtrasos();
+
         app.get("/", ctx -> ctx.redirect("/livros"));
 
         //********************Rotas para CRUD biblioteca**************************
         app.get("/livros", ctx -> {
             try {
-                ctx.html(LivroView.renderList(service.listarLivrosDoAcervo()));
+                //Paginação por cursor: ?tamanho=N&apos=<cursor> ou &antes=<cursor>
+                int tamanho = Pagina.limitarTamanho(ctx.queryParamAsClass("tamanho", Integer.class).getOrDefault(null));
+                //Ordem alfabética opcional: ?ordenar=titulo|autor, com faixa &de=M&ate=N
+                OrdemListagem ordem = OrdemListagem.deParametro(ctx.queryParam("ordenar"));
+                String de = ctx.queryParam("de");
+                String ate = ctx.queryParam("ate");
+                Pagina pagina = service.listarLivrosDoAcervo(ordem, de, ate, ctx.queryParam("apos"),
+                        ctx.queryParam("antes"), tamanho);
+                ctx.html(LivroView.renderList(pagina, tamanho, ordem, de, ate));
+            } catch (IllegalArgumentException e) {
+                ctx.html(ErrorHandler.handleValidationError(e.getMessage()));
             } catch (Exception e) {
                 ctx.html(ErrorHandler.handleDatabaseError());
             }
@@ -74,6 +107,47 @@ public class LivroController {
             }
         });
 
+        //Importação em massa: aceita upload multipart (campo "arquivo") ou o arquivo direto no corpo.
+        //O conteúdo é lido em fluxo e incorporado em blocos; só o relatório fica em memória.
+        app.get("/livros/import", ctx -> {
+            try {
+                ctx.html(LivroView.renderImportacao(null, null));
+            } catch (Exception e) {
+                ctx.html(ErrorHandler.handleError(e));
+            }
+        });
+
+        app.post("/livros/import", ctx -> {
+            try {
+                UploadedFile arquivo = ctx.isMultipartFormData() ? ctx.uploadedFile("arquivo") : null;
+                if (ctx.isMultipartFormData() && arquivo == null) {
+                    ctx.html(LivroView.renderImportacao(null, "Selecione um arquivo para importar"));
+                    return;
+                }
+                boolean jsonLinhas = formatoJsonLinhas(ctx, arquivo);
+                try (InputStream conteudo = arquivo != null ? arquivo.content() : ctx.bodyInputStream()) {
+                    ctx.html(LivroView.renderImportacao(importar(conteudo, jsonLinhas), null));
+                }
+            } catch (IllegalArgumentException e) {
+                ctx.html(LivroView.renderImportacao(null, e.getMessage()));
+            } catch (Exception e) {
+                ctx.html(ErrorHandler.handleError(e));
+            }
+        });
+
+        //Exportação em fluxo do acervo: ?formato=csv|jsonl&status=disponivel|emprestado
+        app.get("/livros/export", ctx -> {
+            try {
+                FormatoExportacao formato = FormatoExportacao.deParametro(ctx.queryParam("formato"));
+                Boolean disponivel = filtroDeStatus(ctx.queryParam("status"));
+                ctx.contentType(formato.getContentType());
+                ctx.header("Content-Disposition", "attachment; filename=\"acervo." + formato.getExtensao() + "\"");
+                service.exportarAcervo(ctx.outputStream(), formato, disponivel);
+            } catch (Exception e) {
+                ctx.html(ErrorHandler.handleError(e));
+            }
+        });
+
         app.get("/livros/{id}/editar", ctx -> {
             try {
                 Integer idParam = ctx.pathParamAsClass("id", Integer.class).getOrDefault(null);
@@ -82,18 +156,13 @@ public class LivroController {
                     return;
                 }
 
-                Livro livro = service.buscarLivroPorIDNoAcervo(idParam);
-                if (livro == null) {
+                ResultadoOperacao consulta = service.consultarLivro(idParam);
+                if (!consulta.isOk()) {
                     ctx.html(ErrorHandler.handleNotFound("livro"));
                     return;
                 }
 
-                Map<String, Object> model = new HashMap<>();
-                model.put("id", livro.getId());
-                model.put("titulo", livro.getTitulo());
-                model.put("autor", livro.getAutor());
-                model.put("isbn", livro.getIsbn());
-                ctx.html(LivroView.renderForm(model));
+                ctx.html(LivroView.renderForm(modeloDeEdicao(ctx, consulta.livro())));
 
             } catch (Exception e) {
                 ctx.html(ErrorHandler.handleError(e));
@@ -112,6 +181,7 @@ public class LivroController {
                 params.put("titulo", ctx.formParam("titulo"));
                 params.put("autor", ctx.formParam("autor"));
                 params.put("isbn", ctx.formParam("isbn"));
+                String etagEnviado = ctx.header("If-Match") != null ? ctx.header("If-Match") : ctx.formParam("versao");
 
                 // Validar dados
                 FormValidator.ValidationResult validation = FormValidator.validateLivro(params);
@@ -119,6 +189,7 @@ public class LivroController {
                     Map<String, Object> model = new HashMap<>(params);
                     model.put("erro", validation.getErrorMessage());
                     model.put("id", idParam);
+                    model.put("versao", etagEnviado);
                     ctx.html(LivroView.renderForm(model));
                     return;
                 }
@@ -134,11 +205,27 @@ public class LivroController {
                     Map<String, Object> model = new HashMap<>(params);
                     model.put("erro", "ISBN já cadastrado em outro livro");
                     model.put("id", idParam);
+                    model.put("versao", etagEnviado);
                     ctx.html(LivroView.renderForm(model));
                     return;
                 }
 
-                service.atualizarLivroDoAcervo(idParam, titulo, autor, isbn);
+                try {
+                    service.atualizarLivroDoAcervo(idParam, titulo, autor, isbn, revisaoDoEtag(etagEnviado));
+                } catch (ConflitoDeVersaoException e) {
+                    //Devolve o formulário com os dados atuais e o ETag novo: quem editava revisa e reenvia
+                    ResultadoOperacao consulta = service.consultarLivro(idParam);
+                    if (!consulta.isOk()) {
+                        ctx.html(ErrorHandler.handleNotFound("livro"));
+                        return;
+                    }
+                    ctx.status(ctx.header("If-Match") != null ? 412 : 409);
+                    Map<String, Object> model = modeloDeEdicao(ctx, consulta.livro());
+                    model.put("erro", "Este livro foi alterado por outra pessoa enquanto você editava. "
+                            + "Os dados abaixo são os atuais; refaça sua alteração e salve novamente.");
+                    ctx.html(LivroView.renderForm(model));
+                    return;
+                }
                 ctx.redirect("/livros");
 
             } catch (Exception e) {
@@ -154,18 +241,10 @@ public class LivroController {
                     return;
                 }
 
-                Livro livro = service.buscarLivroPorIDNoAcervo(idParam);
-                if (livro == null) {
-                    ctx.html(ErrorHandler.handleNotFound("livro"));
+                ResultadoOperacao resultado = service.tentarRemoverLivro(idParam);
+                if (!responderDesfecho(ctx, resultado)) {
                     return;
                 }
-
-                if (!livro.isDisponivel()) {
-                    ctx.html(ErrorHandler.handleBusinessLogicError("Não é possível remover um livro que está emprestado"));
-                    return;
-                }
-
-                service.removerLivroDoAcervo(idParam);
                 ctx.redirect("/livros");
 
             } catch (Exception e) {
@@ -176,7 +255,36 @@ public class LivroController {
         //********************Rotas para empréstimos**************************
         app.get("/emprestimos", ctx -> {
             try {
-                ctx.html(LivroView.renderEmprestimos(service.listarLivrosEmEmprestimo()));
+                boolean porVencimento = "vencimento".equals(ctx.queryParam("ordenar"));
+                int tamanho = Pagina.limitarTamanho(ctx.queryParamAsClass("tamanho", Integer.class).getOrDefault(null));
+                Pagina pagina = service.listarLivrosEmEmprestimo(porVencimento, ctx.queryParam("apos"),
+                        ctx.queryParam("antes"), tamanho);
+                ctx.html(LivroView.renderEmprestimos(pagina, porVencimento, tamanho));
+            } catch (IllegalArgumentException e) {
+                ctx.html(ErrorHandler.handleValidationError(e.getMessage()));
+            } catch (Exception e) {
+                ctx.html(ErrorHandler.handleDatabaseError());
+            }
+        });
+
+        app.get("/emprestimos/atrasados", ctx -> {
+            try {
+                List<Livro> atrasados = service.listarEmprestimosAtrasados();
+                //Uma passada do cálculo em lote no lugar de uma multa por livro
+                RelatorioMultas relatorio = service.relatorioDeMultas(LocalDate.now());
+                Map<Integer, Long> multas = new HashMap<>();
+                for (int i = 0; i < relatorio.quantidade(); i++) {
+                    multas.put(relatorio.livro(i).getId(), relatorio.centavos(i));
+                }
+                ctx.html(LivroView.renderAtrasados(atrasados, multas));
+            } catch (Exception e) {
+                ctx.html(ErrorHandler.handleDatabaseError());
+            }
+        });
+
+        app.get("/emprestimos/multas", ctx -> {
+            try {
+                ctx.html(LivroView.renderRelatorioMultas(service.relatorioDeMultas(LocalDate.now())));
             } catch (Exception e) {
                 ctx.html(ErrorHandler.handleDatabaseError());
             }
@@ -190,18 +298,18 @@ public class LivroController {
                     return;
                 }
 
-                Livro livro = service.buscarLivroPorIDNoAcervo(idParam);
-                if (livro == null) {
+                ResultadoOperacao consulta = service.consultarLivro(idParam);
+                if (!consulta.isOk()) {
                     ctx.html(ErrorHandler.handleNotFound("livro"));
                     return;
                 }
 
-                if (!livro.isDisponivel()) {
+                if (!consulta.livro().isDisponivel()) {
                     ctx.html(ErrorHandler.handleBusinessLogicError("Livro não está disponível para empréstimo"));
                     return;
                 }
 
-                ctx.html(LivroView.renderFormEmprestimo(livro));
+                ctx.html(LivroView.renderFormEmprestimo(consulta.livro()));
 
             } catch (Exception e) {
                 ctx.html(ErrorHandler.handleError(e));
@@ -221,33 +329,26 @@ public class LivroController {
                 // Validar prazo
                 FormValidator.ValidationResult validation = FormValidator.validatePrazo(prazoStr);
                 if (!validation.isValid()) {
-                    Livro livro = service.buscarLivroPorIDNoAcervo(idParam);
-                    if (livro == null) {
+                    ResultadoOperacao consulta = service.consultarLivro(idParam);
+                    if (!consulta.isOk()) {
                         ctx.html(ErrorHandler.handleNotFound("livro"));
                         return;
                     }
 
-                    Map<String, Object> model = new HashMap<>();
-                    model.put("livro", livro);
-                    model.put("erro", validation.getErrorMessage());
-                    ctx.html(LivroView.renderFormEmprestimo(livro, validation.getErrorMessage()));
+                    ctx.html(LivroView.renderFormEmprestimo(consulta.livro(), validation.getErrorMessage()));
                     return;
                 }
 
-                // Verificar se livro ainda existe e está disponível
-                Livro livro = service.buscarLivroPorIDNoAcervo(idParam);
-                if (livro == null) {
-                    ctx.html(ErrorHandler.handleNotFound("livro"));
+                // A verificação de existência e disponibilidade acontece junto com o empréstimo
+                int prazo = Integer.parseInt(prazoStr.trim());
+                ResultadoOperacao resultado = service.tentarEmprestarLivro(idParam, prazo);
+                if (resultado.situacao() == ResultadoOperacao.Situacao.INDISPONIVEL) {
+                    ctx.html(ErrorHandler.handleBusinessLogicError("Livro não está mais disponível para empréstimo"));
                     return;
                 }
-
-                if (!livro.isDisponivel()) {
-                    ctx.html(ErrorHandler.handleBusinessLogicError("Livro não está mais disponível para empréstimo"));
+                if (!responderDesfecho(ctx, resultado)) {
                     return;
                 }
-
-                int prazo = Integer.parseInt(prazoStr.trim());
-                service.emprestarLivro(idParam, prazo);
                 ctx.redirect("/emprestimos");
 
             } catch (Exception e) {
@@ -263,11 +364,12 @@ public class LivroController {
                     return;
                 }
 
-                service.devolverLivro(idParam);
+                ResultadoOperacao resultado = service.tentarDevolverLivro(idParam);
+                if (!responderDesfecho(ctx, resultado)) {
+                    return;
+                }
                 ctx.redirect("/emprestimos");
 
-            } catch (MultaPendenteException e) {
-                ctx.html(LivroView.renderMultaPendente(e.getMessage()));
             } catch (Exception e) {
                 ctx.html(ErrorHandler.handleError(e));
             }
@@ -289,11 +391,92 @@ public class LivroController {
                     }
                 }
 
-                ctx.html(LivroView.renderBusca(tipo, termo, service));
+                ctx.html(LivroView.renderBusca(tipo, termo, OrdemListagem.deParametro(ctx.queryParam("ordenar")), service));
 
             } catch (Exception e) {
                 ctx.html(ErrorHandler.handleError(e));
             }
         });
     }
+
+    //Responde os desfechos que não são sucesso; retorna true se a operação deu certo e a rota segue
+    private static boolean responderDesfecho(Context ctx, ResultadoOperacao resultado) {
+        switch (resultado.situacao()) {
+            case OK -> {
+                return true;
+            }
+            case NAO_ENCONTRADO -> ctx.html(ErrorHandler.handleNotFound("livro"));
+            case INDISPONIVEL -> ctx.html(ErrorHandler.handleBusinessLogicError(resultado.mensagem()));
+            case MULTA_PENDENTE -> ctx.html(LivroView.renderMultaPendente(resultado.mensagem()));
+        }
+        return false;
+    }
+
+    //Dados do formulário de edição lidos de uma única versão do livro, com o ETag dela no cabeçalho
+    //e no campo oculto "versao", que volta no POST como o If-Match de um cliente HTTP
+    private static Map<String, Object> modeloDeEdicao(Context ctx, Livro livro) {
+        Livro.Versao versao = livro.versaoAtual();
+        String etag = "\"" + GERACAO_ETAG + "-" + versao.getRevisao() + "\"";
+        ctx.header("ETag", etag);
+        Map<String, Object> model = new HashMap<>();
+        model.put("id", versao.getId());
+        model.put("titulo", versao.getTitulo());
+        model.put("autor", versao.getAutor());
+        model.put("isbn", versao.getIsbn());
+        model.put("versao", etag);
+        return model;
+    }
+
+    //Sem ETag (ou "*") a edição grava sem comparar. ETag de outra geração do servidor ou malformado vira
+    //a revisão 0, que nunca confere: melhor um conflito a mais do que sobrescrever sem saber
+    private static long revisaoDoEtag(String etag) {
+        if (etag == null || etag.isBlank() || etag.trim().equals("*")) {
+            return Livro.SEM_REVISAO;
+        }
+        String valor = etag.trim();
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        valor = valor.replace("\"", "");
+        int separador = valor.lastIndexOf('-');
+        if (separador < 0 || !valor.substring(0, separador).equals(GERACAO_ETAG)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(valor.substring(separador + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static Boolean filtroDeStatus(String status) {
+        if (status == null || status.isBlank()) {
+            return null;
+        }
+        return switch (status.trim().toLowerCase()) {
+            case "disponivel" -> true;
+            case "emprestado" -> false;
+            default -> throw new IllegalArgumentException("Status inválido: " + status);
+        };
+    }
+
+    private RelatorioImportacao importar(InputStream conteudo, boolean jsonLinhas) throws IOException {
+        return jsonLinhas ? service.importarJsonLinhas(conteudo) : service.importarCsv(conteudo);
+    }
+
+    //Parâmetro formato (csv|jsonl) tem precedência; sem ele, decide pela extensão ou pelo Content-Type
+    private static boolean formatoJsonLinhas(Context ctx, UploadedFile arquivo) {
+        String formato = ctx.isMultipartFormData() ? ctx.formParam("formato") : ctx.queryParam("formato");
+        if (formato != null && !formato.isBlank()) {
+            return switch (formato.trim().toLowerCase()) {
+                case "csv" -> false;
+                case "jsonl", "ndjson" -> true;
+                default -> throw new IllegalArgumentException("Formato de importação inválido: " + formato);
+            };
+        }
+        String nome = arquivo != null && arquivo.filename() != null ? arquivo.filename().toLowerCase() : "";
+        String tipo = arquivo != null ? arquivo.contentType() : ctx.contentType();
+        return nome.matches(".*\\.(jsonl|ndjson)(\\.gz)?")
+                || (tipo != null && (tipo.contains("ndjson") || tipo.contains("jsonl") || tipo.contains("json-lines")));
+    }
 }
\ No newline at end of file
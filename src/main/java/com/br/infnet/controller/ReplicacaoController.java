@@ -0,0 +1,140 @@
+package com.br.infnet.controller;
+
+import com.br.infnet.replicacao.LiderReplicacao;
+import com.br.infnet.replicacao.SeguidorReplicacao;
+import com.br.infnet.utils.ErrorHandler;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+//Rotas da replicação: GET /replicacao/status com as métricas de atraso e, no seguidor, o encaminhamento
+//das escritas ao líder. Registrado junto do LivroController, só quando a replicação está ativa.
+public class ReplicacaoController {
+    //Última sequência do log do líder depois de atender uma escrita
+    private static final String CABECALHO_SEQUENCIA = "X-Replicacao-Sequencia";
+    private static final List<String> CABECALHOS_PEDIDO = List.of("Content-Type", "If-Match", "Accept");
+    private static final List<String> CABECALHOS_RESPOSTA = List.of("Content-Type", "Location", "ETag",
+            "Content-Disposition", CABECALHO_SEQUENCIA);
+    //Quanto o seguidor espera aplicar a própria escrita antes de responder mesmo assim
+    private static final long ESPERA_LEITURA_MS = 2_000;
+    private static final String LIDER_INDISPONIVEL = "Servidor principal indisponível; alterações não podem ser "
+            + "feitas agora, mas a consulta ao acervo continua funcionando";
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+
+    public ReplicacaoController(Javalin app, LiderReplicacao lider) {
+        app.after(ctx -> {
+            if (ctx.method() != HandlerType.GET && ctx.method() != HandlerType.HEAD) {
+                ctx.header(CABECALHO_SEQUENCIA, Long.toString(lider.ultimaSequencia()));
+            }
+        });
+
+        app.get("/replicacao/status", ctx -> {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"papel\":\"lider\",\"porta\":").append(lider.getPorta())
+                    .append(",\"ultimaSequencia\":").append(lider.ultimaSequencia())
+                    .append(",\"seguidores\":[");
+            List<LiderReplicacao.StatusSeguidor> seguidores = lider.seguidores();
+            for (int i = 0; i < seguidores.size(); i++) {
+                LiderReplicacao.StatusSeguidor seguidor = seguidores.get(i);
+                json.append(i == 0 ? "" : ",")
+                        .append("{\"endereco\":\"").append(seguidor.endereco())
+                        .append("\",\"sequenciaConfirmada\":").append(seguidor.sequenciaConfirmada())
+                        .append(",\"atrasoRegistros\":").append(seguidor.atrasoRegistros())
+                        .append(",\"atrasoMillis\":").append(seguidor.atrasoMillis())
+                        .append('}');
+            }
+            json.append("]}");
+            ctx.contentType("application/json").result(json.toString());
+        });
+    }
+
+    //urlLider: endereço HTTP do líder (http://host:porta), para onde vão as escritas
+    public ReplicacaoController(Javalin app, SeguidorReplicacao seguidor, String urlLider) {
+        String base = urlLider.endsWith("/") ? urlLider.substring(0, urlLider.length() - 1) : urlLider;
+
+        //O formulário de edição também vem do líder: o ETag dele é o que o POST vai comparar
+        app.before(ctx -> {
+            boolean escrita = ctx.method() != HandlerType.GET && ctx.method() != HandlerType.HEAD;
+            if (escrita || ctx.path().endsWith("/editar")) {
+                encaminhar(ctx, seguidor, base);
+                ctx.skipRemainingHandlers();
+            }
+        });
+
+        app.get("/replicacao/status", ctx -> {
+            SeguidorReplicacao.Status status = seguidor.status();
+            ctx.contentType("application/json").result("{\"papel\":\"seguidor\",\"lider\":\"" + seguidor.getLider()
+                    + "\",\"conectado\":" + status.conectado()
+                    + ",\"sequenciaAplicada\":" + status.sequenciaAplicada()
+                    + ",\"sequenciaLider\":" + status.sequenciaLider()
+                    + ",\"atrasoRegistros\":" + status.atrasoRegistros()
+                    + ",\"atrasoMillis\":" + status.atrasoMillis()
+                    + ",\"reconexoes\":" + status.reconexoes()
+                    + ",\"conflitosIgnorados\":" + status.conflitosIgnorados()
+                    + ",\"ressincronizacoes\":" + status.ressincronizacoes() + "}");
+        });
+    }
+
+    //Repassa a requisição como veio (corpo cru, inclusive multipart) e devolve a resposta do líder
+    private void encaminhar(Context ctx, SeguidorReplicacao seguidor, String base) {
+        String consulta = ctx.queryString();
+        HttpRequest.BodyPublisher corpo = ctx.method() == HandlerType.GET
+                ? HttpRequest.BodyPublishers.noBody()
+                : corpoEmFluxo(ctx);
+        HttpRequest.Builder pedido = HttpRequest.newBuilder(URI.create(base + ctx.path()
+                        + (consulta == null || consulta.isEmpty() ? "" : "?" + consulta)))
+                .timeout(Duration.ofSeconds(30))
+                .method(ctx.method().name(), corpo);
+        for (String nome : CABECALHOS_PEDIDO) {
+            String valor = ctx.header(nome);
+            if (valor != null) {
+                pedido.header(nome, valor);
+            }
+        }
+
+        HttpResponse<byte[]> resposta;
+        try {
+            resposta = cliente.send(pedido.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            ctx.status(502).html(ErrorHandler.handleBusinessLogicError(LIDER_INDISPONIVEL));
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ctx.status(503).html(ErrorHandler.handleBusinessLogicError(LIDER_INDISPONIVEL));
+            return;
+        }
+
+        //Quem escreveu é redirecionado para uma leitura neste nó: ela já precisa ver a escrita
+        resposta.headers().firstValue(CABECALHO_SEQUENCIA)
+                .ifPresent(sequencia -> seguidor.aguardarSequencia(Long.parseLong(sequencia), ESPERA_LEITURA_MS));
+        ctx.status(resposta.statusCode());
+        for (String nome : CABECALHOS_RESPOSTA) {
+            resposta.headers().firstValue(nome).ifPresent(valor -> ctx.header(nome, valor));
+        }
+        ctx.result(resposta.body());
+    }
+
+    //O corpo segue em fluxo, sem bodyAsBytes: um upload em /livros/import não fica inteiro em memória
+    //nem esbarra no maxRequestSize deste nó. Content-Length é restrito no HttpClient; o tamanho enviado
+    //pelo cliente vai pelo publisher
+    private static HttpRequest.BodyPublisher corpoEmFluxo(Context ctx) {
+        long tamanho = ctx.req().getContentLengthLong();
+        if (tamanho == 0) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        HttpRequest.BodyPublisher fluxo = HttpRequest.BodyPublishers.ofInputStream(ctx::bodyInputStream);
+        return tamanho > 0 ? HttpRequest.BodyPublishers.fromPublisher(fluxo, tamanho) : fluxo;
+    }
+}
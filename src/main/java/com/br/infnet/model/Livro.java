@@ -1,21 +1,211 @@
 package com.br.infnet.model;
 
+import com.br.infnet.utils.NormalizadorBusca;
+
 import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
+//Os dados do livro ficam numa Versao imutável, trocada inteira a cada escrita (copy-on-write) e
+//publicada pelo campo volatile. Leitores nunca veem uma escrita pela metade e não precisam de trava;
+//escritas do mesmo livro são serializadas pelo monitor dele. Enquanto o livro está no acervo, cada
+//versão recebe um instante do RelogioVersoes do acervo e aponta para a anterior, para que leituras abertas antes
+//continuem enxergando o estado do seu instante; versões que nenhuma leitura alcança mais são podadas.
 public class Livro {
+    public enum Situacao { FORA_DO_ACERVO, NO_ACERVO, REMOVIDO }
+
+    //Ainda sem instante: invisível para qualquer leitura até ser carimbada
+    static final long PENDENTE = Long.MAX_VALUE;
+    public static final long SEM_REVISAO = -1;
+
+    public static final class Versao {
+        private static final AtomicLongFieldUpdater<Versao> COMMIT =
+                AtomicLongFieldUpdater.newUpdater(Versao.class, "commit");
+
+        private final int id;
+        private final String titulo;
+        private final String autor;
+        private final String isbn;
+        //Chaves normalizadas calculadas uma vez por escrita, usadas pelas buscas
+        private final String chaveBuscaTitulo;
+        private final String chaveBuscaAutor;
+        private final LocalDate dataEmprestimo;
+        private final LocalDate dataEstimadaDevolucao;
+        private final LocalDate dataEfetivaDevolucao;
+        private final int prazoDevolucao;
+        private final boolean disponivel;
+        private final double multa;
+        private final Situacao situacao;
+        //Cresce a cada mudança de título, autor ou ISBN; é o que o ETag do formulário de edição carrega
+        private final long revisao;
+        //Únicos campos que mudam depois de publicada: o carimbo, definido uma vez, e o corte da poda
+        volatile long commit;
+        private volatile Versao anterior;
+
+        private Versao(Rascunho rascunho, long commit) {
+            this.id = rascunho.id;
+            this.titulo = rascunho.titulo;
+            this.autor = rascunho.autor;
+            this.isbn = rascunho.isbn;
+            this.chaveBuscaTitulo = rascunho.chaveBuscaTitulo;
+            this.chaveBuscaAutor = rascunho.chaveBuscaAutor;
+            this.dataEmprestimo = rascunho.dataEmprestimo;
+            this.dataEstimadaDevolucao = rascunho.dataEstimadaDevolucao;
+            this.dataEfetivaDevolucao = rascunho.dataEfetivaDevolucao;
+            this.prazoDevolucao = rascunho.prazoDevolucao;
+            this.disponivel = rascunho.disponivel;
+            this.multa = rascunho.multa;
+            this.situacao = rascunho.situacao;
+            this.revisao = rascunho.revisao;
+            this.commit = commit;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getTitulo() {
+            return titulo;
+        }
+
+        public String getAutor() {
+            return autor;
+        }
+
+        public String getIsbn() {
+            return isbn;
+        }
+
+        public String getChaveBuscaTitulo() {
+            return chaveBuscaTitulo;
+        }
+
+        public String getChaveBuscaAutor() {
+            return chaveBuscaAutor;
+        }
+
+        public LocalDate getDataEmprestimo() {
+            return dataEmprestimo;
+        }
+
+        public LocalDate getDataEstimadaDevolucao() {
+            return dataEstimadaDevolucao;
+        }
+
+        public LocalDate getDataEfetivaDevolucao() {
+            return dataEfetivaDevolucao;
+        }
+
+        public int getPrazoDevolucao() {
+            return prazoDevolucao;
+        }
+
+        public boolean isDisponivel() {
+            return disponivel;
+        }
+
+        public double getMulta() {
+            return multa;
+        }
+
+        public Situacao getSituacao() {
+            return situacao;
+        }
+
+        public long getRevisao() {
+            return revisao;
+        }
+
+        public long getCommit() {
+            return commit;
+        }
+
+        //O instante é definido uma vez só, por quem chegar primeiro: o escritor ou uma leitura que a encontrou pendente
+        void carimbar(long instante) {
+            COMMIT.compareAndSet(this, PENDENTE, instante);
+        }
+    }
+
+    //Versão em montagem: copiada da atual, alterada sob o monitor do livro e só então congelada numa Versao
+    private static final class Rascunho {
+        private final int id;
+        private String titulo;
+        private String autor;
+        private String isbn;
+        private String chaveBuscaTitulo;
+        private String chaveBuscaAutor;
+        private LocalDate dataEmprestimo;
+        private LocalDate dataEstimadaDevolucao;
+        private LocalDate dataEfetivaDevolucao;
+        private int prazoDevolucao;
+        private boolean disponivel;
+        private double multa;
+        private Situacao situacao;
+        private long revisao;
+
+        private Rascunho(int id) {
+            this.id = id;
+            this.disponivel = true;
+            this.situacao = Situacao.FORA_DO_ACERVO;
+            this.revisao = 1;
+        }
+
+        private Rascunho(Versao base) {
+            this.id = base.id;
+            this.titulo = base.titulo;
+            this.autor = base.autor;
+            this.isbn = base.isbn;
+            this.chaveBuscaTitulo = base.chaveBuscaTitulo;
+            this.chaveBuscaAutor = base.chaveBuscaAutor;
+            this.dataEmprestimo = base.dataEmprestimo;
+            this.dataEstimadaDevolucao = base.dataEstimadaDevolucao;
+            this.dataEfetivaDevolucao = base.dataEfetivaDevolucao;
+            this.prazoDevolucao = base.prazoDevolucao;
+            this.disponivel = base.disponivel;
+            this.multa = base.multa;
+            this.situacao = base.situacao;
+            this.revisao = base.revisao;
+        }
+    }
+
     private final int id;
-    private String titulo;
-    private String autor;
-    private String isbn;
-    private LocalDate dataEmprestimo;
-    private LocalDate dataEstimadaDevolucao;
-    private LocalDate dataEfetivaDevolucao;
-    private int prazoDevolucao;
-    private boolean disponivel;
-    double multa;
+    private volatile Versao versao;
+    //Relógio do acervo em que o livro entrou; nulo enquanto nunca esteve em nenhum
+    private RelogioVersoes relogio;
+    //Na fila do RelogioVersoes, esperando as leituras que prendem versões antigas fecharem
+    private boolean aguardandoPoda;
 
     public Livro(int id, String titulo, String autor, String isbn) {
+        this(id, titulo, autor, isbn, null, null, true);
+    }
+
+    //Recria um livro a partir de dados já validados quando foram gravados (snapshot, journal)
+    public static Livro restaurar(int id, String titulo, String autor, String isbn) {
+        return new Livro(id, titulo, autor, isbn, null, null, false);
+    }
 
+    //Idem, reaproveitando as chaves de busca gravadas junto, sem normalizar de novo
+    public static Livro restaurar(int id, String titulo, String autor, String isbn,
+                                  String chaveBuscaTitulo, String chaveBuscaAutor) {
+        return new Livro(id, titulo, autor, isbn, chaveBuscaTitulo, chaveBuscaAutor, false);
+    }
+
+    private Livro(int id, String titulo, String autor, String isbn,
+                  String chaveBuscaTitulo, String chaveBuscaAutor, boolean validar) {
+        if (validar) {
+            validarCampos(titulo, autor, isbn);
+        }
+
+        this.id = id;
+        Rascunho inicial = new Rascunho(id);
+        inicial.titulo = titulo;
+        inicial.autor = autor;
+        inicial.isbn = isbn;
+        inicial.chaveBuscaTitulo = chaveBuscaTitulo != null ? chaveBuscaTitulo : NormalizadorBusca.normalizar(titulo);
+        inicial.chaveBuscaAutor = chaveBuscaAutor != null ? chaveBuscaAutor : NormalizadorBusca.normalizar(autor);
+        this.versao = new Versao(inicial, 0);
+    }
+
+    private static void validarCampos(String titulo, String autor, String isbn) {
         if (titulo == null || titulo.isBlank()) {
             throw new IllegalArgumentException("Título inválido");
         }
@@ -43,49 +233,83 @@ public class Livro {
         if(!isbn.matches("\\d+")) {
             throw new IllegalArgumentException("ISBN deve conter apenas números");
         }
-
-        this.id = id;
-        this.titulo = titulo;
-        this.autor = autor;
-        this.isbn = isbn;
-        this.dataEmprestimo = null;
-        this.prazoDevolucao = 0;
-        this.dataEstimadaDevolucao = null;
-        this.disponivel = true;
-        this.multa = 0;
     }
 
     public int getId() {
         return id;
     }
 
+    //Estado inteiro de um instante: quem precisa de vários campos coerentes entre si lê daqui
+    public Versao versaoAtual() {
+        return versao;
+    }
+
+    //Versão vista por uma leitura aberta no instante dado; nula se o livro ainda não existia para ela
+    public Versao versaoEm(RelogioVersoes.Leitura leitura) {
+        Versao v = versao;
+        while (v != null && leitura.commitDe(v) > leitura.instante()) {
+            v = v.anterior;
+        }
+        return v;
+    }
+
     public String getTitulo() {
-        return titulo;
+        return versao.titulo;
     }
 
     public void setTitulo(String titulo) {
         if(titulo == null || titulo.isBlank()) {
             throw new IllegalArgumentException("Título inválido");
         }
-        this.titulo = titulo;
+        synchronized (this) {
+            Rascunho nova = new Rascunho(versao);
+            nova.titulo = titulo;
+            nova.chaveBuscaTitulo = NormalizadorBusca.normalizar(titulo);
+            nova.revisao++;
+            publicar(nova);
+        }
     }
 
     public String getAutor() {
-        return autor;
+        return versao.autor;
     }
 
     public void setAutor(String autor) {
         if(autor == null || autor.isBlank()) {
             throw new IllegalArgumentException("Autor inválido");
         }
-        this.autor = autor;
+        synchronized (this) {
+            Rascunho nova = new Rascunho(versao);
+            nova.autor = autor;
+            nova.chaveBuscaAutor = NormalizadorBusca.normalizar(autor);
+            nova.revisao++;
+            publicar(nova);
+        }
+    }
+
+    public String getChaveBuscaTitulo() {
+        return versao.chaveBuscaTitulo;
+    }
+
+    public String getChaveBuscaAutor() {
+        return versao.chaveBuscaAutor;
     }
 
     public String getIsbn() {
-        return isbn;
+        return versao.isbn;
     }
 
     public void setIsbn(String isbn) {
+        validarIsbn(isbn);
+        synchronized (this) {
+            Rascunho nova = new Rascunho(versao);
+            nova.isbn = isbn;
+            nova.revisao++;
+            publicar(nova);
+        }
+    }
+
+    private static void validarIsbn(String isbn) {
         if (isbn == null || isbn.isBlank()) {
             throw new IllegalArgumentException("ISBN não pode ser nulo ou vazio");
         }
@@ -95,73 +319,229 @@ public class Livro {
         if(!isbn.matches("\\d+")) {
             throw new IllegalArgumentException("ISBN deve conter apenas números");
         }
-        this.isbn = isbn;
+    }
+
+    public long getRevisao() {
+        return versao.revisao;
+    }
+
+    //Título, autor e ISBN numa única versão: leitores veem o livro todo antes ou todo depois
+    public void atualizarCatalogo(String titulo, String autor, String isbn) {
+        atualizarCatalogo(titulo, autor, isbn, SEM_REVISAO);
+    }
+
+    //Compare-and-set pela revisão: só grava se ela ainda for a esperada (lida pelo cliente antes de editar).
+    //Devolve false, sem alterar nada, se outra edição chegou primeiro. SEM_REVISAO grava sem comparar
+    public boolean atualizarCatalogo(String titulo, String autor, String isbn, long revisaoEsperada) {
+        if(autor == null || autor.isBlank()) {
+            throw new IllegalArgumentException("Autor inválido");
+        }
+        return atualizarCatalogo(titulo, autor, NormalizadorBusca.normalizar(autor), isbn, revisaoEsperada);
+    }
+
+    //Idem, com o autor já normalizado pelo acervo (Strings compartilhadas do dicionário de autores)
+    public boolean atualizarCatalogo(String titulo, String autor, String chaveBuscaAutor, String isbn,
+                                     long revisaoEsperada) {
+        if(titulo == null || titulo.isBlank()) {
+            throw new IllegalArgumentException("Título inválido");
+        }
+        if(autor == null || autor.isBlank()) {
+            throw new IllegalArgumentException("Autor inválido");
+        }
+        validarIsbn(isbn);
+        synchronized (this) {
+            if (revisaoEsperada != SEM_REVISAO && versao.revisao != revisaoEsperada) {
+                return false;
+            }
+            Rascunho nova = new Rascunho(versao);
+            nova.titulo = titulo;
+            nova.chaveBuscaTitulo = NormalizadorBusca.normalizar(titulo);
+            nova.autor = autor;
+            nova.chaveBuscaAutor = chaveBuscaAutor;
+            nova.isbn = isbn;
+            nova.revisao++;
+            publicar(nova);
+            return true;
+        }
+    }
+
+    public void registrarEmprestimo(LocalDate dataEmprestimo, int prazoDevolucao) {
+        if (prazoDevolucao < 0) {
+            throw new IllegalArgumentException("Prazo de devolução não pode ser negativo");
+        }
+        synchronized (this) {
+            Rascunho nova = new Rascunho(versao);
+            nova.dataEmprestimo = dataEmprestimo;
+            nova.prazoDevolucao = prazoDevolucao;
+            nova.dataEstimadaDevolucao = dataEmprestimo.plusDays(prazoDevolucao);
+            nova.disponivel = false;
+            publicar(nova);
+        }
+    }
+
+    //Volta ao estado de disponível, sem multa nem datas de devolução
+    public synchronized void registrarDevolucao() {
+        Rascunho nova = new Rascunho(versao);
+        nova.disponivel = true;
+        nova.multa = 0;
+        nova.prazoDevolucao = 0;
+        nova.dataEstimadaDevolucao = null;
+        nova.dataEfetivaDevolucao = null;
+        publicar(nova);
+    }
+
+    //Chamados pelo acervo ao cadastrar e remover: leituras abertas antes não veem a mudança.
+    //Na entrada, a versão já nasce com as Strings do autor compartilhadas entre livros (dicionário de autores)
+    public synchronized void entrarNoAcervo(RelogioVersoes relogio, String autor, String chaveBuscaAutor) {
+        //Os instantes da cadeia só fazem sentido para o relógio que os deu
+        if (this.relogio != null && this.relogio != relogio) {
+            throw new IllegalStateException("Livro já pertenceu a outro acervo");
+        }
+        Versao atual = versao;
+        if (!atual.autor.equals(autor) || !atual.chaveBuscaAutor.equals(chaveBuscaAutor)) {
+            throw new IllegalArgumentException("Autor compartilhado difere do autor do livro");
+        }
+        this.relogio = relogio;
+        Rascunho nova = new Rascunho(atual);
+        nova.autor = autor;
+        nova.chaveBuscaAutor = chaveBuscaAutor;
+        nova.situacao = Situacao.NO_ACERVO;
+        publicar(nova);
+    }
+
+    public synchronized void sairDoAcervo() {
+        Rascunho nova = new Rascunho(versao);
+        nova.situacao = Situacao.REMOVIDO;
+        publicar(nova);
+    }
+
+    public Situacao getSituacao() {
+        return versao.situacao;
     }
 
     public void setDataEmprestimo(LocalDate dataEmprestimo) {
-        this.dataEmprestimo = dataEmprestimo;
+        synchronized (this) {
+            Rascunho nova = new Rascunho(versao);
+            nova.dataEmprestimo = dataEmprestimo;
+            publicar(nova);
+        }
     }
 
     public LocalDate getDataEmprestimo() {
-        return dataEmprestimo;
+        return versao.dataEmprestimo;
     }
 
     public LocalDate getDataEstimadaDevolucao() {
-        return dataEstimadaDevolucao;
+        return versao.dataEstimadaDevolucao;
     }
 
     public void setDataEstimadaDevolucao(LocalDate dataDevolucao) {
-        this.dataEstimadaDevolucao = dataDevolucao;
+        synchronized (this) {
+            Rascunho nova = new Rascunho(versao);
+            nova.dataEstimadaDevolucao = dataDevolucao;
+            publicar(nova);
+        }
     }
 
     public LocalDate getDataEfetivaDevolucao() {
-        return dataEfetivaDevolucao;
+        return versao.dataEfetivaDevolucao;
     }
 
     public void setDataEfetivaDevolucao(LocalDate dataEfetivaDevolucao) {
-        this.dataEfetivaDevolucao = dataEfetivaDevolucao;
+        synchronized (this) {
+            Rascunho nova = new Rascunho(versao);
+            nova.dataEfetivaDevolucao = dataEfetivaDevolucao;
+            publicar(nova);
+        }
     }
 
     public boolean isDisponivel() {
-        return this.disponivel;
+        return versao.disponivel;
     }
 
     public void setDisponivel(boolean disponivel) {
-        this.disponivel = disponivel;
+        synchronized (this) {
+            Rascunho nova = new Rascunho(versao);
+            nova.disponivel = disponivel;
+            publicar(nova);
+        }
     }
 
     public int getPrazoDevolucao() {
-        return prazoDevolucao;
+        return versao.prazoDevolucao;
     }
 
     public void setPrazoDevolucao(int prazoDevolucao) {
         if (prazoDevolucao < 0) {
             throw new IllegalArgumentException("Prazo de devolução não pode ser negativo");
         }
-        this.prazoDevolucao = prazoDevolucao;
+        synchronized (this) {
+            Rascunho nova = new Rascunho(versao);
+            nova.prazoDevolucao = prazoDevolucao;
+            publicar(nova);
+        }
     }
 
     public double getMulta() {
-        return multa;
+        return versao.multa;
     }
 
     public void setMulta(double multa) {
         if (multa < 0) {
             throw new IllegalArgumentException("Multa não pode ser negativa");
         }
-        this.multa = multa;
+        synchronized (this) {
+            Rascunho nova = new Rascunho(versao);
+            nova.multa = multa;
+            publicar(nova);
+        }
+    }
+
+    //Sempre com o monitor do livro em mãos
+    private void publicar(Rascunho rascunho) {
+        Versao atual = versao;
+        if (atual.situacao == Situacao.FORA_DO_ACERVO && rascunho.situacao == Situacao.FORA_DO_ACERVO) {
+            //Fora do acervo nenhuma leitura enxerga o livro: não há histórico a manter
+            versao = new Versao(rascunho, 0);
+            return;
+        }
+        Versao nova = new Versao(rascunho, PENDENTE);
+        nova.anterior = atual;
+        versao = nova;
+        podar(relogio.carimbar(nova));
     }
 
+    //Chamado pelo RelogioVersoes quando uma leitura fecha
+    synchronized void podarVersoes(long limite) {
+        aguardandoPoda = false;
+        podar(limite);
+    }
 
+    //Corta a cadeia abaixo da versão mais nova com instante <= limite: nenhuma leitura aberta
+    //(nem futura) precisa de algo mais antigo que ela
+    private void podar(long limite) {
+        Versao v = versao;
+        while (v != null && v.commit > limite) {
+            v = v.anterior;
+        }
+        if (v != null) {
+            v.anterior = null;
+        }
+        if (versao.anterior != null && !aguardandoPoda) {
+            aguardandoPoda = true;
+            relogio.aguardarPoda(this);
+        }
+    }
 
     @Override
     public String toString() {
+        Versao atual = versao;
         return "ID = " + id +
-                ", Título: '" + titulo + '\'' +
-                ", Autor: '" + autor + '\'' +
-                ", ISBN: '" + isbn + '\'' +
-                ", Disponível? " + disponivel;
+                ", Título: '" + atual.titulo + '\'' +
+                ", Autor: '" + atual.autor + '\'' +
+                ", ISBN: '" + atual.isbn + '\'' +
+                ", Disponível? " + atual.disponivel;
     }
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+package com.br.infnet.model;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Relógio de commits das versões de livros e registro das leituras abertas, um por acervo (as partições
+//de um acervo particionado dividem o mesmo, para que uma leitura valha para todas).
+//Cada versão publicada recebe um instante crescente; uma leitura enxerga, de cada livro, a versão
+//mais nova com instante <= ao dela. Versões anteriores ao limite de poda (a leitura aberta mais antiga,
+//ou o último commit quando não há nenhuma) não são mais alcançáveis por ninguém e podem ser descartadas.
+//Sem trava: o relógio é um AtomicLong e as leituras abertas ficam num conjunto concorrente ordenado.
+public final class RelogioVersoes {
+    private final AtomicLong ultimoCommit = new AtomicLong();
+    //Desempate entre leituras abertas no mesmo instante
+    private final AtomicLong leiturasCriadas = new AtomicLong();
+    private final ConcurrentSkipListSet<Leitura> leituras = new ConcurrentSkipListSet<>();
+    //Livros que ficaram com versões antigas presas por alguma leitura; podados quando elas fecham
+    private final ConcurrentLinkedQueue<Livro> pendentes = new ConcurrentLinkedQueue<>();
+
+    //Leitura aberta: enxerga as versões com instante <= instante. Fica registrada com o valor do relógio
+    //lido antes de entrar no conjunto, que pode ser menor que o instante e só segura versões a mais
+    public static final class Leitura implements Comparable<Leitura> {
+        private final RelogioVersoes relogio;
+        private final long registro;
+        private final long numero;
+        private long instante;
+
+        private Leitura(RelogioVersoes relogio, long registro, long numero) {
+            this.relogio = relogio;
+            this.registro = registro;
+            this.numero = numero;
+        }
+
+        public long instante() {
+            return instante;
+        }
+
+        //Instante definitivo da versão, do ponto de vista desta leitura
+        long commitDe(Livro.Versao versao) {
+            return relogio.commitDe(versao);
+        }
+
+        public void fechar() {
+            relogio.fecharLeitura(this);
+        }
+
+        @Override
+        public int compareTo(Leitura outra) {
+            int comparacao = Long.compare(registro, outra.registro);
+            return comparacao != 0 ? comparacao : Long.compare(numero, outra.numero);
+        }
+    }
+
+    //Carimba a versão, já publicada no livro, e devolve o limite de poda vigente
+    long carimbar(Livro.Versao versao) {
+        versao.carimbar(ultimoCommit.incrementAndGet());
+        return limite();
+    }
+
+    //Uma versão publicada e ainda sem carimbo recebe aqui um instante novo, posterior ao desta leitura
+    //e de qualquer outra já aberta: fica invisível para elas de forma estável, e o carimbo do escritor,
+    //que chega depois, não a troca mais. Se o escritor carimbou antes, vale o instante dele
+    long commitDe(Livro.Versao versao) {
+        if (versao.commit == Livro.PENDENTE) {
+            versao.carimbar(ultimoCommit.incrementAndGet());
+        }
+        return versao.commit;
+    }
+
+    //Entra no conjunto antes de ler o instante: quem calculou o limite sem ver esta leitura leu o
+    //relógio antes dela entrar, então o limite dele não passa do instante lido depois
+    public Leitura abrirLeitura() {
+        Leitura leitura = new Leitura(this, ultimoCommit.get(), leiturasCriadas.incrementAndGet());
+        leituras.add(leitura);
+        leitura.instante = ultimoCommit.get();
+        return leitura;
+    }
+
+    void fecharLeitura(Leitura leitura) {
+        if (!leituras.remove(leitura)) {
+            return;
+        }
+        long limite = limite();
+        //Quem fecha a leitura faz a poda que ela vinha impedindo; o que ainda estiver preso
+        //por leituras mais antigas volta para a fila
+        for (int i = pendentes.size(); i > 0; i--) {
+            Livro livro = pendentes.poll();
+            if (livro == null) {
+                break;
+            }
+            livro.podarVersoes(limite);
+        }
+    }
+
+    void aguardarPoda(Livro livro) {
+        pendentes.add(livro);
+    }
+
+    public long limiteDePoda() {
+        return limite();
+    }
+
+    public int leiturasAbertas() {
+        return leituras.size();
+    }
+
+    //O relógio é lido antes do conjunto de leituras; abrirLeitura faz o contrário
+    private long limite() {
+        long limite = ultimoCommit.get();
+        Iterator<Leitura> abertas = leituras.iterator();
+        return abertas.hasNext() ? Math.min(limite, abertas.next().registro) : limite;
+    }
+}
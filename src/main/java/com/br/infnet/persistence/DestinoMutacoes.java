@@ -0,0 +1,10 @@
+package com.br.infnet.persistence;
+
+//Para onde o acervo manda cada mutação: o journal em disco, o log de replicação, ou os dois encadeados
+public interface DestinoMutacoes {
+    //Chamado dentro da seção crítica da mutação, para que a ordem das sequências siga a das escritas
+    long registrar(RegistroJournal registro);
+
+    //Chamado depois de liberar as travas: bloqueia até a mutação estar garantida no destino
+    void aguardar(long sequencia);
+}
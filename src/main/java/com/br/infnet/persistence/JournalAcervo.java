@@ -0,0 +1,354 @@
+package com.br.infnet.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+//Journal append-only do acervo, dividido em segmentos journal-<primeira sequência>.log.
+//Cada registro é gravado como [tamanho][crc32][conteúdo]. Uma única thread escritora drena a fila
+//e faz um fsync por lote (group commit): quem espera durabilidade não serializa os demais pedidos.
+public class JournalAcervo implements Closeable {
+    private static final String PREFIXO = "journal-";
+    private static final String SUFIXO = ".log";
+
+    //Um item da fila: um registro codificado, ou um pedido de rotação de segmento (dados == null)
+    private record Pendente(long sequencia, byte[] dados, CompletableFuture<Void> rotacao) {
+    }
+
+    private final Path diretorio;
+    private final Object monitor = new Object();
+    private final ArrayDeque<Pendente> pendentes = new ArrayDeque<>();
+    private final Thread escritor;
+
+    //Protegidos por monitor
+    private long ultimaSequencia;
+    private long sequenciaDuravel;
+    private boolean fechado;
+    private IOException falha;
+
+    //Usado apenas pela thread escritora
+    private FileChannel canal;
+
+    public JournalAcervo(Path diretorio, long ultimaSequencia) throws IOException {
+        this.diretorio = diretorio;
+        this.ultimaSequencia = ultimaSequencia;
+        this.sequenciaDuravel = ultimaSequencia;
+        Files.createDirectories(diretorio);
+        List<Path> segmentos = listarSegmentos(diretorio);
+        if (!segmentos.isEmpty()) {
+            descartarRegistroIncompleto(segmentos.get(segmentos.size() - 1));
+        }
+        this.canal = abrirSegmento(ultimaSequencia + 1);
+
+        this.escritor = new Thread(this::escrever, "journal-acervo");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    //Atribui a próxima sequência e enfileira o registro. Deve ser chamado dentro da mesma seção
+    //crítica que aplicou a mutação, para que a ordem do journal siga a ordem das escritas.
+    public long registrar(RegistroJournal registro) {
+        synchronized (monitor) {
+            verificarAberto();
+            long sequencia = ++ultimaSequencia;
+            pendentes.add(new Pendente(sequencia, registro.comSequencia(sequencia).codificar(), null));
+            monitor.notifyAll();
+            return sequencia;
+        }
+    }
+
+    public void aguardarDurabilidade(long sequencia) {
+        synchronized (monitor) {
+            while (sequenciaDuravel < sequencia) {
+                //Depois do close a thread escritora ainda drena a fila, então só a falha interrompe a espera
+                verificarFalha();
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrompido aguardando gravação do journal", e);
+                }
+            }
+        }
+    }
+
+    public long ultimaSequencia() {
+        synchronized (monitor) {
+            return ultimaSequencia;
+        }
+    }
+
+    //Fecha o segmento atual e passa a gravar num novo. Retorna a última sequência do segmento fechado:
+    //todo registro até ela já foi aplicado em memória quando a rotação acontece.
+    public long rotacionar() {
+        CompletableFuture<Void> rotacao = new CompletableFuture<>();
+        long sequencia;
+        synchronized (monitor) {
+            verificarAberto();
+            sequencia = ultimaSequencia;
+            pendentes.add(new Pendente(sequencia, null, rotacao));
+            monitor.notifyAll();
+        }
+        rotacao.join();
+        return sequencia;
+    }
+
+    //Apaga segmentos cujos registros são todos anteriores ou iguais à sequência (já cobertos por snapshot)
+    public void descartarAte(long sequencia) throws IOException {
+        List<Path> segmentos = listarSegmentos(diretorio);
+        for (int i = 0; i + 1 < segmentos.size(); i++) {
+            if (primeiraSequencia(segmentos.get(i + 1)) <= sequencia + 1) {
+                Files.deleteIfExists(segmentos.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (monitor) {
+            if (fechado) {
+                return;
+            }
+            fechado = true;
+            monitor.notifyAll();
+        }
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void escrever() {
+        List<Pendente> lote = new ArrayList<>();
+        try {
+            while (true) {
+                synchronized (monitor) {
+                    while (pendentes.isEmpty() && !fechado) {
+                        monitor.wait();
+                    }
+                    if (pendentes.isEmpty()) {
+                        break;
+                    }
+                    lote.addAll(pendentes);
+                    pendentes.clear();
+                }
+
+                long ultimaGravada = gravarLote(lote);
+                lote.clear();
+
+                synchronized (monitor) {
+                    sequenciaDuravel = Math.max(sequenciaDuravel, ultimaGravada);
+                    monitor.notifyAll();
+                }
+            }
+            canal.force(true);
+            canal.close();
+        } catch (IOException e) {
+            synchronized (monitor) {
+                falha = e;
+                lote.addAll(pendentes);
+                pendentes.clear();
+                monitor.notifyAll();
+            }
+            for (Pendente pendente : lote) {
+                if (pendente.rotacao() != null) {
+                    pendente.rotacao().completeExceptionally(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long gravarLote(List<Pendente> lote) throws IOException {
+        int total = 0;
+        for (Pendente pendente : lote) {
+            if (pendente.dados() != null) {
+                total += 8 + pendente.dados().length;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        CRC32 crc = new CRC32();
+        long ultima = 0;
+
+        for (Pendente pendente : lote) {
+            if (pendente.dados() == null) {
+                //Rotação: o que veio antes vai para o segmento atual, o que vem depois para o novo
+                descarregar(buffer);
+                canal.force(false);
+                canal.close();
+                canal = abrirSegmento(pendente.sequencia() + 1);
+                ultima = Math.max(ultima, pendente.sequencia());
+                pendente.rotacao().complete(null);
+                continue;
+            }
+            crc.reset();
+            crc.update(pendente.dados());
+            buffer.putInt(pendente.dados().length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(pendente.dados());
+            ultima = pendente.sequencia();
+        }
+
+        descarregar(buffer);
+        canal.force(false);
+        return ultima;
+    }
+
+    private void descarregar(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.compact();
+    }
+
+    private FileChannel abrirSegmento(long primeiraSequencia) throws IOException {
+        Path segmento = diretorio.resolve(String.format("%s%020d%s", PREFIXO, primeiraSequencia, SUFIXO));
+        return FileChannel.open(segmento, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private void verificarAberto() {
+        verificarFalha();
+        if (fechado) {
+            throw new IllegalStateException("Journal do acervo está fechado");
+        }
+    }
+
+    private void verificarFalha() {
+        if (falha != null) {
+            throw new UncheckedIOException("Falha ao gravar o journal do acervo", falha);
+        }
+    }
+
+    //Reaplica, em ordem, os registros com sequência maior que aposSequencia. Retorna a maior sequência lida.
+    //Só o fim do último segmento pode ter um registro pela metade; corrupção em qualquer outro ponto, ou um
+    //salto na sequência, interrompe a recuperação em vez de aplicar registros sobre um estado incompleto.
+    public static long reproduzir(Path diretorio, long aposSequencia, Consumer<RegistroJournal> aplicar)
+            throws IOException {
+        long[] ultima = {aposSequencia};
+        long[] anterior = {-1};
+        List<Path> segmentos = listarSegmentos(diretorio);
+        for (int i = 0; i < segmentos.size(); i++) {
+            Path segmento = segmentos.get(i);
+            lerSegmento(segmento, i == segmentos.size() - 1, registro -> {
+                long sequencia = registro.sequencia();
+                if (anterior[0] >= 0 && sequencia != anterior[0] + 1 || sequencia > ultima[0] + 1) {
+                    throw new IOException("Journal do acervo sem registros entre as sequências "
+                            + Math.max(anterior[0], ultima[0]) + " e " + sequencia + " (" + segmento.getFileName() + ")");
+                }
+                anterior[0] = sequencia;
+                if (sequencia > ultima[0]) {
+                    aplicar.accept(registro);
+                    ultima[0] = sequencia;
+                }
+            });
+        }
+        return ultima[0];
+    }
+
+    private interface ReceptorRegistros {
+        void receber(RegistroJournal registro) throws IOException;
+    }
+
+    //Entrega os registros do segmento e retorna o tamanho da parte válida. Um registro incompleto, ou com CRC
+    //errado mas sem nada depois dele, só é aceito no fim do último segmento: é a escrita que a queda interrompeu
+    //antes do fsync, nunca confirmada a ninguém. No resto do journal os dois casos são corrupção.
+    private static long lerSegmento(Path segmento, boolean ultimo, ReceptorRegistros receptor) throws IOException {
+        long tamanhoArquivo = Files.size(segmento);
+        long posicao = 0;
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(segmento), 1 << 16))) {
+            while (posicao < tamanhoArquivo) {
+                long restante = tamanhoArquivo - posicao;
+                if (restante < 8) {
+                    return cauda(segmento, ultimo, posicao, "cabeçalho incompleto");
+                }
+                int tamanho = entrada.readInt();
+                int crcEsperado = entrada.readInt();
+                if (tamanho <= 0 || tamanho > (1 << 20)) {
+                    throw corrompido(segmento, posicao, "tamanho de registro inválido");
+                }
+                if (restante - 8 < tamanho) {
+                    return cauda(segmento, ultimo, posicao, "registro incompleto");
+                }
+                byte[] dados = new byte[tamanho];
+                entrada.readFully(dados);
+
+                CRC32 crc = new CRC32();
+                crc.update(dados);
+                if ((int) crc.getValue() != crcEsperado) {
+                    if (restante - 8 > tamanho) {
+                        throw corrompido(segmento, posicao, "CRC não confere");
+                    }
+                    return cauda(segmento, ultimo, posicao, "CRC não confere");
+                }
+                receptor.receber(RegistroJournal.decodificar(new DataInputStream(new ByteArrayInputStream(dados))));
+                posicao += 8 + tamanho;
+            }
+        }
+        return posicao;
+    }
+
+    private static long cauda(Path segmento, boolean ultimo, long posicao, String motivo) throws IOException {
+        if (!ultimo) {
+            throw corrompido(segmento, posicao, motivo);
+        }
+        System.err.println("Journal do acervo: descartando escrita interrompida no fim de " + segmento.getFileName()
+                + " (" + motivo + ")");
+        return posicao;
+    }
+
+    private static IOException corrompido(Path segmento, long posicao, String motivo) {
+        return new IOException("Journal do acervo corrompido em " + segmento.getFileName() + ", posição " + posicao
+                + ": " + motivo);
+    }
+
+    static List<Path> listarSegmentos(Path diretorio) throws IOException {
+        if (!Files.isDirectory(diretorio)) {
+            return List.of();
+        }
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos
+                    .filter(p -> p.getFileName().toString().startsWith(PREFIXO)
+                            && p.getFileName().toString().endsWith(SUFIXO))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long primeiraSequencia(Path segmento) {
+        String nome = segmento.getFileName().toString();
+        return Long.parseLong(nome.substring(PREFIXO.length(), nome.length() - SUFIXO.length()));
+    }
+
+    //Uma queda no meio de um fsync pode deixar um registro pela metade no fim do último segmento;
+    //ele é cortado para que novos registros não fiquem escondidos atrás dele. Corrupção antes do fim falha aqui
+    private static void descartarRegistroIncompleto(Path segmento) throws IOException {
+        long valido = lerSegmento(segmento, true, registro -> {
+        });
+        try (FileChannel canalSegmento = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+            if (canalSegmento.size() > valido) {
+                canalSegmento.truncate(valido);
+                canalSegmento.force(true);
+            }
+        }
+    }
+}
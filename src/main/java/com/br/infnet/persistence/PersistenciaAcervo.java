@@ -0,0 +1,264 @@
+package com.br.infnet.persistence;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.utils.MapaIntLivro;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Junta journal e snapshot: recupera o acervo na subida, registra as mutações
+//e de tempos em tempos grava um snapshot para que o journal não cresça sem limite.
+public class PersistenciaAcervo implements DestinoMutacoes, Closeable {
+    //Quantidade de registros no journal entre um snapshot e o próximo
+    public static final int REGISTROS_POR_SNAPSHOT = 50_000;
+    private static final String ARQUIVO_TRAVA = "acervo.lock";
+
+    //De onde o snapshot lê o estado atual do acervo
+    public interface FonteSnapshot {
+        int proximoId();
+
+        //Entrega à leitura os livros de um único instante, abrindo e fechando a visão em volta dela
+        void lerLivros(LeituraLivros leitura) throws IOException;
+    }
+
+    public interface LeituraLivros {
+        //ordem pode ser null; quando vem, é a ordem alfabética desses mesmos livros
+        void ler(Iterable<Livro.Versao> livros, SnapshotAcervo.Ordem ordem) throws IOException;
+    }
+
+    //Estado recuperado do disco; vazio quando não havia snapshot nem journal. ordem é a do snapshot sem os
+    //livros que o journal alterou depois dele, ou null
+    public record Estado(long ultimaSequencia, int proximoId, List<Livro> livros, SnapshotAcervo.Ordem ordem,
+                         boolean vazio) {
+    }
+
+    private final Path diretorio;
+    //Trava exclusiva do diretório enquanto esta instância estiver aberta: dois escritores no mesmo
+    //journal intercalariam sequências e um cortaria como incompletos os registros do outro
+    private final FileChannel canalTrava;
+    private final FileLock trava;
+    private final JournalAcervo journal;
+    private final FonteSnapshot fonte;
+    private final ExecutorService executorSnapshot;
+    private final AtomicBoolean snapshotEmAndamento = new AtomicBoolean();
+    //Entregue uma vez por estadoRecuperado, depois solto
+    private Estado estadoRecuperado;
+
+    //Trava o diretório, recupera snapshot + journal e abre o journal para novas escritas
+    public PersistenciaAcervo(Path diretorio, FonteSnapshot fonte) {
+        this.diretorio = diretorio;
+        this.fonte = fonte;
+        try {
+            Files.createDirectories(diretorio);
+            this.canalTrava = FileChannel.open(diretorio.resolve(ARQUIVO_TRAVA), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir o diretório de dados " + diretorio, e);
+        }
+        try {
+            this.trava = travar(canalTrava, diretorio);
+            this.estadoRecuperado = recuperar(diretorio);
+            this.journal = new JournalAcervo(diretorio, estadoRecuperado.ultimaSequencia());
+        } catch (IOException e) {
+            liberarTrava();
+            throw new UncheckedIOException("Não foi possível abrir o journal do acervo", e);
+        } catch (RuntimeException e) {
+            liberarTrava();
+            throw e;
+        }
+        this.executorSnapshot = Executors.newSingleThreadExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "snapshot-acervo");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static FileLock travar(FileChannel canal, Path diretorio) throws IOException {
+        FileLock trava;
+        try {
+            trava = canal.tryLock();
+        } catch (OverlappingFileLockException e) {
+            trava = null;
+        }
+        if (trava == null) {
+            throw new IllegalStateException("Diretório de dados já está em uso por outra instância: " + diretorio);
+        }
+        return trava;
+    }
+
+    //Fecha o canal, o que também solta a trava se ela chegou a ser obtida
+    private void liberarTrava() {
+        try {
+            canalTrava.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao liberar a trava de " + diretorio + ": " + e.getMessage());
+        }
+    }
+
+    public Estado estadoRecuperado() {
+        Estado estado = estadoRecuperado;
+        estadoRecuperado = null;
+        return estado;
+    }
+
+    //Lê o estado sem travar o diretório; quem for escrever nele usa o construtor
+    public static Estado recuperar(Path diretorio) {
+        try {
+            SnapshotAcervo.Conteudo snapshot = SnapshotAcervo.carregarMaisRecente(diretorio);
+            MapaIntLivro livros = snapshot != null ? new MapaIntLivro(snapshot.livros().size()) : new MapaIntLivro();
+            long sequencia = 0;
+            int proximoId = 1;
+            boolean vazio = true;
+
+            if (snapshot != null) {
+                for (Livro livro : snapshot.livros()) {
+                    livros.put(livro.getId(), livro);
+                }
+                sequencia = snapshot.sequencia();
+                proximoId = snapshot.proximoId();
+                vazio = false;
+            }
+
+            //Empréstimos e devoluções não mexem em título nem autor
+            Set<Integer> alterados = new HashSet<>();
+            long ultima = JournalAcervo.reproduzir(diretorio, sequencia, registro -> {
+                if (registro.tipo() != RegistroJournal.Tipo.EMPRESTAR
+                        && registro.tipo() != RegistroJournal.Tipo.DEVOLVER) {
+                    alterados.add(registro.id());
+                }
+                aplicar(livros, registro);
+            });
+            if (ultima > sequencia) {
+                vazio = false;
+            }
+            for (Livro livro : livros.values()) {
+                proximoId = Math.max(proximoId, livro.getId() + 1);
+            }
+            SnapshotAcervo.Ordem ordem = snapshot != null && snapshot.ordem() != null
+                    ? snapshot.ordem().sem(alterados) : null;
+            //Em ordem de id, como o acervo publica os livros: o próximo snapshot sai na mesma ordem e a carga
+            //dos índices não precisa reordenar
+            List<Livro> recuperados = new ArrayList<>(livros.values());
+            recuperados.sort(Comparator.comparingInt(Livro::getId));
+            return new Estado(ultima, proximoId, recuperados, ordem, vazio);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível recuperar o acervo de " + diretorio, e);
+        }
+    }
+
+    //Os registros trazem o estado final de cada mutação, por isso o replay sobrescreve em vez de validar:
+    //um snapshot tirado durante as escritas pode já conter efeitos de registros posteriores a ele
+    private static void aplicar(MapaIntLivro livros, RegistroJournal registro) {
+        Livro livro = livros.get(registro.id());
+        switch (registro.tipo()) {
+            case CADASTRAR, ATUALIZAR -> {
+                if (livro == null) {
+                    livros.put(registro.id(), Livro.restaurar(registro.id(), registro.titulo(), registro.autor(),
+                            registro.isbn()));
+                } else {
+                    livro.setTitulo(registro.titulo());
+                    livro.setAutor(registro.autor());
+                    livro.setIsbn(registro.isbn());
+                }
+            }
+            case REMOVER -> livros.remove(registro.id());
+            case EMPRESTAR -> {
+                if (livro != null) {
+                    livro.setDataEmprestimo(registro.dataEmprestimo());
+                    livro.setPrazoDevolucao(registro.prazoDevolucao());
+                    livro.setDataEstimadaDevolucao(registro.dataEstimadaDevolucao());
+                    livro.setDisponivel(false);
+                }
+            }
+            case DEVOLVER -> {
+                if (livro != null) {
+                    livro.setDisponivel(true);
+                    livro.setMulta(0);
+                    livro.setPrazoDevolucao(0);
+                    livro.setDataEstimadaDevolucao(null);
+                    livro.setDataEfetivaDevolucao(null);
+                }
+            }
+        }
+    }
+
+    //Chamado dentro da seção crítica da mutação; não espera o disco
+    @Override
+    public long registrar(RegistroJournal registro) {
+        long sequencia = journal.registrar(registro);
+        if (sequencia % REGISTROS_POR_SNAPSHOT == 0) {
+            agendarSnapshot();
+        }
+        return sequencia;
+    }
+
+    //Chamado depois de liberar as travas: bloqueia até o registro estar em disco
+    @Override
+    public void aguardar(long sequencia) {
+        journal.aguardarDurabilidade(sequencia);
+    }
+
+    public long ultimaSequencia() {
+        return journal.ultimaSequencia();
+    }
+
+    private void agendarSnapshot() {
+        if (!snapshotEmAndamento.compareAndSet(false, true)) {
+            return;
+        }
+        executorSnapshot.execute(() -> {
+            try {
+                gravarSnapshot();
+            } catch (RuntimeException e) {
+                System.err.println("Erro ao gravar snapshot do acervo: " + e.getMessage());
+            } finally {
+                snapshotEmAndamento.set(false);
+            }
+        });
+    }
+
+    //Rotaciona o journal, grava a foto do acervo e apaga os segmentos que ela já cobre
+    public synchronized void gravarSnapshot() {
+        try {
+            long sequenciaBase = journal.rotacionar();
+            fonte.lerLivros((livros, ordem) -> SnapshotAcervo.gravar(diretorio, sequenciaBase, fonte.proximoId(),
+                    livros, ordem));
+            journal.descartarAte(sequenciaBase);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível gravar o snapshot do acervo", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executorSnapshot.shutdown();
+        try {
+            executorSnapshot.awaitTermination(1, TimeUnit.MINUTES);
+            journal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível fechar o journal do acervo", e);
+        } finally {
+            if (trava.isValid()) {
+                liberarTrava();
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.br.infnet.persistence;
+
+import com.br.infnet.model.Livro;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+
+//Uma mutação do acervo. Os registros carregam o estado resultante (e não o delta),
+//então reaplicar um registro já refletido no snapshot não altera o resultado.
+public record RegistroJournal(long sequencia, Tipo tipo, int id, String titulo, String autor, String isbn,
+                              LocalDate dataEmprestimo, int prazoDevolucao, LocalDate dataEstimadaDevolucao) {
+
+    public enum Tipo {
+        CADASTRAR, ATUALIZAR, REMOVER, EMPRESTAR, DEVOLVER
+    }
+
+    private static final long SEM_DATA = Long.MIN_VALUE;
+
+    public static RegistroJournal cadastro(Livro livro) {
+        return new RegistroJournal(0, Tipo.CADASTRAR, livro.getId(), livro.getTitulo(), livro.getAutor(),
+                livro.getIsbn(), null, 0, null);
+    }
+
+    public static RegistroJournal atualizacao(Livro livro) {
+        return new RegistroJournal(0, Tipo.ATUALIZAR, livro.getId(), livro.getTitulo(), livro.getAutor(),
+                livro.getIsbn(), null, 0, null);
+    }
+
+    public static RegistroJournal remocao(int id) {
+        return new RegistroJournal(0, Tipo.REMOVER, id, null, null, null, null, 0, null);
+    }
+
+    public static RegistroJournal emprestimo(Livro livro) {
+        return new RegistroJournal(0, Tipo.EMPRESTAR, livro.getId(), null, null, null,
+                livro.getDataEmprestimo(), livro.getPrazoDevolucao(), livro.getDataEstimadaDevolucao());
+    }
+
+    public static RegistroJournal devolucao(int id) {
+        return new RegistroJournal(0, Tipo.DEVOLVER, id, null, null, null, null, 0, null);
+    }
+
+    public RegistroJournal comSequencia(long novaSequencia) {
+        return new RegistroJournal(novaSequencia, tipo, id, titulo, autor, isbn,
+                dataEmprestimo, prazoDevolucao, dataEstimadaDevolucao);
+    }
+
+    public byte[] codificar() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream saida = new DataOutputStream(bytes);
+            saida.writeLong(sequencia);
+            saida.writeByte(tipo.ordinal());
+            saida.writeInt(id);
+            switch (tipo) {
+                case CADASTRAR, ATUALIZAR -> {
+                    saida.writeUTF(titulo);
+                    saida.writeUTF(autor);
+                    saida.writeUTF(isbn);
+                }
+                case EMPRESTAR -> {
+                    saida.writeLong(diaEpoch(dataEmprestimo));
+                    saida.writeInt(prazoDevolucao);
+                    saida.writeLong(diaEpoch(dataEstimadaDevolucao));
+                }
+                case REMOVER, DEVOLVER -> {
+                }
+            }
+            saida.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static RegistroJournal decodificar(DataInputStream entrada) throws IOException {
+        long sequencia = entrada.readLong();
+        Tipo tipo = Tipo.values()[entrada.readByte()];
+        int id = entrada.readInt();
+        return switch (tipo) {
+            case CADASTRAR, ATUALIZAR -> new RegistroJournal(sequencia, tipo, id,
+                    entrada.readUTF(), entrada.readUTF(), entrada.readUTF(), null, 0, null);
+            case EMPRESTAR -> new RegistroJournal(sequencia, tipo, id, null, null, null,
+                    data(entrada.readLong()), entrada.readInt(), data(entrada.readLong()));
+            case REMOVER, DEVOLVER -> new RegistroJournal(sequencia, tipo, id, null, null, null, null, 0, null);
+        };
+    }
+
+    static long diaEpoch(LocalDate data) {
+        return data == null ? SEM_DATA : data.toEpochDay();
+    }
+
+    static LocalDate data(long diaEpoch) {
+        return diaEpoch == SEM_DATA ? null : LocalDate.ofEpochDay(diaEpoch);
+    }
+}
@@ -0,0 +1,516 @@
+package com.br.infnet.persistence;
+
+import com.br.infnet.model.Livro;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+//Foto completa do acervo em snapshot-<sequência>.bin. A sequência indica até qual registro do
+//journal a foto já cobre; na recuperação só os registros posteriores são reaplicados.
+//
+//Formato colunar, lido por mmap sem passar pelo parser nem pela validação dos campos:
+//  cabeçalho (64 bytes): assinatura, versão, sequência, próximo id, total de livros,
+//                        tamanho do heap, crc do corpo, crc do cabeçalho
+//  colunas de largura fixa, uma entrada por livro: id, ISBN (16 bytes ASCII, completado com zeros),
+//  início e tamanho no heap do título, do autor e das duas chaves de busca, disponível,
+//  data do empréstimo, prazo, data estimada de devolução, multa
+//  heap: textos em UTF-8, um após o outro. Uma chave de busca igual ao texto original
+//  não é repetida (tamanho -1), e as chaves gravadas poupam a normalização na carga. Autores
+//  iguais apontam para o mesmo trecho do heap e voltam na carga como uma única String
+//  ordem (desde a versão 3): assinatura das regras de ordenação, quantidade e ids em ordem de título,
+//  quantidade e ids em ordem de autor. Poupa as chaves de ordenação na carga; assinatura 0 é sem ordem
+public class SnapshotAcervo {
+    private static final String PREFIXO = "snapshot-";
+    private static final String SUFIXO = ".bin";
+    private static final int ASSINATURA = 0x41435653; // "ACVS"
+    private static final int VERSAO = 3;
+    //Mesmo formato, sem a seção de ordem no fim
+    private static final int VERSAO_SEM_ORDEM = 2;
+    private static final int TAMANHO_CABECALHO = 64;
+    private static final int LARGURA_ISBN = 16;
+    //Bytes por livro somando todas as colunas de largura fixa
+    private static final int LARGURA_LINHA = 4 + LARGURA_ISBN + 8 * 4 + 1 + 8 + 4 + 8 + 8;
+
+    //ordem é null quando o snapshot não a trouxe
+    public record Conteudo(long sequencia, int proximoId, List<Livro> livros, Ordem ordem) {
+    }
+
+    //Ids em ordem alfabética de título e de autor, segundo as regras de ordenação identificadas pela
+    //assinatura. Um livro do snapshot que não estiver nelas é posicionado pela chave na carga
+    public record Ordem(int assinatura, int[] titulos, int[] autores) {
+        //Sem os ids informados (alterados depois do snapshot); a ordem entre os demais não muda
+        public Ordem sem(Set<Integer> ids) {
+            if (ids.isEmpty()) {
+                return this;
+            }
+            return new Ordem(assinatura, filtrar(titulos, ids), filtrar(autores, ids));
+        }
+
+        private static int[] filtrar(int[] ordem, Set<Integer> ids) {
+            int[] restantes = new int[ordem.length];
+            int total = 0;
+            for (int id : ordem) {
+                if (!ids.contains(id)) {
+                    restantes[total++] = id;
+                }
+            }
+            return Arrays.copyOf(restantes, total);
+        }
+    }
+
+    private SnapshotAcervo() {
+        // Previne instanciação
+    }
+
+    public static Path gravar(Path diretorio, long sequencia, int proximoId, Iterable<Livro.Versao> livros)
+            throws IOException {
+        return gravar(diretorio, sequencia, proximoId, livros, null);
+    }
+
+    //ordem pode ser null: a carga calcula as chaves de ordenação de todos os livros
+    public static Path gravar(Path diretorio, long sequencia, int proximoId, Iterable<Livro.Versao> livros,
+                              Ordem ordem) throws IOException {
+        Colunas colunas = Colunas.capturar(livros);
+
+        Files.createDirectories(diretorio);
+        Path temporario = Files.createTempFile(diretorio, PREFIXO, ".tmp");
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+            EscritaSequencial escrita = new EscritaSequencial(canal, TAMANHO_CABECALHO);
+            colunas.gravar(escrita);
+            gravarOrdem(escrita, ordem);
+            escrita.descarregar();
+
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            cabecalho.putInt(ASSINATURA);
+            cabecalho.putInt(VERSAO);
+            cabecalho.putLong(sequencia);
+            cabecalho.putInt(proximoId);
+            cabecalho.putInt(colunas.total);
+            cabecalho.putLong(colunas.heap.size());
+            cabecalho.putInt((int) escrita.crc.getValue());
+            cabecalho.putInt(crcCabecalho(cabecalho));
+            cabecalho.clear();
+            while (cabecalho.hasRemaining()) {
+                canal.write(cabecalho, cabecalho.position());
+            }
+            canal.force(true);
+        }
+
+        Path destino = diretorio.resolve(String.format("%s%020d%s", PREFIXO, sequencia, SUFIXO));
+        Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        //Snapshots anteriores deixam de ser necessários
+        for (Path antigo : listar(diretorio)) {
+            if (!antigo.equals(destino)) {
+                Files.deleteIfExists(antigo);
+            }
+        }
+        return destino;
+    }
+
+    //Carrega o snapshot mais recente que estiver íntegro, ou null se não houver nenhum
+    public static Conteudo carregarMaisRecente(Path diretorio) throws IOException {
+        List<Path> snapshots = new ArrayList<>(listar(diretorio));
+        snapshots.sort(Comparator.reverseOrder());
+        for (Path snapshot : snapshots) {
+            Conteudo conteudo = carregar(snapshot);
+            if (conteudo != null) {
+                return conteudo;
+            }
+            System.err.println("Snapshot corrompido ignorado: " + snapshot.getFileName());
+        }
+        return null;
+    }
+
+    //Lê o arquivo mapeado em memória; retorna null se o cabeçalho ou o corpo não conferirem
+    public static Conteudo carregar(Path snapshot) throws IOException {
+        try (FileChannel canal = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long tamanhoArquivo = canal.size();
+            if (tamanhoArquivo < TAMANHO_CABECALHO) {
+                return null;
+            }
+            if (tamanhoArquivo > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot maior que o limite de 2 GB de um único mapeamento: " + snapshot);
+            }
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanhoArquivo);
+
+            ByteBuffer cabecalho = mapa.slice(0, TAMANHO_CABECALHO);
+            int versao = cabecalho.getInt(4);
+            if (cabecalho.getInt(0) != ASSINATURA || (versao != VERSAO && versao != VERSAO_SEM_ORDEM)
+                    || cabecalho.getInt(36) != crcCabecalho(cabecalho)) {
+                return null;
+            }
+            long sequencia = cabecalho.getLong(8);
+            int proximoId = cabecalho.getInt(16);
+            int total = cabecalho.getInt(20);
+            long tamanhoHeap = cabecalho.getLong(24);
+            if (total < 0 || tamanhoHeap < 0 || tamanhoHeap > Integer.MAX_VALUE) {
+                return null;
+            }
+            long tamanhoOrdem = tamanhoArquivo - TAMANHO_CABECALHO - (long) total * LARGURA_LINHA - tamanhoHeap;
+            if (versao == VERSAO_SEM_ORDEM ? tamanhoOrdem != 0 : tamanhoOrdem < 12) {
+                return null;
+            }
+
+            ByteBuffer corpo = mapa.slice(TAMANHO_CABECALHO, (int) (tamanhoArquivo - TAMANHO_CABECALHO));
+            CRC32 crc = new CRC32();
+            crc.update(corpo.duplicate());
+            if ((int) crc.getValue() != cabecalho.getInt(32)) {
+                return null;
+            }
+            int inicioOrdem = (int) (tamanhoArquivo - TAMANHO_CABECALHO - tamanhoOrdem);
+            Ordem ordem = null;
+            if (versao == VERSAO) {
+                ByteBuffer secao = corpo.slice(inicioOrdem, (int) tamanhoOrdem);
+                if (!ordemConfere(secao, total)) {
+                    return null;
+                }
+                ordem = lerOrdem(secao);
+            }
+            return new Conteudo(sequencia, proximoId, Colunas.ler(corpo, total, (int) tamanhoHeap), ordem);
+        }
+    }
+
+    private static void gravarOrdem(EscritaSequencial escrita, Ordem ordem) throws IOException {
+        if (ordem == null || ordem.assinatura() == 0) {
+            escrita.reservar(12).putInt(0).putInt(0).putInt(0);
+            return;
+        }
+        escrita.reservar(4).putInt(ordem.assinatura());
+        for (int[] ids : List.of(ordem.titulos(), ordem.autores())) {
+            escrita.reservar(4).putInt(ids.length);
+            for (int id : ids) {
+                escrita.reservar(4).putInt(id);
+            }
+        }
+    }
+
+    //As quantidades da seção de ordem precisam fechar com o tamanho dela
+    private static boolean ordemConfere(ByteBuffer secao, int total) {
+        int totalTitulos = secao.getInt(4);
+        if (totalTitulos < 0 || totalTitulos > total || secao.limit() < 12 + 4L * totalTitulos) {
+            return false;
+        }
+        int totalAutores = secao.getInt(8 + 4 * totalTitulos);
+        return totalAutores >= 0 && totalAutores <= total && secao.limit() == 12 + 4L * (totalTitulos + totalAutores);
+    }
+
+    //null quando o snapshot foi gravado sem ordem
+    private static Ordem lerOrdem(ByteBuffer secao) {
+        int assinatura = secao.getInt(0);
+        if (assinatura == 0) {
+            return null;
+        }
+        int totalTitulos = secao.getInt(4);
+        int totalAutores = secao.getInt(8 + 4 * totalTitulos);
+        int[] titulos = new int[totalTitulos];
+        secao.slice(8, 4 * totalTitulos).asIntBuffer().get(titulos);
+        int[] autores = new int[totalAutores];
+        secao.slice(12 + 4 * totalTitulos, 4 * totalAutores).asIntBuffer().get(autores);
+        return new Ordem(assinatura, titulos, autores);
+    }
+
+    private static int crcCabecalho(ByteBuffer cabecalho) {
+        CRC32 crc = new CRC32();
+        crc.update(cabecalho.slice(0, 36));
+        return (int) crc.getValue();
+    }
+
+    //Estado do acervo copiado para arrays primitivos, uma posição por livro
+    private static final class Colunas {
+        private int total;
+        private int[] ids = new int[1024];
+        private byte[] isbns = new byte[1024 * LARGURA_ISBN];
+        private int[] titulos = new int[2 * 1024];
+        private int[] autores = new int[2 * 1024];
+        private int[] chavesTitulo = new int[2 * 1024];
+        private int[] chavesAutor = new int[2 * 1024];
+        private boolean[] disponiveis = new boolean[1024];
+        private long[] datasEmprestimo = new long[1024];
+        private int[] prazos = new int[1024];
+        private long[] datasEstimadas = new long[1024];
+        private double[] multas = new double[1024];
+        private final ByteArrayOutputStream heap = new ByteArrayOutputStream(1 << 16);
+        //Início no heap de cada autor (e chave de autor) já gravado
+        private final Map<String, Integer> autoresGravados = new HashMap<>();
+
+        //Cada Versao é imutável: título, ISBN e empréstimo já vêm coerentes entre si, sem trava
+        static Colunas capturar(Iterable<Livro.Versao> livros) {
+            Colunas colunas = new Colunas();
+            for (Livro.Versao livro : livros) {
+                colunas.adicionar(livro);
+            }
+            return colunas;
+        }
+
+        private void adicionar(Livro.Versao livro) {
+            if (total == ids.length) {
+                crescer();
+            }
+            int i = total++;
+            ids[i] = livro.getId();
+            copiarIsbn(livro.getIsbn(), i);
+            guardarNoHeap(livro.getTitulo(), titulos, i);
+            guardarAutor(livro.getAutor(), autores, i);
+            guardarChave(livro.getChaveBuscaTitulo(), livro.getTitulo(), chavesTitulo, i);
+            if (livro.getChaveBuscaAutor().equals(livro.getAutor())) {
+                guardarChave(livro.getChaveBuscaAutor(), livro.getAutor(), chavesAutor, i);
+            } else {
+                guardarAutor(livro.getChaveBuscaAutor(), chavesAutor, i);
+            }
+            disponiveis[i] = livro.isDisponivel();
+            datasEmprestimo[i] = RegistroJournal.diaEpoch(livro.getDataEmprestimo());
+            prazos[i] = livro.getPrazoDevolucao();
+            datasEstimadas[i] = RegistroJournal.diaEpoch(livro.getDataEstimadaDevolucao());
+            multas[i] = livro.getMulta();
+        }
+
+        private void copiarIsbn(String isbn, int i) {
+            if (isbn.length() > LARGURA_ISBN) {
+                throw new IllegalStateException("ISBN excede o tamanho suportado pelo snapshot: " + isbn);
+            }
+            for (int c = 0; c < isbn.length(); c++) {
+                char caractere = isbn.charAt(c);
+                if (caractere > 0x7F) {
+                    throw new IllegalStateException("ISBN com caractere não ASCII: " + isbn);
+                }
+                isbns[i * LARGURA_ISBN + c] = (byte) caractere;
+            }
+        }
+
+        private void guardarNoHeap(String texto, int[] coluna, int i) {
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            if ((long) heap.size() + bytes.length > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Acervo grande demais para um único snapshot");
+            }
+            coluna[2 * i] = heap.size();
+            coluna[2 * i + 1] = bytes.length;
+            heap.writeBytes(bytes);
+        }
+
+        private void guardarAutor(String autor, int[] coluna, int i) {
+            Integer inicio = autoresGravados.get(autor);
+            if (inicio == null) {
+                guardarNoHeap(autor, coluna, i);
+                autoresGravados.put(autor, coluna[2 * i]);
+            } else {
+                coluna[2 * i] = inicio;
+                coluna[2 * i + 1] = autor.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+
+        private void guardarChave(String chave, String original, int[] coluna, int i) {
+            if (chave.equals(original)) {
+                coluna[2 * i] = 0;
+                coluna[2 * i + 1] = -1;
+            } else {
+                guardarNoHeap(chave, coluna, i);
+            }
+        }
+
+        private void crescer() {
+            int novo = ids.length * 2;
+            ids = Arrays.copyOf(ids, novo);
+            isbns = Arrays.copyOf(isbns, novo * LARGURA_ISBN);
+            titulos = Arrays.copyOf(titulos, 2 * novo);
+            autores = Arrays.copyOf(autores, 2 * novo);
+            chavesTitulo = Arrays.copyOf(chavesTitulo, 2 * novo);
+            chavesAutor = Arrays.copyOf(chavesAutor, 2 * novo);
+            disponiveis = Arrays.copyOf(disponiveis, novo);
+            datasEmprestimo = Arrays.copyOf(datasEmprestimo, novo);
+            prazos = Arrays.copyOf(prazos, novo);
+            datasEstimadas = Arrays.copyOf(datasEstimadas, novo);
+            multas = Arrays.copyOf(multas, novo);
+        }
+
+        void gravar(EscritaSequencial escrita) throws IOException {
+            for (int i = 0; i < total; i++) {
+                escrita.reservar(4).putInt(ids[i]);
+            }
+            for (int i = 0; i < total; i++) {
+                escrita.reservar(LARGURA_ISBN).put(isbns, i * LARGURA_ISBN, LARGURA_ISBN);
+            }
+            for (int i = 0; i < 2 * total; i++) {
+                escrita.reservar(4).putInt(titulos[i]);
+            }
+            for (int i = 0; i < 2 * total; i++) {
+                escrita.reservar(4).putInt(autores[i]);
+            }
+            for (int i = 0; i < 2 * total; i++) {
+                escrita.reservar(4).putInt(chavesTitulo[i]);
+            }
+            for (int i = 0; i < 2 * total; i++) {
+                escrita.reservar(4).putInt(chavesAutor[i]);
+            }
+            for (int i = 0; i < total; i++) {
+                escrita.reservar(1).put((byte) (disponiveis[i] ? 1 : 0));
+            }
+            for (int i = 0; i < total; i++) {
+                escrita.reservar(8).putLong(datasEmprestimo[i]);
+            }
+            for (int i = 0; i < total; i++) {
+                escrita.reservar(4).putInt(prazos[i]);
+            }
+            for (int i = 0; i < total; i++) {
+                escrita.reservar(8).putLong(datasEstimadas[i]);
+            }
+            for (int i = 0; i < total; i++) {
+                escrita.reservar(8).putDouble(multas[i]);
+            }
+            byte[] bytesHeap = heap.toByteArray();
+            for (int inicio = 0; inicio < bytesHeap.length; inicio += EscritaSequencial.TAMANHO_BUFFER) {
+                int tamanho = Math.min(EscritaSequencial.TAMANHO_BUFFER, bytesHeap.length - inicio);
+                escrita.reservar(tamanho).put(bytesHeap, inicio, tamanho);
+            }
+        }
+
+        static List<Livro> ler(ByteBuffer corpo, int total, int tamanhoHeap) {
+            int posicao = 0;
+            int[] ids = new int[total];
+            corpo.slice(posicao, 4 * total).asIntBuffer().get(ids);
+            posicao += 4 * total;
+
+            byte[] isbns = new byte[LARGURA_ISBN * total];
+            corpo.get(posicao, isbns);
+            posicao += LARGURA_ISBN * total;
+
+            int[] titulos = new int[2 * total];
+            corpo.slice(posicao, 8 * total).asIntBuffer().get(titulos);
+            posicao += 8 * total;
+            int[] autores = new int[2 * total];
+            corpo.slice(posicao, 8 * total).asIntBuffer().get(autores);
+            posicao += 8 * total;
+            int[] chavesTitulo = new int[2 * total];
+            corpo.slice(posicao, 8 * total).asIntBuffer().get(chavesTitulo);
+            posicao += 8 * total;
+            int[] chavesAutor = new int[2 * total];
+            corpo.slice(posicao, 8 * total).asIntBuffer().get(chavesAutor);
+            posicao += 8 * total;
+
+            byte[] disponiveis = new byte[total];
+            corpo.get(posicao, disponiveis);
+            posicao += total;
+
+            long[] datasEmprestimo = new long[total];
+            corpo.slice(posicao, 8 * total).asLongBuffer().get(datasEmprestimo);
+            posicao += 8 * total;
+            int[] prazos = new int[total];
+            corpo.slice(posicao, 4 * total).asIntBuffer().get(prazos);
+            posicao += 4 * total;
+            long[] datasEstimadas = new long[total];
+            corpo.slice(posicao, 8 * total).asLongBuffer().get(datasEstimadas);
+            posicao += 8 * total;
+            double[] multas = new double[total];
+            corpo.slice(posicao, 8 * total).asDoubleBuffer().get(multas);
+            posicao += 8 * total;
+
+            byte[] heap = new byte[tamanhoHeap];
+            corpo.get(posicao, heap);
+
+            List<Livro> livros = new ArrayList<>(total);
+            Map<Long, String> autoresLidos = new HashMap<>();
+            for (int i = 0; i < total; i++) {
+                String titulo = lerTexto(heap, titulos, i, null);
+                String autor = lerAutor(heap, autores, i, null, autoresLidos);
+                Livro livro = Livro.restaurar(ids[i], titulo, autor, lerIsbn(isbns, i),
+                        lerTexto(heap, chavesTitulo, i, titulo), lerAutor(heap, chavesAutor, i, autor, autoresLidos));
+                if (disponiveis[i] == 0) {
+                    livro.setDisponivel(false);
+                    livro.setDataEmprestimo(RegistroJournal.data(datasEmprestimo[i]));
+                    livro.setPrazoDevolucao(prazos[i]);
+                    livro.setDataEstimadaDevolucao(RegistroJournal.data(datasEstimadas[i]));
+                }
+                if (multas[i] != 0) {
+                    livro.setMulta(multas[i]);
+                }
+                livros.add(livro);
+            }
+            return livros;
+        }
+
+        private static String lerTexto(byte[] heap, int[] coluna, int i, String original) {
+            int tamanho = coluna[2 * i + 1];
+            return tamanho < 0 ? original : new String(heap, coluna[2 * i], tamanho, StandardCharsets.UTF_8);
+        }
+
+        //Um trecho do heap compartilhado por vários livros vira uma só String. A chave leva o tamanho
+        //junto com o início porque um texto vazio começa onde o próximo começa
+        private static String lerAutor(byte[] heap, int[] coluna, int i, String original, Map<Long, String> lidos) {
+            if (coluna[2 * i + 1] < 0) {
+                return original;
+            }
+            long trecho = (long) coluna[2 * i] << 32 | coluna[2 * i + 1];
+            return lidos.computeIfAbsent(trecho, chave -> lerTexto(heap, coluna, i, original));
+        }
+
+        private static String lerIsbn(byte[] isbns, int i) {
+            int inicio = i * LARGURA_ISBN;
+            int tamanho = 0;
+            while (tamanho < LARGURA_ISBN && isbns[inicio + tamanho] != 0) {
+                tamanho++;
+            }
+            return new String(isbns, inicio, tamanho, StandardCharsets.US_ASCII);
+        }
+    }
+
+    //Grava o corpo em blocos por um buffer reaproveitado, calculando o crc no caminho
+    private static final class EscritaSequencial {
+        static final int TAMANHO_BUFFER = 1 << 16;
+
+        private final FileChannel canal;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+        private final CRC32 crc = new CRC32();
+        private long posicao;
+
+        EscritaSequencial(FileChannel canal, long posicaoInicial) {
+            this.canal = canal;
+            this.posicao = posicaoInicial;
+        }
+
+        ByteBuffer reservar(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                descarregar();
+            }
+            return buffer;
+        }
+
+        void descarregar() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                posicao += canal.write(buffer, posicao);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static List<Path> listar(Path diretorio) throws IOException {
+        if (!Files.isDirectory(diretorio)) {
+            return List.of();
+        }
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos
+                    .filter(p -> p.getFileName().toString().startsWith(PREFIXO)
+                            && p.getFileName().toString().endsWith(SUFIXO))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
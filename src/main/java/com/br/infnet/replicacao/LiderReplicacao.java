@@ -0,0 +1,233 @@
+package com.br.infnet.replicacao;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.persistence.RegistroJournal;
+import com.br.infnet.service.LivroService;
+import com.br.infnet.service.VisaoAcervo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+
+//Lado líder da replicação: aceita seguidores por socket e envia a cada um o log de mutações, em ordem.
+//Seguidor novo (ou que ficou para trás do que o log ainda guarda) recebe antes um snapshot do acervo.
+//Uma thread de envio por seguidor, bloqueada no log enquanto não há escrita; sem escritas manda pulsos,
+//que mantêm a conexão viva e informam ao seguidor a última sequência do líder.
+//
+//Protocolo, em DataOutputStream:
+//  seguidor -> líder: geração e sequência já aplicadas (0 e -1 na primeira vez); depois, confirmações (long)
+//  líder -> seguidor: a própria geração; depois mensagens [tipo][conteúdo]:
+//    SNAPSHOT  sequência base, seguida de LIVRO (registro codificado) ... e FIM_SNAPSHOT com a cobertura
+//              (última sequência cujo efeito a visão enviada pode já conter)
+//    REGISTRO  instante no líder e registro codificado
+//    PULSO     última sequência e instante no líder
+public class LiderReplicacao implements Closeable {
+    static final byte SNAPSHOT = 1;
+    static final byte LIVRO = 2;
+    static final byte FIM_SNAPSHOT = 3;
+    static final byte REGISTRO = 4;
+    static final byte PULSO = 5;
+
+    static final long INTERVALO_PULSO_MS = 1_000;
+    private static final int REGISTROS_POR_ENVIO = 512;
+
+    //Atraso de um seguidor medido pelo que ele já confirmou ter aplicado
+    public record StatusSeguidor(String endereco, long sequenciaConfirmada, long atrasoRegistros, long atrasoMillis) {
+    }
+
+    private final LivroService service;
+    private final LogReplicacao log;
+    private final ServerSocket servidor;
+    private final Thread aceitacao;
+    //Muda a cada subida: sequências de outra execução do líder não valem para retomar o envio
+    private final long geracao = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    private final List<Conexao> conexoes = new CopyOnWriteArrayList<>();
+    private volatile boolean fechado;
+
+    //Porta 0 escolhe uma livre (útil em testes com várias instâncias na mesma máquina)
+    public LiderReplicacao(LivroService service, LogReplicacao log, int porta) {
+        this.service = service;
+        this.log = log;
+        try {
+            this.servidor = new ServerSocket();
+            this.servidor.bind(new InetSocketAddress(porta));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir a porta de replicação " + porta, e);
+        }
+        this.aceitacao = new Thread(this::aceitar, "replicacao-lider");
+        this.aceitacao.setDaemon(true);
+    }
+
+    public void iniciar() {
+        aceitacao.start();
+    }
+
+    public int getPorta() {
+        return servidor.getLocalPort();
+    }
+
+    public long ultimaSequencia() {
+        return log.ultimaSequencia();
+    }
+
+    public List<StatusSeguidor> seguidores() {
+        long ultima = log.ultimaSequencia();
+        long agora = System.currentTimeMillis();
+        List<StatusSeguidor> status = new ArrayList<>();
+        for (Conexao conexao : conexoes) {
+            long confirmada = conexao.confirmada;
+            long atrasoMillis = 0;
+            if (confirmada < ultima) {
+                //Tempo desde a mais antiga que ele ainda não aplicou; -1 se ela já saiu do log
+                long instante = log.instanteDe(confirmada + 1);
+                atrasoMillis = instante < 0 ? -1 : agora - instante;
+            }
+            status.add(new StatusSeguidor(conexao.endereco, confirmada, Math.max(0, ultima - confirmada), atrasoMillis));
+        }
+        return status;
+    }
+
+    private void aceitar() {
+        while (!fechado) {
+            try {
+                Socket socket = servidor.accept();
+                Conexao conexao = new Conexao(socket);
+                conexoes.add(conexao);
+                Thread envio = new Thread(conexao, "replicacao-envio");
+                envio.setDaemon(true);
+                envio.start();
+            } catch (IOException e) {
+                if (!fechado) {
+                    System.err.println("Erro aceitando seguidor da replicação: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        fechado = true;
+        try {
+            servidor.close();
+        } catch (IOException e) {
+            //Já fechando
+        }
+        for (Conexao conexao : conexoes) {
+            conexao.fechar();
+        }
+    }
+
+    private final class Conexao implements Runnable {
+        private final Socket socket;
+        private final String endereco;
+        private volatile long confirmada = -1;
+
+        Conexao(Socket socket) {
+            this.socket = socket;
+            this.endereco = socket.getRemoteSocketAddress().toString();
+        }
+
+        @Override
+        public void run() {
+            try {
+                socket.setTcpNoDelay(true);
+                DataInputStream entrada = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+                long geracaoSeguidor = entrada.readLong();
+                long aplicada = entrada.readLong();
+                saida.writeLong(geracao);
+                saida.flush();
+
+                Thread confirmacoes = new Thread(() -> lerConfirmacoes(entrada), "replicacao-confirmacoes");
+                confirmacoes.setDaemon(true);
+                confirmacoes.start();
+
+                boolean retomar = geracaoSeguidor == geracao && aplicada >= 0;
+                if (retomar) {
+                    confirmada = aplicada;
+                }
+                long enviada = retomar ? aplicada : enviarSnapshot(saida);
+                while (!fechado) {
+                    List<LogReplicacao.Entrada> entradas = log.lerApos(enviada, REGISTROS_POR_ENVIO, INTERVALO_PULSO_MS);
+                    if (entradas == null) {
+                        enviada = enviarSnapshot(saida);
+                    } else if (entradas.isEmpty()) {
+                        saida.writeByte(PULSO);
+                        saida.writeLong(log.ultimaSequencia());
+                        saida.writeLong(System.currentTimeMillis());
+                    } else {
+                        for (LogReplicacao.Entrada item : entradas) {
+                            saida.writeByte(REGISTRO);
+                            saida.writeLong(item.instante());
+                            saida.write(item.registro().codificar());
+                        }
+                        enviada = entradas.get(entradas.size() - 1).registro().sequencia();
+                    }
+                    saida.flush();
+                }
+            } catch (IOException e) {
+                //Seguidor desconectou; ele volta a se conectar e retoma de onde parou
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                conexoes.remove(this);
+                fechar();
+            }
+        }
+
+        //A sequência base é lida antes de abrir a visão: tudo até ela já está na visão, e os registros
+        //seguintes que a visão também já reflete são reaplicados pelo seguidor sem mudar o resultado.
+        //A cobertura é lida depois de percorrer a visão: uma escrita que ela enxerga ganha a sequência logo
+        //depois de aplicada, bem antes do fim do envio. Só até ela o seguidor aceita conflitos
+        private long enviarSnapshot(DataOutputStream saida) throws IOException {
+            long base = log.ultimaSequencia();
+            saida.writeByte(SNAPSHOT);
+            saida.writeLong(base);
+            try (VisaoAcervo visao = service.abrirVisaoDoAcervo()) {
+                for (Livro.Versao livro : visao) {
+                    saida.writeByte(LIVRO);
+                    saida.write(new RegistroJournal(0, RegistroJournal.Tipo.CADASTRAR, livro.getId(), livro.getTitulo(),
+                            livro.getAutor(), livro.getIsbn(), null, 0, null).codificar());
+                    if (!livro.isDisponivel()) {
+                        saida.writeByte(LIVRO);
+                        saida.write(new RegistroJournal(0, RegistroJournal.Tipo.EMPRESTAR, livro.getId(), null, null,
+                                null, livro.getDataEmprestimo(), livro.getPrazoDevolucao(),
+                                livro.getDataEstimadaDevolucao()).codificar());
+                    }
+                }
+            }
+            saida.writeByte(FIM_SNAPSHOT);
+            saida.writeLong(log.ultimaSequencia());
+            return base;
+        }
+
+        private void lerConfirmacoes(DataInputStream entrada) {
+            try {
+                while (true) {
+                    confirmada = entrada.readLong();
+                }
+            } catch (IOException e) {
+                fechar();
+            }
+        }
+
+        void fechar() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //Já fechado
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.br.infnet.replicacao;
+
+import com.br.infnet.persistence.DestinoMutacoes;
+import com.br.infnet.persistence.RegistroJournal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Log de mutações do líder, em memória, na ordem em que as escritas aconteceram. Fica entre o acervo
+//e a persistência (quando há): a sequência é a mesma do journal, ou própria se o acervo vive só em memória.
+//Guarda só os últimos registros num anel; seguidor que ficar para trás disso recebe um snapshot de novo.
+public class LogReplicacao implements DestinoMutacoes {
+    public static final int RETENCAO_PADRAO = 100_000;
+
+    //Registro com o instante (relógio do líder) em que foi registrado, para medir o atraso dos seguidores
+    public record Entrada(RegistroJournal registro, long instante) {
+    }
+
+    //Nulo quando o líder não persiste o acervo
+    private final DestinoMutacoes persistencia;
+    private final Entrada[] anel;
+    //Protegidos pelo monitor do log
+    private long ultimaSequencia;
+    private long primeiraRetida;
+
+    public LogReplicacao(DestinoMutacoes persistencia, long ultimaSequencia, int retencao) {
+        if (retencao < 1) {
+            throw new IllegalArgumentException("Retenção do log de replicação deve ser pelo menos 1");
+        }
+        this.persistencia = persistencia;
+        this.anel = new Entrada[retencao];
+        this.ultimaSequencia = ultimaSequencia;
+        this.primeiraRetida = ultimaSequencia + 1;
+    }
+
+    //A sequência vem do journal sob o monitor do log: a ordem do anel é a mesma do disco
+    @Override
+    public synchronized long registrar(RegistroJournal registro) {
+        long sequencia = persistencia != null ? persistencia.registrar(registro) : ultimaSequencia + 1;
+        ultimaSequencia = sequencia;
+        anel[posicao(sequencia)] = new Entrada(registro.comSequencia(sequencia), System.currentTimeMillis());
+        if (sequencia - primeiraRetida >= anel.length) {
+            primeiraRetida = sequencia - anel.length + 1;
+        }
+        notifyAll();
+        return sequencia;
+    }
+
+    @Override
+    public void aguardar(long sequencia) {
+        if (persistencia != null) {
+            persistencia.aguardar(sequencia);
+        }
+    }
+
+    public synchronized long ultimaSequencia() {
+        return ultimaSequencia;
+    }
+
+    //Instante do registro da sequência, ou -1 se ela já saiu do anel (ou ainda não existe)
+    public synchronized long instanteDe(long sequencia) {
+        if (sequencia < primeiraRetida || sequencia > ultimaSequencia) {
+            return -1;
+        }
+        return anel[posicao(sequencia)].instante();
+    }
+
+    //Até maximo registros depois de apos, esperando até esperaMillis se ainda não houver nenhum.
+    //Nulo quando os seguintes a apos já saíram do anel: quem pediu precisa de um snapshot
+    public synchronized List<Entrada> lerApos(long apos, int maximo, long esperaMillis) throws InterruptedException {
+        long limite = System.currentTimeMillis() + esperaMillis;
+        while (ultimaSequencia <= apos) {
+            long restante = limite - System.currentTimeMillis();
+            if (restante <= 0) {
+                return List.of();
+            }
+            wait(restante);
+        }
+        if (apos + 1 < primeiraRetida) {
+            return null;
+        }
+        long ate = Math.min(ultimaSequencia, apos + maximo);
+        List<Entrada> entradas = new ArrayList<>((int) (ate - apos));
+        for (long sequencia = apos + 1; sequencia <= ate; sequencia++) {
+            entradas.add(anel[posicao(sequencia)]);
+        }
+        return entradas;
+    }
+
+    private int posicao(long sequencia) {
+        return (int) Math.floorMod(sequencia, (long) anel.length);
+    }
+}
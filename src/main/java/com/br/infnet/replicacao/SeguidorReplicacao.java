@@ -0,0 +1,281 @@
+package com.br.infnet.replicacao;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.persistence.RegistroJournal;
+import com.br.infnet.service.LivroService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+//Lado seguidor da replicação: conecta no líder, aplica o snapshot e depois cada registro do log, na ordem,
+//no LivroService local, que atende as leituras. Caindo a conexão, tenta de novo com espera crescente
+//e retoma da última sequência aplicada (ou recebe outro snapshot, se o líder já não a tiver).
+//Um registro que não se aplica fora da janela logo após o snapshot mostra que o acervo local divergiu:
+//a conexão cai e o seguidor pede um snapshot novo em vez de seguir adiante com o estado errado.
+//Escritas não passam por aqui: as rotas as encaminham ao líder (ver ReplicacaoController).
+public class SeguidorReplicacao implements Closeable {
+    private static final long ESPERA_INICIAL_MS = 200;
+    private static final long ESPERA_MAXIMA_MS = 5_000;
+
+    public record Status(boolean conectado, long sequenciaAplicada, long sequenciaLider, long atrasoRegistros,
+                         long atrasoMillis, long reconexoes, long conflitosIgnorados, long ressincronizacoes) {
+    }
+
+    private final LivroService service;
+    private final String host;
+    private final int porta;
+    private final Thread thread;
+    private volatile boolean fechado;
+    private volatile Socket socket;
+
+    //Protegidos por monitor
+    private final Object monitor = new Object();
+    private long geracao;
+    //-1 até o primeiro snapshot
+    private long aplicada = -1;
+    private long sequenciaLider = -1;
+    //Do registro ao ser aplicado aqui; zera quando um pulso mostra que não há nada pendente
+    private long atrasoMillis;
+    private boolean conectado;
+    private long reconexoes;
+    private long conflitosIgnorados;
+    private long ressincronizacoes;
+    //Última sequência que o snapshot aplicado pode já refletir; só a thread de replicação usa
+    private long coberturaSnapshot = -1;
+
+    public SeguidorReplicacao(LivroService service, String host, int porta) {
+        this.service = service;
+        this.host = host;
+        this.porta = porta;
+        this.thread = new Thread(this::executar, "replicacao-seguidor");
+        this.thread.setDaemon(true);
+    }
+
+    public void iniciar() {
+        thread.start();
+    }
+
+    public String getLider() {
+        return host + ":" + porta;
+    }
+
+    public Status status() {
+        synchronized (monitor) {
+            long atraso = aplicada < 0 ? -1 : Math.max(0, sequenciaLider - aplicada);
+            return new Status(conectado, aplicada, sequenciaLider, atraso, atrasoMillis, reconexoes, conflitosIgnorados,
+                    ressincronizacoes);
+        }
+    }
+
+    //Para ler a própria escrita depois de encaminhá-la ao líder: espera até aplicar a sequência dela.
+    //Retorna false se o tempo acabar antes
+    public boolean aguardarSequencia(long sequencia, long esperaMillis) {
+        long limite = System.currentTimeMillis() + esperaMillis;
+        synchronized (monitor) {
+            while (aplicada < sequencia) {
+                long restante = limite - System.currentTimeMillis();
+                if (restante <= 0 || fechado) {
+                    return false;
+                }
+                try {
+                    monitor.wait(restante);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private void executar() {
+        long espera = ESPERA_INICIAL_MS;
+        while (!fechado) {
+            try (Socket conexao = new Socket()) {
+                socket = conexao;
+                conexao.connect(new InetSocketAddress(host, porta), (int) ESPERA_MAXIMA_MS);
+                conexao.setTcpNoDelay(true);
+                espera = ESPERA_INICIAL_MS;
+                sincronizar(conexao);
+            } catch (IOException e) {
+                //Líder fora do ar ou conexão perdida: tenta de novo abaixo
+            } finally {
+                synchronized (monitor) {
+                    if (conectado) {
+                        reconexoes++;
+                    }
+                    conectado = false;
+                }
+            }
+            if (!fechado) {
+                try {
+                    Thread.sleep(espera);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                espera = Math.min(espera * 2, ESPERA_MAXIMA_MS);
+            }
+        }
+    }
+
+    private void sincronizar(Socket conexao) throws IOException {
+        DataInputStream entrada = new DataInputStream(new BufferedInputStream(conexao.getInputStream(), 64 * 1024));
+        DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(conexao.getOutputStream()));
+        synchronized (monitor) {
+            saida.writeLong(geracao);
+            saida.writeLong(aplicada);
+        }
+        saida.flush();
+        long geracaoLider = entrada.readLong();
+        synchronized (monitor) {
+            conectado = true;
+        }
+
+        while (!fechado) {
+            byte tipo = entrada.readByte();
+            switch (tipo) {
+                case LiderReplicacao.SNAPSHOT -> aplicarSnapshot(entrada, geracaoLider);
+                case LiderReplicacao.REGISTRO -> {
+                    long instante = entrada.readLong();
+                    RegistroJournal registro = RegistroJournal.decodificar(entrada);
+                    aplicar(registro, registro.sequencia() <= coberturaSnapshot);
+                    synchronized (monitor) {
+                        aplicada = registro.sequencia();
+                        sequenciaLider = Math.max(sequenciaLider, aplicada);
+                        atrasoMillis = Math.max(0, System.currentTimeMillis() - instante);
+                        monitor.notifyAll();
+                    }
+                }
+                case LiderReplicacao.PULSO -> {
+                    long ultima = entrada.readLong();
+                    entrada.readLong();
+                    synchronized (monitor) {
+                        sequenciaLider = ultima;
+                        if (aplicada >= ultima) {
+                            atrasoMillis = 0;
+                        }
+                    }
+                }
+                default -> throw new IOException("Mensagem de replicação desconhecida: " + tipo);
+            }
+            //Confirma uma vez por lote recebido, não a cada registro
+            if (entrada.available() == 0) {
+                synchronized (monitor) {
+                    saida.writeLong(aplicada);
+                }
+                saida.flush();
+            }
+        }
+    }
+
+    //Primeiro saem os livros que o líder não tem ou que mudaram de catálogo: assim nenhum ISBN ainda
+    //ocupado aqui barra o cadastro de quem o tem no snapshot. Livros iguais nos dois lados ficam intocados
+    private void aplicarSnapshot(DataInputStream entrada, long geracaoLider) throws IOException {
+        long base = entrada.readLong();
+        Map<Integer, RegistroJournal> catalogo = new HashMap<>();
+        Map<Integer, RegistroJournal> emprestimos = new HashMap<>();
+        for (byte tipo = entrada.readByte(); tipo != LiderReplicacao.FIM_SNAPSHOT; tipo = entrada.readByte()) {
+            if (tipo != LiderReplicacao.LIVRO) {
+                throw new IOException("Mensagem inesperada no snapshot de replicação: " + tipo);
+            }
+            RegistroJournal registro = RegistroJournal.decodificar(entrada);
+            (registro.tipo() == RegistroJournal.Tipo.EMPRESTAR ? emprestimos : catalogo).put(registro.id(), registro);
+        }
+        long cobertura = entrada.readLong();
+
+        Map<Integer, Livro.Versao> locais = new HashMap<>();
+        for (Livro livro : service.listarLivrosDoAcervo()) {
+            Livro.Versao versao = livro.versaoAtual();
+            RegistroJournal registro = catalogo.get(versao.getId());
+            if (registro != null && mesmoCatalogo(versao, registro)) {
+                locais.put(versao.getId(), versao);
+                continue;
+            }
+            aplicar(RegistroJournal.devolucao(versao.getId()), true);
+            aplicar(RegistroJournal.remocao(versao.getId()), true);
+        }
+
+        List<RegistroJournal> pendentes = new ArrayList<>();
+        for (RegistroJournal registro : catalogo.values()) {
+            Livro.Versao local = locais.get(registro.id());
+            if (local == null) {
+                pendentes.add(registro);
+            }
+            RegistroJournal emprestimo = emprestimos.get(registro.id());
+            if (emprestimo != null) {
+                if (local == null || local.isDisponivel()
+                        || !Objects.equals(local.getDataEmprestimo(), emprestimo.dataEmprestimo())
+                        || local.getPrazoDevolucao() != emprestimo.prazoDevolucao()) {
+                    pendentes.add(emprestimo);
+                }
+            } else if (local != null && !local.isDisponivel()) {
+                pendentes.add(RegistroJournal.devolucao(registro.id()));
+            }
+        }
+        for (RegistroJournal registro : pendentes) {
+            aplicar(registro, true);
+        }
+        coberturaSnapshot = cobertura;
+
+        synchronized (monitor) {
+            geracao = geracaoLider;
+            aplicada = base;
+            sequenciaLider = Math.max(sequenciaLider, base);
+            monitor.notifyAll();
+        }
+    }
+
+    private static boolean mesmoCatalogo(Livro.Versao livro, RegistroJournal registro) {
+        return livro.getTitulo().equals(registro.titulo()) && livro.getAutor().equals(registro.autor())
+                && livro.getIsbn().equals(registro.isbn());
+    }
+
+    //Logo depois de um snapshot, registros que ele já refletia (até a cobertura) são reaplicados; um deles
+    //pode trazer um ISBN que no snapshot já é de outro livro. Esse conflito é só aparente: um registro
+    //posterior do mesmo livro, que vem em seguida, leva ao estado final. Fora dessa janela o líder nunca
+    //gera conflito, então ele indica divergência: geração zerada faz o líder mandar um snapshot novo
+    private void aplicar(RegistroJournal registro, boolean tolerarConflito) throws IOException {
+        try {
+            service.aplicarReplicacao(registro);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            synchronized (monitor) {
+                if (tolerarConflito) {
+                    conflitosIgnorados++;
+                    return;
+                }
+                geracao = 0;
+                ressincronizacoes++;
+            }
+            throw new IOException("Registro " + registro.sequencia() + " não se aplica ao acervo local: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        fechado = true;
+        Socket atual = socket;
+        if (atual != null) {
+            try {
+                atual.close();
+            } catch (IOException e) {
+                //Já fechado
+            }
+        }
+        thread.interrupt();
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.br.infnet.security;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+//Detector de conteúdo malicioso de TextSanitizer. Todas as assinaturas do arquivo de regras viram dois
+//autômatos de Aho-Corasick, um exato e um sem diferença de caixa, percorridos juntos numa única leitura
+//da entrada. Os tipos com contexto (comando-sql, protocolo, tag-script) conferem só a vizinhança de
+//cada ocorrência, sem voltar sobre o texto já lido: o custo continua linear no tamanho da entrada.
+//Regras novas entram pelo arquivo (ver seguranca/assinaturas-maliciosas.txt), sem mudar código.
+public final class DetectorMalicioso {
+    public static final String PROPRIEDADE_ARQUIVO = "biblioteca.assinaturas";
+    private static final String RECURSO_PADRAO = "seguranca/assinaturas-maliciosas.txt";
+
+    private enum Tipo {
+        TEXTO("texto"),
+        TEXTO_SEM_CAIXA("texto-i"),
+        COMANDO_SQL("comando-sql"),
+        PROTOCOLO("protocolo"),
+        TAG_SCRIPT("tag-script"),
+        CONTROLE("controle"),
+        EM_BRANCO("em-branco");
+
+        private final String nome;
+
+        Tipo(String nome) {
+            this.nome = nome;
+        }
+
+        static Tipo de(String nome) {
+            for (Tipo tipo : values()) {
+                if (tipo.nome.equals(nome)) {
+                    return tipo;
+                }
+            }
+            return null;
+        }
+
+        boolean semAssinatura() {
+            return this == CONTROLE || this == EM_BRANCO;
+        }
+    }
+
+    //vaga: posição da assinatura tag-script no vetor de aberturas da leitura; -1 nos demais tipos
+    private record Assinatura(String regra, Tipo tipo, String texto, int vaga) {
+    }
+
+    private final Assinatura[] exatas;
+    private final Assinatura[] semCaixa;
+    private final Automato automatoExato;
+    private final Automato automatoSemCaixa;
+    private final int tagsScript;
+    private final String regraControle;
+    private final String regraEmBranco;
+
+    private DetectorMalicioso(List<Assinatura> exatas, List<Assinatura> semCaixa, int tagsScript,
+                              String regraControle, String regraEmBranco) {
+        this.exatas = exatas.toArray(new Assinatura[0]);
+        this.semCaixa = semCaixa.toArray(new Assinatura[0]);
+        this.automatoExato = exatas.isEmpty() ? null : new Automato(textos(exatas));
+        this.automatoSemCaixa = semCaixa.isEmpty() ? null : new Automato(textos(semCaixa));
+        this.tagsScript = tagsScript;
+        this.regraControle = regraControle;
+        this.regraEmBranco = regraEmBranco;
+    }
+
+    //Regras de -Dbiblioteca.assinaturas, ou as que acompanham a aplicação
+    public static DetectorMalicioso padrao() {
+        String arquivo = System.getProperty(PROPRIEDADE_ARQUIVO);
+        try {
+            if (arquivo != null) {
+                try (Reader regras = Files.newBufferedReader(Path.of(arquivo), StandardCharsets.UTF_8)) {
+                    return carregar(regras);
+                }
+            }
+            try (InputStream is = DetectorMalicioso.class.getClassLoader().getResourceAsStream(RECURSO_PADRAO)) {
+                if (is == null) {
+                    throw new IllegalStateException("Arquivo de assinaturas não encontrado: " + RECURSO_PADRAO);
+                }
+                return carregar(new InputStreamReader(is, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler as assinaturas maliciosas", e);
+        }
+    }
+
+    //Uma regra por linha: <regra> <tipo> [assinatura]; linhas vazias e começadas por # são ignoradas
+    public static DetectorMalicioso carregar(Reader regras) throws IOException {
+        List<Assinatura> exatas = new ArrayList<>();
+        List<Assinatura> semCaixa = new ArrayList<>();
+        int tagsScript = 0;
+        String regraControle = null;
+        String regraEmBranco = null;
+
+        BufferedReader leitor = new BufferedReader(regras);
+        String linha;
+        int numero = 0;
+        while ((linha = leitor.readLine()) != null) {
+            numero++;
+            String conteudo = linha.strip();
+            if (conteudo.isEmpty() || conteudo.startsWith("#")) {
+                continue;
+            }
+
+            String[] partes = conteudo.split("\\s+", 3);
+            Tipo tipo = partes.length < 2 ? null : Tipo.de(partes[1]);
+            if (tipo == null) {
+                throw new IllegalArgumentException("Linha " + numero + " das assinaturas: tipo ausente ou desconhecido");
+            }
+            String regra = partes[0];
+            //A assinatura vale como escrita, até o fim da linha original
+            String texto = partes.length == 3
+                    ? linha.substring(linha.indexOf(partes[1], linha.indexOf(regra) + regra.length()) + partes[1].length())
+                    .stripLeading()
+                    : "";
+            if (tipo.semAssinatura() != texto.isEmpty()) {
+                throw new IllegalArgumentException("Linha " + numero + " das assinaturas: " + partes[1]
+                        + (texto.isEmpty() ? " precisa de assinatura" : " não leva assinatura"));
+            }
+
+            switch (tipo) {
+                case CONTROLE -> regraControle = regraControle == null ? regra : regraControle;
+                case EM_BRANCO -> regraEmBranco = regraEmBranco == null ? regra : regraEmBranco;
+                case TEXTO -> exatas.add(new Assinatura(regra, tipo, texto, -1));
+                case TAG_SCRIPT -> semCaixa.add(new Assinatura(regra, tipo, minusculas(texto), tagsScript++));
+                default -> semCaixa.add(new Assinatura(regra, tipo, minusculas(texto), -1));
+            }
+        }
+        return new DetectorMalicioso(exatas, semCaixa, tagsScript, regraControle, regraEmBranco);
+    }
+
+    public boolean contemConteudoMalicioso(String entrada) {
+        return regraViolada(entrada) != null;
+    }
+
+    //Nome da primeira regra que casar na leitura da entrada, ou null se nenhuma casar
+    public String regraViolada(String entrada) {
+        if (entrada == null) {
+            return null;
+        }
+
+        int tamanho = entrada.length();
+        int estadoExato = 0;
+        int estadoSemCaixa = 0;
+        //Por tag-script: posição do '>' da primeira abertura; -1 antes de achá-la
+        int[] aberturas = null;
+        if (tagsScript > 0) {
+            aberturas = new int[tagsScript];
+            Arrays.fill(aberturas, -1);
+        }
+        boolean emBranco = tamanho > 0;
+
+        for (int i = 0; i < tamanho; i++) {
+            char c = entrada.charAt(i);
+            if (c > ' ') {
+                emBranco = false;
+                if (c == 0x7F && regraControle != null) {
+                    return regraControle;
+                }
+            } else if (c < ' ' && regraControle != null) {
+                return regraControle;
+            }
+
+            if (automatoExato != null) {
+                estadoExato = automatoExato.avancar(estadoExato, c);
+                int[] saidas = automatoExato.saidas[estadoExato];
+                if (saidas != null) {
+                    return exatas[saidas[0]].regra();
+                }
+            }
+            if (automatoSemCaixa != null) {
+                estadoSemCaixa = automatoSemCaixa.avancar(estadoSemCaixa, minuscula(c));
+                int[] saidas = automatoSemCaixa.saidas[estadoSemCaixa];
+                if (saidas != null) {
+                    for (int indice : saidas) {
+                        if (confirmar(semCaixa[indice], entrada, i + 1, aberturas)) {
+                            return semCaixa[indice].regra();
+                        }
+                    }
+                }
+            }
+        }
+        return emBranco ? regraEmBranco : null;
+    }
+
+    //Confere o contexto da ocorrência que termina em fim (exclusivo)
+    private static boolean confirmar(Assinatura assinatura, String entrada, int fim, int[] aberturas) {
+        int tamanho = entrada.length();
+        switch (assinatura.tipo()) {
+            case COMANDO_SQL -> {
+                //Mesmo que (?=\s|$|;|--|/\*): $ também casa antes de um terminador de linha no fim
+                if (fim == tamanho) {
+                    return true;
+                }
+                char seguinte = entrada.charAt(fim);
+                if (espaco(seguinte) || seguinte == ';') {
+                    return true;
+                }
+                if (fim + 1 < tamanho) {
+                    char depois = entrada.charAt(fim + 1);
+                    return seguinte == '-' && depois == '-' || seguinte == '/' && depois == '*';
+                }
+                return seguinte == '\u0085' || seguinte == '\u2028' || seguinte == '\u2029';
+            }
+            case PROTOCOLO -> {
+                int j = fim;
+                while (j < tamanho && espaco(entrada.charAt(j))) {
+                    j++;
+                }
+                return j < tamanho && entrada.charAt(j) == ':';
+            }
+            case TAG_SCRIPT -> {
+                int j = fim - assinatura.texto().length() - 1;
+                while (j >= 0 && espaco(entrada.charAt(j))) {
+                    j--;
+                }
+                if (j < 0) {
+                    return false;
+                }
+                if (entrada.charAt(j) == '<') {
+                    //<\s*script[^>]*>: só a primeira abertura importa, a que fecha mais cedo
+                    if (aberturas[assinatura.vaga()] == -1) {
+                        int maior = entrada.indexOf('>', fim);
+                        aberturas[assinatura.vaga()] = maior < 0 ? Integer.MAX_VALUE : maior;
+                    }
+                    return false;
+                }
+                if (entrada.charAt(j) != '/' || j == 0 || entrada.charAt(j - 1) != '<') {
+                    return false;
+                }
+                //</\s*script\s*> começando depois do '>' de uma abertura
+                int k = fim;
+                while (k < tamanho && espaco(entrada.charAt(k))) {
+                    k++;
+                }
+                int abertura = aberturas[assinatura.vaga()];
+                return k < tamanho && entrada.charAt(k) == '>' && abertura >= 0 && j - 1 > abertura;
+            }
+            default -> {
+                return true;
+            }
+        }
+    }
+
+    //\s das expressões regulares, sem UNICODE_CHARACTER_CLASS
+    private static boolean espaco(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    //(?i) sem UNICODE_CASE: só as letras ASCII se equivalem
+    private static char minuscula(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static String minusculas(String texto) {
+        char[] letras = texto.toCharArray();
+        for (int i = 0; i < letras.length; i++) {
+            letras[i] = minuscula(letras[i]);
+        }
+        return new String(letras);
+    }
+
+    private static List<String> textos(List<Assinatura> assinaturas) {
+        List<String> textos = new ArrayList<>(assinaturas.size());
+        for (Assinatura assinatura : assinaturas) {
+            textos.add(assinatura.texto());
+        }
+        return textos;
+    }
+
+    //Autômato de Aho-Corasick determinizado: cada estado já tem a transição de todo caractere, com as
+    //falhas resolvidas na construção. Caracteres que não aparecem em assinatura nenhuma formam a classe 0.
+    private static final class Automato {
+        private final int[] classeAscii = new int[128];
+        private final char[] naoAscii;
+        private final int[] classeNaoAscii;
+        private final int classes;
+        private final int[] transicoes;
+        //Por estado, as assinaturas que terminam nele, inclusive pelas falhas; null se nenhuma
+        private final int[][] saidas;
+
+        Automato(List<String> padroes) {
+            TreeSet<Character> alfabeto = new TreeSet<>();
+            for (String padrao : padroes) {
+                for (char c : padrao.toCharArray()) {
+                    alfabeto.add(c);
+                }
+            }
+            List<Character> acima = new ArrayList<>();
+            int classe = 1;
+            for (char c : alfabeto) {
+                if (c < 128) {
+                    classeAscii[c] = classe++;
+                } else {
+                    acima.add(c);
+                }
+            }
+            naoAscii = new char[acima.size()];
+            classeNaoAscii = new int[acima.size()];
+            for (int i = 0; i < naoAscii.length; i++) {
+                naoAscii[i] = acima.get(i);
+                classeNaoAscii[i] = classe++;
+            }
+            classes = classe;
+
+            //Trie: filhos[estado * classes + classe], -1 sem filho
+            int maximoEstados = 1;
+            for (String padrao : padroes) {
+                maximoEstados += padrao.length();
+            }
+            int[] filhos = new int[maximoEstados * classes];
+            Arrays.fill(filhos, -1);
+            List<List<Integer>> terminais = new ArrayList<>();
+            terminais.add(new ArrayList<>());
+            int estados = 1;
+            for (int p = 0; p < padroes.size(); p++) {
+                int estado = 0;
+                for (char c : padroes.get(p).toCharArray()) {
+                    int posicao = estado * classes + classe(c);
+                    if (filhos[posicao] == -1) {
+                        filhos[posicao] = estados++;
+                        terminais.add(new ArrayList<>());
+                    }
+                    estado = filhos[posicao];
+                }
+                terminais.get(estado).add(p);
+            }
+
+            //Busca em largura: a falha de cada estado já está pronta quando ele é visitado
+            transicoes = new int[estados * classes];
+            int[] falhas = new int[estados];
+            ArrayDeque<Integer> fila = new ArrayDeque<>();
+            fila.add(0);
+            while (!fila.isEmpty()) {
+                int estado = fila.poll();
+                for (int c = 0; c < classes; c++) {
+                    int filho = filhos[estado * classes + c];
+                    if (filho == -1) {
+                        transicoes[estado * classes + c] = estado == 0 ? 0 : transicoes[falhas[estado] * classes + c];
+                    } else {
+                        transicoes[estado * classes + c] = filho;
+                        falhas[filho] = estado == 0 ? 0 : transicoes[falhas[estado] * classes + c];
+                        terminais.get(filho).addAll(terminais.get(falhas[filho]));
+                        fila.add(filho);
+                    }
+                }
+            }
+
+            saidas = new int[estados][];
+            for (int estado = 0; estado < estados; estado++) {
+                List<Integer> terminal = terminais.get(estado);
+                if (!terminal.isEmpty()) {
+                    saidas[estado] = terminal.stream().mapToInt(Integer::intValue).toArray();
+                }
+            }
+        }
+
+        int avancar(int estado, char c) {
+            return transicoes[estado * classes + classe(c)];
+        }
+
+        private int classe(char c) {
+            if (c < 128) {
+                return classeAscii[c];
+            }
+            if (naoAscii.length == 0) {
+                return 0;
+            }
+            int i = Arrays.binarySearch(naoAscii, c);
+            return i < 0 ? 0 : classeNaoAscii[i];
+        }
+    }
+}
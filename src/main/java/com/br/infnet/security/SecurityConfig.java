@@ -8,6 +8,9 @@ public class SecurityConfig {
     public static final int MIN_ISBN_NUMEROS = 10;
     public static final int MIN_CARACTERES_TITULO = 1;
     public static final int MIN_CARACTERES_AUTOR = 1;
+    //Teto de qualquer entrada, conferido antes de sanitização, detecção ou regex de validação: nenhum campo
+    //legítimo chega perto dele, e assim o custo de cada campo tem limite fixo
+    public static final int MAX_CARACTERES_ENTRADA = 1_024;
 
     //Validações
     public static final boolean VALIDACAO_ESTRITA = true;
@@ -44,6 +47,10 @@ public class SecurityConfig {
             throw new IllegalArgumentException("ISBN não pode ser nulo ou vazio");
         }
 
+        if (isbn.length() > MAX_CARACTERES_ENTRADA) {
+            throw new IllegalArgumentException("ISBN muito longo");
+        }
+
         String isbnLimpo = isbn.replaceAll("[\\s-]", "");
 
         if (isbnLimpo.length() > MAX_ISBN_NUMEROS) {
@@ -64,8 +71,15 @@ public class SecurityConfig {
             throw new IllegalArgumentException(fieldName + " não pode ser nulo");
         }
 
-        if (REJEITAR_ENTRADAS_MALICIOSAS && TextSanitizer.contemConteudoMalicioso(field)) {
-            throw new IllegalArgumentException(fieldName + " contém conteúdo malicioso");
+        if (field.length() > MAX_CARACTERES_ENTRADA) {
+            throw new IllegalArgumentException(fieldName + " muito longo (máximo " + maxLength + " caracteres)");
+        }
+
+        if (REJEITAR_ENTRADAS_MALICIOSAS) {
+            String regra = TextSanitizer.regraMaliciosa(field);
+            if (regra != null) {
+                throw new IllegalArgumentException(fieldName + " contém conteúdo malicioso (" + regra + ")");
+            }
         }
 
         String campoLimpo = field.trim();
@@ -84,6 +98,9 @@ public class SecurityConfig {
     }
 
     public static String processarEntrada(String input) {
+        if (input != null && input.length() > MAX_CARACTERES_ENTRADA) {
+            throw new IllegalArgumentException("Entrada muito longa (máximo " + MAX_CARACTERES_ENTRADA + " caracteres)");
+        }
         if (AUTO_SANITIZE) {
             return TextSanitizer.sanitizarEntrada(input);
         }
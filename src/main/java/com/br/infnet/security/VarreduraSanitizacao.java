@@ -0,0 +1,453 @@
+package com.br.infnet.security;
+
+//Implementação de TextSanitizer.sanitizarEntrada sem regex. O resultado é exatamente o da antiga
+//cadeia de replaceAll, etapa por etapa: cada etapa remove o que a expressão correspondente removia,
+//na mesma ordem, porque uma remoção pode juntar pedaços que a etapa seguinte casa (um caractere de
+//controle no meio de "UNION SELECT" só sai na sexta etapa, e o par é removido depois).
+//
+//Caminho rápido: quase toda entrada (títulos, autores, termos de busca) não tem nenhum caractere que
+//alguma etapa procura. Uma varredura só, com tabela para ASCII, confirma isso e resolve espaços e
+//trim; sem nada a mudar, devolve a própria String.
+//Caminho geral: as etapas correm sobre um único char[], compactado no lugar, cada uma em tempo linear.
+final class VarreduraSanitizacao {
+
+    //Removidos no fim: [<>&"'] e [@#$%&*()+={}\[\]|\\:;"<>?/~`]
+    private static final boolean[] ESPECIAL = new boolean[128];
+    //Caracteres ASCII que tiram a entrada do caminho rápido: especiais e de controle
+    private static final boolean[] SUSPEITO = new boolean[128];
+
+    //Ordem da alternância original: EXEC é tentado antes de EXECUTE
+    private static final String[] COMANDOS_SQL = {"drop", "delete", "insert", "update", "select", "union",
+            "exec", "execute", "alter", "create", "truncate"};
+
+    static {
+        for (char c : "<>&\"'@#$%*()+={}[]|\\:;?/~`".toCharArray()) {
+            ESPECIAL[c] = true;
+            SUSPEITO[c] = true;
+        }
+        for (int c = 0; c < 0x20; c++) {
+            SUSPEITO[c] = true;
+        }
+        SUSPEITO[0x7F] = true;
+    }
+
+    private VarreduraSanitizacao() {
+    }
+
+    static String sanitizar(String entrada) {
+        String rapido = caminhoRapido(entrada);
+        if (rapido != null) {
+            return rapido;
+        }
+
+        char[] texto = entrada.toCharArray();
+        int tamanho = texto.length;
+        tamanho = removerScripts(texto, tamanho);
+        tamanho = removerJavascript(texto, tamanho);
+        tamanho = removerComentariosSql(texto, tamanho);
+        tamanho = removerComandosSql(texto, tamanho);
+        tamanho = removerPathTraversal(texto, tamanho);
+        tamanho = removerControle(texto, tamanho);
+        tamanho = removerTags(texto, tamanho);
+        tamanho = removerPar(texto, tamanho, "union", "select");
+        tamanho = removerTautologia(texto, tamanho);
+        tamanho = removerPar(texto, tamanho, "drop", "table");
+        tamanho = removerPar(texto, tamanho, "delete", "from");
+        tamanho = removerUpdateSet(texto, tamanho);
+        tamanho = removerPar(texto, tamanho, "insert", "into");
+        return finalizar(texto, tamanho);
+    }
+
+    //Null quando alguma etapa além de espaços e trim poderia agir sobre a entrada
+    private static String caminhoRapido(String entrada) {
+        int tamanho = entrada.length();
+        boolean ajustarEspacos = false;
+        char anterior = ' ';
+        for (int i = 0; i < tamanho; i++) {
+            char c = entrada.charAt(i);
+            if (c < 128) {
+                if (SUSPEITO[c]) {
+                    return null;
+                }
+                if (c == ' ') {
+                    if (anterior == ' ') {
+                        ajustarEspacos = true;
+                    } else if (terminaComComando(entrada, i)) {
+                        return null;
+                    }
+                } else if (c == '-' && anterior == '-') {
+                    return null;
+                }
+            } else if (terminadorDeLinha(c)) {
+                return null;
+            }
+            anterior = c;
+        }
+        if (anterior == ' ' && tamanho > 0) {
+            ajustarEspacos = true;
+        } else if (terminaComComando(entrada, tamanho)) {
+            return null;
+        }
+        if (!ajustarEspacos) {
+            return entrada;
+        }
+        char[] texto = entrada.toCharArray();
+        return finalizar(texto, texto.length);
+    }
+
+    private static boolean terminaComComando(String entrada, int fim) {
+        for (String comando : COMANDOS_SQL) {
+            int inicio = fim - comando.length();
+            if (inicio >= 0 && entrada.regionMatches(true, inicio, comando, 0, comando.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //(?i)<\s*script[^>]*>.*?</\s*script\s*>, com DOTALL
+    private static int removerScripts(char[] texto, int tamanho) {
+        int escrita = 0;
+        //Buscas para a frente só avançam: guardam de onde partiram e o que acharam (-1: não há)
+        int maiorDesde = -1;
+        int maior = -1;
+        int fechamentoDesde = -1;
+        int fechamento = -1;
+        int fimFechamento = -1;
+        int leitura = 0;
+        while (leitura < tamanho) {
+            if (texto[leitura] == '<') {
+                int j = pularEspacos(texto, tamanho, leitura + 1);
+                if (palavra(texto, tamanho, j, "script")) {
+                    int desde = j + 6;
+                    if (maiorDesde < 0 || (maior >= 0 && maior < desde)) {
+                        maior = indice(texto, tamanho, desde, '>');
+                        maiorDesde = desde;
+                    }
+                    if (maior >= 0) {
+                        if (fechamentoDesde < 0 || (fechamento >= 0 && fechamento <= maior)) {
+                            fechamentoDesde = maior + 1;
+                            fechamento = -1;
+                            for (int m = fechamentoDesde; m < tamanho; m++) {
+                                int fim = fimDeFechamentoScript(texto, tamanho, m);
+                                if (fim >= 0) {
+                                    fechamento = m;
+                                    fimFechamento = fim;
+                                    break;
+                                }
+                            }
+                        }
+                        if (fechamento >= 0) {
+                            leitura = fimFechamento;
+                            continue;
+                        }
+                    }
+                }
+            }
+            texto[escrita++] = texto[leitura++];
+        }
+        return escrita;
+    }
+
+    //Fim de um </\s*script\s*> que começa em i, ou -1
+    private static int fimDeFechamentoScript(char[] texto, int tamanho, int i) {
+        if (texto[i] != '<' || i + 1 >= tamanho || texto[i + 1] != '/') {
+            return -1;
+        }
+        int j = pularEspacos(texto, tamanho, i + 2);
+        if (!palavra(texto, tamanho, j, "script")) {
+            return -1;
+        }
+        j = pularEspacos(texto, tamanho, j + 6);
+        return j < tamanho && texto[j] == '>' ? j + 1 : -1;
+    }
+
+    //(?i)javascript\s*:
+    private static int removerJavascript(char[] texto, int tamanho) {
+        int escrita = 0;
+        int leitura = 0;
+        while (leitura < tamanho) {
+            if (palavra(texto, tamanho, leitura, "javascript")) {
+                int j = pularEspacos(texto, tamanho, leitura + 10);
+                if (j < tamanho && texto[j] == ':') {
+                    leitura = j + 1;
+                    continue;
+                }
+            }
+            texto[escrita++] = texto[leitura++];
+        }
+        return escrita;
+    }
+
+    //--.*$|/\*.*?\*/ com DOTALL e MULTILINE: como . casa quebras de linha, "--" corta até o fim do texto
+    private static int removerComentariosSql(char[] texto, int tamanho) {
+        int escrita = 0;
+        int fechamento = -1;
+        boolean semFechamento = false;
+        int leitura = 0;
+        while (leitura < tamanho) {
+            char c = texto[leitura];
+            if (c == '-' && leitura + 1 < tamanho && texto[leitura + 1] == '-') {
+                return escrita;
+            }
+            if (c == '/' && !semFechamento && leitura + 1 < tamanho && texto[leitura + 1] == '*') {
+                if (fechamento < leitura + 2) {
+                    fechamento = -1;
+                    for (int p = leitura + 2; p + 1 < tamanho; p++) {
+                        if (texto[p] == '*' && texto[p + 1] == '/') {
+                            fechamento = p;
+                            break;
+                        }
+                    }
+                }
+                if (fechamento < 0) {
+                    semFechamento = true;
+                } else {
+                    leitura = fechamento + 2;
+                    continue;
+                }
+            }
+            texto[escrita++] = texto[leitura++];
+        }
+        return escrita;
+    }
+
+    //(?i)(DROP|DELETE|...|TRUNCATE)(?=\s|$|;|--|/\*): só a palavra sai, o que vem depois fica
+    private static int removerComandosSql(char[] texto, int tamanho) {
+        int escrita = 0;
+        int leitura = 0;
+        proximo:
+        while (leitura < tamanho) {
+            for (String comando : COMANDOS_SQL) {
+                if (palavra(texto, tamanho, leitura, comando) && fimDeComando(texto, tamanho, leitura + comando.length())) {
+                    leitura += comando.length();
+                    continue proximo;
+                }
+            }
+            texto[escrita++] = texto[leitura++];
+        }
+        return escrita;
+    }
+
+    //O lookahead da etapa anterior. $ sem MULTILINE também casa antes de uma quebra de linha final
+    private static boolean fimDeComando(char[] texto, int tamanho, int p) {
+        if (p >= tamanho) {
+            return true;
+        }
+        char c = texto[p];
+        if (espaco(c) || c == ';') {
+            return true;
+        }
+        if (p + 1 < tamanho && ((c == '-' && texto[p + 1] == '-') || (c == '/' && texto[p + 1] == '*'))) {
+            return true;
+        }
+        return p == tamanho - 1 && terminadorDeLinha(c);
+    }
+
+    //(\.\.[\\/]|[\\/]\.\.)
+    private static int removerPathTraversal(char[] texto, int tamanho) {
+        int escrita = 0;
+        int leitura = 0;
+        while (leitura < tamanho) {
+            if (leitura + 2 < tamanho) {
+                char c = texto[leitura];
+                if ((c == '.' && texto[leitura + 1] == '.' && barra(texto[leitura + 2]))
+                        || (barra(c) && texto[leitura + 1] == '.' && texto[leitura + 2] == '.')) {
+                    leitura += 3;
+                    continue;
+                }
+            }
+            texto[escrita++] = texto[leitura++];
+        }
+        return escrita;
+    }
+
+    //[\x00-\x1F\x7F]. Daqui em diante o único \s que sobra é o espaço
+    private static int removerControle(char[] texto, int tamanho) {
+        int escrita = 0;
+        for (int leitura = 0; leitura < tamanho; leitura++) {
+            char c = texto[leitura];
+            if (c >= 0x20 && c != 0x7F) {
+                texto[escrita++] = c;
+            }
+        }
+        return escrita;
+    }
+
+    //<[^>]+>
+    private static int removerTags(char[] texto, int tamanho) {
+        int escrita = 0;
+        int maior = -1;
+        boolean semMaior = false;
+        int leitura = 0;
+        while (leitura < tamanho) {
+            if (texto[leitura] == '<' && !semMaior && leitura + 1 < tamanho && texto[leitura + 1] != '>') {
+                if (maior < leitura + 2) {
+                    maior = indice(texto, tamanho, leitura + 2, '>');
+                }
+                if (maior < 0) {
+                    semMaior = true;
+                } else {
+                    leitura = maior + 1;
+                    continue;
+                }
+            }
+            texto[escrita++] = texto[leitura++];
+        }
+        return escrita;
+    }
+
+    //(?i)PRIMEIRA\s+SEGUNDA
+    private static int removerPar(char[] texto, int tamanho, String primeira, String segunda) {
+        int escrita = 0;
+        int leitura = 0;
+        while (leitura < tamanho) {
+            if (palavra(texto, tamanho, leitura, primeira)) {
+                int j = leitura + primeira.length();
+                if (j < tamanho && espaco(texto[j])) {
+                    j = pularEspacos(texto, tamanho, j);
+                    if (palavra(texto, tamanho, j, segunda)) {
+                        leitura = j + segunda.length();
+                        continue;
+                    }
+                }
+            }
+            texto[escrita++] = texto[leitura++];
+        }
+        return escrita;
+    }
+
+    //(?i)OR\s+'1'\s*=\s*'1'
+    private static int removerTautologia(char[] texto, int tamanho) {
+        int escrita = 0;
+        int leitura = 0;
+        while (leitura < tamanho) {
+            if (palavra(texto, tamanho, leitura, "or") && leitura + 2 < tamanho && espaco(texto[leitura + 2])) {
+                int j = pularEspacos(texto, tamanho, leitura + 2);
+                if (umEntreAspas(texto, tamanho, j)) {
+                    j = pularEspacos(texto, tamanho, j + 3);
+                    if (j < tamanho && texto[j] == '=') {
+                        j = pularEspacos(texto, tamanho, j + 1);
+                        if (umEntreAspas(texto, tamanho, j)) {
+                            leitura = j + 3;
+                            continue;
+                        }
+                    }
+                }
+            }
+            texto[escrita++] = texto[leitura++];
+        }
+        return escrita;
+    }
+
+    private static boolean umEntreAspas(char[] texto, int tamanho, int i) {
+        return i + 2 < tamanho && texto[i] == '\'' && texto[i + 1] == '1' && texto[i + 2] == '\'';
+    }
+
+    //(?i)UPDATE\s+.*\s+SET, sem DOTALL: . não passa das quebras de linha Unicode, que sobrevivem à
+    //remoção de controle. Com os gulosos, o casamento vai até o último " SET" da linha; se não houver
+    //nenhum depois dos espaços que seguem o UPDATE, ainda vale "UPDATE" + 2 ou mais espaços + "SET",
+    //com o \s+ inicial devolvendo um espaço
+    private static int removerUpdateSet(char[] texto, int tamanho) {
+        int escrita = 0;
+        //Linha já examinada: [inicioLinha, fimLinha) e a posição do último " set" nela, ou -1
+        int inicioLinha = -1;
+        int fimLinha = -1;
+        int ultimoSet = -1;
+        int leitura = 0;
+        while (leitura < tamanho) {
+            int p = leitura + 6;
+            if (palavra(texto, tamanho, leitura, "update") && p < tamanho && texto[p] == ' ') {
+                int espacosAte = p;
+                while (espacosAte < tamanho && texto[espacosAte] == ' ') {
+                    espacosAte++;
+                }
+                if (p < inicioLinha || p >= fimLinha) {
+                    inicioLinha = p;
+                    fimLinha = p;
+                    ultimoSet = -1;
+                    while (fimLinha < tamanho && !terminadorDeLinha(texto[fimLinha])) {
+                        if (texto[fimLinha] == ' ' && palavra(texto, tamanho, fimLinha + 1, "set")) {
+                            ultimoSet = fimLinha;
+                        }
+                        fimLinha++;
+                    }
+                }
+                if (ultimoSet >= espacosAte) {
+                    leitura = ultimoSet + 4;
+                    continue;
+                }
+                if (espacosAte - p >= 2 && palavra(texto, tamanho, espacosAte, "set")) {
+                    leitura = espacosAte + 3;
+                    continue;
+                }
+            }
+            texto[escrita++] = texto[leitura++];
+        }
+        return escrita;
+    }
+
+    //Especiais removidos, espaços repetidos reduzidos a um e trim, numa passada só
+    private static String finalizar(char[] texto, int tamanho) {
+        int escrita = 0;
+        for (int leitura = 0; leitura < tamanho; leitura++) {
+            char c = texto[leitura];
+            if (c < 128 && ESPECIAL[c]) {
+                continue;
+            }
+            if (c == ' ' && (escrita == 0 || texto[escrita - 1] == ' ')) {
+                continue;
+            }
+            texto[escrita++] = c;
+        }
+        if (escrita > 0 && texto[escrita - 1] == ' ') {
+            escrita--;
+        }
+        return new String(texto, 0, escrita);
+    }
+
+    //Palavra em minúsculas a partir de i, sem diferenciar maiúsculas só no ASCII, como (?i) sem UNICODE_CASE
+    private static boolean palavra(char[] texto, int tamanho, int i, String minusculas) {
+        int n = minusculas.length();
+        if (i < 0 || i + n > tamanho) {
+            return false;
+        }
+        for (int k = 0; k < n; k++) {
+            char c = texto[i + k];
+            char esperado = minusculas.charAt(k);
+            if (c != esperado && c != esperado - ('a' - 'A')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int pularEspacos(char[] texto, int tamanho, int i) {
+        while (i < tamanho && espaco(texto[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int indice(char[] texto, int tamanho, int desde, char procurado) {
+        for (int i = desde; i < tamanho; i++) {
+            if (texto[i] == procurado) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //\s de java.util.regex
+    private static boolean espaco(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static boolean terminadorDeLinha(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean barra(char c) {
+        return c == '/' || c == '\\';
+    }
+}
@@ -0,0 +1,91 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.persistence.DestinoMutacoes;
+import com.br.infnet.persistence.SnapshotAcervo;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+//Operações de armazenamento que o LivroService usa. AcervoConcorrente guarda tudo num único conjunto
+//de mapa e índices; AcervoParticionado divide os livros entre vários deles pelo id.
+abstract class Acervo {
+    //Livros do lote que não entraram (ISBN ou id já existentes) e a maior sequência do journal a aguardar
+    record ResultadoLote(List<Livro> recusados, long sequencia) {
+    }
+
+    abstract void ativarPersistencia(DestinoMutacoes persistencia);
+
+    abstract Livro buscar(int id);
+
+    abstract Collection<Livro> livros();
+
+    abstract int tamanho();
+
+    abstract boolean existeIsbn(String isbn);
+
+    abstract Livro buscarPorIsbn(String isbn);
+
+    //Termos já normalizados; resultados em ordem de id
+    abstract ArrayList<Livro> buscarPorTitulo(String termo);
+
+    abstract ArrayList<Livro> buscarPorAutor(String termo);
+
+    abstract ArrayList<Livro> buscarPorAutorExato(String chave);
+
+    abstract ArrayList<Livro> buscarPorPrefixoAutor(String prefixo);
+
+    abstract int quantidadeAutores();
+
+    abstract VisaoAcervo abrirVisao();
+
+    abstract void inserir(Livro livro);
+
+    //Insere um lote sem aguardar o journal: isso fica com quem chama
+    abstract ResultadoLote inserirLote(List<Livro> lote);
+
+    //Carga do estado recuperado do disco na subida, com o acervo ainda vazio, sem persistência e fora de uso:
+    //sem travas nem journal, e cada índice montado de uma vez. Empréstimos entram junto. Com a ordem
+    //alfabética do snapshot (pode ser null), os índices de ordem não recalculam as chaves de ordenação
+    abstract void restaurar(List<Livro> livros, SnapshotAcervo.Ordem ordem);
+
+    //Ordem alfabética dos livros da visão, tirada dos índices, para gravar no snapshot junto com eles
+    abstract SnapshotAcervo.Ordem ordemAlfabetica(VisaoAcervo visao);
+
+    //Com revisaoEsperada diferente de Livro.SEM_REVISAO, só atualiza se o livro ainda estiver nela
+    abstract void atualizar(int id, String titulo, String autor, String isbn, long revisaoEsperada);
+
+    abstract void remover(int id);
+
+    //Chamados por LivroService com o monitor do livro em mãos. Retornam a sequência do journal,
+    //que deve ser aguardada com aguardarJournal só depois de liberar o monitor
+    abstract long registrarEmprestimo(Livro livro);
+
+    abstract long registrarDevolucao(Livro livro);
+
+    abstract void aguardarJournal(long sequencia);
+
+    abstract ArrayList<Livro> listarEmprestados(boolean ordenarPorVencimento);
+
+    abstract ArrayList<Livro> listarVencidosAntesDe(LocalDate dia);
+
+    abstract ArrayList<Livro> livrosEmprestados(List<Integer> ids);
+
+    //Empréstimos ativos em colunas primitivas, em ordem de id, para o cálculo de multas em lote
+    abstract MotorMultas.Emprestimos coletarEmprestimos();
+
+    abstract Pagina paginarPorId(String apos, String antes, int tamanho);
+
+    abstract Pagina paginarEmOrdem(OrdemListagem ordem, String de, String ate, String apos, String antes, int tamanho);
+
+    abstract Pagina paginarEmprestados(boolean ordenarPorVencimento, String apos, String antes, int tamanho);
+
+    //Confirma, já com o monitor do livro em mãos, que ele ainda faz parte do acervo
+    abstract boolean contem(Livro livro);
+
+    //Libera recursos próprios (threads de busca); o padrão não tem nenhum
+    void fechar() {
+    }
+}
@@ -0,0 +1,675 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.RelogioVersoes;
+import com.br.infnet.persistence.DestinoMutacoes;
+import com.br.infnet.persistence.RegistroJournal;
+import com.br.infnet.persistence.SnapshotAcervo;
+import com.br.infnet.utils.DicionarioAutores;
+import com.br.infnet.utils.MapaIntLivroConcorrente;
+import com.br.infnet.utils.NormalizadorBusca;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Armazenamento do acervo seguro para acesso concorrente das threads do Jetty.
+//Leituras não usam trava; escritas travam apenas a faixa do ISBN envolvido.
+//Quem precisa do acervo inteiro num mesmo instante (exportação, snapshot) abre uma VisaoAcervo.
+class AcervoConcorrente extends Acervo {
+    private static final int NUMERO_TRAVAS = 64;
+
+    //Chaves int sem boxing; leituras sem trava, escritas serializadas dentro do próprio mapa
+    private final MapaIntLivroConcorrente livros = new MapaIntLivroConcorrente();
+    //Índice secundário ISBN -> id, mantido sob as mesmas travas de faixa das escritas
+    private final ConcurrentHashMap<String, Integer> indiceIsbn = new ConcurrentHashMap<>();
+    //Ids em ordem para a paginação por cursor: cada página custa O(log n + tamanho da página)
+    private final ConcurrentSkipListSet<Integer> idsOrdenados = new ConcurrentSkipListSet<>();
+    private final IndiceNGram indiceTitulo = new IndiceNGram();
+    //Um registro por autor distinto, com o nome compartilhado e a lista de ids dos seus livros
+    private final DicionarioAutores autores = new DicionarioAutores();
+    //Ordem alfabética (pt-BR) para listagens por título e autor
+    private final IndiceOrdenado ordemTitulo = new IndiceOrdenado();
+    private final IndiceOrdenado ordemAutor = new IndiceOrdenado();
+    private final IndiceNGram indiceAutor = new IndiceNGram();
+    private final IndiceEmprestimos emprestimos = new IndiceEmprestimos();
+    //Livros que as leituras versionadas percorrem, incluindo removidos que alguma delas ainda vê
+    private final RegistroLivros registro;
+    //Próprio, ou o do acervo particionado do qual esta é uma partição
+    private final RelogioVersoes relogio;
+    private final ReentrantLock[] travasIsbn = new ReentrantLock[NUMERO_TRAVAS];
+    //Nulo quando o acervo vive só em memória
+    private volatile DestinoMutacoes persistencia;
+
+    AcervoConcorrente() {
+        this(new RelogioVersoes());
+    }
+
+    AcervoConcorrente(RelogioVersoes relogio) {
+        this.relogio = relogio;
+        this.registro = new RegistroLivros(relogio);
+        for (int i = 0; i < NUMERO_TRAVAS; i++) {
+            travasIsbn[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    void ativarPersistencia(DestinoMutacoes persistencia) {
+        this.persistencia = persistencia;
+    }
+
+    @Override
+    Livro buscar(int id) {
+        return livros.get(id);
+    }
+
+    @Override
+    Collection<Livro> livros() {
+        return livros.values();
+    }
+
+    @Override
+    VisaoAcervo abrirVisao() {
+        RelogioVersoes.Leitura leitura = relogio.abrirLeitura();
+        return new VisaoAcervo(leitura, registro.fatia());
+    }
+
+    //Para a visão de um acervo particionado: o instante é aberto uma vez e vale para todas as partições
+    RegistroLivros.Fatia fatiaDoRegistro() {
+        return registro.fatia();
+    }
+
+    @Override
+    int tamanho() {
+        return livros.size();
+    }
+
+    @Override
+    boolean existeIsbn(String isbn) {
+        return isbn != null && indiceIsbn.containsKey(isbn);
+    }
+
+    @Override
+    Livro buscarPorIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        Integer id = indiceIsbn.get(isbn);
+        if (id == null) {
+            return null;
+        }
+        Livro livro = livros.get(id);
+        //Uma atualização de ISBN pode estar em andamento; só devolve o livro se ele ainda bater
+        return livro != null && isbn.equals(livro.getIsbn()) ? livro : null;
+    }
+
+    @Override
+    ArrayList<Livro> buscarPorTitulo(String termo) {
+        return buscarPorTrecho(indiceTitulo, termo, Livro::getChaveBuscaTitulo);
+    }
+
+    @Override
+    ArrayList<Livro> buscarPorAutor(String termo) {
+        return buscarPorTrecho(indiceAutor, termo, Livro::getChaveBuscaAutor);
+    }
+
+    //Termo já normalizado; respondem direto das listas do dicionário de autores
+    @Override
+    ArrayList<Livro> buscarPorAutorExato(String chave) {
+        return livrosPorIds(autores.livrosDoAutor(chave));
+    }
+
+    @Override
+    ArrayList<Livro> buscarPorPrefixoAutor(String prefixo) {
+        return livrosPorIds(autores.livrosComPrefixo(prefixo));
+    }
+
+    private ArrayList<Livro> livrosPorIds(int[] ids) {
+        ArrayList<Livro> encontrados = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Livro livro = livros.get(id);
+            if (livro != null) {
+                encontrados.add(livro);
+            }
+        }
+        return encontrados;
+    }
+
+    @Override
+    int quantidadeAutores() {
+        return autores.quantidadeAutores();
+    }
+
+    Set<String> chavesDeAutores() {
+        return autores.chaves();
+    }
+
+    //Termo já normalizado; compara com as chaves de busca dos livros percorrendo só os candidatos do índice
+    private ArrayList<Livro> buscarPorTrecho(IndiceNGram indice, String termo, Function<Livro, String> campo) {
+        ArrayList<Livro> encontrados = new ArrayList<>();
+        int[] candidatos = indice.candidatos(termo);
+
+        if (candidatos == null) {
+            for (Livro livro : livros.values()) {
+                if (contemTrecho(campo.apply(livro), termo)) {
+                    encontrados.add(livro);
+                }
+            }
+            encontrados.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+            return encontrados;
+        }
+
+        //Já em ordem de id
+        for (int id : candidatos) {
+            Livro livro = livros.get(id);
+            //Confirma no livro atual: o índice pode conter falsos positivos
+            if (livro != null && contemTrecho(campo.apply(livro), termo)) {
+                encontrados.add(livro);
+            }
+        }
+        return encontrados;
+    }
+
+    private static boolean contemTrecho(String chave, String termo) {
+        return chave != null && chave.contains(termo);
+    }
+
+    //Publica a entrada no acervo por último, depois do registro: uma leitura que enxergue o carimbo
+    //da entrada já encontra o livro na Fatia que guardou. O autor já está no dicionário (indexado antes)
+    private void publicarEntrada(Livro livro) {
+        boolean recadastro = livro.getSituacao() == Livro.Situacao.REMOVIDO;
+        DicionarioAutores.NomeAutor autor = autores.compartilhar(livro.getAutor(), livro.getChaveBuscaAutor());
+        registro.adicionar(livro, recadastro);
+        livro.entrarNoAcervo(relogio, autor.nome(), autor.chave());
+    }
+
+    private void indexar(Livro livro) {
+        autores.adicionar(livro);
+        idsOrdenados.add(livro.getId());
+        indiceTitulo.adicionar(livro.getId(), livro.getChaveBuscaTitulo());
+        indiceAutor.adicionar(livro.getId(), livro.getChaveBuscaAutor());
+        ordemTitulo.adicionar(livro.getId(), livro.getTitulo());
+        ordemAutor.adicionar(livro.getId(), livro.getAutor());
+    }
+
+    private void desindexar(Livro livro) {
+        autores.remover(livro.getId(), livro.getChaveBuscaAutor());
+        idsOrdenados.remove(livro.getId());
+        indiceTitulo.remover(livro.getId(), livro.getChaveBuscaTitulo());
+        indiceAutor.remover(livro.getId(), livro.getChaveBuscaAutor());
+        ordemTitulo.remover(livro.getId(), livro.getTitulo());
+        ordemAutor.remover(livro.getId(), livro.getAutor());
+    }
+
+    @Override
+    void inserir(Livro livro) {
+        aguardarJournal(inserirSemAguardarJournal(livro));
+    }
+
+    //Para cargas em lote: quem chama aguarda só a maior sequência retornada, uma vez por lote
+    long inserirSemAguardarJournal(Livro livro) {
+        ReentrantLock trava = travaDoIsbn(livro.getIsbn());
+        long sequencia;
+        trava.lock();
+        try {
+            //Verificação e inserção sob a mesma trava: dois cadastros com o mesmo ISBN não passam juntos
+            if (existeIsbn(livro.getIsbn())) {
+                throw new IllegalArgumentException("Já existe um livro cadastrado com este ISBN");
+            }
+            if (livros.putIfAbsent(livro.getId(), livro) != null) {
+                throw new IllegalArgumentException("Já existe um livro cadastrado com este ID");
+            }
+            indiceIsbn.put(livro.getIsbn(), livro.getId());
+            indexar(livro);
+            publicarEntrada(livro);
+            sequencia = registrarNoJournal(RegistroJournal.cadastro(livro));
+        } finally {
+            trava.unlock();
+        }
+        return sequencia;
+    }
+
+    //Insere um lote com as travas de faixa de todos os ISBNs envolvidos e atualiza os índices
+    //de busca uma vez para o lote inteiro. Não aguarda o journal: isso fica com quem chama.
+    @Override
+    ResultadoLote inserirLote(List<Livro> lote) {
+        boolean[] faixas = new boolean[NUMERO_TRAVAS];
+        for (Livro livro : lote) {
+            faixas[indiceTrava(livro.getIsbn())] = true;
+        }
+        //Sempre em ordem crescente, como em atualizar, para não haver deadlock
+        for (int i = 0; i < NUMERO_TRAVAS; i++) {
+            if (faixas[i]) {
+                travasIsbn[i].lock();
+            }
+        }
+
+        List<Livro> inseridos = new ArrayList<>(lote.size());
+        List<Livro> recusados = new ArrayList<>();
+        long sequencia = 0;
+        try {
+            for (Livro livro : lote) {
+                if (existeIsbn(livro.getIsbn()) || livros.putIfAbsent(livro.getId(), livro) != null) {
+                    recusados.add(livro);
+                    continue;
+                }
+                indiceIsbn.put(livro.getIsbn(), livro.getId());
+                autores.adicionar(livro);
+                idsOrdenados.add(livro.getId());
+                ordemTitulo.adicionar(livro.getId(), livro.getTitulo());
+                ordemAutor.adicionar(livro.getId(), livro.getAutor());
+                publicarEntrada(livro);
+                inseridos.add(livro);
+                sequencia = Math.max(sequencia, registrarNoJournal(RegistroJournal.cadastro(livro)));
+            }
+            indiceTitulo.adicionarLote(inseridos, Livro::getChaveBuscaTitulo);
+            indiceAutor.adicionarLote(inseridos, Livro::getChaveBuscaAutor);
+        } finally {
+            for (int i = NUMERO_TRAVAS - 1; i >= 0; i--) {
+                if (faixas[i]) {
+                    travasIsbn[i].unlock();
+                }
+            }
+        }
+        return new ResultadoLote(recusados, sequencia);
+    }
+
+    @Override
+    void restaurar(List<Livro> lote, SnapshotAcervo.Ordem ordem) {
+        //Os índices de busca não dependem do mapa: montados no ForkJoinPool enquanto esta thread preenche o
+        //mapa, o ISBN e o dicionário de autores. Os de ordem alfabética também, quando precisam calcular as
+        //chaves; com a ordem gravada eles vêm depois, porque ela traz só ids, resolvidos pelo mapa
+        boolean ordemGravada = ordem != null && ordem.assinatura() == IndiceOrdenado.ASSINATURA_ORDEM
+                && IndiceOrdenado.ASSINATURA_ORDEM != 0;
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<ForkJoinTask<?>> indices = new ArrayList<>(List.of(
+                pool.submit(() -> indiceTitulo.carregar(lote, Livro::getChaveBuscaTitulo)),
+                pool.submit(() -> indiceAutor.carregar(lote, Livro::getChaveBuscaAutor))));
+        if (!ordemGravada) {
+            indices.add(pool.submit(() -> ordemTitulo.carregar(lote, Livro::getTitulo)));
+            indices.add(pool.submit(() -> ordemAutor.carregar(lote, Livro::getAutor)));
+        }
+
+        int[] ids = new int[lote.size()];
+        int total = 0;
+        for (Livro livro : lote) {
+            if (livros.putIfAbsent(livro.getId(), livro) != null
+                    || indiceIsbn.putIfAbsent(livro.getIsbn(), livro.getId()) != null) {
+                throw new IllegalStateException("Id ou ISBN repetido no acervo recuperado: " + livro.getId());
+            }
+            autores.adicionar(livro);
+            publicarEntrada(livro);
+            if (!livro.isDisponivel()) {
+                emprestimos.registrar(livro.getId(), livro.getDataEstimadaDevolucao());
+            }
+            ids[total++] = livro.getId();
+        }
+        if (ordemGravada) {
+            indices.add(pool.submit(() -> ordemTitulo.carregar(lote, Livro::getTitulo, ordem.titulos(), livros::get)));
+            indices.add(pool.submit(() -> ordemAutor.carregar(lote, Livro::getAutor, ordem.autores(), livros::get)));
+        }
+        //Em ordem crescente, cada inserção na skip list para logo no fim
+        Arrays.sort(ids);
+        for (int id : ids) {
+            idsOrdenados.add(id);
+        }
+        for (ForkJoinTask<?> indice : indices) {
+            indice.join();
+        }
+    }
+
+    @Override
+    SnapshotAcervo.Ordem ordemAlfabetica(VisaoAcervo visao) {
+        return new SnapshotAcervo.Ordem(IndiceOrdenado.ASSINATURA_ORDEM,
+                ids(entradasNaVisao(OrdemListagem.TITULO, visao)), ids(entradasNaVisao(OrdemListagem.AUTOR, visao)));
+    }
+
+    //Entradas do índice que valem para a visão: o livro está nela com o mesmo texto. Quem mudou depois que
+    //a visão abriu fica de fora e, na carga, é posicionado pela chave
+    List<IndiceOrdenado.Entrada> entradasNaVisao(OrdemListagem ordem, VisaoAcervo visao) {
+        boolean porTitulo = ordem == OrdemListagem.TITULO;
+        BitSet vistos = new BitSet();
+        return (porTitulo ? ordemTitulo : ordemAutor).emOrdem(entrada -> {
+            Livro livro = livros.get(entrada.id());
+            Livro.Versao versao = livro != null ? visao.versaoDe(livro) : null;
+            if (versao == null || vistos.get(entrada.id())
+                    || !entrada.texto().equals(porTitulo ? versao.getTitulo() : versao.getAutor())) {
+                return false;
+            }
+            vistos.set(entrada.id());
+            return true;
+        });
+    }
+
+    static int[] ids(List<IndiceOrdenado.Entrada> entradas) {
+        int[] ids = new int[entradas.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = entradas.get(i).id();
+        }
+        return ids;
+    }
+
+    @Override
+    void atualizar(int id, String titulo, String autor, String isbn, long revisaoEsperada) {
+        aguardarJournal(atualizarSemAguardarJournal(id, titulo, autor, isbn, revisaoEsperada));
+    }
+
+    long atualizarSemAguardarJournal(int id, String titulo, String autor, String isbn, long revisaoEsperada) {
+        long sequencia = -1;
+        while (sequencia < 0) {
+            Livro livro = livros.get(id);
+            if (livro == null) {
+                throw new NoSuchElementException("Livro não encontrado");
+            }
+
+            String isbnAtual = livro.getIsbn();
+            ReentrantLock primeira = travaDoIsbn(isbnAtual);
+            ReentrantLock segunda = travaDoIsbn(isbn);
+            //Ordem fixa de aquisição evita deadlock entre atualizações cruzadas
+            if (indiceTrava(isbnAtual) > indiceTrava(isbn)) {
+                ReentrantLock aux = primeira;
+                primeira = segunda;
+                segunda = aux;
+            }
+
+            primeira.lock();
+            segunda.lock();
+            try {
+                if (livros.get(id) != livro || !livro.getIsbn().equals(isbnAtual)) {
+                    //Outra escrita mudou o livro entre a leitura e o travamento
+                    continue;
+                }
+
+                Integer idComIsbn = indiceIsbn.get(isbn);
+                if (idComIsbn != null && idComIsbn != id) {
+                    throw new IllegalArgumentException("Já existe um livro cadastrado com este ISBN");
+                }
+
+                String tituloAnterior = livro.getChaveBuscaTitulo();
+                String autorAnterior = livro.getChaveBuscaAutor();
+                String tituloOriginal = livro.getTitulo();
+                String autorOriginal = livro.getAutor();
+                DicionarioAutores.NomeAutor nomeAutor = autores.compartilhar(autor, NormalizadorBusca.normalizar(autor));
+                //Uma única versão nova: nenhum leitor vê o título novo com o ISBN antigo
+                if (!livro.atualizarCatalogo(titulo, nomeAutor.nome(), nomeAutor.chave(), isbn, revisaoEsperada)) {
+                    throw new ConflitoDeVersaoException("Livro alterado por outra edição desde a revisão "
+                            + revisaoEsperada, livro.getRevisao());
+                }
+                indiceTitulo.atualizar(id, tituloAnterior, livro.getChaveBuscaTitulo());
+                indiceAutor.atualizar(id, autorAnterior, livro.getChaveBuscaAutor());
+                if (!autorAnterior.equals(livro.getChaveBuscaAutor())) {
+                    autores.remover(id, autorAnterior);
+                    autores.adicionar(livro);
+                }
+                ordemTitulo.atualizar(id, tituloOriginal, livro.getTitulo());
+                ordemAutor.atualizar(id, autorOriginal, livro.getAutor());
+                if (!isbnAtual.equals(isbn)) {
+                    indiceIsbn.put(isbn, id);
+                    indiceIsbn.remove(isbnAtual, id);
+                }
+                sequencia = registrarNoJournal(RegistroJournal.atualizacao(livro));
+            } finally {
+                segunda.unlock();
+                primeira.unlock();
+            }
+        }
+        return sequencia;
+    }
+
+    @Override
+    void remover(int id) {
+        aguardarJournal(removerSemAguardarJournal(id));
+    }
+
+    long removerSemAguardarJournal(int id) {
+        long sequencia = -1;
+        while (sequencia < 0) {
+            Livro livro = livros.get(id);
+            if (livro == null) {
+                throw new NoSuchElementException("Livro não encontrado");
+            }
+
+            String isbn = livro.getIsbn();
+            ReentrantLock trava = travaDoIsbn(isbn);
+            trava.lock();
+            try {
+                if (livros.get(id) != livro || !livro.getIsbn().equals(isbn)) {
+                    continue;
+                }
+                synchronized (livro) {
+                    if (!livro.isDisponivel()) {
+                        throw new IllegalStateException("Livro está emprestado e não pode ser removido do acervo");
+                    }
+                    livros.remove(id, livro);
+                    livro.sairDoAcervo();
+                }
+                indiceIsbn.remove(isbn, id);
+                desindexar(livro);
+                registro.removido();
+                sequencia = registrarNoJournal(RegistroJournal.remocao(id));
+            } finally {
+                trava.unlock();
+            }
+        }
+        return sequencia;
+    }
+
+    //Chamados por LivroService com o monitor do livro em mãos. Retornam a sequência do journal,
+    //que deve ser aguardada com aguardarJournal só depois de liberar o monitor
+    @Override
+    long registrarEmprestimo(Livro livro) {
+        emprestimos.registrar(livro.getId(), livro.getDataEstimadaDevolucao());
+        return registrarNoJournal(RegistroJournal.emprestimo(livro));
+    }
+
+    @Override
+    long registrarDevolucao(Livro livro) {
+        emprestimos.remover(livro.getId());
+        return registrarNoJournal(RegistroJournal.devolucao(livro.getId()));
+    }
+
+    //Enfileira a mutação no journal ainda dentro da seção crítica, para manter a ordem das escritas
+    private long registrarNoJournal(RegistroJournal registro) {
+        DestinoMutacoes atual = persistencia;
+        return atual == null ? 0 : atual.registrar(registro);
+    }
+
+    //Espera o fsync fora das travas: outras escritas seguem e entram no mesmo lote de gravação
+    @Override
+    void aguardarJournal(long sequencia) {
+        DestinoMutacoes atual = persistencia;
+        if (atual != null && sequencia > 0) {
+            atual.aguardar(sequencia);
+        }
+    }
+
+    @Override
+    ArrayList<Livro> listarEmprestados(boolean ordenarPorVencimento) {
+        return livrosEmprestados(ordenarPorVencimento ? emprestimos.idsPorVencimento() : emprestimos.idsPorId());
+    }
+
+    @Override
+    ArrayList<Livro> listarVencidosAntesDe(LocalDate dia) {
+        return livrosEmprestados(emprestimos.idsVencidosAntesDe(dia));
+    }
+
+    @Override
+    ArrayList<Livro> livrosEmprestados(List<Integer> ids) {
+        ArrayList<Livro> emprestados = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            Livro livro = livros.get(id);
+            if (livro != null && !livro.isDisponivel()) {
+                emprestados.add(livro);
+            }
+        }
+        return emprestados;
+    }
+
+    @Override
+    MotorMultas.Emprestimos coletarEmprestimos() {
+        MotorMultas.Emprestimos coleta = new MotorMultas.Emprestimos(emprestimos.tamanho());
+        for (int id : emprestimos.idsOrdenados()) {
+            Livro livro = livros.get(id);
+            if (livro != null) {
+                coleta.adicionar(livro.versaoAtual());
+            }
+        }
+        return coleta;
+    }
+
+    @Override
+    Pagina paginarPorId(String apos, String antes, int tamanho) {
+        return paginar(idsOrdenados, cursorDeId(apos), cursorDeId(antes), tamanho, livros::get, String::valueOf,
+                id -> true);
+    }
+
+    //Em ordem alfabética de título ou autor, opcionalmente na faixa [de, ate], com ate valendo como prefixo
+    @Override
+    Pagina paginarEmOrdem(OrdemListagem ordem, String de, String ate, String apos, String antes, int tamanho) {
+        IndiceOrdenado indice = switch (ordem) {
+            case TITULO -> ordemTitulo;
+            case AUTOR -> ordemAutor;
+            case ID -> throw new IllegalArgumentException("Use paginarPorId para a ordem por id");
+        };
+        return paginar(indice.aPartirDe(de), cursorDeEntrada(apos), cursorDeEntrada(antes), tamanho,
+                entrada -> livros.get(entrada.id()), entrada -> entrada.id() + ":" + entrada.texto(),
+                IndiceOrdenado.ate(ate));
+    }
+
+    @Override
+    Pagina paginarEmprestados(boolean ordenarPorVencimento, String apos, String antes, int tamanho) {
+        if (ordenarPorVencimento) {
+            return paginar(emprestimos.vencimentosOrdenados(), cursorDeVencimento(apos), cursorDeVencimento(antes),
+                    tamanho, vencimento -> emprestado(vencimento.id()),
+                    vencimento -> vencimento.diaEpoch() + ":" + vencimento.id(), vencimento -> true);
+        }
+        return paginar(emprestimos.idsOrdenados(), cursorDeId(apos), cursorDeId(antes), tamanho,
+                this::emprestado, String::valueOf, id -> true);
+    }
+
+    private Livro emprestado(int id) {
+        Livro livro = livros.get(id);
+        return livro != null && !livro.isDisponivel() ? livro : null;
+    }
+
+    //Percorre só o trecho do índice a partir do cursor; chaves cujo livro sumiu entre o índice
+    //e o mapa (resolver devolve nulo) são puladas sem contar no tamanho da página.
+    //chaves já vem cortado no limite inferior; o superior é dentroDoLimite, testado durante a leitura
+    private static <K> Pagina paginar(NavigableSet<K> chaves, K apos, K antes, int tamanho,
+                                      Function<K, Livro> resolver, Function<K, String> cursor,
+                                      Predicate<K> dentroDoLimite) {
+        boolean paraTras = antes != null;
+        NavigableSet<K> trecho = paraTras ? chaves.headSet(antes, false).descendingSet()
+                : apos != null ? chaves.tailSet(apos, false) : chaves;
+
+        List<Livro> pagina = new ArrayList<>(tamanho);
+        K primeira = null;
+        K ultima = null;
+        boolean haMais = false;
+        for (K chave : trecho) {
+            if (!paraTras && !dentroDoLimite.test(chave)) {
+                break;
+            }
+            Livro livro = resolver.apply(chave);
+            if (livro == null) {
+                continue;
+            }
+            if (pagina.size() == tamanho) {
+                haMais = true;
+                break;
+            }
+            pagina.add(livro);
+            if (primeira == null) {
+                primeira = chave;
+            }
+            ultima = chave;
+        }
+        if (pagina.isEmpty()) {
+            return new Pagina(pagina, null, null);
+        }
+
+        if (paraTras) {
+            Collections.reverse(pagina);
+            K aux = primeira;
+            primeira = ultima;
+            ultima = aux;
+            K seguinte = chaves.higher(ultima);
+            return new Pagina(pagina, haMais ? cursor.apply(primeira) : null,
+                    seguinte != null && dentroDoLimite.test(seguinte) ? cursor.apply(ultima) : null);
+        }
+        return new Pagina(pagina, chaves.lower(primeira) != null ? cursor.apply(primeira) : null,
+                haMais ? cursor.apply(ultima) : null);
+    }
+
+    private static Integer cursorDeId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(cursor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido");
+        }
+    }
+
+    //Cursor "id:texto", com o texto tal como estava no índice quando a página foi montada
+    private static IndiceOrdenado.Entrada cursorDeEntrada(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        int separador = cursor.indexOf(':');
+        try {
+            if (separador > 0) {
+                return IndiceOrdenado.entrada(cursor.substring(separador + 1),
+                        Integer.parseInt(cursor.substring(0, separador)));
+            }
+        } catch (NumberFormatException e) {
+            //Cai na mesma mensagem abaixo
+        }
+        throw new IllegalArgumentException("Cursor de paginação inválido");
+    }
+
+    private static IndiceEmprestimos.Vencimento cursorDeVencimento(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String[] partes = cursor.trim().split(":");
+        try {
+            if (partes.length == 2) {
+                return new IndiceEmprestimos.Vencimento(Long.parseLong(partes[0]), Integer.parseInt(partes[1]));
+            }
+        } catch (NumberFormatException e) {
+            //Cai na mesma mensagem abaixo
+        }
+        throw new IllegalArgumentException("Cursor de paginação inválido");
+    }
+
+    //Confirma, já com o monitor do livro em mãos, que ele ainda faz parte do acervo
+    @Override
+    boolean contem(Livro livro) {
+        return livros.get(livro.getId()) == livro;
+    }
+
+    private ReentrantLock travaDoIsbn(String isbn) {
+        return travasIsbn[indiceTrava(isbn)];
+    }
+
+    private int indiceTrava(String isbn) {
+        int h = isbn.hashCode();
+        return (h ^ (h >>> 16)) & (NUMERO_TRAVAS - 1);
+    }
+}
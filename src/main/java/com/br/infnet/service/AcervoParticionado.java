@@ -0,0 +1,582 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.RelogioVersoes;
+import com.br.infnet.persistence.DestinoMutacoes;
+import com.br.infnet.persistence.SnapshotAcervo;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+//Acervo dividido em partições pelo hash do id, cada uma um AcervoConcorrente com mapa e índices próprios.
+//Operações sobre um id vão direto à sua partição; buscas por título e autor consultam todas em paralelo
+//e juntam os resultados em ordem de id. O ISBN é único no acervo inteiro, não por partição: a reserva
+//global fica aqui, sob travas de faixa próprias, sempre tomadas antes das travas da partição.
+class AcervoParticionado extends Acervo {
+    private static final int NUMERO_TRAVAS = 64;
+
+    private final AcervoConcorrente[] particoes;
+    //Um só relógio para todas as partições: uma leitura vale para o acervo inteiro
+    private final RelogioVersoes relogio = new RelogioVersoes();
+    //ISBN -> id no acervo inteiro; cada partição mantém ainda o seu próprio índice
+    private final ConcurrentHashMap<String, Integer> reservasIsbn = new ConcurrentHashMap<>();
+    private final ReentrantLock[] travasIsbn = new ReentrantLock[NUMERO_TRAVAS];
+    //Threads das consultas em paralelo; a partição 0 é sempre consultada pela própria thread que chama
+    private final ThreadPoolExecutor executor;
+
+    AcervoParticionado(int quantidade) {
+        if (quantidade < 2) {
+            throw new IllegalArgumentException("Acervo particionado precisa de pelo menos 2 partições");
+        }
+        particoes = new AcervoConcorrente[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            particoes[i] = new AcervoConcorrente(relogio);
+        }
+        for (int i = 0; i < NUMERO_TRAVAS; i++) {
+            travasIsbn[i] = new ReentrantLock();
+        }
+        int threads = Math.min(quantidade - 1, Runtime.getRuntime().availableProcessors());
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                tarefa -> {
+                    Thread thread = new Thread(tarefa, "busca-particao");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        //Sem consultas, as threads ociosas se encerram
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    //Hash multiplicativo: ids sequenciais se espalham por igual entre as partições
+    private int indiceParticao(int id) {
+        return Math.floorMod(id * 0x9E3779B9, particoes.length);
+    }
+
+    private AcervoConcorrente particaoDe(int id) {
+        return particoes[indiceParticao(id)];
+    }
+
+    @Override
+    void ativarPersistencia(DestinoMutacoes persistencia) {
+        //Um único journal para todas: as sequências continuam globais e em ordem
+        for (AcervoConcorrente particao : particoes) {
+            particao.ativarPersistencia(persistencia);
+        }
+    }
+
+    @Override
+    Livro buscar(int id) {
+        return particaoDe(id).buscar(id);
+    }
+
+    @Override
+    Collection<Livro> livros() {
+        List<Livro> todos = new ArrayList<>(tamanho());
+        for (AcervoConcorrente particao : particoes) {
+            todos.addAll(particao.livros());
+        }
+        return todos;
+    }
+
+    @Override
+    int tamanho() {
+        int total = 0;
+        for (AcervoConcorrente particao : particoes) {
+            total += particao.tamanho();
+        }
+        return total;
+    }
+
+    @Override
+    boolean existeIsbn(String isbn) {
+        return isbn != null && reservasIsbn.containsKey(isbn);
+    }
+
+    @Override
+    Livro buscarPorIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        Integer id = reservasIsbn.get(isbn);
+        return id == null ? null : particaoDe(id).buscarPorIsbn(isbn);
+    }
+
+    @Override
+    ArrayList<Livro> buscarPorTitulo(String termo) {
+        return juntarPorId(emTodas(i -> particoes[i].buscarPorTitulo(termo)));
+    }
+
+    @Override
+    ArrayList<Livro> buscarPorAutor(String termo) {
+        return juntarPorId(emTodas(i -> particoes[i].buscarPorAutor(termo)));
+    }
+
+    @Override
+    ArrayList<Livro> buscarPorAutorExato(String chave) {
+        return juntarPorId(emTodas(i -> particoes[i].buscarPorAutorExato(chave)));
+    }
+
+    @Override
+    ArrayList<Livro> buscarPorPrefixoAutor(String prefixo) {
+        return juntarPorId(emTodas(i -> particoes[i].buscarPorPrefixoAutor(prefixo)));
+    }
+
+    //Um mesmo autor pode ter livros em várias partições: conta as chaves distintas
+    @Override
+    int quantidadeAutores() {
+        Set<String> chaves = new HashSet<>();
+        for (AcervoConcorrente particao : particoes) {
+            chaves.addAll(particao.chavesDeAutores());
+        }
+        return chaves.size();
+    }
+
+    //Um único instante para todas as partições, aberto antes de guardar as Fatias
+    @Override
+    VisaoAcervo abrirVisao() {
+        RelogioVersoes.Leitura leitura = relogio.abrirLeitura();
+        RegistroLivros.Fatia[] fatias = new RegistroLivros.Fatia[particoes.length];
+        for (int i = 0; i < particoes.length; i++) {
+            fatias[i] = particoes[i].fatiaDoRegistro();
+        }
+        return new VisaoAcervo(leitura, fatias);
+    }
+
+    @Override
+    void inserir(Livro livro) {
+        ReentrantLock trava = travaDoIsbn(livro.getIsbn());
+        long sequencia;
+        trava.lock();
+        try {
+            if (existeIsbn(livro.getIsbn())) {
+                throw new IllegalArgumentException("Já existe um livro cadastrado com este ISBN");
+            }
+            sequencia = particaoDe(livro.getId()).inserirSemAguardarJournal(livro);
+            reservasIsbn.put(livro.getIsbn(), livro.getId());
+        } finally {
+            trava.unlock();
+        }
+        aguardarJournal(sequencia);
+    }
+
+    //Reserva os ISBNs do lote, separa os livros por partição e insere as partes em paralelo
+    @Override
+    ResultadoLote inserirLote(List<Livro> lote) {
+        boolean[] faixas = new boolean[NUMERO_TRAVAS];
+        for (Livro livro : lote) {
+            faixas[indiceTrava(livro.getIsbn())] = true;
+        }
+        for (int i = 0; i < NUMERO_TRAVAS; i++) {
+            if (faixas[i]) {
+                travasIsbn[i].lock();
+            }
+        }
+
+        List<Livro> recusados = new ArrayList<>();
+        long sequencia = 0;
+        try {
+            List<List<Livro>> partes = new ArrayList<>(particoes.length);
+            for (int i = 0; i < particoes.length; i++) {
+                partes.add(new ArrayList<>());
+            }
+            for (Livro livro : lote) {
+                //putIfAbsent também barra ISBN repetido dentro do próprio lote, mesmo em partições diferentes
+                if (reservasIsbn.putIfAbsent(livro.getIsbn(), livro.getId()) != null) {
+                    recusados.add(livro);
+                    continue;
+                }
+                partes.get(indiceParticao(livro.getId())).add(livro);
+            }
+
+            for (ResultadoLote parcial : emTodas(i -> partes.get(i).isEmpty()
+                    ? new ResultadoLote(List.of(), 0) : particoes[i].inserirLote(partes.get(i)))) {
+                //Recusado pela partição só por id repetido: a reserva feita acima não vale
+                for (Livro livro : parcial.recusados()) {
+                    reservasIsbn.remove(livro.getIsbn(), livro.getId());
+                    recusados.add(livro);
+                }
+                sequencia = Math.max(sequencia, parcial.sequencia());
+            }
+        } finally {
+            for (int i = NUMERO_TRAVAS - 1; i >= 0; i--) {
+                if (faixas[i]) {
+                    travasIsbn[i].unlock();
+                }
+            }
+        }
+        return new ResultadoLote(recusados, sequencia);
+    }
+
+    @Override
+    void restaurar(List<Livro> livros, SnapshotAcervo.Ordem ordem) {
+        List<List<Livro>> partes = new ArrayList<>(particoes.length);
+        for (int i = 0; i < particoes.length; i++) {
+            partes.add(new ArrayList<>());
+        }
+        for (Livro livro : livros) {
+            if (reservasIsbn.putIfAbsent(livro.getIsbn(), livro.getId()) != null) {
+                throw new IllegalStateException("ISBN repetido no acervo recuperado: " + livro.getIsbn());
+            }
+            partes.get(indiceParticao(livro.getId())).add(livro);
+        }
+        //A ordem de cada partição é a do acervo restrita aos ids dela, que continua ordenada
+        int[][] titulos = ordem != null ? dividirPorParticao(ordem.titulos()) : null;
+        int[][] autores = ordem != null ? dividirPorParticao(ordem.autores()) : null;
+        emTodas(i -> {
+            particoes[i].restaurar(partes.get(i),
+                    ordem != null ? new SnapshotAcervo.Ordem(ordem.assinatura(), titulos[i], autores[i]) : null);
+            return null;
+        });
+    }
+
+    private int[][] dividirPorParticao(int[] ids) {
+        int[] tamanhos = new int[particoes.length];
+        for (int id : ids) {
+            tamanhos[indiceParticao(id)]++;
+        }
+        int[][] partes = new int[particoes.length][];
+        for (int i = 0; i < particoes.length; i++) {
+            partes[i] = new int[tamanhos[i]];
+        }
+        int[] posicoes = new int[particoes.length];
+        for (int id : ids) {
+            int particao = indiceParticao(id);
+            partes[particao][posicoes[particao]++] = id;
+        }
+        return partes;
+    }
+
+    @Override
+    SnapshotAcervo.Ordem ordemAlfabetica(VisaoAcervo visao) {
+        return new SnapshotAcervo.Ordem(IndiceOrdenado.ASSINATURA_ORDEM, juntarOrdens(OrdemListagem.TITULO, visao),
+                juntarOrdens(OrdemListagem.AUTOR, visao));
+    }
+
+    //Intercala as ordens das partições comparando as entradas. Depois de uma subida com a ordem gravada
+    //as chaves ainda não calculadas são calculadas aqui, uma vez por entrada, na thread do snapshot
+    private int[] juntarOrdens(OrdemListagem ordem, VisaoAcervo visao) {
+        List<List<IndiceOrdenado.Entrada>> ordens = emTodas(i -> particoes[i].entradasNaVisao(ordem, visao));
+        int[] posicoes = new int[ordens.size()];
+        PriorityQueue<Integer> proximas = new PriorityQueue<>(
+                Comparator.comparing((Integer i) -> ordens.get(i).get(posicoes[i])));
+        int total = 0;
+        for (int i = 0; i < ordens.size(); i++) {
+            total += ordens.get(i).size();
+            if (!ordens.get(i).isEmpty()) {
+                proximas.add(i);
+            }
+        }
+        int[] ids = new int[total];
+        for (int n = 0; n < total; n++) {
+            int i = proximas.poll();
+            ids[n] = ordens.get(i).get(posicoes[i]++).id();
+            if (posicoes[i] < ordens.get(i).size()) {
+                proximas.add(i);
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    void atualizar(int id, String titulo, String autor, String isbn, long revisaoEsperada) {
+        AcervoConcorrente particao = particaoDe(id);
+        long sequencia = -1;
+        while (sequencia < 0) {
+            Livro livro = particao.buscar(id);
+            if (livro == null) {
+                throw new NoSuchElementException("Livro não encontrado");
+            }
+
+            String isbnAtual = livro.getIsbn();
+            ReentrantLock primeira = travaDoIsbn(isbnAtual);
+            ReentrantLock segunda = travaDoIsbn(isbn);
+            //Mesma ordem de aquisição de AcervoConcorrente
+            if (indiceTrava(isbnAtual) > indiceTrava(isbn)) {
+                ReentrantLock aux = primeira;
+                primeira = segunda;
+                segunda = aux;
+            }
+
+            primeira.lock();
+            segunda.lock();
+            try {
+                if (particao.buscar(id) != livro || !livro.getIsbn().equals(isbnAtual)) {
+                    continue;
+                }
+                Integer idComIsbn = reservasIsbn.get(isbn);
+                if (idComIsbn != null && idComIsbn != id) {
+                    throw new IllegalArgumentException("Já existe um livro cadastrado com este ISBN");
+                }
+                sequencia = particao.atualizarSemAguardarJournal(id, titulo, autor, isbn, revisaoEsperada);
+                if (!isbnAtual.equals(isbn)) {
+                    reservasIsbn.put(isbn, id);
+                    reservasIsbn.remove(isbnAtual, id);
+                }
+            } finally {
+                segunda.unlock();
+                primeira.unlock();
+            }
+        }
+        aguardarJournal(sequencia);
+    }
+
+    @Override
+    void remover(int id) {
+        AcervoConcorrente particao = particaoDe(id);
+        long sequencia = -1;
+        while (sequencia < 0) {
+            Livro livro = particao.buscar(id);
+            if (livro == null) {
+                throw new NoSuchElementException("Livro não encontrado");
+            }
+
+            String isbn = livro.getIsbn();
+            ReentrantLock trava = travaDoIsbn(isbn);
+            trava.lock();
+            try {
+                if (particao.buscar(id) != livro || !livro.getIsbn().equals(isbn)) {
+                    continue;
+                }
+                sequencia = particao.removerSemAguardarJournal(id);
+                reservasIsbn.remove(isbn, id);
+            } finally {
+                trava.unlock();
+            }
+        }
+        aguardarJournal(sequencia);
+    }
+
+    @Override
+    long registrarEmprestimo(Livro livro) {
+        return particaoDe(livro.getId()).registrarEmprestimo(livro);
+    }
+
+    @Override
+    long registrarDevolucao(Livro livro) {
+        return particaoDe(livro.getId()).registrarDevolucao(livro);
+    }
+
+    //Todas as partições escrevem no mesmo journal
+    @Override
+    void aguardarJournal(long sequencia) {
+        particoes[0].aguardarJournal(sequencia);
+    }
+
+    @Override
+    ArrayList<Livro> listarEmprestados(boolean ordenarPorVencimento) {
+        List<List<Livro>> listas = new ArrayList<>(particoes.length);
+        for (AcervoConcorrente particao : particoes) {
+            listas.add(particao.listarEmprestados(ordenarPorVencimento));
+        }
+        return ordenarPorVencimento ? juntar(listas, AcervoParticionado::vencimento) : juntarPorId(listas);
+    }
+
+    @Override
+    ArrayList<Livro> listarVencidosAntesDe(LocalDate dia) {
+        List<List<Livro>> listas = new ArrayList<>(particoes.length);
+        for (AcervoConcorrente particao : particoes) {
+            listas.add(particao.listarVencidosAntesDe(dia));
+        }
+        return juntar(listas, AcervoParticionado::vencimento);
+    }
+
+    @Override
+    ArrayList<Livro> livrosEmprestados(List<Integer> ids) {
+        ArrayList<Livro> emprestados = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            Livro livro = buscar(id);
+            if (livro != null && !livro.isDisponivel()) {
+                emprestados.add(livro);
+            }
+        }
+        return emprestados;
+    }
+
+    @Override
+    MotorMultas.Emprestimos coletarEmprestimos() {
+        return MotorMultas.Emprestimos.juntar(emTodas(i -> particoes[i].coletarEmprestimos())
+                .toArray(MotorMultas.Emprestimos[]::new));
+    }
+
+    //Cada partição devolve a sua página a partir do mesmo cursor (as chaves não dependem da partição);
+    //a página do acervo são os primeiros, ou os últimos, da junção delas
+    @Override
+    Pagina paginarPorId(String apos, String antes, int tamanho) {
+        List<Pagina> paginas = new ArrayList<>(particoes.length);
+        for (AcervoConcorrente particao : particoes) {
+            paginas.add(particao.paginarPorId(apos, antes, tamanho));
+        }
+        return juntarPaginas(paginas, apos, antes, tamanho, Livro::getId, String::valueOf);
+    }
+
+    @Override
+    Pagina paginarEmOrdem(OrdemListagem ordem, String de, String ate, String apos, String antes, int tamanho) {
+        Function<Livro, String> campo = switch (ordem) {
+            case TITULO -> Livro::getTitulo;
+            case AUTOR -> Livro::getAutor;
+            case ID -> throw new IllegalArgumentException("Use paginarPorId para a ordem por id");
+        };
+        List<Pagina> paginas = new ArrayList<>(particoes.length);
+        for (AcervoConcorrente particao : particoes) {
+            paginas.add(particao.paginarEmOrdem(ordem, de, ate, apos, antes, tamanho));
+        }
+        return juntarPaginas(paginas, apos, antes, tamanho,
+                livro -> IndiceOrdenado.entrada(campo.apply(livro), livro.getId()),
+                entrada -> entrada.id() + ":" + entrada.texto());
+    }
+
+    @Override
+    Pagina paginarEmprestados(boolean ordenarPorVencimento, String apos, String antes, int tamanho) {
+        List<Pagina> paginas = new ArrayList<>(particoes.length);
+        for (AcervoConcorrente particao : particoes) {
+            paginas.add(particao.paginarEmprestados(ordenarPorVencimento, apos, antes, tamanho));
+        }
+        if (ordenarPorVencimento) {
+            return juntarPaginas(paginas, apos, antes, tamanho, AcervoParticionado::vencimento,
+                    vencimento -> vencimento.diaEpoch() + ":" + vencimento.id());
+        }
+        return juntarPaginas(paginas, apos, antes, tamanho, Livro::getId, String::valueOf);
+    }
+
+    @Override
+    boolean contem(Livro livro) {
+        return particaoDe(livro.getId()).contem(livro);
+    }
+
+    @Override
+    void fechar() {
+        executor.shutdown();
+    }
+
+    //Executa a consulta em todas as partições: a 0 na thread que chama, as demais no executor.
+    //Os resultados voltam na ordem das partições
+    private <T> List<T> emTodas(IntFunction<T> consulta) {
+        List<Future<T>> pendentes = new ArrayList<>(particoes.length - 1);
+        for (int i = 1; i < particoes.length; i++) {
+            int particao = i;
+            pendentes.add(executor.submit(() -> consulta.apply(particao)));
+        }
+        List<T> resultados = new ArrayList<>(particoes.length);
+        resultados.add(consulta.apply(0));
+        try {
+            for (Future<T> pendente : pendentes) {
+                resultados.add(pendente.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Consulta às partições interrompida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return resultados;
+    }
+
+    //Cada lista já vem em ordem de id; o TimSort reconhece as sequências e só as intercala
+    private static ArrayList<Livro> juntarPorId(List<? extends List<Livro>> listas) {
+        return juntar(listas, Livro::getId);
+    }
+
+    //A chave de cada livro é lida uma única vez: o livro pode mudar durante a ordenação
+    private static <K extends Comparable<K>> ArrayList<Livro> juntar(List<? extends List<Livro>> listas,
+                                                                    Function<Livro, K> chave) {
+        List<Ordenado<K>> ordenados = ordenar(listas, chave);
+        ArrayList<Livro> livros = new ArrayList<>(ordenados.size());
+        for (Ordenado<K> ordenado : ordenados) {
+            livros.add(ordenado.livro());
+        }
+        return livros;
+    }
+
+    private static <K extends Comparable<K>> Pagina juntarPaginas(List<Pagina> paginas, String apos, String antes,
+                                                                   int tamanho, Function<Livro, K> chave,
+                                                                   Function<K, String> cursor) {
+        boolean paraTras = antes != null && !antes.isBlank();
+        boolean haAnterior = false;
+        boolean haProximo = false;
+        List<List<Livro>> listas = new ArrayList<>(paginas.size());
+        for (Pagina pagina : paginas) {
+            listas.add(pagina.livros());
+            haAnterior |= pagina.cursorAnterior() != null;
+            haProximo |= pagina.cursorProximo() != null;
+        }
+        List<Ordenado<K>> ordenados = ordenar(listas, chave);
+        if (ordenados.isEmpty()) {
+            return new Pagina(new ArrayList<>(), null, null);
+        }
+
+        //Cada partição já trouxe até tamanho livros: sobrar algum é o mesmo que haver mais naquela direção
+        boolean sobrou = ordenados.size() > tamanho;
+        int inicio = paraTras ? Math.max(0, ordenados.size() - tamanho) : 0;
+        List<Ordenado<K>> trecho = ordenados.subList(inicio, Math.min(inicio + tamanho, ordenados.size()));
+        List<Livro> livros = new ArrayList<>(trecho.size());
+        for (Ordenado<K> ordenado : trecho) {
+            livros.add(ordenado.livro());
+        }
+        String primeira = cursor.apply(trecho.get(0).chave());
+        String ultima = cursor.apply(trecho.get(trecho.size() - 1).chave());
+        //Partição com página vazia não informa o que tem do outro lado do cursor; quem veio de um
+        //cursor sempre tem o livro dele naquela direção
+        if (paraTras) {
+            return new Pagina(livros, sobrou || haAnterior ? primeira : null, ultima);
+        }
+        boolean veioDeCursor = apos != null && !apos.isBlank();
+        return new Pagina(livros, haAnterior || veioDeCursor ? primeira : null, sobrou || haProximo ? ultima : null);
+    }
+
+    private record Ordenado<K extends Comparable<K>>(K chave, Livro livro) implements Comparable<Ordenado<K>> {
+        @Override
+        public int compareTo(Ordenado<K> outro) {
+            return chave.compareTo(outro.chave);
+        }
+    }
+
+    private static <K extends Comparable<K>> List<Ordenado<K>> ordenar(List<? extends List<Livro>> listas,
+                                                                       Function<Livro, K> chave) {
+        int total = 0;
+        for (List<Livro> lista : listas) {
+            total += lista.size();
+        }
+        List<Ordenado<K>> ordenados = new ArrayList<>(total);
+        for (List<Livro> lista : listas) {
+            for (Livro livro : lista) {
+                ordenados.add(new Ordenado<>(chave.apply(livro), livro));
+            }
+        }
+        ordenados.sort(null);
+        return ordenados;
+    }
+
+    //Devolvido entre a consulta à partição e a junção: vai para o fim, como sem vencimento
+    private static IndiceEmprestimos.Vencimento vencimento(Livro livro) {
+        LocalDate estimada = livro.versaoAtual().getDataEstimadaDevolucao();
+        return new IndiceEmprestimos.Vencimento(estimada == null ? Long.MAX_VALUE : estimada.toEpochDay(),
+                livro.getId());
+    }
+
+    private ReentrantLock travaDoIsbn(String isbn) {
+        return travasIsbn[indiceTrava(isbn)];
+    }
+
+    private int indiceTrava(String isbn) {
+        int h = isbn.hashCode();
+        return (h ^ (h >>> 16)) & (NUMERO_TRAVAS - 1);
+    }
+}
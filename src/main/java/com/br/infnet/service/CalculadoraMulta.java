@@ -1,13 +1,24 @@
 package com.br.infnet.service;
 
+//Valores em centavos, exatos; calcular devolve em reais só para quem ainda usa double
 public class CalculadoraMulta {
-    private static final double MULTA_FIXA = 5.0;
-    private static final double MULTA_POR_DIA = 0.5;
+    static final int DIAS_SEM_MULTA = 10;
+    private static final long MULTA_FIXA_CENTAVOS = 500;
+    private static final long MULTA_POR_DIA_CENTAVOS = 50;
 
     public static double calcular(int diasAtraso) {
+        return calcularCentavos(diasAtraso) / 100.0;
+    }
+
+    public static long calcularCentavos(long diasAtraso) {
         if (diasAtraso <= 0) {
-            return 0.0;
+            return 0;
         }
-        return MULTA_FIXA + (MULTA_POR_DIA * diasAtraso);
+        return MULTA_FIXA_CENTAVOS + MULTA_POR_DIA_CENTAVOS * diasAtraso;
+    }
+
+    //Dias em epoch (LocalDate.toEpochDay): a diferença é exata mesmo atravessando meses e anos
+    public static long diasAtraso(long diaEmprestimo, long diaDevolucao) {
+        return Math.max(0, diaDevolucao - diaEmprestimo - DIAS_SEM_MULTA);
     }
 }
@@ -0,0 +1,17 @@
+package com.br.infnet.service;
+
+//A edição partiu de uma revisão do livro que já foi substituída por outra edição
+public class ConflitoDeVersaoException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    private final long revisaoAtual;
+
+    public ConflitoDeVersaoException(String s, long revisaoAtual) {
+        super(s);
+        this.revisaoAtual = revisaoAtual;
+    }
+
+    public long getRevisaoAtual() {
+        return revisaoAtual;
+    }
+}
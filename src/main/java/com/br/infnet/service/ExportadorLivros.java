@@ -0,0 +1,149 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+//Exportação do acervo em fluxo: percorre uma VisaoAcervo sem copiá-la e escreve cada livro direto na
+//saída, por um buffer de tamanho fixo. Nenhuma trava é tomada e o arquivo é o acervo de um único
+//instante: cadastros, edições e remoções concorrentes não aparecem pela metade nem esticam a exportação.
+class ExportadorLivros {
+    private static final int TAMANHO_BUFFER = 1 << 16;
+    private static final String CABECALHO_CSV = "titulo,autor,isbn,id,disponivel,dataEmprestimo,dataEstimadaDevolucao";
+
+    private final Acervo acervo;
+
+    ExportadorLivros(Acervo acervo) {
+        this.acervo = acervo;
+    }
+
+    //Com disponivel nulo exporta todos; true só os disponíveis, false só os emprestados
+    int exportar(OutputStream saida, FormatoExportacao formato, Boolean disponivel) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), TAMANHO_BUFFER);
+        int exportados = 0;
+        if (formato == FormatoExportacao.CSV) {
+            writer.write(CABECALHO_CSV);
+            writer.write('\n');
+        }
+        try (VisaoAcervo visao = acervo.abrirVisao()) {
+            for (Livro.Versao livro : visao) {
+                if (disponivel != null && livro.isDisponivel() != disponivel) {
+                    continue;
+                }
+                if (formato == FormatoExportacao.CSV) {
+                    escreverCsv(writer, livro);
+                } else {
+                    escreverJson(writer, livro);
+                }
+                exportados++;
+            }
+        }
+        writer.flush();
+        return exportados;
+    }
+
+    //Datas de empréstimo só para livros emprestados
+    private static String dataEmprestimo(Livro.Versao livro) {
+        return livro.isDisponivel() || livro.getDataEmprestimo() == null ? null : livro.getDataEmprestimo().toString();
+    }
+
+    private static String dataEstimadaDevolucao(Livro.Versao livro) {
+        return livro.isDisponivel() || livro.getDataEstimadaDevolucao() == null
+                ? null : livro.getDataEstimadaDevolucao().toString();
+    }
+
+    //As três primeiras colunas seguem o layout da importação, então o arquivo pode ser reimportado
+    private static void escreverCsv(Writer writer, Livro.Versao livro) throws IOException {
+        campoCsv(writer, livro.getTitulo());
+        writer.write(',');
+        campoCsv(writer, livro.getAutor());
+        writer.write(',');
+        writer.write(livro.getIsbn());
+        writer.write(',');
+        writer.write(Integer.toString(livro.getId()));
+        writer.write(',');
+        writer.write(livro.isDisponivel() ? "true" : "false");
+        writer.write(',');
+        String emprestimo = dataEmprestimo(livro);
+        if (emprestimo != null) {
+            writer.write(emprestimo);
+        }
+        writer.write(',');
+        String estimada = dataEstimadaDevolucao(livro);
+        if (estimada != null) {
+            writer.write(estimada);
+        }
+        writer.write('\n');
+    }
+
+    //RFC 4180: entre aspas só quando necessário, com aspas internas duplicadas
+    private static void campoCsv(Writer writer, String valor) throws IOException {
+        boolean precisaAspas = false;
+        for (int i = 0; i < valor.length() && !precisaAspas; i++) {
+            char c = valor.charAt(i);
+            precisaAspas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!precisaAspas) {
+            writer.write(valor);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static void escreverJson(Writer writer, Livro.Versao livro) throws IOException {
+        writer.write("{\"id\":");
+        writer.write(Integer.toString(livro.getId()));
+        writer.write(",\"titulo\":");
+        textoJson(writer, livro.getTitulo());
+        writer.write(",\"autor\":");
+        textoJson(writer, livro.getAutor());
+        writer.write(",\"isbn\":");
+        textoJson(writer, livro.getIsbn());
+        writer.write(",\"disponivel\":");
+        writer.write(livro.isDisponivel() ? "true" : "false");
+        writer.write(",\"dataEmprestimo\":");
+        textoJson(writer, dataEmprestimo(livro));
+        writer.write(",\"dataEstimadaDevolucao\":");
+        textoJson(writer, dataEstimadaDevolucao(livro));
+        writer.write("}\n");
+    }
+
+    private static void textoJson(Writer writer, String valor) throws IOException {
+        if (valor == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+}
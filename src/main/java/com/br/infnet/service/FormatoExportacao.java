@@ -0,0 +1,34 @@
+package com.br.infnet.service;
+
+public enum FormatoExportacao {
+    CSV("text/csv; charset=utf-8", "csv"),
+    JSON_LINHAS("application/x-ndjson; charset=utf-8", "jsonl");
+
+    private final String contentType;
+    private final String extensao;
+
+    FormatoExportacao(String contentType, String extensao) {
+        this.contentType = contentType;
+        this.extensao = extensao;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtensao() {
+        return extensao;
+    }
+
+    //Valor do parâmetro formato da rota; ausente vale CSV
+    public static FormatoExportacao deParametro(String valor) {
+        if (valor == null || valor.isBlank()) {
+            return CSV;
+        }
+        return switch (valor.trim().toLowerCase()) {
+            case "csv" -> CSV;
+            case "jsonl", "ndjson" -> JSON_LINHAS;
+            default -> throw new IllegalArgumentException("Formato de exportação inválido: " + valor);
+        };
+    }
+}
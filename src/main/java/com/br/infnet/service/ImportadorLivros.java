@@ -0,0 +1,304 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.security.SecurityConfig;
+import com.br.infnet.utils.LeitorJsonLinha;
+import com.br.infnet.utils.TokenizadorCsv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntSupplier;
+import java.util.zip.GZIPInputStream;
+
+//Importação em fluxo de CSV (titulo,autor,isbn) ou JSON-lines ({"titulo", "autor", "isbn"}):
+//a leitura é sequencial, em blocos de registros; cada bloco é interpretado, sanitizado e validado
+//em paralelo no ForkJoinPool, e os resultados entram no acervo em lote, na ordem do arquivo,
+//para que os ids sigam a ordem das linhas.
+class ImportadorLivros {
+    private static final int REGISTROS_POR_BLOCO = 2_048;
+
+    //No CSV só os três primeiros campos viram String; campos extras são ignorados sem alocação.
+    //No JSON-lines a linha crua segue em json e é interpretada já na validação paralela.
+    //Registros malformados seguem no bloco com o motivo, para a recusa sair na ordem do arquivo.
+    private record Registro(int linha, String titulo, String autor, String isbn, int totalCampos,
+                            String malformacao, String json) {
+        static Registro json(int linha, String json) {
+            return new Registro(linha, null, null, null, 0, null, json);
+        }
+
+        String texto() {
+            if (json != null) {
+                return json;
+            }
+            if (malformacao != null) {
+                return "";
+            }
+            StringBuilder texto = new StringBuilder(titulo);
+            if (autor != null) {
+                texto.append(',').append(autor);
+            }
+            if (isbn != null) {
+                texto.append(',').append(isbn);
+            }
+            return texto.toString();
+        }
+    }
+
+    //Livro já validado (com id provisório) aguardando a incorporação em ordem
+    private record Candidato(Registro registro, Livro livro) {
+    }
+
+    private record ResultadoBloco(List<Candidato> validos, List<RelatorioImportacao.Rejeicao> rejeitados) {
+    }
+
+    private final Acervo acervo;
+    private final IntSupplier geradorId;
+    private final ForkJoinPool pool;
+    //Blocos em validação ao mesmo tempo; limita a memória usada por arquivos grandes
+    private final int blocosEmAndamento;
+
+    //Estado de uma importação; o importador é usado uma vez
+    private final ArrayDeque<ForkJoinTask<ResultadoBloco>> pendentes = new ArrayDeque<>();
+    private final Map<String, Integer> linhaPorIsbn = new HashMap<>();
+    private final List<RelatorioImportacao.Rejeicao> rejeitados = new ArrayList<>();
+    private int totalRejeitados;
+    private int importados;
+
+    ImportadorLivros(Acervo acervo, IntSupplier geradorId) {
+        this(acervo, geradorId, ForkJoinPool.commonPool());
+    }
+
+    ImportadorLivros(Acervo acervo, IntSupplier geradorId, ForkJoinPool pool) {
+        this.acervo = acervo;
+        this.geradorId = geradorId;
+        this.pool = pool;
+        this.blocosEmAndamento = Math.max(2, pool.getParallelism() * 2);
+    }
+
+    RelatorioImportacao importarCsv(InputStream entrada) throws IOException {
+        try (Reader reader = new InputStreamReader(descompactarSeNecessario(entrada), StandardCharsets.UTF_8)) {
+            MontadorDeBlocos montador = new MontadorDeBlocos();
+            new TokenizadorCsv(reader).tokenizar(montador);
+            montador.enviarBloco();
+        } finally {
+            drenarPendentes();
+        }
+        return new RelatorioImportacao(importados, totalRejeitados, List.copyOf(rejeitados));
+    }
+
+    RelatorioImportacao importarJsonLinhas(InputStream entrada) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(descompactarSeNecessario(entrada), StandardCharsets.UTF_8), 1 << 16)) {
+            MontadorDeBlocos montador = new MontadorDeBlocos();
+            String linha;
+            int numero = 0;
+            while ((linha = reader.readLine()) != null) {
+                numero++;
+                if (!linha.isBlank()) {
+                    montador.adicionar(Registro.json(numero, linha));
+                }
+            }
+            montador.enviarBloco();
+        } finally {
+            drenarPendentes();
+        }
+        return new RelatorioImportacao(importados, totalRejeitados, List.copyOf(rejeitados));
+    }
+
+    //Mesmo após erro de leitura, o que já foi validado entra no acervo e no relatório
+    private void drenarPendentes() {
+        while (!pendentes.isEmpty()) {
+            incorporar(pendentes.poll().join());
+        }
+    }
+
+    //Recebe os campos do tokenizador (ou as linhas JSON) e agrupa os registros em blocos para validação
+    private final class MontadorDeBlocos implements TokenizadorCsv.Receptor {
+        private final String[] campos = new String[3];
+        private List<Registro> bloco = new ArrayList<>(REGISTROS_POR_BLOCO);
+        private boolean primeiro = true;
+
+        @Override
+        public void campo(int indice, char[] dados, int inicio, int tamanho) {
+            if (indice < campos.length) {
+                campos[indice] = new String(dados, inicio, tamanho);
+            }
+        }
+
+        @Override
+        public void fimDoRegistro(int linha, int totalCampos) {
+            Registro registro = new Registro(linha, campos[0], campos[1], campos[2], totalCampos, null, null);
+            limparCampos();
+            boolean cabecalho = primeiro && ehCabecalho(registro);
+            primeiro = false;
+            if (cabecalho || (totalCampos == 1 && registro.titulo().isBlank())) {
+                return;
+            }
+            adicionar(registro);
+        }
+
+        @Override
+        public void registroMalformado(int linha, String motivo) {
+            limparCampos();
+            primeiro = false;
+            adicionar(new Registro(linha, null, null, null, 0, motivo, null));
+        }
+
+        private void limparCampos() {
+            campos[0] = null;
+            campos[1] = null;
+            campos[2] = null;
+        }
+
+        void adicionar(Registro registro) {
+            bloco.add(registro);
+            if (bloco.size() == REGISTROS_POR_BLOCO) {
+                enviarBloco();
+            }
+        }
+
+        void enviarBloco() {
+            if (bloco.isEmpty()) {
+                return;
+            }
+            List<Registro> pronto = bloco;
+            pendentes.add(pool.submit(() -> validar(pronto)));
+            bloco = new ArrayList<>(REGISTROS_POR_BLOCO);
+            if (pendentes.size() >= blocosEmAndamento) {
+                incorporar(pendentes.poll().join());
+            }
+        }
+    }
+
+    //Executado em paralelo: não toca no acervo nem no estado do importador
+    private static ResultadoBloco validar(List<Registro> registros) {
+        List<Candidato> validos = new ArrayList<>(registros.size());
+        List<RelatorioImportacao.Rejeicao> recusados = new ArrayList<>();
+
+        for (Registro registro : registros) {
+            if (registro.malformacao() != null) {
+                recusados.add(new RelatorioImportacao.Rejeicao(registro.linha(), registro.malformacao(), ""));
+                continue;
+            }
+            try {
+                if (registro.json() != null) {
+                    registro = interpretarJson(registro);
+                }
+                if (registro.totalCampos() < 3) {
+                    throw new IllegalArgumentException("Linha com menos de 3 campos");
+                }
+                String titulo = processarCampoCSV(registro.titulo());
+                String autor = processarCampoCSV(registro.autor());
+                String isbn = processarCampoCSV(registro.isbn());
+                SecurityConfig.validarTitulo(titulo);
+                SecurityConfig.validarAutor(autor);
+                SecurityConfig.validarIsbn(isbn);
+                validos.add(new Candidato(registro, new Livro(0, titulo, autor, isbn)));
+            } catch (IllegalArgumentException e) {
+                recusados.add(new RelatorioImportacao.Rejeicao(registro.linha(), e.getMessage(), registro.texto()));
+            }
+        }
+        return new ResultadoBloco(validos, recusados);
+    }
+
+    private static Registro interpretarJson(Registro registro) {
+        Map<String, String> campos = LeitorJsonLinha.lerObjeto(registro.json());
+        for (String obrigatorio : List.of("titulo", "autor", "isbn")) {
+            if (campos.get(obrigatorio) == null) {
+                throw new IllegalArgumentException("Campo obrigatório ausente: " + obrigatorio);
+            }
+        }
+        return new Registro(registro.linha(), campos.get("titulo"), campos.get("autor"), campos.get("isbn"), 3,
+                null, registro.json());
+    }
+
+    //Sequencial e na ordem do arquivo: atribui ids, descarta ISBNs repetidos e insere o bloco em lote
+    private void incorporar(ResultadoBloco resultado) {
+        List<RelatorioImportacao.Rejeicao> recusadosDoBloco = new ArrayList<>(resultado.rejeitados());
+        List<Livro> lote = new ArrayList<>(resultado.validos().size());
+        List<Candidato> origem = new ArrayList<>(resultado.validos().size());
+
+        for (Candidato candidato : resultado.validos()) {
+            int linha = candidato.registro().linha();
+            Livro provisorio = candidato.livro();
+            Integer linhaAnterior = linhaPorIsbn.putIfAbsent(provisorio.getIsbn(), linha);
+            if (linhaAnterior != null) {
+                recusadosDoBloco.add(new RelatorioImportacao.Rejeicao(linha,
+                        "ISBN repetido no arquivo (linha " + linhaAnterior + ")", candidato.registro().texto()));
+                continue;
+            }
+            if (acervo.existeIsbn(provisorio.getIsbn())) {
+                recusadosDoBloco.add(new RelatorioImportacao.Rejeicao(linha,
+                        "Já existe um livro cadastrado com este ISBN", candidato.registro().texto()));
+                continue;
+            }
+
+            //Dados já validados no bloco: recria com o id definitivo sem validar nem normalizar de novo
+            lote.add(Livro.restaurar(geradorId.getAsInt(), provisorio.getTitulo(), provisorio.getAutor(),
+                    provisorio.getIsbn(), provisorio.getChaveBuscaTitulo(), provisorio.getChaveBuscaAutor()));
+            origem.add(candidato);
+        }
+
+        Acervo.ResultadoLote inserido = acervo.inserirLote(lote);
+        importados += lote.size() - inserido.recusados().size();
+        if (!inserido.recusados().isEmpty()) {
+            //Cadastro concorrente do mesmo ISBN entre a verificação e a inserção
+            for (int i = 0; i < lote.size(); i++) {
+                if (inserido.recusados().contains(lote.get(i))) {
+                    recusadosDoBloco.add(new RelatorioImportacao.Rejeicao(origem.get(i).registro().linha(),
+                            "Já existe um livro cadastrado com este ISBN", origem.get(i).registro().texto()));
+                }
+            }
+        }
+
+        recusadosDoBloco.sort(Comparator.comparingInt(RelatorioImportacao.Rejeicao::linha));
+        for (RelatorioImportacao.Rejeicao rejeicao : recusadosDoBloco) {
+            rejeitar(rejeicao);
+        }
+        //Com persistência ativa, um único aguardo de gravação por bloco
+        acervo.aguardarJournal(inserido.sequencia());
+    }
+
+    private void rejeitar(RelatorioImportacao.Rejeicao rejeicao) {
+        totalRejeitados++;
+        if (rejeitados.size() < RelatorioImportacao.LIMITE_DETALHES) {
+            rejeitados.add(rejeicao);
+        }
+    }
+
+    //Primeiro registro sem nenhum dígito no campo do ISBN é tratado como cabeçalho
+    private static boolean ehCabecalho(Registro registro) {
+        return registro.totalCampos() >= 3 && registro.isbn().chars().noneMatch(Character::isDigit);
+    }
+
+    //Aceita arquivos .csv ou .csv.gz, identificando o gzip pela assinatura
+    private static InputStream descompactarSeNecessario(InputStream entrada) throws IOException {
+        BufferedInputStream bufferizada = new BufferedInputStream(entrada, 1 << 16);
+        bufferizada.mark(2);
+        int primeiro = bufferizada.read();
+        int segundo = bufferizada.read();
+        bufferizada.reset();
+        if (primeiro == 0x1f && segundo == 0x8b) {
+            return new GZIPInputStream(bufferizada, 1 << 16);
+        }
+        return bufferizada;
+    }
+
+    //As aspas do CSV já foram resolvidas pelo tokenizador; a sanitização remove aspas literais e espaços nas pontas
+    static String processarCampoCSV(String campo) {
+        return SecurityConfig.processarEntrada(campo);
+    }
+}
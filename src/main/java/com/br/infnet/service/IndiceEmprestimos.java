@@ -0,0 +1,75 @@
+package com.br.infnet.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+//Conjunto vivo dos empréstimos ativos, mantido por emprestar/devolver.
+//Listar custa O(empréstimos ativos), sem percorrer o acervo.
+class IndiceEmprestimos {
+
+    //Ordena pela data estimada de devolução e desempata pelo id
+    record Vencimento(long diaEpoch, int id) implements Comparable<Vencimento> {
+        @Override
+        public int compareTo(Vencimento outro) {
+            int porData = Long.compare(diaEpoch, outro.diaEpoch);
+            return porData != 0 ? porData : Integer.compare(id, outro.id);
+        }
+    }
+
+    private final ConcurrentSkipListMap<Integer, Vencimento> porId = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListSet<Vencimento> porVencimento = new ConcurrentSkipListSet<>();
+
+    void registrar(int id, LocalDate dataEstimadaDevolucao) {
+        Vencimento vencimento = new Vencimento(dataEstimadaDevolucao.toEpochDay(), id);
+        Vencimento anterior = porId.put(id, vencimento);
+        if (anterior != null) {
+            porVencimento.remove(anterior);
+        }
+        porVencimento.add(vencimento);
+    }
+
+    void remover(int id) {
+        Vencimento vencimento = porId.remove(id);
+        if (vencimento != null) {
+            porVencimento.remove(vencimento);
+        }
+    }
+
+    //Visões vivas e ordenadas, para a paginação por cursor
+    NavigableSet<Integer> idsOrdenados() {
+        return porId.keySet();
+    }
+
+    NavigableSet<Vencimento> vencimentosOrdenados() {
+        return porVencimento;
+    }
+
+    List<Integer> idsPorId() {
+        return new ArrayList<>(porId.keySet());
+    }
+
+    List<Integer> idsPorVencimento() {
+        List<Integer> ids = new ArrayList<>();
+        for (Vencimento vencimento : porVencimento) {
+            ids.add(vencimento.id());
+        }
+        return ids;
+    }
+
+    //Empréstimos cuja data estimada de devolução é anterior ao dia informado, mais antigos primeiro
+    List<Integer> idsVencidosAntesDe(LocalDate dia) {
+        List<Integer> ids = new ArrayList<>();
+        for (Vencimento vencimento : porVencimento.headSet(new Vencimento(dia.toEpochDay(), Integer.MIN_VALUE))) {
+            ids.add(vencimento.id());
+        }
+        return ids;
+    }
+
+    int tamanho() {
+        return porId.size();
+    }
+}
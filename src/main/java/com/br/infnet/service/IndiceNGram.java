@@ -0,0 +1,288 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+//Índice invertido de trigramas: cada trigrama aponta para os ids dos livros cujo texto o contém.
+//Uma busca por trecho intersecta as listas dos trigramas do termo; o resultado é só um conjunto
+//de candidatos, que o chamador confirma com contains.
+class IndiceNGram {
+    static final int TAMANHO_NGRAMA = 3;
+
+    //Ids de um trigrama: a base é um int[] ordenado e imutável (4 bytes por id, em vez de um Integer num
+    //conjunto concorrente); escritas posteriores ficam nos dois conjuntos até a próxima fusão, que monta
+    //uma base nova. Só é alterada dentro do compute do trigrama; leitores usam a que estiver publicada
+    private static final class Lista {
+        final int[] base;
+        //Só ids fora da base
+        final Set<Integer> adicionados = ConcurrentHashMap.newKeySet();
+        //Só ids da base
+        final Set<Integer> removidos = ConcurrentHashMap.newKeySet();
+
+        Lista(int[] base) {
+            this.base = base;
+        }
+
+        boolean contem(int id) {
+            return Arrays.binarySearch(base, id) >= 0 ? !removidos.contains(id) : adicionados.contains(id);
+        }
+
+        int tamanho() {
+            return base.length - removidos.size() + adicionados.size();
+        }
+
+        //A fusão custa O(base) e só acontece depois de base/4 escritas: custo amortizado constante por escrita
+        Lista adicionar(int id) {
+            if (Arrays.binarySearch(base, id) >= 0) {
+                removidos.remove(id);
+            } else {
+                adicionados.add(id);
+            }
+            return adicionados.size() + removidos.size() > base.length / 4 + 16 ? new Lista(ids()) : this;
+        }
+
+        Lista remover(int id) {
+            if (!adicionados.remove(id) && Arrays.binarySearch(base, id) >= 0) {
+                removidos.add(id);
+            }
+            if (tamanho() == 0) {
+                return null;
+            }
+            return adicionados.size() + removidos.size() > base.length / 4 + 16 ? new Lista(ids()) : this;
+        }
+
+        //Ids em ordem crescente
+        int[] ids() {
+            int[] ids = new int[base.length + adicionados.size()];
+            int total = 0;
+            for (int id : base) {
+                if (!removidos.contains(id)) {
+                    ids[total++] = id;
+                }
+            }
+            for (int id : adicionados) {
+                if (total == ids.length) {
+                    ids = Arrays.copyOf(ids, total * 2);
+                }
+                ids[total++] = id;
+            }
+            Arrays.sort(ids, 0, total);
+            return total == ids.length ? ids : Arrays.copyOf(ids, total);
+        }
+    }
+
+    //Ids acumulados por trigrama durante uma carga, antes de virarem a base da Lista
+    private static final class Acumulador {
+        int[] ids = new int[4];
+        int total;
+        //Na subida os livros chegam em ordem de id, e a ordenação pode ser pulada
+        boolean emOrdem = true;
+
+        void adicionar(int id) {
+            if (total == ids.length) {
+                ids = Arrays.copyOf(ids, total * 2);
+            }
+            if (total > 0 && id < ids[total - 1]) {
+                emOrdem = false;
+            }
+            ids[total++] = id;
+        }
+
+        //Ordenados e sem repetição (o mesmo trigrama aparece mais de uma vez num texto)
+        int[] base() {
+            if (!emOrdem) {
+                Arrays.sort(ids, 0, total);
+            }
+            int unicos = 0;
+            for (int i = 0; i < total; i++) {
+                if (unicos == 0 || ids[unicos - 1] != ids[i]) {
+                    ids[unicos++] = ids[i];
+                }
+            }
+            return Arrays.copyOf(ids, unicos);
+        }
+    }
+
+    //Acumuladores de uma carga numa tabela de endereçamento aberto, com o trigrama codificado num long
+    //(três chars de 16 bits): a carga não cria uma String para cada trigrama de cada livro, só uma por
+    //trigrama distinto no fim
+    private static final class TabelaAcumuladores {
+        long[] chaves = new long[1024];
+        Acumulador[] valores = new Acumulador[1024];
+        int total;
+
+        Acumulador obter(long chave) {
+            int mascara = chaves.length - 1;
+            int i = posicao(chave, mascara);
+            while (valores[i] != null) {
+                if (chaves[i] == chave) {
+                    return valores[i];
+                }
+                i = (i + 1) & mascara;
+            }
+            if (2 * (total + 1) > chaves.length) {
+                crescer();
+                return obter(chave);
+            }
+            total++;
+            chaves[i] = chave;
+            return valores[i] = new Acumulador();
+        }
+
+        void paraCada(BiConsumer<String, Acumulador> acao) {
+            for (int i = 0; i < chaves.length; i++) {
+                if (valores[i] != null) {
+                    long chave = chaves[i];
+                    acao.accept(new String(new char[]{(char) (chave >>> 32), (char) (chave >>> 16), (char) chave}),
+                            valores[i]);
+                }
+            }
+        }
+
+        private void crescer() {
+            long[] chavesAntigas = chaves;
+            Acumulador[] valoresAntigos = valores;
+            chaves = new long[2 * chavesAntigas.length];
+            valores = new Acumulador[2 * valoresAntigos.length];
+            int mascara = chaves.length - 1;
+            for (int j = 0; j < chavesAntigas.length; j++) {
+                if (valoresAntigos[j] != null) {
+                    int i = posicao(chavesAntigas[j], mascara);
+                    while (valores[i] != null) {
+                        i = (i + 1) & mascara;
+                    }
+                    chaves[i] = chavesAntigas[j];
+                    valores[i] = valoresAntigos[j];
+                }
+            }
+        }
+
+        private static int posicao(long chave, int mascara) {
+            long espalhado = chave * 0x9E3779B97F4A7C15L;
+            return (int) (espalhado >>> 32) & mascara;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Lista> postings = new ConcurrentHashMap<>();
+
+    void adicionar(int id, String texto) {
+        for (String ngrama : ngramas(texto)) {
+            //compute serializa adições e remoções do mesmo trigrama
+            postings.compute(ngrama, (chave, lista) -> lista != null ? lista.adicionar(id) : new Lista(new int[]{id}));
+        }
+    }
+
+    //Cargas em lote: agrupa os ids por trigrama e atualiza cada lista uma única vez
+    void adicionarLote(List<Livro> livros, Function<Livro, String> texto) {
+        acumular(livros, texto).paraCada((ngrama, novos) -> postings.compute(ngrama, (chave, lista) -> {
+            int[] ids = novos.base();
+            if (lista == null) {
+                return new Lista(ids);
+            }
+            for (int id : ids) {
+                lista = lista.adicionar(id);
+            }
+            return lista;
+        }));
+    }
+
+    //Carga inicial da subida: com o índice vazio, cada trigrama já nasce com a base completa
+    void carregar(List<Livro> livros, Function<Livro, String> texto) {
+        if (!postings.isEmpty()) {
+            adicionarLote(livros, texto);
+            return;
+        }
+        acumular(livros, texto).paraCada((ngrama, ids) -> postings.put(ngrama, new Lista(ids.base())));
+    }
+
+    void remover(int id, String texto) {
+        for (String ngrama : ngramas(texto)) {
+            removerDaLista(id, ngrama);
+        }
+    }
+
+    //Adiciona os trigramas novos antes de retirar os antigos, para que os trigramas comuns
+    //aos dois textos nunca fiquem ausentes durante a troca
+    void atualizar(int id, String textoAnterior, String textoNovo) {
+        Set<String> novos = ngramas(textoNovo);
+        adicionar(id, textoNovo);
+        for (String ngrama : ngramas(textoAnterior)) {
+            if (!novos.contains(ngrama)) {
+                removerDaLista(id, ngrama);
+            }
+        }
+    }
+
+    private void removerDaLista(int id, String ngrama) {
+        postings.computeIfPresent(ngrama, (chave, lista) -> lista.remover(id));
+    }
+
+    //Ids candidatos em ordem crescente; null quando o termo é curto demais para ser respondido pelo índice
+    int[] candidatos(String termo) {
+        if (termo.length() < TAMANHO_NGRAMA) {
+            return null;
+        }
+
+        Set<String> ngramasTermo = ngramas(termo);
+        Lista[] listas = new Lista[ngramasTermo.size()];
+        int total = 0;
+        Lista menor = null;
+        for (String ngrama : ngramasTermo) {
+            Lista lista = postings.get(ngrama);
+            if (lista == null) {
+                return new int[0];
+            }
+            listas[total++] = lista;
+            if (menor == null || lista.tamanho() < menor.tamanho()) {
+                menor = lista;
+            }
+        }
+
+        //Parte da menor lista e descarta quem não aparece em todas as outras
+        int[] resultado = menor.ids();
+        int restantes = resultado.length;
+        for (Lista lista : listas) {
+            if (lista == menor) {
+                continue;
+            }
+            int mantidos = 0;
+            for (int i = 0; i < restantes; i++) {
+                if (lista.contem(resultado[i])) {
+                    resultado[mantidos++] = resultado[i];
+                }
+            }
+            restantes = mantidos;
+            if (restantes == 0) {
+                break;
+            }
+        }
+        return restantes == resultado.length ? resultado : Arrays.copyOf(resultado, restantes);
+    }
+
+    private static TabelaAcumuladores acumular(List<Livro> livros, Function<Livro, String> texto) {
+        TabelaAcumuladores porNgrama = new TabelaAcumuladores();
+        for (Livro livro : livros) {
+            String chave = texto.apply(livro);
+            for (int i = 0; i + TAMANHO_NGRAMA <= chave.length(); i++) {
+                long ngrama = (long) chave.charAt(i) << 32 | (long) chave.charAt(i + 1) << 16 | chave.charAt(i + 2);
+                porNgrama.obter(ngrama).adicionar(livro.getId());
+            }
+        }
+        return porNgrama;
+    }
+
+    private static Set<String> ngramas(String texto) {
+        Set<String> ngramas = new HashSet<>();
+        for (int i = 0; i + TAMANHO_NGRAMA <= texto.length(); i++) {
+            ngramas.add(texto.substring(i, i + TAMANHO_NGRAMA));
+        }
+        return ngramas;
+    }
+}
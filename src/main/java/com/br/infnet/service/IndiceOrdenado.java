@@ -0,0 +1,268 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.text.RuleBasedCollator;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+//Índice ordenado alfabeticamente (regras do português: "Água" junto de "agua", antes de "Azul").
+//A CollationKey de cada livro é calculada uma vez e guardada na entrada, então percorrer o índice em
+//ordem só compara chaves prontas, sem ordenar nada por requisição. Na subida com a ordem gravada no
+//snapshot as entradas chegam já ordenadas e a chave só é calculada quando alguém compara com ela.
+class IndiceOrdenado {
+    private static final Collator COLLATOR = Collator.getInstance(Locale.forLanguageTag("pt-BR"));
+    //Identifica as regras de ordenação: uma ordem gravada com outras (outra versão do JDK) não é reaproveitada
+    static final int ASSINATURA_ORDEM = COLLATOR instanceof RuleBasedCollator regras
+            ? Objects.hash(regras.getRules(), regras.getStrength(), regras.getDecomposition()) : 0;
+    private static final int TAMANHO_BLOCO_CARGA = 8_192;
+    //Só letras base, para o limite superior de faixas por prefixo ("até N" inclui "Nunes")
+    private static final Collator COLLATOR_PRIMARIO = Collator.getInstance(Locale.forLanguageTag("pt-BR"));
+
+    static {
+        COLLATOR_PRIMARIO.setStrength(Collator.PRIMARY);
+    }
+
+    //Desempata pelo id: títulos iguais continuam sendo entradas distintas
+    static final class Entrada implements Comparable<Entrada> {
+        private final String texto;
+        private final int id;
+        //Calculada na primeira comparação quando a entrada veio de uma ordem gravada
+        private volatile CollationKey chave;
+
+        Entrada(CollationKey chave, int id) {
+            this.texto = chave.getSourceString();
+            this.id = id;
+            this.chave = chave;
+        }
+
+        private Entrada(String texto, int id) {
+            this.texto = texto;
+            this.id = id;
+        }
+
+        int id() {
+            return id;
+        }
+
+        String texto() {
+            return texto;
+        }
+
+        private CollationKey chave() {
+            CollationKey calculada = chave;
+            if (calculada == null) {
+                calculada = COLLATOR.getCollationKey(texto);
+                chave = calculada;
+            }
+            return calculada;
+        }
+
+        @Override
+        public int compareTo(Entrada outra) {
+            int porTexto = chave().compareTo(outra.chave());
+            return porTexto != 0 ? porTexto : Integer.compare(id, outra.id);
+        }
+
+        @Override
+        public boolean equals(Object outro) {
+            return outro instanceof Entrada entrada && compareTo(entrada) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+
+    //Trocado uma única vez, na carga com a ordem gravada, antes de o acervo entrar em uso
+    private volatile ConcurrentSkipListMap<Entrada, Boolean> entradas = new ConcurrentSkipListMap<>();
+
+    static Entrada entrada(String texto, int id) {
+        return new Entrada(COLLATOR.getCollationKey(texto), id);
+    }
+
+    void adicionar(int id, String texto) {
+        entradas.put(entrada(texto, id), Boolean.TRUE);
+    }
+
+    //Carga inicial, com o índice vazio: as chaves (a parte cara) são calculadas em paralelo, com um Collator
+    //por bloco porque o compartilhado é sincronizado, e uma vez só por texto (autores se repetem muito);
+    //depois uma ordenação e a skip list montada direto da sequência ordenada
+    void carregar(List<Livro> livros, Function<Livro, String> campo) {
+        Entrada[] novas = new Entrada[livros.size()];
+        ConcurrentHashMap<String, CollationKey> calculadas = new ConcurrentHashMap<>();
+        int blocos = (novas.length + TAMANHO_BLOCO_CARGA - 1) / TAMANHO_BLOCO_CARGA;
+        IntStream.range(0, blocos).parallel().forEach(bloco -> {
+            Collator collator = (Collator) COLLATOR.clone();
+            int fim = Math.min(novas.length, (bloco + 1) * TAMANHO_BLOCO_CARGA);
+            for (int i = bloco * TAMANHO_BLOCO_CARGA; i < fim; i++) {
+                Livro livro = livros.get(i);
+                novas[i] = new Entrada(calculadas.computeIfAbsent(campo.apply(livro), collator::getCollationKey),
+                        livro.getId());
+            }
+        });
+        Arrays.parallelSort(novas);
+        entradas = new ConcurrentSkipListMap<>(new SequenciaOrdenada(novas, novas.length));
+    }
+
+    //Carga inicial com a ordem gravada no snapshot (ids já em ordem alfabética, com as regras de
+    //ASSINATURA_ORDEM): a skip list é montada de uma vez a partir da sequência, sem comparar nem calcular
+    //chaves. Os livros fora da ordem (alterados depois do snapshot) entram depois, um a um
+    void carregar(List<Livro> livros, Function<Livro, String> campo, int[] ordem, IntFunction<Livro> porId) {
+        Entrada[] emOrdem = new Entrada[ordem.length];
+        BitSet ordenados = new BitSet();
+        int total = 0;
+        for (int id : ordem) {
+            Livro livro = porId.apply(id);
+            if (livro != null && !ordenados.get(id)) {
+                ordenados.set(id);
+                emOrdem[total++] = new Entrada(campo.apply(livro), id);
+            }
+        }
+        entradas = new ConcurrentSkipListMap<>(new SequenciaOrdenada(emOrdem, total));
+        for (Livro livro : livros) {
+            if (!ordenados.get(livro.getId())) {
+                adicionar(livro.getId(), campo.apply(livro));
+            }
+        }
+    }
+
+    //Entradas em ordem aceitas pelo filtro; lida durante as escritas, cada uma aparece no máximo uma vez
+    List<Entrada> emOrdem(Predicate<Entrada> filtro) {
+        List<Entrada> resultado = new ArrayList<>();
+        for (Entrada entrada : entradas.keySet()) {
+            if (filtro.test(entrada)) {
+                resultado.add(entrada);
+            }
+        }
+        return resultado;
+    }
+
+    void remover(int id, String texto) {
+        entradas.remove(entrada(texto, id));
+    }
+
+    void atualizar(int id, String anterior, String novo) {
+        if (!anterior.equals(novo)) {
+            remover(id, anterior);
+            adicionar(id, novo);
+        }
+    }
+
+    //Entradas a partir de "de" (inclusive); o limite superior fica com ate(), aplicado durante a leitura
+    NavigableSet<Entrada> aPartirDe(String de) {
+        if (de == null || de.isBlank()) {
+            return entradas.keySet();
+        }
+        return entradas.tailMap(entrada(de.trim(), Integer.MIN_VALUE), true).keySet();
+    }
+
+    //Limite superior inclusivo por prefixo: com ate = "N", "Nunes" entra e "Oliveira" não
+    static Predicate<Entrada> ate(String ate) {
+        if (ate == null || ate.isBlank()) {
+            return entrada -> true;
+        }
+        String limite = ate.trim();
+        return entrada -> {
+            String texto = entrada.texto();
+            String prefixo = texto.length() > limite.length() ? texto.substring(0, limite.length()) : texto;
+            return COLLATOR_PRIMARIO.compare(prefixo, limite) <= 0;
+        };
+    }
+
+    //Para resultados de busca, que já chegam filtrados: uma chave por resultado e ordenação em memória.
+    //O desempate pela posição preserva a ordem por id em que os resultados chegam
+    static void ordenar(List<Livro> livros, Function<Livro, String> campo) {
+        List<Entrada> chaves = new ArrayList<>(livros.size());
+        List<Livro> porId = new ArrayList<>(livros);
+        for (int i = 0; i < porId.size(); i++) {
+            chaves.add(new Entrada(COLLATOR.getCollationKey(campo.apply(porId.get(i))), i));
+        }
+        chaves.sort(Comparator.naturalOrder());
+        livros.clear();
+        for (Entrada entrada : chaves) {
+            livros.add(porId.get(entrada.id()));
+        }
+    }
+
+    //Só o necessário para o construtor de ConcurrentSkipListMap que recebe um SortedMap já ordenado:
+    //ele percorre entrySet em ordem e liga os nós sem comparar
+    private static final class SequenciaOrdenada extends AbstractMap<Entrada, Boolean>
+            implements SortedMap<Entrada, Boolean> {
+        private final Entrada[] entradas;
+        private final int total;
+
+        SequenciaOrdenada(Entrada[] entradas, int total) {
+            this.entradas = entradas;
+            this.total = total;
+        }
+
+        @Override
+        public Set<Map.Entry<Entrada, Boolean>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<Entrada, Boolean>> iterator() {
+                    return IntStream.range(0, total)
+                            .mapToObj(i -> Map.entry(entradas[i], Boolean.TRUE))
+                            .iterator();
+                }
+
+                @Override
+                public int size() {
+                    return total;
+                }
+            };
+        }
+
+        @Override
+        public Comparator<? super Entrada> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedMap<Entrada, Boolean> subMap(Entrada de, Entrada ate) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedMap<Entrada, Boolean> headMap(Entrada ate) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedMap<Entrada, Boolean> tailMap(Entrada de) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Entrada firstKey() {
+            return entradas[0];
+        }
+
+        @Override
+        public Entrada lastKey() {
+            return entradas[total - 1];
+        }
+    }
+}
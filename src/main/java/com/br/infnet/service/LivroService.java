@@ -1,58 +1,183 @@
 package com.br.infnet.service;
 
 import com.br.infnet.model.Livro;
+import com.br.infnet.persistence.PersistenciaAcervo;
+import com.br.infnet.persistence.RegistroJournal;
+import com.br.infnet.replicacao.LogReplicacao;
 import com.br.infnet.security.SecurityConfig;
+import com.br.infnet.utils.NormalizadorBusca;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class LivroService {
     private final AtomicInteger contadorId = new AtomicInteger(1);
-    private final Map<Integer, Livro> acervo = new HashMap<>();
+    private final Acervo acervo;
+    private final VarreduraAtrasos varreduraAtrasos;
+    //Nulo quando o acervo vive só em memória
+    private final PersistenciaAcervo persistencia;
 
     public int gerarId() {
         return contadorId.getAndIncrement();
     }
 
     public LivroService() {
+        this(1);
+    }
+
+    //Com mais de uma partição, o acervo é dividido pelo hash do id e as buscas consultam as partições em paralelo
+    public LivroService(int particoes) {
+        this.acervo = criarAcervo(particoes);
+        this.varreduraAtrasos = new VarreduraAtrasos(acervo);
+        this.persistencia = null;
         carregarLivrosDoCSV();
     }
 
-    //Populando o app com os dados do CSV
-    protected void carregarLivrosDoCSV() {
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream("test-data/livros-validos.csv")) {
-            assert is != null;
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
+    public LivroService(Path diretorioDados) {
+        this(diretorioDados, 1);
+    }
 
-                String linha;
-                boolean primeiraLinha = true;
+    //Acervo persistido em diretorioDados: recupera snapshot + journal, ou parte do CSV na primeira execução.
+    //O diretório fica travado para esta instância até fechar()
+    public LivroService(Path diretorioDados, int particoes) {
+        this.acervo = criarAcervo(particoes);
+        this.varreduraAtrasos = new VarreduraAtrasos(acervo);
+        try {
+            this.persistencia = new PersistenciaAcervo(diretorioDados, new PersistenciaAcervo.FonteSnapshot() {
+                @Override
+                public int proximoId() {
+                    return contadorId.get();
+                }
 
-                while ((linha = reader.readLine()) != null) {
-                    if (primeiraLinha) {
-                        primeiraLinha = false;
-                        continue;
+                @Override
+                public void lerLivros(PersistenciaAcervo.LeituraLivros leitura) throws IOException {
+                    try (VisaoAcervo visao = acervo.abrirVisao()) {
+                        leitura.ler(visao, acervo.ordemAlfabetica(visao));
                     }
+                }
+            });
+        } catch (RuntimeException e) {
+            acervo.fechar();
+            throw e;
+        }
+        try {
+            PersistenciaAcervo.Estado estado = persistencia.estadoRecuperado();
+            if (estado.vazio()) {
+                carregarCsvPadrao(acervo, contadorId);
+            } else {
+                acervo.restaurar(estado.livros(), estado.ordem());
+                contadorId.set(estado.proximoId());
+            }
+
+            acervo.ativarPersistencia(persistencia);
+            if (estado.vazio()) {
+                persistencia.gravarSnapshot();
+            }
+        } catch (RuntimeException e) {
+            persistencia.close();
+            varreduraAtrasos.parar();
+            acervo.fechar();
+            throw e;
+        }
+    }
 
-                    String[] dados = parseCsvLine(linha);
-                    if (dados.length >= 3) {
-                        try {
-                            String titulo = processarCampoCSV(dados[0]);
-                            String autor = processarCampoCSV(dados[1]);
-                            String isbn = processarCampoCSV(dados[2]);
-
-                            Livro livro = new Livro(contadorId.getAndIncrement(), titulo, autor, isbn);
-                            acervo.put(livro.getId(), livro);
-                        } catch (IllegalArgumentException e) {
-                            System.out.println("Livro ignorado do CSV (dados inválidos): " + e.getMessage());
-                        }
+    private static Acervo criarAcervo(int particoes) {
+        if (particoes < 1) {
+            throw new IllegalArgumentException("Quantidade de partições deve ser pelo menos 1");
+        }
+        return particoes == 1 ? new AcervoConcorrente() : new AcervoParticionado(particoes);
+    }
+
+    //Encerra as tarefas de fundo e, com persistência, grava um snapshot final e fecha o journal
+    public void fechar() {
+        varreduraAtrasos.parar();
+        if (persistencia != null) {
+            persistencia.gravarSnapshot();
+            persistencia.close();
+        }
+        acervo.fechar();
+    }
+
+    //Para os testes de recuperação: fecha como numa queda, com o que está confirmado no journal e sem o
+    //snapshot final de fechar()
+    void fecharSemSnapshot() {
+        varreduraAtrasos.parar();
+        if (persistencia != null) {
+            persistencia.close();
+        }
+        acervo.fechar();
+    }
+
+    //Líder da replicação: as mutações passam pelo log, na ordem das escritas, antes de irem para a persistência.
+    //Chamar na subida, antes de atender requisições
+    public LogReplicacao iniciarLogReplicacao(int retencao) {
+        LogReplicacao log = new LogReplicacao(persistencia, persistencia == null ? 0 : persistencia.ultimaSequencia(),
+                retencao);
+        acervo.ativarPersistencia(log);
+        return log;
+    }
+
+    //Réplica: aplica uma mutação vinda do líder sem validar de novo. Como no replay do journal, o registro
+    //traz o estado final, então reaplicar um que já está refletido no acervo não muda nada
+    public void aplicarReplicacao(RegistroJournal registro) {
+        int id = registro.id();
+        Livro livro = acervo.buscar(id);
+        switch (registro.tipo()) {
+            case CADASTRAR, ATUALIZAR -> {
+                if (livro == null) {
+                    acervo.inserir(Livro.restaurar(id, registro.titulo(), registro.autor(), registro.isbn()));
+                } else {
+                    acervo.atualizar(id, registro.titulo(), registro.autor(), registro.isbn(), Livro.SEM_REVISAO);
+                }
+                contadorId.accumulateAndGet(id + 1, Math::max);
+            }
+            case REMOVER -> {
+                if (livro != null) {
+                    acervo.remover(id);
+                }
+            }
+            case EMPRESTAR -> {
+                if (livro != null) {
+                    long sequencia;
+                    synchronized (livro) {
+                        livro.registrarEmprestimo(registro.dataEmprestimo(), registro.prazoDevolucao());
+                        sequencia = acervo.registrarEmprestimo(livro);
+                    }
+                    acervo.aguardarJournal(sequencia);
+                }
+            }
+            case DEVOLVER -> {
+                if (livro != null && !livro.isDisponivel()) {
+                    long sequencia;
+                    synchronized (livro) {
+                        livro.registrarDevolucao();
+                        sequencia = acervo.registrarDevolucao(livro);
+                        varreduraAtrasos.descartar(id);
                     }
+                    acervo.aguardarJournal(sequencia);
                 }
+            }
+        }
+    }
+
+    //Populando o app com os dados do CSV
+    protected void carregarLivrosDoCSV() {
+        carregarCsvPadrao(acervo, contadorId);
+    }
 
+    //Estático para que o construtor com persistência não chame um método sobrescrevível nem exponha this
+    private static void carregarCsvPadrao(Acervo acervo, AtomicInteger contadorId) {
+        try (InputStream is = LivroService.class.getClassLoader().getResourceAsStream("test-data/livros-validos.csv")) {
+            assert is != null;
+            RelatorioImportacao relatorio = new ImportadorLivros(acervo, contadorId::getAndIncrement).importarCsv(is);
+            if (relatorio.totalRejeitados() > 0) {
+                System.out.println("Livros ignorados do CSV (dados inválidos): " + relatorio.totalRejeitados());
             }
         } catch (IOException | NullPointerException e) {
             System.out.println("Aviso: Não foi possível carregar livros do CSV: " + e.getMessage());
@@ -60,66 +185,61 @@ public class LivroService {
         }
     }
 
-    private String[] parseCsvLine(String linha) {
-        List<String> campos = new ArrayList<>();
-        boolean dentroAspas = false;
-        StringBuilder campoAtual = new StringBuilder();
-
-        for (char c : linha.toCharArray()) {
-            if (c == '"') {
-                dentroAspas = !dentroAspas;
-            } else if (c == ',' && !dentroAspas) {
-                campos.add(campoAtual.toString());
-                campoAtual = new StringBuilder();
-            } else {
-                campoAtual.append(c);
-            }
+    //Importa um CSV (titulo,autor,isbn), opcionalmente compactado com gzip, de um caminho no disco.
+    //Linhas inválidas ou com ISBN repetido ficam no relatório em vez de interromper a importação.
+    public RelatorioImportacao importarCsv(Path arquivo) throws IOException {
+        try (InputStream is = Files.newInputStream(arquivo)) {
+            return importarCsv(is);
         }
-        campos.add(campoAtual.toString());
+    }
 
-        return campos.toArray(new String[0]);
+    //Versões em fluxo, usadas pelo upload em /livros/import; o conteúdo é lido uma única vez, em blocos
+    public RelatorioImportacao importarCsv(InputStream conteudo) throws IOException {
+        return new ImportadorLivros(acervo, this::gerarId).importarCsv(conteudo);
     }
 
-    private String processarCampoCSV(String campo) {
-        String campoLimpo = campo.replace("\"", "").trim();
-        return SecurityConfig.processarEntrada(campoLimpo);
+    //Uma linha por livro: {"titulo": "...", "autor": "...", "isbn": "..."}
+    public RelatorioImportacao importarJsonLinhas(InputStream conteudo) throws IOException {
+        return new ImportadorLivros(acervo, this::gerarId).importarJsonLinhas(conteudo);
+    }
+
+    //Escreve o acervo em saida sem materializar a lista; disponivel nulo exporta todos os livros.
+    //Retorna a quantidade de livros exportados.
+    public int exportarAcervo(OutputStream saida, FormatoExportacao formato, Boolean disponivel) throws IOException {
+        return new ExportadorLivros(acervo).exportar(saida, formato, disponivel);
     }
 
     public boolean existeISBN(String isbn) {
-        return acervo.values().stream()
-                .anyMatch(livro -> livro.getIsbn().equals(isbn));
+        return acervo.existeIsbn(isbn);
     }
 
     public void cadastrarLivroNoAcervo(Livro livro) {
         validarLivro(livro);
-
-        if (existeISBN(livro.getIsbn())) {
-            throw new IllegalArgumentException("Já existe um livro cadastrado com este ISBN");
-        }
-
-        acervo.put(livro.getId(), livro);
+        acervo.inserir(livro);
     }
 
     public Livro buscarLivroPorIDNoAcervo(int id) {
-        if (!acervo.containsKey(id)) {
+        Livro livro = acervo.buscar(id);
+        if (livro == null) {
             throw new NoSuchElementException("Livro não encontrado");
         }
-        return acervo.get(id);
+        return livro;
+    }
+
+    //Como buscarLivroPorIDNoAcervo, mas o livro inexistente volta como NAO_ENCONTRADO
+    public ResultadoOperacao consultarLivro(int id) {
+        Livro livro = acervo.buscar(id);
+        return livro == null ? ResultadoOperacao.NAO_ENCONTRADO : ResultadoOperacao.ok(livro);
     }
 
     public ArrayList<Livro> buscarLivroPorTituloNoAcervo(String titulo) {
         validarTermoBusca(titulo, "Título");
 
-        String tituloBusca = SecurityConfig.processarEntrada(titulo.trim().toLowerCase());
-        ArrayList<Livro> livrosDeMesmoNome = new ArrayList<>();
+        return acervo.buscarPorTitulo(normalizarTermoBusca(titulo));
+    }
 
-        for (Livro livro : acervo.values()) {
-            if (livro.getTitulo() != null &&
-                    livro.getTitulo().toLowerCase().contains(tituloBusca)) {
-                livrosDeMesmoNome.add(livro);
-            }
-        }
-        return livrosDeMesmoNome;
+    public ArrayList<Livro> buscarLivroPorTituloNoAcervo(String titulo, OrdemListagem ordem) {
+        return ordenarResultados(buscarLivroPorTituloNoAcervo(titulo), ordem);
     }
 
     public Livro buscarLivroPorISBN(String isbn) {
@@ -128,141 +248,262 @@ public class LivroService {
         }
 
         String isbnBusca = SecurityConfig.processarEntrada(isbn);
-        return acervo.values().stream()
-                .filter(livro -> livro.getIsbn().equals(isbnBusca))
-                .findFirst()
-                .orElse(null);
+        return acervo.buscarPorIsbn(isbnBusca);
     }
 
     public ArrayList<Livro> buscarLivroPorAutorNoAcervo(String autor) {
         validarTermoBusca(autor, "Autor");
 
-        String autorBusca = SecurityConfig.processarEntrada(autor.trim().toLowerCase());
-        ArrayList<Livro> livrosDoAutor = new ArrayList<>();
+        return acervo.buscarPorAutor(normalizarTermoBusca(autor));
+    }
+
+    //Autor exato (sem diferenciar maiúsculas, acentos e espaços), lido do dicionário de autores
+    public ArrayList<Livro> buscarLivroPorAutorExatoNoAcervo(String autor) {
+        validarTermoBusca(autor, "Autor");
+
+        return acervo.buscarPorAutorExato(normalizarTermoBusca(autor));
+    }
+
+    //Autores cujo nome começa com o prefixo, por exemplo "machado" para "Machado de Assis"
+    public ArrayList<Livro> buscarLivroPorPrefixoAutorNoAcervo(String prefixo) {
+        validarTermoBusca(prefixo, "Autor");
+
+        return acervo.buscarPorPrefixoAutor(normalizarTermoBusca(prefixo));
+    }
+
+    public int contarAutoresDistintos() {
+        return acervo.quantidadeAutores();
+    }
+
+    public ArrayList<Livro> buscarLivroPorAutorNoAcervo(String autor, OrdemListagem ordem) {
+        return ordenarResultados(buscarLivroPorAutorNoAcervo(autor), ordem);
+    }
 
-        for (Livro livro : acervo.values()) {
-            if (livro.getAutor() != null &&
-                    livro.getAutor().toLowerCase().contains(autorBusca)) {
-                livrosDoAutor.add(livro);
+    //Ordena resultados de busca, que chegam em ordem de id
+    public static ArrayList<Livro> ordenarResultados(ArrayList<Livro> resultados, OrdemListagem ordem) {
+        switch (ordem) {
+            case TITULO -> IndiceOrdenado.ordenar(resultados, Livro::getTitulo);
+            case AUTOR -> IndiceOrdenado.ordenar(resultados, Livro::getAutor);
+            case ID -> {
             }
         }
-        return livrosDoAutor;
+        return resultados;
     }
 
     public void atualizarLivroDoAcervo(int id, String titulo, String autor, String isbn) {
-        Livro livro = acervo.get(id);
+        atualizarLivroDoAcervo(id, titulo, autor, isbn, Livro.SEM_REVISAO);
+    }
 
-        if (livro == null) {
+    //Controle otimista: grava só se o livro ainda estiver na revisão que o cliente leu (getRevisao),
+    //senão lança ConflitoDeVersaoException. Nenhuma trava fica presa entre a leitura e a gravação
+    public void atualizarLivroDoAcervo(int id, String titulo, String autor, String isbn, long revisaoEsperada) {
+        if (acervo.buscar(id) == null) {
             throw new NoSuchElementException("Livro não encontrado");
         }
         String tituloProcessado = SecurityConfig.processarEntrada(titulo);
         String autorProcessado = SecurityConfig.processarEntrada(autor);
         String isbnProcessado = SecurityConfig.processarEntrada(isbn);
 
-        Livro livroComISBN = buscarLivroPorISBN(isbnProcessado);
-        if (livroComISBN != null && livroComISBN.getId() != id) {
-            throw new IllegalArgumentException("Já existe um livro cadastrado com este ISBN");
-        }
-
-        livro.setTitulo(tituloProcessado);
-        livro.setAutor(autorProcessado);
-        livro.setIsbn(isbnProcessado);
+        acervo.atualizar(id, tituloProcessado, autorProcessado, isbnProcessado, revisaoEsperada);
     }
 
     public void removerLivroDoAcervo(int id) {
-        Livro livro = acervo.get(id);
+        acervo.remover(id);
+    }
 
+    //Livro inexistente ou emprestado volta como resultado; a exceção do acervo só aparece se outra
+    //requisição o remover ou emprestar entre a verificação e a remoção, o que é raro
+    public ResultadoOperacao tentarRemoverLivro(int id) {
+        Livro livro = acervo.buscar(id);
         if (livro == null) {
-            throw new NoSuchElementException("Livro não encontrado");
+            return ResultadoOperacao.NAO_ENCONTRADO;
         }
-
         if (!livro.isDisponivel()) {
-            throw new IllegalStateException("Livro está emprestado e não pode ser removido do acervo");
+            return ResultadoOperacao.indisponivel(livro, "Não é possível remover um livro que está emprestado");
+        }
+        try {
+            acervo.remover(id);
+        } catch (NoSuchElementException e) {
+            return ResultadoOperacao.NAO_ENCONTRADO;
+        } catch (IllegalStateException e) {
+            return ResultadoOperacao.indisponivel(livro, "Não é possível remover um livro que está emprestado");
         }
-        acervo.remove(id);
+        return ResultadoOperacao.ok(livro);
     }
 
     public ArrayList<Livro> listarLivrosDoAcervo() {
-        return new ArrayList<>(acervo.values());
+        return new ArrayList<>(acervo.livros());
+    }
+
+    //O acervo inteiro num único instante, sem travar escritas; fechar ao terminar (try-with-resources)
+    public VisaoAcervo abrirVisaoDoAcervo() {
+        return acervo.abrirVisao();
+    }
+
+    //Paginação por cursor em ordem de id: apos traz os livros seguintes ao cursor, antes os anteriores
+    public Pagina listarLivrosDoAcervo(String apos, String antes, Integer tamanho) {
+        return acervo.paginarPorId(apos, antes, Pagina.limitarTamanho(tamanho));
+    }
+
+    //Em ordem alfabética (título ou autor) lida direto do índice ordenado; de/ate limitam a faixa,
+    //com ate valendo como prefixo: de "M" ate "N" traz de "Machado" a "Nunes"
+    public Pagina listarLivrosDoAcervo(OrdemListagem ordem, String de, String ate, String apos, String antes,
+                                       Integer tamanho) {
+        if (ordem == OrdemListagem.ID) {
+            return listarLivrosDoAcervo(apos, antes, tamanho);
+        }
+        return acervo.paginarEmOrdem(ordem, de, ate, apos, antes, Pagina.limitarTamanho(tamanho));
     }
 
     public void emprestarLivro(int id, int prazoDevolucao) {
+        ResultadoOperacao resultado = tentarEmprestarLivro(id, prazoDevolucao);
+        switch (resultado.situacao()) {
+            case NAO_ENCONTRADO -> throw new NoSuchElementException(resultado.mensagem());
+            case INDISPONIVEL -> throw new IllegalStateException(resultado.mensagem());
+            default -> {
+            }
+        }
+    }
+
+    //Prazo inválido ainda lança IllegalArgumentException: é erro de quem chama, não desfecho do empréstimo
+    public ResultadoOperacao tentarEmprestarLivro(int id, int prazoDevolucao) {
         validarPrazoEmprestimo(prazoDevolucao);
 
-        Livro livro = acervo.get(id);
+        Livro livro = acervo.buscar(id);
         if (livro == null) {
-            throw new NoSuchElementException("Livro não encontrado");
+            return ResultadoOperacao.NAO_ENCONTRADO;
         }
 
-        if (!livro.isDisponivel()) {
-            throw new IllegalStateException("Livro já está emprestado");
-        }
+        //Monitor do livro torna a verificação de disponibilidade e o empréstimo uma operação atômica
+        long sequencia;
+        synchronized (livro) {
+            if (!acervo.contem(livro)) {
+                return ResultadoOperacao.NAO_ENCONTRADO;
+            }
+
+            if (!livro.isDisponivel()) {
+                return ResultadoOperacao.indisponivel(livro, "Livro já está emprestado");
+            }
 
-        livro.setDataEmprestimo(LocalDate.now());
-        livro.setPrazoDevolucao(prazoDevolucao);
-        livro.setDataEstimadaDevolucao(livro.getDataEmprestimo().plusDays(prazoDevolucao));
-        livro.setDisponivel(false);
+            livro.registrarEmprestimo(LocalDate.now(), prazoDevolucao);
+            sequencia = acervo.registrarEmprestimo(livro);
+        }
+        acervo.aguardarJournal(sequencia);
+        return ResultadoOperacao.ok(livro);
     }
 
     public void devolverLivro(int id) throws MultaPendenteException {
-        Livro livro = acervo.get(id);
+        ResultadoOperacao resultado = tentarDevolverLivro(id);
+        switch (resultado.situacao()) {
+            case NAO_ENCONTRADO -> throw new NoSuchElementException(resultado.mensagem());
+            case INDISPONIVEL -> throw new IllegalStateException(resultado.mensagem());
+            case MULTA_PENDENTE -> throw new MultaPendenteException(resultado.mensagem());
+            case OK -> {
+            }
+        }
+    }
+
+    //Com multa pendente o livro fica emprestado, com o valor anotado, e volta MULTA_PENDENTE
+    public ResultadoOperacao tentarDevolverLivro(int id) {
+        Livro livro = acervo.buscar(id);
 
         if (livro == null) {
-            throw new NoSuchElementException("Livro não encontrado");
+            return ResultadoOperacao.NAO_ENCONTRADO;
         }
 
-        if (livro.isDisponivel()) {
-            throw new IllegalStateException("Livro não está emprestado");
-        }
+        long sequencia;
+        synchronized (livro) {
+            if (livro.isDisponivel()) {
+                return ResultadoOperacao.indisponivel(livro, "Livro não está emprestado");
+            }
 
-        double multa = calcularMulta(id);
+            long multa = calcularMultaEmCentavos(livro);
 
-        if (multa > 0) {
-            livro.setMulta(multa);
-            throw new MultaPendenteException("Pendente pagamento de multa no valor de R$ " + String.format("%.2f", multa));
-        }
+            if (multa > 0) {
+                livro.setMulta(multa / 100.0);
+                return ResultadoOperacao.multaPendente(livro, multa);
+            }
 
-        livro.setDataEfetivaDevolucao(LocalDate.now());
-        livro.setMulta(0);
-        livro.setDisponivel(true);
-        livro.setPrazoDevolucao(0);
-        livro.setDataEstimadaDevolucao(null);
-        livro.setDataEfetivaDevolucao(null);
+            livro.registrarDevolucao();
+            sequencia = acervo.registrarDevolucao(livro);
+            varreduraAtrasos.descartar(id);
+        }
+        acervo.aguardarJournal(sequencia);
+        return ResultadoOperacao.ok(livro);
     }
 
     public double calcularMulta(int livroId) {
-        Livro livro = acervo.get(livroId);
+        return calcularMultaEmCentavos(livroId) / 100.0;
+    }
+
+    public long calcularMultaEmCentavos(int livroId) {
+        Livro livro = acervo.buscar(livroId);
         if (livro == null) {
             throw new NoSuchElementException("Livro não encontrado");
         }
-        int diasAtraso = calcularDiasAtraso(livro);
-        return CalculadoraMulta.calcular(diasAtraso);
+        return calcularMultaEmCentavos(livro);
     }
 
-    private int calcularDiasAtraso(Livro livro) {
-        LocalDate dataEmprestimo = livro.getDataEmprestimo();
-        LocalDate dataEfetivaDevolucao = livro.getDataEfetivaDevolucao();
+    private long calcularMultaEmCentavos(Livro livro) {
+        //Empréstimo em aberto: aproveita o valor calculado pela varredura do dia
+        LocalDate hoje = LocalDate.now();
+        long multaPrecalculada = varreduraAtrasos.multaPrecalculada(livro, hoje);
+        if (multaPrecalculada >= 0) {
+            return multaPrecalculada;
+        }
 
+        LocalDate dataEfetivaDevolucao = livro.getDataEfetivaDevolucao();
         if (dataEfetivaDevolucao == null) {
-            dataEfetivaDevolucao = LocalDate.now();
+            dataEfetivaDevolucao = hoje;
         }
-        int diasDecorridos = dataEmprestimo.until(dataEfetivaDevolucao).getDays();
+        return CalculadoraMulta.calcularCentavos(calcularDiasAtraso(livro.getDataEmprestimo(), dataEfetivaDevolucao));
+    }
 
-        //Multa só se aplica se passou dos 10 dias gratuitos
-        if (diasDecorridos <= 10) {
-            return 0;
-        }
-        return diasDecorridos - 10;
+    //Multa só se aplica depois dos dias gratuitos. Conta os dias corridos: Period.getDays() perderia
+    //os meses de um atraso que atravessa o fim do mês
+    static int calcularDiasAtraso(LocalDate dataEmprestimo, LocalDate dataEfetivaDevolucao) {
+        return (int) CalculadoraMulta.diasAtraso(dataEmprestimo.toEpochDay(), dataEfetivaDevolucao.toEpochDay());
+    }
+
+    //Multas de todos os empréstimos ativos, calculadas em lote para o dia informado
+    public RelatorioMultas relatorioDeMultas(LocalDate referencia) {
+        return MotorMultas.relatorio(acervo.coletarEmprestimos(), referencia);
     }
 
     public ArrayList<Livro> listarLivrosEmEmprestimo() {
-        ArrayList<Livro> livrosEmprestados = new ArrayList<>();
-        for (Livro livro : acervo.values()) {
-            if (!livro.isDisponivel()) {
-                livrosEmprestados.add(livro);
-            }
+        return listarLivrosEmEmprestimo(false);
+    }
+
+    //Com ordenarPorVencimento, os próximos livros a vencer aparecem primeiro
+    public ArrayList<Livro> listarLivrosEmEmprestimo(boolean ordenarPorVencimento) {
+        return acervo.listarEmprestados(ordenarPorVencimento);
+    }
+
+    public Pagina listarLivrosEmEmprestimo(boolean ordenarPorVencimento, String apos, String antes, Integer tamanho) {
+        return acervo.paginarEmprestados(ordenarPorVencimento, apos, antes, Pagina.limitarTamanho(tamanho));
+    }
+
+    //Empréstimos com data estimada de devolução já vencida, lidos da última varredura do dia
+    public ArrayList<Livro> listarEmprestimosAtrasados() {
+        LocalDate hoje = LocalDate.now();
+        List<Integer> atrasados = varreduraAtrasos.atrasadosDoDia(hoje);
+        if (atrasados == null) {
+            return acervo.listarVencidosAntesDe(hoje);
         }
-        return livrosEmprestados;
+        return acervo.livrosEmprestados(atrasados);
+    }
+
+    //Agenda a varredura diária de atrasos; chamado uma vez na subida da aplicação
+    public void iniciarVarreduraDeAtrasos() {
+        varreduraAtrasos.iniciar();
+    }
+
+    public void pararVarreduraDeAtrasos() {
+        varreduraAtrasos.parar();
+    }
+
+    void varrerAtrasos(LocalDate hoje) {
+        varreduraAtrasos.varrer(hoje);
     }
 
     private void validarLivro(Livro livro) {
@@ -281,6 +522,11 @@ public class LivroService {
         }
     }
 
+    //Sanitiza uma única vez e aplica a mesma normalização usada nas chaves dos livros
+    private String normalizarTermoBusca(String termo) {
+        return NormalizadorBusca.normalizar(SecurityConfig.processarEntrada(termo));
+    }
+
     private void validarPrazoEmprestimo(int prazo) {
         if (prazo <= 0) {
             throw new IllegalArgumentException("Prazo de devolução deve ser positivo");
@@ -0,0 +1,137 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+//Multas de todos os empréstimos ativos numa passada só. A coleta copia de cada empréstimo o id e os
+//dias em epoch para arrays primitivos; o cálculo e a ordenação correm sobre eles, sem LocalDate,
+//Period nem double por livro, e os valores saem em centavos exatos.
+final class MotorMultas {
+    //Devolução ainda não informada: o atraso conta até o dia de referência
+    static final long SEM_DEVOLUCAO = Long.MIN_VALUE;
+
+    private MotorMultas() {
+    }
+
+    //Empréstimos ativos em colunas, na ordem de id
+    static final class Emprestimos {
+        private int[] ids;
+        private long[] diasEmprestimo;
+        private long[] diasDevolucao;
+        private Livro.Versao[] versoes;
+        private int tamanho;
+
+        Emprestimos(int capacidade) {
+            int inicial = Math.max(16, capacidade);
+            ids = new int[inicial];
+            diasEmprestimo = new long[inicial];
+            diasDevolucao = new long[inicial];
+            versoes = new Livro.Versao[inicial];
+        }
+
+        //Chamado pelo acervo com os ids em ordem crescente
+        void adicionar(Livro.Versao versao) {
+            if (versao.isDisponivel() || versao.getDataEmprestimo() == null) {
+                return;
+            }
+            if (tamanho == ids.length) {
+                int novo = tamanho * 2;
+                ids = Arrays.copyOf(ids, novo);
+                diasEmprestimo = Arrays.copyOf(diasEmprestimo, novo);
+                diasDevolucao = Arrays.copyOf(diasDevolucao, novo);
+                versoes = Arrays.copyOf(versoes, novo);
+            }
+            ids[tamanho] = versao.getId();
+            diasEmprestimo[tamanho] = versao.getDataEmprestimo().toEpochDay();
+            diasDevolucao[tamanho] = versao.getDataEfetivaDevolucao() == null
+                    ? SEM_DEVOLUCAO : versao.getDataEfetivaDevolucao().toEpochDay();
+            versoes[tamanho] = versao;
+            tamanho++;
+        }
+
+        int tamanho() {
+            return tamanho;
+        }
+
+        int id(int i) {
+            return ids[i];
+        }
+
+        long diaEmprestimo(int i) {
+            return diasEmprestimo[i];
+        }
+
+        //Uma coleta por partição, cada uma em ordem de id: intercala mantendo a ordem
+        static Emprestimos juntar(Emprestimos[] partes) {
+            int total = 0;
+            for (Emprestimos parte : partes) {
+                total += parte.tamanho;
+            }
+            Emprestimos todos = new Emprestimos(total);
+            int[] posicoes = new int[partes.length];
+            for (int n = 0; n < total; n++) {
+                int menor = -1;
+                for (int p = 0; p < partes.length; p++) {
+                    if (posicoes[p] < partes[p].tamanho
+                            && (menor < 0 || partes[p].ids[posicoes[p]] < partes[menor].ids[posicoes[menor]])) {
+                        menor = p;
+                    }
+                }
+                Emprestimos parte = partes[menor];
+                int i = posicoes[menor]++;
+                todos.ids[n] = parte.ids[i];
+                todos.diasEmprestimo[n] = parte.diasEmprestimo[i];
+                todos.diasDevolucao[n] = parte.diasDevolucao[i];
+                todos.versoes[n] = parte.versoes[i];
+            }
+            todos.tamanho = total;
+            return todos;
+        }
+    }
+
+    //Multa de cada empréstimo, na posição dele na coleta (zero para os que não estão atrasados)
+    static long[] calcularCentavos(Emprestimos emprestimos, long diaReferencia) {
+        long[] centavos = new long[emprestimos.tamanho];
+        for (int i = 0; i < emprestimos.tamanho; i++) {
+            long diaDevolucao = emprestimos.diasDevolucao[i];
+            long atraso = CalculadoraMulta.diasAtraso(emprestimos.diasEmprestimo[i],
+                    diaDevolucao == SEM_DEVOLUCAO ? diaReferencia : diaDevolucao);
+            centavos[i] = CalculadoraMulta.calcularCentavos(atraso);
+        }
+        return centavos;
+    }
+
+    //Só os empréstimos com multa, os mais atrasados primeiro e, no empate, em ordem de id
+    static RelatorioMultas relatorio(Emprestimos emprestimos, LocalDate referencia) {
+        long diaReferencia = referencia.toEpochDay();
+        long[] centavos = calcularCentavos(emprestimos, diaReferencia);
+
+        //Maior multa é maior atraso; a posição na coleta (já em ordem de id) desempata.
+        //Multa e posição cabem juntas num long, e ordenar long[] não aloca nada por item
+        long[] chaves = new long[emprestimos.tamanho];
+        int multados = 0;
+        long total = 0;
+        for (int i = 0; i < emprestimos.tamanho; i++) {
+            if (centavos[i] > 0) {
+                chaves[multados++] = (-centavos[i] << 32) | i;
+                total += centavos[i];
+            }
+        }
+        Arrays.sort(chaves, 0, multados);
+
+        Livro.Versao[] livros = new Livro.Versao[multados];
+        long[] dias = new long[multados];
+        long[] valores = new long[multados];
+        for (int n = 0; n < multados; n++) {
+            int i = (int) chaves[n];
+            long diaDevolucao = emprestimos.diasDevolucao[i];
+            livros[n] = emprestimos.versoes[i];
+            dias[n] = CalculadoraMulta.diasAtraso(emprestimos.diasEmprestimo[i],
+                    diaDevolucao == SEM_DEVOLUCAO ? diaReferencia : diaDevolucao);
+            valores[n] = centavos[i];
+        }
+        return new RelatorioMultas(referencia, emprestimos.tamanho, livros, dias, valores, total);
+    }
+}
@@ -1,7 +1,9 @@
 package com.br.infnet.service;
 
+//Desfecho esperado da devolução, não falha: dispensa o stack trace. Prefira tentarDevolverLivro,
+//que devolve a multa como ResultadoOperacao sem exceção nenhuma
 public class MultaPendenteException extends Throwable {
     public MultaPendenteException(String s) {
-        super(s);
+        super(s, null, false, false);
     }
 }
@@ -0,0 +1,20 @@
+package com.br.infnet.service;
+
+public enum OrdemListagem {
+    ID,
+    TITULO,
+    AUTOR;
+
+    //Valor do parâmetro ordenar das rotas; ausente vale ordem por id
+    public static OrdemListagem deParametro(String valor) {
+        if (valor == null || valor.isBlank()) {
+            return ID;
+        }
+        return switch (valor.trim().toLowerCase()) {
+            case "id" -> ID;
+            case "titulo" -> TITULO;
+            case "autor" -> AUTOR;
+            default -> throw new IllegalArgumentException("Ordenação inválida: " + valor);
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+
+import java.util.List;
+
+//Página de uma listagem por cursor (keyset). Os cursores são opacos para quem chama: cursorProximo vai
+//no parâmetro apos da próxima requisição e cursorAnterior no parâmetro antes; nulos quando não há
+//página naquela direção.
+public record Pagina(List<Livro> livros, String cursorAnterior, String cursorProximo) {
+    public static final int TAMANHO_PADRAO = 50;
+    public static final int TAMANHO_MAXIMO = 500;
+
+    public static int limitarTamanho(Integer tamanho) {
+        if (tamanho == null) {
+            return TAMANHO_PADRAO;
+        }
+        return Math.max(1, Math.min(tamanho, TAMANHO_MAXIMO));
+    }
+}
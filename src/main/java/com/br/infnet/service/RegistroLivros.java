@@ -0,0 +1,83 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.RelogioVersoes;
+
+import java.util.Arrays;
+
+//Todos os livros que uma leitura versionada (VisaoAcervo) pode precisar enxergar: os do acervo e os
+//removidos cuja remoção alguma leitura aberta ainda não vê. Só cresce no fim; a leitura guarda a
+//Fatia do momento em que abriu e percorre só ela. A compactação monta um array novo sem os removidos
+//que nenhuma leitura alcança mais, então quem guardou a Fatia antiga não é afetado.
+class RegistroLivros {
+    record Fatia(Livro[] livros, int tamanho) {
+    }
+
+    private final RelogioVersoes relogio;
+    private volatile Fatia atual = new Fatia(new Livro[16], 0);
+    //Removidos ainda presentes no array; compacta quando os novos desde a última compactação passam de
+    //um quarto do total. Os retidos por leituras abertas não contam, senão cada remoção compactaria de novo
+    private int removidos;
+    private int retidos;
+
+    RegistroLivros(RelogioVersoes relogio) {
+        this.relogio = relogio;
+    }
+
+    Fatia fatia() {
+        return atual;
+    }
+
+    synchronized void adicionar(Livro livro, boolean recadastro) {
+        Fatia fatia = atual;
+        if (recadastro) {
+            //Raro: o mesmo objeto voltando ao acervo pode ainda estar aqui, esperando a compactação
+            for (int i = 0; i < fatia.tamanho(); i++) {
+                if (fatia.livros()[i] == livro) {
+                    removidos--;
+                    retidos = Math.min(retidos, removidos);
+                    return;
+                }
+            }
+        }
+        Livro[] livros = fatia.livros();
+        if (fatia.tamanho() == livros.length) {
+            livros = Arrays.copyOf(livros, livros.length + (livros.length >> 1));
+        }
+        //Posição além do tamanho das Fatias já publicadas: nenhum leitor a lê antes da nova Fatia
+        livros[fatia.tamanho()] = livro;
+        atual = new Fatia(livros, fatia.tamanho() + 1);
+    }
+
+    synchronized void removido() {
+        removidos++;
+        int novos = removidos - retidos;
+        if (novos > 64 && novos > atual.tamanho() / 4) {
+            compactar(relogio.limiteDePoda());
+        }
+    }
+
+    private void compactar(long limite) {
+        Fatia fatia = atual;
+        Livro[] livros = new Livro[Math.max(16, (fatia.tamanho() - removidos) / 2 * 3)];
+        int total = 0;
+        int restantes = 0;
+        for (int i = 0; i < fatia.tamanho(); i++) {
+            Livro livro = fatia.livros()[i];
+            Livro.Versao versao = livro.versaoAtual();
+            if (versao.getSituacao() == Livro.Situacao.REMOVIDO) {
+                if (versao.getCommit() <= limite) {
+                    continue;
+                }
+                restantes++;
+            }
+            if (total == livros.length) {
+                livros = Arrays.copyOf(livros, total + (total >> 1));
+            }
+            livros[total++] = livro;
+        }
+        removidos = restantes;
+        retidos = restantes;
+        atual = new Fatia(livros, total);
+    }
+}
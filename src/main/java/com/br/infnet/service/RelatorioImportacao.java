@@ -0,0 +1,13 @@
+package com.br.infnet.service;
+
+import java.util.List;
+
+//Resultado de uma importação: quantos livros entraram e por que as demais linhas foram recusadas.
+//Só as primeiras LIMITE_DETALHES recusas são guardadas com detalhes; totalRejeitados conta todas.
+public record RelatorioImportacao(int importados, int totalRejeitados, List<Rejeicao> rejeitados) {
+
+    public static final int LIMITE_DETALHES = 10_000;
+
+    public record Rejeicao(int linha, String motivo, String conteudo) {
+    }
+}
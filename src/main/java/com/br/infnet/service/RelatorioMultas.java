@@ -0,0 +1,56 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+
+import java.time.LocalDate;
+
+//Empréstimos ativos com multa no dia de referência, os mais atrasados primeiro. Valores em centavos;
+//cada linha traz o livro na versão lida no cálculo.
+public final class RelatorioMultas {
+    private final LocalDate referencia;
+    private final int emprestimosAtivos;
+    private final Livro.Versao[] livros;
+    private final long[] diasAtraso;
+    private final long[] centavos;
+    private final long totalCentavos;
+
+    RelatorioMultas(LocalDate referencia, int emprestimosAtivos, Livro.Versao[] livros, long[] diasAtraso,
+                    long[] centavos, long totalCentavos) {
+        this.referencia = referencia;
+        this.emprestimosAtivos = emprestimosAtivos;
+        this.livros = livros;
+        this.diasAtraso = diasAtraso;
+        this.centavos = centavos;
+        this.totalCentavos = totalCentavos;
+    }
+
+    public LocalDate getReferencia() {
+        return referencia;
+    }
+
+    //Todos os empréstimos considerados, com multa ou não
+    public int getEmprestimosAtivos() {
+        return emprestimosAtivos;
+    }
+
+    public int quantidade() {
+        return livros.length;
+    }
+
+    public Livro.Versao livro(int i) {
+        return livros[i];
+    }
+
+    //Dias além dos gratuitos
+    public long diasAtraso(int i) {
+        return diasAtraso[i];
+    }
+
+    public long centavos(int i) {
+        return centavos[i];
+    }
+
+    public long getTotalCentavos() {
+        return totalCentavos;
+    }
+}
@@ -0,0 +1,37 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+
+//Desfecho de empréstimo, devolução, busca por id e remoção. Livro inexistente, já emprestado ou com
+//multa a pagar são situações do dia a dia, não erros: voltam como valor, sem o custo de montar uma
+//exceção com stack trace. livro é nulo quando não foi encontrado; multaCentavos só em MULTA_PENDENTE.
+public record ResultadoOperacao(Situacao situacao, Livro livro, long multaCentavos, String mensagem) {
+
+    public enum Situacao {
+        OK,
+        NAO_ENCONTRADO,
+        //Emprestado quando a operação pede disponível, ou o contrário na devolução
+        INDISPONIVEL,
+        MULTA_PENDENTE
+    }
+
+    static final ResultadoOperacao NAO_ENCONTRADO =
+            new ResultadoOperacao(Situacao.NAO_ENCONTRADO, null, 0, "Livro não encontrado");
+
+    static ResultadoOperacao ok(Livro livro) {
+        return new ResultadoOperacao(Situacao.OK, livro, 0, null);
+    }
+
+    static ResultadoOperacao indisponivel(Livro livro, String mensagem) {
+        return new ResultadoOperacao(Situacao.INDISPONIVEL, livro, 0, mensagem);
+    }
+
+    static ResultadoOperacao multaPendente(Livro livro, long multaCentavos) {
+        return new ResultadoOperacao(Situacao.MULTA_PENDENTE, livro, multaCentavos,
+                "Pendente pagamento de multa no valor de R$ " + String.format("%.2f", multaCentavos / 100.0));
+    }
+
+    public boolean isOk() {
+        return situacao == Situacao.OK;
+    }
+}
@@ -0,0 +1,107 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//Varredura diária dos empréstimos ativos: marca os vencidos pelo índice de vencimentos
+//e deixa a multa de cada empréstimo calculada para o dia, evitando recálculo a cada consulta.
+class VarreduraAtrasos {
+
+    record MultaPrecalculada(long diaCalculo, long diaEmprestimo, long centavos) {
+    }
+
+    private final Acervo acervo;
+    private final ConcurrentHashMap<Integer, MultaPrecalculada> multas = new ConcurrentHashMap<>();
+    private volatile List<Integer> atrasados = List.of();
+    private volatile long diaUltimaVarredura = Long.MIN_VALUE;
+    private ScheduledExecutorService agendador;
+
+    VarreduraAtrasos(Acervo acervo) {
+        this.acervo = acervo;
+    }
+
+    synchronized void iniciar() {
+        if (agendador != null) {
+            return;
+        }
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "varredura-atrasos");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        //Roda já na subida e depois logo após cada meia-noite
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDateTime proximaExecucao = agora.toLocalDate().plusDays(1).atStartOfDay().plusMinutes(1);
+        long atraso = Duration.between(agora, proximaExecucao).toMillis();
+
+        agendador.execute(this::varrerHoje);
+        agendador.scheduleAtFixedRate(this::varrerHoje, atraso, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void parar() {
+        if (agendador != null) {
+            agendador.shutdownNow();
+            agendador = null;
+        }
+    }
+
+    private void varrerHoje() {
+        try {
+            varrer(LocalDate.now());
+        } catch (RuntimeException e) {
+            //Uma falha pontual não pode cancelar as próximas execuções agendadas
+            System.err.println("Erro na varredura de atrasos: " + e.getMessage());
+        }
+    }
+
+    void varrer(LocalDate hoje) {
+        long diaHoje = hoje.toEpochDay();
+
+        //Calcula todas de uma vez; multaPrecalculada confere se o empréstimo ainda é o mesmo
+        MotorMultas.Emprestimos emprestimos = acervo.coletarEmprestimos();
+        long[] centavos = MotorMultas.calcularCentavos(emprestimos, diaHoje);
+        for (int i = 0; i < emprestimos.tamanho(); i++) {
+            multas.put(emprestimos.id(i), new MultaPrecalculada(diaHoje, emprestimos.diaEmprestimo(i), centavos[i]));
+        }
+        //Descarta cálculos de empréstimos que já foram encerrados
+        multas.entrySet().removeIf(entrada -> entrada.getValue().diaCalculo() != diaHoje);
+
+        List<Integer> vencidos = new ArrayList<>();
+        for (Livro livro : acervo.listarVencidosAntesDe(hoje)) {
+            vencidos.add(livro.getId());
+        }
+        atrasados = List.copyOf(vencidos);
+        diaUltimaVarredura = diaHoje;
+    }
+
+    //Multa em centavos calculada na varredura do dia, ou -1 se o valor não vale mais para este livro
+    long multaPrecalculada(Livro livro, LocalDate hoje) {
+        MultaPrecalculada multa = multas.get(livro.getId());
+        Livro.Versao versao = livro.versaoAtual();
+        if (multa == null || multa.diaCalculo() != hoje.toEpochDay()
+                || versao.getDataEfetivaDevolucao() != null || versao.getDataEmprestimo() == null
+                || multa.diaEmprestimo() != versao.getDataEmprestimo().toEpochDay()) {
+            return -1;
+        }
+        return multa.centavos();
+    }
+
+    void descartar(int id) {
+        multas.remove(id);
+    }
+
+    //Ids marcados como vencidos na última varredura, ou null se ela não é de hoje
+    List<Integer> atrasadosDoDia(LocalDate hoje) {
+        return diaUltimaVarredura == hoje.toEpochDay() ? atrasados : null;
+    }
+}
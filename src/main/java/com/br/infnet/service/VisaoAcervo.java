@@ -0,0 +1,79 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.model.RelogioVersoes;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+//Leitura do acervo congelada no instante em que foi aberta: cada livro aparece na versão que tinha
+//nesse instante, cadastros posteriores não aparecem e removidos depois continuam aparecendo.
+//Não toma trava nenhuma durante a iteração; escritas seguem normalmente e só deixam de podar as
+//versões que esta leitura ainda alcança. Precisa ser fechada (try-with-resources) para liberá-las.
+public class VisaoAcervo implements Iterable<Livro.Versao>, AutoCloseable {
+    private final RelogioVersoes.Leitura leitura;
+    //Uma por partição do acervo (só uma quando ele não é particionado)
+    private final RegistroLivros.Fatia[] fatias;
+    private boolean fechada;
+
+    //O instante vem antes das Fatias: tudo que tem carimbo <= instante já estava nos registros
+    VisaoAcervo(RelogioVersoes.Leitura leitura, RegistroLivros.Fatia... fatias) {
+        this.leitura = leitura;
+        this.fatias = fatias;
+    }
+
+    public long getInstante() {
+        return leitura.instante();
+    }
+
+    @Override
+    public Iterator<Livro.Versao> iterator() {
+        return new Iterator<>() {
+            private int fatia;
+            private int posicao;
+            private Livro.Versao proxima = avancar();
+
+            private Livro.Versao avancar() {
+                for (; fatia < fatias.length; fatia++, posicao = 0) {
+                    RegistroLivros.Fatia atual = fatias[fatia];
+                    while (posicao < atual.tamanho()) {
+                        Livro.Versao versao = atual.livros()[posicao++].versaoEm(leitura);
+                        if (versao != null && versao.getSituacao() == Livro.Situacao.NO_ACERVO) {
+                            return versao;
+                        }
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return proxima != null;
+            }
+
+            @Override
+            public Livro.Versao next() {
+                if (proxima == null) {
+                    throw new NoSuchElementException();
+                }
+                Livro.Versao atual = proxima;
+                proxima = avancar();
+                return atual;
+            }
+        };
+    }
+
+    //Versão do livro que esta leitura enxerga, ou null se ele não estava no acervo nesse instante
+    Livro.Versao versaoDe(Livro livro) {
+        Livro.Versao versao = livro.versaoEm(leitura);
+        return versao != null && versao.getSituacao() == Livro.Situacao.NO_ACERVO ? versao : null;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!fechada) {
+            fechada = true;
+            leitura.fechar();
+        }
+    }
+}
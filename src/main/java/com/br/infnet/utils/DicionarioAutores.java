@@ -0,0 +1,141 @@
+package com.br.infnet.utils;
+
+import com.br.infnet.model.Livro;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+//Dicionário de autores: cada autor distinto (pela chave de busca normalizada) aparece uma única vez,
+//com o nome compartilhado por todos os seus livros e uma lista compacta (int[] ordenado) dos ids.
+//Busca exata e por prefixo respondem direto das listas, sem percorrer os livros.
+public class DicionarioAutores {
+    private static final int[] VAZIO = new int[0];
+
+    private static final class Autor {
+        final String nome;
+        final String chave;
+        int[] livros = new int[2];
+        int total;
+        //Marcado ao sair do mapa: quem ainda tinha a referência precisa buscar (ou criar) o atual
+        boolean removido;
+
+        Autor(String nome, String chave) {
+            this.nome = nome;
+            this.chave = chave;
+        }
+    }
+
+    //Nome e chave como a versão do livro deve guardá-los: as instâncias do dicionário quando o autor já existe
+    public record NomeAutor(String nome, String chave) {
+    }
+
+    private final ConcurrentSkipListMap<String, Autor> porChave = new ConcurrentSkipListMap<>();
+
+    //Registra o livro no autor; um autor novo fica com as Strings do livro
+    public void adicionar(Livro livro) {
+        String chave = livro.getChaveBuscaAutor();
+        while (true) {
+            Autor autor = porChave.computeIfAbsent(chave, k -> new Autor(livro.getAutor(), k));
+            synchronized (autor) {
+                if (autor.removido) {
+                    continue;
+                }
+                inserirOrdenado(autor, livro.getId());
+            }
+            return;
+        }
+    }
+
+    //Consultado antes de montar a versão do livro, que já nasce com as Strings compartilhadas.
+    //Grafias diferentes com a mesma chave ("machado de assis") mantêm o próprio nome
+    public NomeAutor compartilhar(String nome, String chave) {
+        //Sem chave o autor é inválido: quem monta a versão é que recusa
+        Autor autor = chave == null ? null : porChave.get(chave);
+        if (autor == null) {
+            return new NomeAutor(nome, chave);
+        }
+        return new NomeAutor(autor.nome.equals(nome) ? autor.nome : nome, autor.chave);
+    }
+
+    public void remover(int id, String chave) {
+        Autor autor = porChave.get(chave);
+        if (autor == null) {
+            return;
+        }
+        synchronized (autor) {
+            int posicao = Arrays.binarySearch(autor.livros, 0, autor.total, id);
+            if (posicao < 0) {
+                return;
+            }
+            System.arraycopy(autor.livros, posicao + 1, autor.livros, posicao, autor.total - posicao - 1);
+            autor.total--;
+            if (autor.total == 0) {
+                autor.removido = true;
+                porChave.remove(chave, autor);
+            }
+        }
+    }
+
+    //Ids em ordem crescente dos livros cujo autor tem exatamente essa chave normalizada
+    public int[] livrosDoAutor(String chave) {
+        Autor autor = porChave.get(chave);
+        return autor == null ? VAZIO : copiar(autor);
+    }
+
+    //União, em ordem crescente, dos livros de todos os autores cuja chave começa com o prefixo
+    public int[] livrosComPrefixo(String prefixo) {
+        int[] ids = VAZIO;
+        int total = 0;
+        for (Map.Entry<String, Autor> entrada : porChave.tailMap(prefixo, true).entrySet()) {
+            if (!entrada.getKey().startsWith(prefixo)) {
+                break;
+            }
+            int[] doAutor = copiar(entrada.getValue());
+            if (total + doAutor.length > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(total + doAutor.length, ids.length * 2));
+            }
+            System.arraycopy(doAutor, 0, ids, total, doAutor.length);
+            total += doAutor.length;
+        }
+        Arrays.sort(ids, 0, total);
+        return total == ids.length ? ids : Arrays.copyOf(ids, total);
+    }
+
+    public int quantidadeAutores() {
+        return porChave.size();
+    }
+
+    //Visão viva e ordenada das chaves dos autores presentes
+    public Set<String> chaves() {
+        return Collections.unmodifiableSet(porChave.keySet());
+    }
+
+    private static int[] copiar(Autor autor) {
+        synchronized (autor) {
+            return Arrays.copyOf(autor.livros, autor.total);
+        }
+    }
+
+    //Ids novos quase sempre chegam em ordem crescente, então a inserção costuma ser no fim
+    private static void inserirOrdenado(Autor autor, int id) {
+        int posicao = autor.total == 0 || autor.livros[autor.total - 1] < id
+                ? autor.total
+                : Arrays.binarySearch(autor.livros, 0, autor.total, id);
+        if (posicao >= 0 && posicao < autor.total) {
+            //Já registrado
+            return;
+        }
+        if (posicao < 0) {
+            posicao = -posicao - 1;
+        }
+        if (autor.total == autor.livros.length) {
+            autor.livros = Arrays.copyOf(autor.livros, autor.total * 2);
+        }
+        System.arraycopy(autor.livros, posicao, autor.livros, posicao + 1, autor.total - posicao);
+        autor.livros[posicao] = id;
+        autor.total++;
+    }
+}
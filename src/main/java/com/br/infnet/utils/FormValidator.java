@@ -89,7 +89,7 @@ public class FormValidator {
 
         if (tipo == null || tipo.trim().isEmpty()) {
             errors.add("Tipo de busca é obrigatório");
-        } else if (!List.of("titulo", "autor", "id").contains(tipo)) {
+        } else if (!List.of("titulo", "autor", "autor-exato", "autor-prefixo", "id").contains(tipo)) {
             errors.add("Tipo de busca inválido");
         }
 
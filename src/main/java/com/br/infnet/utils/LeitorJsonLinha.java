@@ -0,0 +1,137 @@
+package com.br.infnet.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//Leitor mínimo para uma linha de JSON-lines contendo um objeto plano: {"chave": valor, ...}.
+//Aceita valores texto, número, true, false e null (números e booleanos voltam como o texto lido);
+//objetos e listas aninhados são recusados. Erros de sintaxe viram IllegalArgumentException.
+public class LeitorJsonLinha {
+    private final String texto;
+    private int posicao;
+
+    private LeitorJsonLinha(String texto) {
+        this.texto = texto;
+    }
+
+    public static Map<String, String> lerObjeto(String linha) {
+        return new LeitorJsonLinha(linha).objeto();
+    }
+
+    private Map<String, String> objeto() {
+        Map<String, String> campos = new HashMap<>();
+        pularEspacos();
+        esperar('{');
+        pularEspacos();
+        if (atual() == '}') {
+            posicao++;
+        } else {
+            while (true) {
+                pularEspacos();
+                String chave = textoEntreAspas();
+                pularEspacos();
+                esperar(':');
+                pularEspacos();
+                campos.put(chave, valor());
+                pularEspacos();
+                char separador = atual();
+                posicao++;
+                if (separador == '}') {
+                    break;
+                }
+                if (separador != ',') {
+                    throw erro("esperado ',' ou '}'");
+                }
+            }
+        }
+        pularEspacos();
+        if (posicao < texto.length()) {
+            throw erro("conteúdo após o fim do objeto");
+        }
+        return campos;
+    }
+
+    private String valor() {
+        char c = atual();
+        if (c == '"') {
+            return textoEntreAspas();
+        }
+        if (c == '{' || c == '[') {
+            throw erro("valores aninhados não são suportados");
+        }
+        int inicio = posicao;
+        while (posicao < texto.length() && ",}: \t\r\n".indexOf(texto.charAt(posicao)) < 0) {
+            posicao++;
+        }
+        String literal = texto.substring(inicio, posicao);
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+            return literal;
+        }
+        throw erro("valor inválido '" + literal + "'");
+    }
+
+    private String textoEntreAspas() {
+        esperar('"');
+        StringBuilder valor = new StringBuilder();
+        while (true) {
+            char c = atual();
+            posicao++;
+            if (c == '"') {
+                return valor.toString();
+            }
+            if (c != '\\') {
+                valor.append(c);
+                continue;
+            }
+            char escape = atual();
+            posicao++;
+            switch (escape) {
+                case '"', '\\', '/' -> valor.append(escape);
+                case 'b' -> valor.append('\b');
+                case 'f' -> valor.append('\f');
+                case 'n' -> valor.append('\n');
+                case 'r' -> valor.append('\r');
+                case 't' -> valor.append('\t');
+                case 'u' -> {
+                    if (posicao + 4 > texto.length()) {
+                        throw erro("escape \\u incompleto");
+                    }
+                    try {
+                        valor.append((char) Integer.parseInt(texto.substring(posicao, posicao + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw erro("escape \\u inválido");
+                    }
+                    posicao += 4;
+                }
+                default -> throw erro("escape inválido \\" + escape);
+            }
+        }
+    }
+
+    private char atual() {
+        if (posicao >= texto.length()) {
+            throw erro("fim inesperado da linha");
+        }
+        return texto.charAt(posicao);
+    }
+
+    private void esperar(char esperado) {
+        if (atual() != esperado) {
+            throw erro("esperado '" + esperado + "'");
+        }
+        posicao++;
+    }
+
+    private void pularEspacos() {
+        while (posicao < texto.length() && Character.isWhitespace(texto.charAt(posicao))) {
+            posicao++;
+        }
+    }
+
+    private IllegalArgumentException erro(String motivo) {
+        return new IllegalArgumentException("JSON inválido na coluna " + (posicao + 1) + ": " + motivo);
+    }
+}
@@ -0,0 +1,186 @@
+package com.br.infnet.utils;
+
+import com.br.infnet.model.Livro;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+//Mapa id -> Livro com chaves int primitivas e endereçamento aberto (sondagem linear):
+//sem Integer por chave nem nó por entrada, só dois arrays paralelos.
+//Não é seguro para threads; para o acervo compartilhado use MapaIntLivroConcorrente.
+public class MapaIntLivro {
+    static final float CARGA_MAXIMA = 0.75f;
+
+    private int[] chaves;
+    //Posição vazia é a que tem valor nulo, então qualquer int serve de chave
+    private Livro[] valores;
+    private int mascara;
+    private int limite;
+    private int tamanho;
+
+    public MapaIntLivro() {
+        this(16);
+    }
+
+    public MapaIntLivro(int capacidadeEsperada) {
+        alocar(capacidadePara(capacidadeEsperada));
+    }
+
+    public Livro get(int chave) {
+        int i = posicaoInicial(chave, mascara);
+        Livro valor;
+        while ((valor = valores[i]) != null) {
+            if (chaves[i] == chave) {
+                return valor;
+            }
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int chave) {
+        return get(chave) != null;
+    }
+
+    public Livro put(int chave, Livro livro) {
+        Objects.requireNonNull(livro, "livro");
+        int i = posicaoInicial(chave, mascara);
+        while (valores[i] != null) {
+            if (chaves[i] == chave) {
+                Livro anterior = valores[i];
+                valores[i] = livro;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        chaves[i] = chave;
+        valores[i] = livro;
+        if (++tamanho > limite) {
+            redimensionar(valores.length * 2);
+        }
+        return null;
+    }
+
+    //Remoção com deslocamento para trás: sem lápides, as sondagens continuam curtas depois de muitas remoções
+    public Livro remove(int chave) {
+        int i = posicaoInicial(chave, mascara);
+        while (valores[i] != null) {
+            if (chaves[i] == chave) {
+                Livro removido = valores[i];
+                deslocarParaTras(i);
+                tamanho--;
+                return removido;
+            }
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    private void deslocarParaTras(int vazio) {
+        int i = vazio;
+        while (true) {
+            i = (i + 1) & mascara;
+            if (valores[i] == null) {
+                break;
+            }
+            int ideal = posicaoInicial(chaves[i], mascara);
+            //A entrada em i só pode ocupar o buraco se o buraco estiver entre sua posição ideal e i
+            boolean podeMover = vazio <= i ? (ideal <= vazio || ideal > i) : (ideal <= vazio && ideal > i);
+            if (podeMover) {
+                chaves[vazio] = chaves[i];
+                valores[vazio] = valores[i];
+                vazio = i;
+            }
+        }
+        valores[vazio] = null;
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    public Collection<Livro> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Livro> iterator() {
+                return new Iterator<>() {
+                    private final Livro[] tabela = valores;
+                    private int proxima = avancar(0);
+
+                    private int avancar(int inicio) {
+                        int i = inicio;
+                        while (i < tabela.length && tabela[i] == null) {
+                            i++;
+                        }
+                        return i;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return proxima < tabela.length;
+                    }
+
+                    @Override
+                    public Livro next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Livro livro = tabela[proxima];
+                        proxima = avancar(proxima + 1);
+                        return livro;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return tamanho;
+            }
+        };
+    }
+
+    private void redimensionar(int capacidade) {
+        int[] chavesAntigas = chaves;
+        Livro[] valoresAntigos = valores;
+        alocar(capacidade);
+        for (int i = 0; i < valoresAntigos.length; i++) {
+            if (valoresAntigos[i] != null) {
+                int j = posicaoInicial(chavesAntigas[i], mascara);
+                while (valores[j] != null) {
+                    j = (j + 1) & mascara;
+                }
+                chaves[j] = chavesAntigas[i];
+                valores[j] = valoresAntigos[i];
+            }
+        }
+    }
+
+    private void alocar(int capacidade) {
+        chaves = new int[capacidade];
+        valores = new Livro[capacidade];
+        mascara = capacidade - 1;
+        limite = (int) (capacidade * CARGA_MAXIMA);
+    }
+
+    //Potência de dois com folga para a carga máxima
+    static int capacidadePara(int esperado) {
+        long minimo = (long) Math.ceil(Math.max(esperado, 1) / (double) CARGA_MAXIMA) + 1;
+        if (minimo > 1 << 30) {
+            throw new IllegalArgumentException("Capacidade excede o máximo suportado: " + esperado);
+        }
+        return Math.max(16, Integer.highestOneBit((int) minimo - 1) << 1);
+    }
+
+    //Hash multiplicativo (Fibonacci): ids sequenciais ficam bem espalhados pela tabela
+    static int posicaoInicial(int chave, int mascara) {
+        int h = chave * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+}
@@ -0,0 +1,205 @@
+package com.br.infnet.utils;
+
+import com.br.infnet.model.Livro;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+//Variante de MapaIntLivro para o acervo compartilhado: leituras sem trava e escritas serializadas.
+//Uma posição, depois de receber uma chave, nunca troca de chave na mesma tabela: a remoção deixa uma
+//lápide e só a reinserção do mesmo id a reaproveita. Assim o leitor, ao ver um valor publicado
+//(getAcquire/setRelease), sempre lê a chave certa. Lápides somem no próximo redimensionamento,
+//que monta uma tabela nova e a publica de uma vez pelo campo volatile.
+public class MapaIntLivroConcorrente {
+    private static final Object REMOVIDO = new Object();
+    private static final VarHandle ELEMENTO = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private static final class Tabela {
+        final int[] chaves;
+        final Object[] valores;
+        final int mascara;
+        final int limite;
+        //Posições com chave (vivas + lápides); só o escritor lê e altera
+        int ocupadas;
+
+        Tabela(int capacidade) {
+            chaves = new int[capacidade];
+            valores = new Object[capacidade];
+            mascara = capacidade - 1;
+            limite = (int) (capacidade * MapaIntLivro.CARGA_MAXIMA);
+        }
+    }
+
+    private volatile Tabela tabela;
+    private volatile int tamanho;
+
+    public MapaIntLivroConcorrente() {
+        this(16);
+    }
+
+    public MapaIntLivroConcorrente(int capacidadeEsperada) {
+        tabela = new Tabela(MapaIntLivro.capacidadePara(capacidadeEsperada));
+    }
+
+    public Livro get(int chave) {
+        Tabela t = tabela;
+        int i = MapaIntLivro.posicaoInicial(chave, t.mascara);
+        Object valor;
+        while ((valor = ELEMENTO.getAcquire(t.valores, i)) != null) {
+            if (t.chaves[i] == chave) {
+                return valor == REMOVIDO ? null : (Livro) valor;
+            }
+            i = (i + 1) & t.mascara;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int chave) {
+        return get(chave) != null;
+    }
+
+    public synchronized Livro put(int chave, Livro livro) {
+        return gravar(chave, livro, false);
+    }
+
+    public synchronized Livro putIfAbsent(int chave, Livro livro) {
+        return gravar(chave, livro, true);
+    }
+
+    private Livro gravar(int chave, Livro livro, boolean somenteSeAusente) {
+        Objects.requireNonNull(livro, "livro");
+        Tabela t = tabela;
+        int i = posicaoDaChave(t, chave);
+        Object atual = t.valores[i];
+        if (atual != null && atual != REMOVIDO) {
+            if (!somenteSeAusente) {
+                ELEMENTO.setRelease(t.valores, i, livro);
+            }
+            return (Livro) atual;
+        }
+
+        if (atual == null) {
+            if (t.ocupadas + 1 > t.limite) {
+                t = redimensionar(t);
+                i = posicaoDaChave(t, chave);
+            }
+            //A chave precisa estar escrita antes de o valor ser publicado
+            t.chaves[i] = chave;
+            t.ocupadas++;
+        }
+        ELEMENTO.setRelease(t.valores, i, livro);
+        tamanho++;
+        return null;
+    }
+
+    //Remove só se o id ainda aponta para esse livro, como ConcurrentHashMap.remove(chave, valor)
+    public synchronized boolean remove(int chave, Livro esperado) {
+        Tabela t = tabela;
+        int i = posicaoDaChave(t, chave);
+        if (t.valores[i] == null || t.valores[i] != esperado) {
+            return false;
+        }
+        ELEMENTO.setRelease(t.valores, i, REMOVIDO);
+        tamanho--;
+        return true;
+    }
+
+    public synchronized Livro remove(int chave) {
+        Tabela t = tabela;
+        int i = posicaoDaChave(t, chave);
+        Object atual = t.valores[i];
+        if (atual == null || atual == REMOVIDO) {
+            return null;
+        }
+        ELEMENTO.setRelease(t.valores, i, REMOVIDO);
+        tamanho--;
+        return (Livro) atual;
+    }
+
+    //Posição com a chave (viva ou lápide) ou a posição vazia onde ela entraria
+    private static int posicaoDaChave(Tabela t, int chave) {
+        int i = MapaIntLivro.posicaoInicial(chave, t.mascara);
+        while (t.valores[i] != null && t.chaves[i] != chave) {
+            i = (i + 1) & t.mascara;
+        }
+        return i;
+    }
+
+    //Dimensiona pela quantidade de vivos (com folga de 50%): sem lápides a tabela dobra,
+    //com muitas lápides pode até manter o tamanho
+    private Tabela redimensionar(Tabela antiga) {
+        Tabela nova = new Tabela(MapaIntLivro.capacidadePara(Math.max(tamanho, 16) / 2 * 3));
+        for (int i = 0; i < antiga.valores.length; i++) {
+            Object valor = antiga.valores[i];
+            if (valor != null && valor != REMOVIDO) {
+                int j = MapaIntLivro.posicaoInicial(antiga.chaves[i], nova.mascara);
+                while (nova.valores[j] != null) {
+                    j = (j + 1) & nova.mascara;
+                }
+                nova.chaves[j] = antiga.chaves[i];
+                nova.valores[j] = valor;
+                nova.ocupadas++;
+            }
+        }
+        tabela = nova;
+        return nova;
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    //Visão fracamente consistente, como a de ConcurrentHashMap: não lança erro com escritas concorrentes
+    //e pode ou não refletir as que acontecerem durante a iteração
+    public Collection<Livro> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Livro> iterator() {
+                return new Iterator<>() {
+                    private final Object[] valores = tabela.valores;
+                    private int posicao;
+                    private Livro proximo = avancar();
+
+                    private Livro avancar() {
+                        while (posicao < valores.length) {
+                            Object valor = ELEMENTO.getAcquire(valores, posicao++);
+                            if (valor != null && valor != REMOVIDO) {
+                                return (Livro) valor;
+                            }
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return proximo != null;
+                    }
+
+                    @Override
+                    public Livro next() {
+                        if (proximo == null) {
+                            throw new NoSuchElementException();
+                        }
+                        Livro atual = proximo;
+                        proximo = avancar();
+                        return atual;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return tamanho;
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package com.br.infnet.utils;
+
+import java.text.Normalizer;
+
+//Chave de busca: minúsculas, sem acentos e com espaços colapsados.
+//A mesma função é aplicada aos livros (no cadastro/atualização) e ao termo buscado.
+public class NormalizadorBusca {
+
+    private NormalizadorBusca() {
+        // Previne instanciação
+    }
+
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+
+        String decomposto = somenteAscii(texto) ? texto : Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder chave = new StringBuilder(decomposto.length());
+        boolean espacoPendente = false;
+
+        for (int i = 0; i < decomposto.length(); i++) {
+            char c = decomposto.charAt(i);
+
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                espacoPendente = chave.length() > 0;
+                continue;
+            }
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                //Acentos separados pela decomposição NFD
+                continue;
+            }
+            if (espacoPendente) {
+                chave.append(' ');
+                espacoPendente = false;
+            }
+            chave.append(Character.toLowerCase(c));
+        }
+        return chave.toString();
+    }
+
+    private static boolean somenteAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
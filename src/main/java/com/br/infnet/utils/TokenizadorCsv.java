@@ -0,0 +1,145 @@
+package com.br.infnet.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+//Tokenizador de CSV (RFC 4180) em fluxo: lê o Reader por um buffer reaproveitado e entrega cada
+//campo como um trecho de um char[] interno, sem criar Strings nem listas por linha.
+//Aceita aspas duplicadas ("") e quebras de linha dentro de campos entre aspas; linhas malformadas
+//são informadas ao receptor e descartadas até o fim da linha física.
+public class TokenizadorCsv {
+    private static final int TAMANHO_BUFFER = 1 << 16;
+    private static final int FIM = -1;
+    //Protege contra um campo entre aspas que nunca fecha consumir o arquivo inteiro em memória
+    public static final int TAMANHO_MAXIMO_CAMPO = 1 << 16;
+
+    public interface Receptor {
+        //O trecho dados[inicio, inicio + tamanho) só vale durante a chamada
+        void campo(int indice, char[] dados, int inicio, int tamanho);
+
+        void fimDoRegistro(int linha, int totalCampos);
+
+        //Campos já entregues deste registro devem ser descartados
+        void registroMalformado(int linha, String motivo);
+    }
+
+    private final Reader leitor;
+    private final char[] buffer = new char[TAMANHO_BUFFER];
+    private int posicao;
+    private int limite;
+    private char[] campo = new char[256];
+    private int tamanhoCampo;
+    private int linhaAtual = 1;
+
+    public TokenizadorCsv(Reader leitor) {
+        this.leitor = leitor;
+    }
+
+    public void tokenizar(Receptor receptor) throws IOException {
+        int c = ler();
+        while (c != FIM) {
+            int linhaRegistro = linhaAtual;
+            int indice = 0;
+            String erro = null;
+
+            while (true) {
+                tamanhoCampo = 0;
+                if (c == '"') {
+                    while (true) {
+                        c = ler();
+                        if (c == FIM) {
+                            erro = "Aspas não fechadas";
+                            break;
+                        }
+                        if (c == '"') {
+                            c = ler();
+                            if (c != '"') {
+                                break;
+                            }
+                        }
+                        if (!acrescentar((char) c)) {
+                            erro = "Campo excede " + TAMANHO_MAXIMO_CAMPO + " caracteres";
+                            break;
+                        }
+                    }
+                    if (erro == null && !fimDeCampo(c)) {
+                        erro = "Caractere inesperado após aspas de fechamento";
+                    }
+                } else {
+                    while (!fimDeCampo(c)) {
+                        if (c == '"') {
+                            erro = "Aspas dentro de campo sem aspas";
+                            break;
+                        }
+                        if (!acrescentar((char) c)) {
+                            erro = "Campo excede " + TAMANHO_MAXIMO_CAMPO + " caracteres";
+                            break;
+                        }
+                        c = ler();
+                    }
+                }
+                if (erro != null) {
+                    break;
+                }
+
+                receptor.campo(indice++, campo, 0, tamanhoCampo);
+                if (c != ',') {
+                    break;
+                }
+                c = ler();
+            }
+
+            if (erro != null) {
+                receptor.registroMalformado(linhaRegistro, erro);
+                while (c != '\n' && c != '\r' && c != FIM) {
+                    c = ler();
+                }
+            } else {
+                receptor.fimDoRegistro(linhaRegistro, indice);
+            }
+
+            //Consome o terminador: \n, \r\n ou \r
+            if (c == '\r') {
+                c = ler();
+                if (c == '\n') {
+                    c = ler();
+                }
+            } else if (c == '\n') {
+                c = ler();
+            }
+        }
+    }
+
+    private static boolean fimDeCampo(int c) {
+        return c == ',' || c == '\n' || c == '\r' || c == FIM;
+    }
+
+    private boolean acrescentar(char c) {
+        if (tamanhoCampo == campo.length) {
+            if (campo.length >= TAMANHO_MAXIMO_CAMPO) {
+                return false;
+            }
+            char[] maior = new char[Math.min(campo.length * 2, TAMANHO_MAXIMO_CAMPO)];
+            System.arraycopy(campo, 0, maior, 0, tamanhoCampo);
+            campo = maior;
+        }
+        campo[tamanhoCampo++] = c;
+        return true;
+    }
+
+    private int ler() throws IOException {
+        if (posicao == limite) {
+            limite = leitor.read(buffer, 0, buffer.length);
+            posicao = 0;
+            if (limite <= 0) {
+                limite = 0;
+                return FIM;
+            }
+        }
+        char c = buffer[posicao++];
+        if (c == '\n') {
+            linhaAtual++;
+        }
+        return c;
+    }
+}
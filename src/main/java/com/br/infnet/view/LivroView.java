@@ -2,13 +2,29 @@ package com.br.infnet.view;
 
 import com.br.infnet.model.Livro;
 import com.br.infnet.service.LivroService;
-
+import com.br.infnet.service.OrdemListagem;
+import com.br.infnet.service.Pagina;
+import com.br.infnet.service.RelatorioImportacao;
+import com.br.infnet.service.RelatorioMultas;
+import com.br.infnet.service.ResultadoOperacao;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
 public class LivroView {
 
     public static String renderList(List<Livro> livros) {
+        return renderList(new Pagina(livros, null, null), Pagina.TAMANHO_PADRAO);
+    }
+
+    public static String renderList(Pagina pagina, int tamanho) {
+        return renderList(pagina, tamanho, OrdemListagem.ID, null, null);
+    }
+
+    public static String renderList(Pagina pagina, int tamanho, OrdemListagem ordem, String de, String ate) {
+        List<Livro> livros = pagina.livros();
         StringBuilder html = new StringBuilder();
         html.append(getHeader("Livros do Acervo"));
         html.append("<div class='container'>");
@@ -17,14 +33,43 @@ public class LivroView {
         html.append("<a href='/livros/novo' class='btn'>Cadastrar novo livro</a>");
         html.append("<a href='/emprestimos' class='btn'>Empréstimos</a>");
         html.append("<a href='/buscar' class='btn'>Buscar</a>");
+        html.append("<a href='/livros/import' class='btn'>Importar</a>");
         html.append("</nav>");
 
+        html.append("<div class='button-group'>");
+        html.append("<a href='/livros' class='btn btn-small").append(ordem == OrdemListagem.ID ? "" : " btn-secondary").append("'>Por ID</a>");
+        html.append("<a href='/livros?ordenar=titulo' class='btn btn-small").append(ordem == OrdemListagem.TITULO ? "" : " btn-secondary").append("'>Por título</a>");
+        html.append("<a href='/livros?ordenar=autor' class='btn btn-small").append(ordem == OrdemListagem.AUTOR ? "" : " btn-secondary").append("'>Por autor</a>");
+        html.append("</div>");
+        String parametros = "/livros?";
+        if (ordem != OrdemListagem.ID) {
+            String campo = ordem == OrdemListagem.TITULO ? "titulo" : "autor";
+            //Faixa alfabética, por exemplo de "M" até "N"
+            html.append("<form method='get' action='/livros'>");
+            html.append("<input type='hidden' name='ordenar' value='").append(campo).append("'>");
+            html.append("<label for='de'>De:</label> ");
+            html.append("<input type='text' id='de' name='de' value='").append(escapeHtml(de)).append("' size='8'> ");
+            html.append("<label for='ate'>Até:</label> ");
+            html.append("<input type='text' id='ate' name='ate' value='").append(escapeHtml(ate)).append("' size='8'> ");
+            html.append("<button type='submit' class='btn-small'>Filtrar</button>");
+            html.append("</form>");
+            parametros += "ordenar=" + campo + "&";
+            if (de != null && !de.isBlank()) {
+                parametros += "de=" + codificarUrl(de) + "&";
+            }
+            if (ate != null && !ate.isBlank()) {
+                parametros += "ate=" + codificarUrl(ate) + "&";
+            }
+        }
+
         if (livros.isEmpty()) {
             html.append("<p>Nenhum livro cadastrado.</p>");
         } else {
             html.append("<table class='table'>");
             html.append("<tr><th>ID</th><th>Título</th><th>Autor</th><th>ISBN</th><th>Status</th><th>Ações</th></tr>");
-            for (Livro livro : livros) {
+            for (Livro item : livros) {
+                //Uma versão por linha: os campos exibidos são todos do mesmo instante
+                Livro.Versao livro = item.versaoAtual();
                 html.append("<tr>");
                 html.append("<td>").append(livro.getId()).append("</td>");
                 html.append("<td>").append(livro.getTitulo()).append("</td>");
@@ -46,6 +91,7 @@ public class LivroView {
             }
             html.append("</table>");
         }
+        renderPaginacao(html, parametros, pagina, tamanho);
 
         html.append("</div>");
         html.append(getFooter());
@@ -68,6 +114,10 @@ public class LivroView {
         }
 
         html.append("<form method='post' action='").append(action).append("'>");
+        if (model.get("versao") != null) {
+            //ETag da revisão exibida; o POST só grava se o livro ainda estiver nela
+            html.append("<input type='hidden' name='versao' value='").append(escapeHtml(model.get("versao").toString())).append("'>");
+        }
         html.append("<div class='form-group'>");
         html.append("<label for='titulo'>Título:</label>");
         html.append("<input type='text' id='titulo' name='titulo' value='").append(model.getOrDefault("titulo", "")).append("' required>");
@@ -95,18 +145,36 @@ public class LivroView {
 
 
     public static String renderEmprestimos(List<Livro> emprestimos) {
+        return renderEmprestimos(emprestimos, false);
+    }
+
+    public static String renderEmprestimos(List<Livro> emprestimos, boolean ordenadoPorVencimento) {
+        return renderEmprestimos(new Pagina(emprestimos, null, null), ordenadoPorVencimento, Pagina.TAMANHO_PADRAO);
+    }
+
+    public static String renderEmprestimos(Pagina pagina, boolean ordenadoPorVencimento, int tamanho) {
+        List<Livro> emprestimos = pagina.livros();
         StringBuilder html = new StringBuilder();
         html.append(getHeader("Livros em empréstimos"));
         html.append("<div class='container'>");
         html.append("<h1>Livros Emprestados</h1>");
+        html.append("<div class='button-group'>");
         html.append("<a href='/livros' class='btn'>Voltar ao Acervo</a>");
+        if (ordenadoPorVencimento) {
+            html.append("<a href='/emprestimos' class='btn btn-secondary'>Ordenar por ID</a>");
+        } else {
+            html.append("<a href='/emprestimos?ordenar=vencimento' class='btn btn-secondary'>Próximos a vencer primeiro</a>");
+        }
+        html.append("<a href='/emprestimos/atrasados' class='btn btn-secondary'>Atrasados</a>");
+        html.append("</div>");
 
         if (emprestimos.isEmpty()) {
             html.append("<p>Nenhum livro em empréstimo.</p>");
         } else {
             html.append("<table class='table'>");
             html.append("<tr><th>ID</th><th>Título</th><th>Autor</th><th>Data Empréstimo</th><th>Prazo</th><th>Data Estimada para Devolução</th><th>Ações</th></tr>");
-            for (Livro livro : emprestimos) {
+            for (Livro item : emprestimos) {
+                Livro.Versao livro = item.versaoAtual();
                 html.append("<tr>");
                 html.append("<td>").append(livro.getId()).append("</td>");
                 html.append("<td>").append(livro.getTitulo()).append("</td>");
@@ -123,11 +191,82 @@ public class LivroView {
             }
             html.append("</table>");
         }
+        renderPaginacao(html, ordenadoPorVencimento ? "/emprestimos?ordenar=vencimento&" : "/emprestimos?", pagina, tamanho);
+        html.append("</div>");
+        html.append(getFooter());
+        return html.toString();
+    }
+
+    public static String renderAtrasados(List<Livro> atrasados, Map<Integer, Long> multasCentavos) {
+        StringBuilder html = new StringBuilder();
+        html.append(getHeader("Empréstimos atrasados"));
+        html.append("<div class='container'>");
+        html.append("<h1>Empréstimos Atrasados</h1>");
+        html.append("<a href='/emprestimos' class='btn'>Voltar aos Empréstimos</a>");
+        html.append("<a href='/emprestimos/multas' class='btn btn-secondary'>Relatório de multas</a>");
+
+        if (atrasados.isEmpty()) {
+            html.append("<p>Nenhum empréstimo atrasado.</p>");
+        } else {
+            html.append("<table class='table'>");
+            html.append("<tr><th>ID</th><th>Título</th><th>Autor</th><th>Data Empréstimo</th><th>Data Estimada para Devolução</th><th>Multa</th></tr>");
+            for (Livro item : atrasados) {
+                Livro.Versao livro = item.versaoAtual();
+                html.append("<tr>");
+                html.append("<td>").append(livro.getId()).append("</td>");
+                html.append("<td>").append(livro.getTitulo()).append("</td>");
+                html.append("<td>").append(livro.getAutor()).append("</td>");
+                html.append("<td>").append(livro.getDataEmprestimo()).append("</td>");
+                html.append("<td>").append(livro.getDataEstimadaDevolucao()).append("</td>");
+                html.append("<td>R$ ").append(reais(multasCentavos.getOrDefault(livro.getId(), 0L))).append("</td>");
+                html.append("</tr>");
+            }
+            html.append("</table>");
+        }
         html.append("</div>");
         html.append(getFooter());
         return html.toString();
     }
 
+    //Empréstimos com multa no dia, mais atrasados primeiro, com o total a receber
+    public static String renderRelatorioMultas(RelatorioMultas relatorio) {
+        StringBuilder html = new StringBuilder();
+        html.append(getHeader("Relatório de multas"));
+        html.append("<div class='container'>");
+        html.append("<h1>Relatório de Multas</h1>");
+        html.append("<a href='/emprestimos/atrasados' class='btn'>Voltar aos Atrasados</a>");
+        html.append("<p>Referência: ").append(relatorio.getReferencia())
+                .append(" | Empréstimos ativos: ").append(relatorio.getEmprestimosAtivos())
+                .append(" | Com multa: ").append(relatorio.quantidade())
+                .append(" | Total: R$ ").append(reais(relatorio.getTotalCentavos())).append("</p>");
+
+        if (relatorio.quantidade() == 0) {
+            html.append("<p>Nenhum empréstimo com multa.</p>");
+        } else {
+            html.append("<table class='table'>");
+            html.append("<tr><th>ID</th><th>Título</th><th>Autor</th><th>Data Empréstimo</th><th>Dias de Atraso</th><th>Multa</th></tr>");
+            for (int i = 0; i < relatorio.quantidade(); i++) {
+                Livro.Versao livro = relatorio.livro(i);
+                html.append("<tr>");
+                html.append("<td>").append(livro.getId()).append("</td>");
+                html.append("<td>").append(livro.getTitulo()).append("</td>");
+                html.append("<td>").append(livro.getAutor()).append("</td>");
+                html.append("<td>").append(livro.getDataEmprestimo()).append("</td>");
+                html.append("<td>").append(relatorio.diasAtraso(i)).append("</td>");
+                html.append("<td>R$ ").append(reais(relatorio.centavos(i))).append("</td>");
+                html.append("</tr>");
+            }
+            html.append("</table>");
+        }
+        html.append("</div>");
+        html.append(getFooter());
+        return html.toString();
+    }
+
+    private static String reais(long centavos) {
+        return String.format("%.2f", centavos / 100.0);
+    }
+
     public static String renderFormEmprestimo(Livro livro) {
         return renderFormEmprestimo(livro, null);
     }
@@ -162,7 +301,66 @@ public class LivroView {
 
 
 
+    public static String renderImportacao(RelatorioImportacao relatorio, String erro) {
+        StringBuilder html = new StringBuilder();
+        html.append(getHeader("Importar Livros"));
+        html.append("<div class='container'>");
+        html.append("<h1>Importar Livros</h1>");
+
+        if (erro != null && !erro.trim().isEmpty()) {
+            html.append("<div class='error'>").append(escapeHtml(erro)).append("</div>");
+        }
+
+        html.append("<form method='post' action='/livros/import' enctype='multipart/form-data'>");
+        html.append("<div class='form-group'>");
+        html.append("<label for='arquivo'>Arquivo CSV (titulo,autor,isbn) ou JSON-lines, opcionalmente .gz:</label>");
+        html.append("<input type='file' id='arquivo' name='arquivo' required>");
+        html.append("</div>");
+        html.append("<div class='form-group'>");
+        html.append("<label for='formato'>Formato:</label>");
+        html.append("<select id='formato' name='formato'>");
+        html.append("<option value=''>Detectar pela extensão</option>");
+        html.append("<option value='csv'>CSV</option>");
+        html.append("<option value='jsonl'>JSON-lines</option>");
+        html.append("</select>");
+        html.append("</div>");
+        html.append("<div class='form-actions'>");
+        html.append("<button type='submit' class='btn'>Importar</button>");
+        html.append("<a href='/livros' class='btn btn-secondary'>Voltar</a>");
+        html.append("</div>");
+        html.append("</form>");
+
+        if (relatorio != null) {
+            html.append("<h2>Resultado</h2>");
+            html.append("<p><strong>Importados:</strong> ").append(relatorio.importados()).append("</p>");
+            html.append("<p><strong>Rejeitados:</strong> ").append(relatorio.totalRejeitados()).append("</p>");
+            if (!relatorio.rejeitados().isEmpty()) {
+                if (relatorio.rejeitados().size() < relatorio.totalRejeitados()) {
+                    html.append("<p>Exibindo as primeiras ").append(relatorio.rejeitados().size()).append(" rejeições.</p>");
+                }
+                html.append("<table class='table'>");
+                html.append("<tr><th>Linha</th><th>Motivo</th><th>Conteúdo</th></tr>");
+                for (RelatorioImportacao.Rejeicao rejeicao : relatorio.rejeitados()) {
+                    html.append("<tr>");
+                    html.append("<td>").append(rejeicao.linha()).append("</td>");
+                    html.append("<td>").append(escapeHtml(rejeicao.motivo())).append("</td>");
+                    html.append("<td>").append(escapeHtml(rejeicao.conteudo())).append("</td>");
+                    html.append("</tr>");
+                }
+                html.append("</table>");
+            }
+        }
+
+        html.append("</div>");
+        html.append(getFooter());
+        return html.toString();
+    }
+
     public static String renderBusca(String tipo, String termo, LivroService service) {
+        return renderBusca(tipo, termo, OrdemListagem.ID, service);
+    }
+
+    public static String renderBusca(String tipo, String termo, OrdemListagem ordem, LivroService service) {
         StringBuilder html = new StringBuilder();
         html.append(getHeader("Buscar Livros"));
         html.append("<div class='container'>");
@@ -175,6 +373,8 @@ public class LivroView {
         html.append("<option value=''>Selecione...</option>");
         html.append("<option value='titulo'").append("titulo".equals(tipo) ? " selected" : "").append(">Título</option>");
         html.append("<option value='autor'").append("autor".equals(tipo) ? " selected" : "").append(">Autor</option>");
+        html.append("<option value='autor-exato'").append("autor-exato".equals(tipo) ? " selected" : "").append(">Autor (nome exato)</option>");
+        html.append("<option value='autor-prefixo'").append("autor-prefixo".equals(tipo) ? " selected" : "").append(">Autor (começa com)</option>");
         html.append("<option value='id'").append("id".equals(tipo) ? " selected" : "").append(">ID</option>");
         html.append("</select>");
         html.append("</div>");
@@ -184,6 +384,15 @@ public class LivroView {
         html.append("<input type='text' id='termo' name='termo' value='").append(termo != null ? termo : "").append("' required>");
         html.append("</div>");
 
+        html.append("<div class='form-group'>");
+        html.append("<label for='ordenar'>Ordenar por:</label>");
+        html.append("<select id='ordenar' name='ordenar'>");
+        html.append("<option value='id'").append(ordem == OrdemListagem.ID ? " selected" : "").append(">ID</option>");
+        html.append("<option value='titulo'").append(ordem == OrdemListagem.TITULO ? " selected" : "").append(">Título</option>");
+        html.append("<option value='autor'").append(ordem == OrdemListagem.AUTOR ? " selected" : "").append(">Autor</option>");
+        html.append("</select>");
+        html.append("</div>");
+
         html.append("<div class='form-actions'>");
         html.append("<button type='submit' class='btn'>Buscar</button>");
         html.append("<a href='/livros' class='btn btn-secondary'>Voltar</a>");
@@ -193,9 +402,14 @@ public class LivroView {
         if (tipo != null && termo != null && !termo.trim().isEmpty()) {
             try {
                 List<Livro> resultados = switch (tipo) {
-                    case "titulo" -> service.buscarLivroPorTituloNoAcervo(termo);
-                    case "autor" -> service.buscarLivroPorAutorNoAcervo(termo);
-                    case "id" -> List.of(service.buscarLivroPorIDNoAcervo(Integer.parseInt(termo)));
+                    case "titulo" -> service.buscarLivroPorTituloNoAcervo(termo, ordem);
+                    case "autor" -> service.buscarLivroPorAutorNoAcervo(termo, ordem);
+                    case "autor-exato" -> LivroService.ordenarResultados(service.buscarLivroPorAutorExatoNoAcervo(termo), ordem);
+                    case "autor-prefixo" -> LivroService.ordenarResultados(service.buscarLivroPorPrefixoAutorNoAcervo(termo), ordem);
+                    case "id" -> {
+                        ResultadoOperacao consulta = service.consultarLivro(Integer.parseInt(termo));
+                        yield consulta.isOk() ? List.of(consulta.livro()) : List.of();
+                    }
                     default -> List.of();
                 };
 
@@ -205,7 +419,8 @@ public class LivroView {
                 } else {
                     html.append("<table class='table'>");
                     html.append("<tr><th>ID</th><th>Título</th><th>Autor</th><th>ISBN</th><th>Status</th></tr>");
-                    for (Livro livro : resultados) {
+                    for (Livro item : resultados) {
+                        Livro.Versao livro = item.versaoAtual();
                         html.append("<tr>");
                         html.append("<td>").append(livro.getId()).append("</td>");
                         html.append("<td>").append(livro.getTitulo()).append("</td>");
@@ -276,6 +491,27 @@ public class LivroView {
     }
 
 
+    //Links de anterior/próxima a partir dos cursores da página; base já termina em ? ou &
+    private static void renderPaginacao(StringBuilder html, String base, Pagina pagina, int tamanho) {
+        if (pagina.cursorAnterior() == null && pagina.cursorProximo() == null) {
+            return;
+        }
+        html.append("<div class='button-group'>");
+        if (pagina.cursorAnterior() != null) {
+            html.append("<a href='").append(escapeHtml(base)).append("antes=").append(codificarUrl(pagina.cursorAnterior()))
+                    .append("&tamanho=").append(tamanho).append("' class='btn btn-secondary'>Anterior</a>");
+        }
+        if (pagina.cursorProximo() != null) {
+            html.append("<a href='").append(escapeHtml(base)).append("apos=").append(codificarUrl(pagina.cursorProximo()))
+                    .append("&tamanho=").append(tamanho).append("' class='btn btn-secondary'>Próxima</a>");
+        }
+        html.append("</div>");
+    }
+
+    private static String codificarUrl(String valor) {
+        return URLEncoder.encode(valor, StandardCharsets.UTF_8);
+    }
+
     public static String escapeHtml(String input) {
         if (input == null) return "";
         return input.replace("&", "&amp;")
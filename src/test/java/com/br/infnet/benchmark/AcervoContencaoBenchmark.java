@@ -0,0 +1,73 @@
+package com.br.infnet.benchmark;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.service.LivroService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Benchmark de contenção: vazão de cadastros com 1 até N threads escritoras.
+//Executar com: mvn test -Dtest="com.br.infnet.benchmark.AcervoContencaoBenchmark"
+public class AcervoContencaoBenchmark {
+    private static final int CADASTROS_POR_THREAD = 20_000;
+    private static final int RODADAS_AQUECIMENTO = 2;
+
+    private final AtomicLong proximoIsbn = new AtomicLong(9_780_000_000_000L);
+
+    @Test
+    @DisplayName("Vazão de cadastro concorrente de 1 a N threads")
+    void vazaoCadastroPorNumeroDeThreads() throws Exception {
+        int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+        for (int i = 0; i < RODADAS_AQUECIMENTO; i++) {
+            medirVazao(maxThreads);
+        }
+
+        System.out.printf("%-10s %-15s%n", "Threads", "Cadastros/s");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            System.out.printf("%-10d %-15.0f%n", threads, medirVazao(threads));
+        }
+    }
+
+    //Cada thread escritora cadastra livros com ISBNs próprios e consulta o acervo entre cadastros
+    private double medirVazao(int threads) throws Exception {
+        LivroService service = new LivroService();
+        int livrosIniciais = service.listarLivrosDoAcervo().size();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < CADASTROS_POR_THREAD; i++) {
+                    String isbn = Long.toString(proximoIsbn.getAndIncrement());
+                    service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "Livro " + i, "Autor", isbn));
+                    assertTrue(service.existeISBN(isbn));
+                }
+                return null;
+            }));
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+        executor.shutdown();
+
+        int total = threads * CADASTROS_POR_THREAD;
+        assertEquals(livrosIniciais + total, service.listarLivrosDoAcervo().size());
+        return total / segundos;
+    }
+}
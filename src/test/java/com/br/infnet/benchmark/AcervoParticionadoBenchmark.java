@@ -0,0 +1,104 @@
+package com.br.infnet.benchmark;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.service.LivroService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Benchmark de escala: vazão de uma carga mista (cadastros, buscas por id, título e autor) com 1 a 32
+//threads, para o acervo único e particionado em 4 e 16.
+//Executar com: mvn test -Dtest="com.br.infnet.benchmark.AcervoParticionadoBenchmark"
+public class AcervoParticionadoBenchmark {
+    private static final int LIVROS_INICIAIS = 20_000;
+    private static final int OPERACOES_POR_THREAD = 4_000;
+    private static final int[] PARTICOES = {1, 4, 16};
+    private static final int MAX_THREADS = 32;
+    private static final String[] AUTORES = {"Machado de Assis", "Clarice Lispector", "Jorge Amado",
+            "Cecília Meireles", "Graciliano Ramos", "Rachel de Queiroz", "Érico Veríssimo", "Lygia Fagundes Telles"};
+
+    private final AtomicLong proximoIsbn = new AtomicLong(9_780_000_000_000L);
+
+    @Test
+    @DisplayName("Vazão da carga mista por partições e threads")
+    void vazaoPorParticoesEThreads() throws Exception {
+        //Aquecimento com a maior configuração
+        medirVazao(PARTICOES[PARTICOES.length - 1], MAX_THREADS);
+
+        System.out.printf("%-10s", "Threads");
+        for (int particoes : PARTICOES) {
+            System.out.printf("%-18s", particoes + " partição(ões)");
+        }
+        System.out.println();
+        for (int threads = 1; threads <= MAX_THREADS; threads *= 2) {
+            System.out.printf("%-10d", threads);
+            for (int particoes : PARTICOES) {
+                System.out.printf("%-18.0f", medirVazao(particoes, threads));
+            }
+            System.out.println();
+        }
+    }
+
+    //Uma a cada quatro operações é cadastro; as demais se dividem entre busca por id, título e autor
+    private double medirVazao(int particoes, int threads) throws Exception {
+        LivroService service = new LivroService(particoes);
+        int[] ids = new int[LIVROS_INICIAIS];
+        for (int i = 0; i < LIVROS_INICIAIS; i++) {
+            Livro livro = novoLivro(service, i);
+            service.cadastrarLivroNoAcervo(livro);
+            ids[i] = livro.getId();
+        }
+        int livrosIniciais = service.listarLivrosDoAcervo().size();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+                int cadastros = 0;
+                largada.await();
+                for (int i = 0; i < OPERACOES_POR_THREAD; i++) {
+                    switch (i & 3) {
+                        case 0 -> {
+                            service.cadastrarLivroNoAcervo(novoLivro(service, i));
+                            cadastros++;
+                        }
+                        case 1 -> service.buscarLivroPorIDNoAcervo(ids[aleatorio.nextInt(ids.length)]);
+                        case 2 -> service.buscarLivroPorTituloNoAcervo("volume " + aleatorio.nextInt(LIVROS_INICIAIS));
+                        default -> service.buscarLivroPorAutorNoAcervo(AUTORES[aleatorio.nextInt(AUTORES.length)]);
+                    }
+                }
+                return cadastros;
+            }));
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        int cadastros = 0;
+        for (Future<Integer> future : futures) {
+            cadastros += future.get();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+        executor.shutdown();
+
+        assertEquals(livrosIniciais + cadastros, service.listarLivrosDoAcervo().size());
+        service.fechar();
+        return threads * OPERACOES_POR_THREAD / segundos;
+    }
+
+    private Livro novoLivro(LivroService service, int i) {
+        return new Livro(service.gerarId(), "Volume " + i, AUTORES[i % AUTORES.length],
+                Long.toString(proximoIsbn.getAndIncrement()));
+    }
+}
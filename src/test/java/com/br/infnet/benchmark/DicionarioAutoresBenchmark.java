@@ -0,0 +1,79 @@
+package com.br.infnet.benchmark;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.utils.DicionarioAutores;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Heap dos autores antes e depois do dicionário, com os livros carregados como chegam de um CSV
+//ou snapshot (uma String de autor por livro), e tempo da busca exata: listas do dicionário x varredura.
+//Executar com: mvn test -Dtest="com.br.infnet.benchmark.DicionarioAutoresBenchmark"
+public class DicionarioAutoresBenchmark {
+    private static final int LIVROS = 500_000;
+    private static final int AUTORES = 10_000;
+    private static final int CONSULTAS = 200;
+
+    @Test
+    @DisplayName("Bytes por livro e tempo de busca exata com e sem dicionário de autores")
+    void compararHeapEBusca() {
+        SplittableRandom aleatorio = new SplittableRandom(7);
+        long heapInicial = heapUsado();
+        List<Livro> livros = new ArrayList<>(LIVROS);
+        for (int id = 1; id <= LIVROS; id++) {
+            //Poucos autores com muitos livros, como num acervo real
+            int autor = (int) (AUTORES * Math.pow(aleatorio.nextDouble(), 3));
+            livros.add(Livro.restaurar(id, "Título " + id, "Autor Exemplo Número " + autor,
+                    Long.toString(9_780_000_000_000L + id)));
+        }
+        long semDicionario = heapUsado() - heapInicial;
+
+        DicionarioAutores dicionario = new DicionarioAutores();
+        for (Livro livro : livros) {
+            dicionario.adicionar(livro);
+        }
+        long comDicionario = heapUsado() - heapInicial;
+
+        System.out.printf("Autores distintos: %d%n", dicionario.quantidadeAutores());
+        System.out.printf("Sem dicionário: %d bytes/livro%n", semDicionario / LIVROS);
+        System.out.printf("Com dicionário: %d bytes/livro (listas incluídas)%n", comDicionario / LIVROS);
+        assertTrue(comDicionario < semDicionario);
+
+        String chave = livros.get(0).getChaveBuscaAutor();
+        long inicio = System.nanoTime();
+        int encontradosDicionario = 0;
+        for (int i = 0; i < CONSULTAS; i++) {
+            encontradosDicionario = dicionario.livrosDoAutor(chave).length;
+        }
+        long tempoDicionario = (System.nanoTime() - inicio) / CONSULTAS;
+
+        inicio = System.nanoTime();
+        int encontradosVarredura = 0;
+        for (int i = 0; i < CONSULTAS; i++) {
+            encontradosVarredura = 0;
+            for (Livro livro : livros) {
+                if (livro.getChaveBuscaAutor().equals(chave)) {
+                    encontradosVarredura++;
+                }
+            }
+        }
+        long tempoVarredura = (System.nanoTime() - inicio) / CONSULTAS;
+
+        assertEquals(encontradosVarredura, encontradosDicionario);
+        System.out.printf("Busca exata (%d livros): dicionário %d ns, varredura %d ns%n",
+                encontradosDicionario, tempoDicionario, tempoVarredura);
+    }
+
+    private static long heapUsado() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,72 @@
+package com.br.infnet.benchmark;
+
+import com.br.infnet.security.SecurityConfig;
+import com.br.infnet.security.TextSanitizer;
+import com.br.infnet.service.SanitizadorRegexReferencia;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Benchmark de latência com entradas montadas para forçar backtracking nas regex anteriores: aberturas de
+//<script> sem fechamento, comentários /* sem fim e UPDATE ... sem SET que só aparece depois da remoção de
+//controles. Mede sanitização mais detecção por entrada, sem o teto de SecurityConfig, para mostrar o
+//crescimento de cada lado; com o teto, nenhum campo passa de MAX_CARACTERES_ENTRADA.
+//Executar com: mvn test -Dtest="com.br.infnet.benchmark.EntradaAdversarialBenchmark"
+public class EntradaAdversarialBenchmark {
+    private static final int[] TAMANHOS = {SecurityConfig.MAX_CARACTERES_ENTRADA, 4_096, 16_384, 65_536};
+    private static final String[] PEDACOS = {"<script>", "< script x", "/*", "upd\u0001ate x ", "javascript "};
+    private static final int REPETICOES = 5;
+
+    @Test
+    @DisplayName("Latência por entrada hostil: regex anteriores x varredura e autômato")
+    void latenciaComEntradasHostis() {
+        //Aquecimento dos dois caminhos no tamanho do teto
+        for (String pedaco : PEDACOS) {
+            String entrada = montar(pedaco, SecurityConfig.MAX_CARACTERES_ENTRADA);
+            for (int i = 0; i < 50; i++) {
+                comRegex(entrada);
+                atual(entrada);
+            }
+        }
+
+        System.out.printf("%-16s%-10s%-16s%-16s%-12s%n", "Entrada", "Tamanho", "Regex (ms)", "Atual (ms)", "Atual ns/car");
+        for (String pedaco : PEDACOS) {
+            for (int tamanho : TAMANHOS) {
+                String entrada = montar(pedaco, tamanho);
+                assertEquals(SanitizadorRegexReferencia.sanitizarEntrada(entrada), TextSanitizer.sanitizarEntrada(entrada));
+                assertEquals(SanitizadorRegexReferencia.contemConteudoMalicioso(entrada),
+                        TextSanitizer.contemConteudoMalicioso(entrada));
+
+                long inicio = System.nanoTime();
+                comRegex(entrada);
+                double regex = (System.nanoTime() - inicio) / 1_000_000.0;
+
+                //Melhor de algumas execuções: o lado linear é rápido o bastante para o ruído pesar
+                long melhor = Long.MAX_VALUE;
+                for (int i = 0; i < REPETICOES; i++) {
+                    inicio = System.nanoTime();
+                    atual(entrada);
+                    melhor = Math.min(melhor, System.nanoTime() - inicio);
+                }
+
+                System.out.printf("%-16s%-10d%-16.3f%-16.3f%-12d%n", pedaco.replace("\u0001", "\\u0001").strip(),
+                        entrada.length(), regex, melhor / 1_000_000.0, melhor / entrada.length());
+            }
+        }
+    }
+
+    private static String montar(String pedaco, int tamanho) {
+        return pedaco.repeat(tamanho / pedaco.length());
+    }
+
+    private static void comRegex(String entrada) {
+        SanitizadorRegexReferencia.sanitizarEntrada(entrada);
+        SanitizadorRegexReferencia.contemConteudoMalicioso(entrada);
+    }
+
+    private static void atual(String entrada) {
+        TextSanitizer.sanitizarEntrada(entrada);
+        TextSanitizer.contemConteudoMalicioso(entrada);
+    }
+}
@@ -0,0 +1,84 @@
+package com.br.infnet.benchmark;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.persistence.PersistenciaAcervo;
+import com.br.infnet.service.LivroService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Benchmark do journal: vazão de cadastros duráveis (cada um espera o fsync) com 1 até N threads
+//e tempo de recuperação do acervo a partir do journal.
+//Executar com: mvn test -Dtest="com.br.infnet.benchmark.JournalBenchmark"
+public class JournalBenchmark {
+    private static final int CADASTROS_POR_THREAD = 2_000;
+
+    private final AtomicLong proximoIsbn = new AtomicLong(9_780_000_000_000L);
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Vazão de cadastros duráveis e tempo de replay do journal")
+    void vazaoEReplay() throws Exception {
+        int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+
+        //Com group commit, a vazão deve crescer com as threads mesmo com um fsync por confirmação
+        System.out.printf("%-10s %-15s%n", "Threads", "Cadastros/s");
+        Path ultimoDiretorio = null;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ultimoDiretorio = Files.createDirectory(diretorio.resolve("rodada-" + threads));
+            System.out.printf("%-10d %-15.0f%n", threads, medirVazao(ultimoDiretorio, threads));
+        }
+
+        long inicio = System.nanoTime();
+        PersistenciaAcervo.Estado estado = PersistenciaAcervo.recuperar(ultimoDiretorio);
+        double milissegundos = (System.nanoTime() - inicio) / 1_000_000.0;
+        System.out.printf("Replay de %d registros: %.1f ms%n", estado.ultimaSequencia(), milissegundos);
+        assertFalse(estado.vazio());
+    }
+
+    private double medirVazao(Path dados, int threads) throws Exception {
+        LivroService service = new LivroService(dados);
+        int livrosIniciais = service.listarLivrosDoAcervo().size();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < CADASTROS_POR_THREAD; i++) {
+                    String isbn = Long.toString(proximoIsbn.getAndIncrement());
+                    service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "Livro " + i, "Autor", isbn));
+                }
+                return null;
+            }));
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+        executor.shutdown();
+
+        int total = threads * CADASTROS_POR_THREAD;
+        assertEquals(livrosIniciais + total, service.listarLivrosDoAcervo().size());
+        //Sem fechar: o replay medido depois parte do journal, não do snapshot final
+        return total / segundos;
+    }
+}
@@ -0,0 +1,105 @@
+package com.br.infnet.benchmark;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.utils.MapaIntLivro;
+import com.br.infnet.utils.MapaIntLivroConcorrente;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Compara o mapa primitivo do acervo com HashMap e ConcurrentHashMap<Integer, Livro>:
+//tempo de get por id aleatório e heap ocupado só pela estrutura (todos os valores apontam
+//para o mesmo Livro, então o que sobra é custo de nós, Integers e tabela).
+//Executar com: mvn test -Dtest="com.br.infnet.benchmark.MapaIntLivroBenchmark" -DargLine="-Xmx3g"
+public class MapaIntLivroBenchmark {
+    private static final int[] TAMANHOS = {100_000, 1_000_000, 10_000_000};
+    private static final int CONSULTAS = 5_000_000;
+    private static final int RODADAS = 5;
+
+    private interface Mapa {
+        void put(int chave, Livro livro);
+
+        Livro get(int chave);
+    }
+
+    @Test
+    @DisplayName("Tempo de get e bytes por entrada: HashMap x ConcurrentHashMap x MapaIntLivro")
+    void compararMapas() {
+        Livro livro = Livro.restaurar(1, "Livro", "Autor", "9780000000001");
+        System.out.printf("%-12s %-26s %-12s %-14s%n", "Entradas", "Mapa", "ns/get", "bytes/entrada");
+        for (int tamanho : TAMANHOS) {
+            medir(tamanho, "HashMap", livro, n -> {
+                HashMap<Integer, Livro> mapa = new HashMap<>();
+                return new Mapa() {
+                    public void put(int chave, Livro valor) { mapa.put(chave, valor); }
+                    public Livro get(int chave) { return mapa.get(chave); }
+                };
+            });
+            medir(tamanho, "ConcurrentHashMap", livro, n -> {
+                ConcurrentHashMap<Integer, Livro> mapa = new ConcurrentHashMap<>();
+                return new Mapa() {
+                    public void put(int chave, Livro valor) { mapa.put(chave, valor); }
+                    public Livro get(int chave) { return mapa.get(chave); }
+                };
+            });
+            medir(tamanho, "MapaIntLivro", livro, n -> {
+                MapaIntLivro mapa = new MapaIntLivro();
+                return new Mapa() {
+                    public void put(int chave, Livro valor) { mapa.put(chave, valor); }
+                    public Livro get(int chave) { return mapa.get(chave); }
+                };
+            });
+            medir(tamanho, "MapaIntLivroConcorrente", livro, n -> {
+                MapaIntLivroConcorrente mapa = new MapaIntLivroConcorrente();
+                return new Mapa() {
+                    public void put(int chave, Livro valor) { mapa.put(chave, valor); }
+                    public Livro get(int chave) { return mapa.get(chave); }
+                };
+            });
+        }
+    }
+
+    private static void medir(int tamanho, String nome, Livro livro, IntFunction<Mapa> fabrica) {
+        long heapAntes = heapUsado();
+        Mapa mapa = fabrica.apply(tamanho);
+        //Ids sequenciais a partir de 1, como os gerados pelo LivroService
+        for (int id = 1; id <= tamanho; id++) {
+            mapa.put(id, livro);
+        }
+        long bytesPorEntrada = (heapUsado() - heapAntes) / tamanho;
+
+        int[] consultas = new int[CONSULTAS];
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        for (int i = 0; i < CONSULTAS; i++) {
+            consultas[i] = 1 + aleatorio.nextInt(tamanho);
+        }
+
+        long melhor = Long.MAX_VALUE;
+        for (int rodada = 0; rodada < RODADAS; rodada++) {
+            long inicio = System.nanoTime();
+            int encontrados = 0;
+            for (int id : consultas) {
+                if (mapa.get(id) != null) {
+                    encontrados++;
+                }
+            }
+            melhor = Math.min(melhor, System.nanoTime() - inicio);
+            assertEquals(CONSULTAS, encontrados);
+        }
+        System.out.printf("%-12d %-26s %-12.1f %-14d%n", tamanho, nome, melhor / (double) CONSULTAS, bytesPorEntrada);
+    }
+
+    private static long heapUsado() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,76 @@
+package com.br.infnet.benchmark;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.service.LivroService;
+import com.br.infnet.service.RelatorioMultas;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Benchmark das multas de todos os empréstimos ativos: o laço atual de calcularMulta livro a livro
+//contra o relatório em lote sobre dias em epoch e centavos.
+//Executar com: mvn test -Dtest="com.br.infnet.benchmark.MotorMultasBenchmark"
+public class MotorMultasBenchmark {
+    private static final int[] EMPRESTIMOS = {1_000, 10_000, 100_000};
+    private static final int REPETICOES = 20;
+    private static final String[] AUTORES = {"Machado de Assis", "Clarice Lispector", "Jorge Amado",
+            "Cecília Meireles", "Graciliano Ramos", "Rachel de Queiroz"};
+
+    @Test
+    @DisplayName("Multas por livro vs relatório em lote")
+    void multasPorLivroVsLote() {
+        System.out.printf("%-14s%-22s%-22s%-10s%n", "Empréstimos", "Por livro (ms)", "Em lote (ms)", "Ganho");
+        for (int quantidade : EMPRESTIMOS) {
+            LivroService service = acervoComEmprestimos(quantidade);
+            LocalDate hoje = LocalDate.now();
+
+            //Aquecimento dos dois caminhos
+            long esperado = totalPorLivro(service);
+            assertEquals(esperado, service.relatorioDeMultas(hoje).getTotalCentavos());
+
+            long inicio = System.nanoTime();
+            for (int i = 0; i < REPETICOES; i++) {
+                assertEquals(esperado, totalPorLivro(service));
+            }
+            double porLivro = (System.nanoTime() - inicio) / 1_000_000.0 / REPETICOES;
+
+            inicio = System.nanoTime();
+            for (int i = 0; i < REPETICOES; i++) {
+                RelatorioMultas relatorio = service.relatorioDeMultas(hoje);
+                assertEquals(esperado, relatorio.getTotalCentavos());
+            }
+            double emLote = (System.nanoTime() - inicio) / 1_000_000.0 / REPETICOES;
+
+            System.out.printf("%-14d%-22.2f%-22.2f%.1fx%n", quantidade, porLivro, emLote, porLivro / emLote);
+            service.fechar();
+        }
+    }
+
+    //Caminho de antes: uma busca e um cálculo por empréstimo listado
+    private static long totalPorLivro(LivroService service) {
+        long total = 0;
+        for (Livro livro : service.listarLivrosEmEmprestimo()) {
+            total += Math.round(service.calcularMulta(livro.getId()) * 100);
+        }
+        return total;
+    }
+
+    //Empréstimos feitos entre hoje e 120 dias atrás: pouco mais de 90% deles com multa
+    private static LivroService acervoComEmprestimos(int quantidade) {
+        LivroService service = new LivroService();
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        LocalDate hoje = LocalDate.now();
+        for (int i = 0; i < quantidade; i++) {
+            Livro livro = new Livro(service.gerarId(), "Volume " + i, AUTORES[i % AUTORES.length],
+                    Long.toString(9_780_000_000_000L + i));
+            service.cadastrarLivroNoAcervo(livro);
+            service.emprestarLivro(livro.getId(), 14);
+            livro.setDataEmprestimo(hoje.minusDays(aleatorio.nextInt(121)));
+        }
+        return service;
+    }
+}
@@ -0,0 +1,72 @@
+package com.br.infnet.benchmark;
+
+import com.br.infnet.model.Livro;
+import com.br.infnet.persistence.SnapshotAcervo;
+import com.br.infnet.service.LivroService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Benchmark de subida: leitura de um snapshot com um milhão de livros por mmap, separando o tempo de leitura
+//do arquivo do tempo de montar o acervo com seus índices, e a subida completa comparada com a meta de 1 s.
+//A subida medida é a de um snapshot gravado pelo próprio serviço, que traz a ordem alfabética pronta.
+//A montagem dos índices é paralela, então a meta vale para NUCLEOS_REFERENCIA núcleos e cresce na
+//proporção com menos deles.
+//Executar com: mvn test -Dtest="com.br.infnet.benchmark.SnapshotCargaBenchmark" -DargLine=-Xmx4g
+public class SnapshotCargaBenchmark {
+    private static final int TOTAL_LIVROS = 1_000_000;
+    private static final int RODADAS = 5;
+    private static final long META_SUBIDA_MS = 1_000;
+    private static final int NUCLEOS_REFERENCIA = 8;
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Carga de um milhão de livros a partir do snapshot")
+    void cargaDeUmMilhaoDeLivros() throws Exception {
+        List<Livro.Versao> livros = new ArrayList<>(TOTAL_LIVROS);
+        for (int i = 1; i <= TOTAL_LIVROS; i++) {
+            livros.add(Livro.restaurar(i, "Título do livro " + i, "Autor " + (i % 5_000),
+                    String.format("978%010d", i)).versaoAtual());
+        }
+        Path arquivo = SnapshotAcervo.gravar(diretorio, 0, TOTAL_LIVROS + 1, livros);
+        System.out.printf("Snapshot: %.1f MB%n", Files.size(arquivo) / (1024.0 * 1024.0));
+        livros = null;
+
+        long melhor = Long.MAX_VALUE;
+        for (int i = 0; i < RODADAS; i++) {
+            long inicio = System.nanoTime();
+            SnapshotAcervo.Conteudo conteudo = SnapshotAcervo.carregar(arquivo);
+            melhor = Math.min(melhor, System.nanoTime() - inicio);
+            assertEquals(TOTAL_LIVROS, conteudo.livros().size());
+        }
+        System.out.printf("Leitura do snapshot (melhor de %d): %d ms%n", RODADAS, melhor / 1_000_000);
+
+        //Primeira subida a partir do snapshot gerado acima, sem a ordem alfabética: calcula as chaves de
+        //ordenação de todos os livros. O snapshot final de fechar() já sai com a ordem
+        new LivroService(diretorio).fechar();
+        assertNotNull(SnapshotAcervo.carregarMaisRecente(diretorio).ordem());
+        //O lixo da primeira subida não entra na conta da segunda
+        System.gc();
+
+        //Subida completa: leitura do snapshot mais a carga do acervo com os índices de ISBN, ordem e busca
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        long meta = Math.max(META_SUBIDA_MS, META_SUBIDA_MS * NUCLEOS_REFERENCIA / nucleos);
+        long inicio = System.nanoTime();
+        LivroService service = new LivroService(diretorio);
+        long subida = (System.nanoTime() - inicio) / 1_000_000;
+        System.out.printf("Subida do LivroService com índices: %d ms (meta %d ms para %d núcleos; leitura %d ms, índices %d ms)%n",
+                subida, meta, nucleos, melhor / 1_000_000, subida - melhor / 1_000_000);
+        assertEquals(TOTAL_LIVROS, service.listarLivrosDoAcervo().size());
+        service.fechar();
+        assertTrue(subida <= meta, "Subida de " + subida + " ms acima da meta de " + meta + " ms");
+    }
+}
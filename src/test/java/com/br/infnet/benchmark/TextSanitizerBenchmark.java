@@ -0,0 +1,109 @@
+package com.br.infnet.benchmark;
+
+import com.br.infnet.security.TextSanitizer;
+import com.br.infnet.service.SanitizadorRegexReferencia;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Benchmark de TextSanitizer contra as regex anteriores (SanitizadorRegexReferencia), com títulos comuns e
+//com entradas hostis: sanitizarEntrada pela varredura por caracteres e contemConteudoMalicioso pelo
+//autômato de assinaturas.
+//Executar com: mvn test -Dtest="com.br.infnet.benchmark.TextSanitizerBenchmark"
+public class TextSanitizerBenchmark {
+    private static final int ENTRADAS = 20_000;
+    private static final int RODADAS = 5;
+
+    private static final String[] TITULOS = {"Dom Casmurro", "Memórias Póstumas de Brás Cubas",
+            "A Hora da Estrela", "Vidas Secas", "O Quinze", "Grande Sertão: Veredas", "Capitães da Areia"};
+    private static final String[] HOSTIS = {"'; DROP TABLE livros; --", "' OR '1'='1",
+            "<script>alert('xss')</script>Título", "javascript:alert(1)", "../../../etc/passwd",
+            "UNION SELECT * FROM users", "UPDATE livros SET titulo = 'x' WHERE 1=1",
+            "Título /* comentário */ com\tcontrole\u0000", "<img src=x onerror=alert(1)>"};
+
+    @Test
+    @DisplayName("Tempo e alocação por entrada: cadeia de regex x varredura")
+    void compararSanitizadores() {
+        String[] comuns = montar(TITULOS);
+        String[] hostis = montar(HOSTIS);
+        for (int i = 0; i < ENTRADAS; i++) {
+            assertEquals(SanitizadorRegexReferencia.sanitizarEntrada(hostis[i]), TextSanitizer.sanitizarEntrada(hostis[i]));
+        }
+
+        System.out.printf("%-30s %-12s %-12s%n", "Sanitizador", "ns/entrada", "bytes/entrada");
+        for (int rodada = 0; rodada < RODADAS; rodada++) {
+            boolean ultima = rodada == RODADAS - 1;
+            medir("regex (comuns)", ultima, comuns, SanitizadorRegexReferencia::sanitizarEntrada);
+            medir("varredura (comuns)", ultima, comuns, TextSanitizer::sanitizarEntrada);
+            medir("regex (hostis)", ultima, hostis, SanitizadorRegexReferencia::sanitizarEntrada);
+            medir("varredura (hostis)", ultima, hostis, TextSanitizer::sanitizarEntrada);
+        }
+    }
+
+    @Test
+    @DisplayName("Tempo por entrada: regex de contemConteudoMalicioso x autômato de assinaturas")
+    void compararDeteccao() {
+        String[] comuns = montar(TITULOS);
+        String[] hostis = montar(HOSTIS);
+
+        System.out.printf("%-30s %-12s %-12s%n", "Detector", "ns/entrada", "bytes/entrada");
+        for (int rodada = 0; rodada < RODADAS; rodada++) {
+            boolean ultima = rodada == RODADAS - 1;
+            medirDeteccao("regex (comuns)", ultima, comuns, 0, SanitizadorRegexReferencia::contemConteudoMalicioso);
+            medirDeteccao("autômato (comuns)", ultima, comuns, 0, TextSanitizer::contemConteudoMalicioso);
+            medirDeteccao("regex (hostis)", ultima, hostis, ENTRADAS, SanitizadorRegexReferencia::contemConteudoMalicioso);
+            medirDeteccao("autômato (hostis)", ultima, hostis, ENTRADAS, TextSanitizer::contemConteudoMalicioso);
+        }
+    }
+
+    //Cópias distintas para não medir só o mesmo String quente no cache
+    private static String[] montar(String[] base) {
+        String[] entradas = new String[ENTRADAS];
+        for (int i = 0; i < ENTRADAS; i++) {
+            entradas[i] = new String(base[i % base.length].toCharArray());
+        }
+        return entradas;
+    }
+
+    private static void medir(String nome, boolean imprimir, String[] entradas, UnaryOperator<String> sanitizador) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long alocadoAntes = threads.getCurrentThreadAllocatedBytes();
+        long inicio = System.nanoTime();
+        long caracteres = 0;
+        for (String entrada : entradas) {
+            caracteres += sanitizador.apply(entrada).length();
+        }
+        long tempo = System.nanoTime() - inicio;
+        long alocado = threads.getCurrentThreadAllocatedBytes() - alocadoAntes;
+
+        assertTrue(caracteres > 0);
+        if (imprimir) {
+            System.out.printf("%-30s %-12d %-12d%n", nome, tempo / entradas.length, alocado / entradas.length);
+        }
+    }
+
+    private static void medirDeteccao(String nome, boolean imprimir, String[] entradas, int maliciosasEsperadas,
+                                      Predicate<String> detector) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long alocadoAntes = threads.getCurrentThreadAllocatedBytes();
+        long inicio = System.nanoTime();
+        int maliciosas = 0;
+        for (String entrada : entradas) {
+            if (detector.test(entrada)) {
+                maliciosas++;
+            }
+        }
+        long tempo = System.nanoTime() - inicio;
+        long alocado = threads.getCurrentThreadAllocatedBytes() - alocadoAntes;
+
+        assertEquals(maliciosasEsperadas, maliciosas);
+        if (imprimir) {
+            System.out.printf("%-30s %-12d %-12d%n", nome, tempo / entradas.length, alocado / entradas.length);
+        }
+    }
+}
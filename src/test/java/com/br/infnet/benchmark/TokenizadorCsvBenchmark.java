@@ -0,0 +1,114 @@
+package com.br.infnet.benchmark;
+
+import com.br.infnet.utils.TokenizadorCsv;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Benchmark do tokenizador de CSV contra o parser linha a linha que ele substituiu
+//(copiado abaixo como referência). Mede só a interpretação, sem sanitização nem validação.
+//Executar com: mvn test -Dtest="com.br.infnet.benchmark.TokenizadorCsvBenchmark"
+public class TokenizadorCsvBenchmark {
+    private static final int LINHAS = 500_000;
+    private static final int RODADAS = 5;
+
+    @Test
+    @DisplayName("Tempo e alocação por linha: parser antigo x tokenizador")
+    void compararParsers() throws Exception {
+        StringBuilder csv = new StringBuilder(LINHAS * 60);
+        for (int i = 0; i < LINHAS; i++) {
+            csv.append("\"Título do livro ").append(i).append("\",\"Autor ").append(i % 5_000)
+                    .append("\",\"").append(9_780_000_000_000L + i).append("\"\n");
+        }
+        String conteudo = csv.toString();
+
+        System.out.printf("%-25s %-12s %-12s%n", "Parser", "ns/linha", "bytes/linha");
+        for (int rodada = 0; rodada < RODADAS; rodada++) {
+            boolean ultima = rodada == RODADAS - 1;
+            medir("parseCsvLine (antigo)", ultima, () -> contarComParserAntigo(new StringReader(conteudo)));
+            medir("TokenizadorCsv", ultima, () -> contarComTokenizador(new StringReader(conteudo)));
+        }
+    }
+
+    private interface Execucao {
+        long executar() throws IOException;
+    }
+
+    private static void medir(String nome, boolean imprimir, Execucao execucao) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long alocadoAntes = threads.getCurrentThreadAllocatedBytes();
+        long inicio = System.nanoTime();
+        long campos = execucao.executar();
+        long tempo = System.nanoTime() - inicio;
+        long alocado = threads.getCurrentThreadAllocatedBytes() - alocadoAntes;
+
+        assertEquals(3L * LINHAS, campos);
+        if (imprimir) {
+            System.out.printf("%-25s %-12d %-12d%n", nome, tempo / LINHAS, alocado / LINHAS);
+        }
+    }
+
+    private static long contarComParserAntigo(Reader entrada) throws IOException {
+        long campos = 0;
+        try (BufferedReader reader = new BufferedReader(entrada)) {
+            String linha;
+            while ((linha = reader.readLine()) != null) {
+                for (String campo : parseCsvLine(linha)) {
+                    campo.replace("\"", "").trim();
+                    campos++;
+                }
+            }
+        }
+        return campos;
+    }
+
+    private static long contarComTokenizador(Reader entrada) throws IOException {
+        long[] campos = new long[1];
+        new TokenizadorCsv(entrada).tokenizar(new TokenizadorCsv.Receptor() {
+            @Override
+            public void campo(int indice, char[] dados, int inicio, int tamanho) {
+                campos[0]++;
+            }
+
+            @Override
+            public void fimDoRegistro(int linha, int totalCampos) {
+            }
+
+            @Override
+            public void registroMalformado(int linha, String motivo) {
+                fail("Linha " + linha + " malformada: " + motivo);
+            }
+        });
+        return campos[0];
+    }
+
+    //Implementação anterior de LivroService.parseCsvLine
+    private static String[] parseCsvLine(String linha) {
+        List<String> campos = new ArrayList<>();
+        boolean dentroAspas = false;
+        StringBuilder campoAtual = new StringBuilder();
+
+        for (char c : linha.toCharArray()) {
+            if (c == '"') {
+                dentroAspas = !dentroAspas;
+            } else if (c == ',' && !dentroAspas) {
+                campos.add(campoAtual.toString());
+                campoAtual = new StringBuilder();
+            } else {
+                campoAtual.append(c);
+            }
+        }
+        campos.add(campoAtual.toString());
+
+        return campos.toArray(new String[0]);
+    }
+}
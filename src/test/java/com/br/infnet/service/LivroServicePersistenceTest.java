@@ -0,0 +1,218 @@
+package com.br.infnet.service;
+
+import com.br.infnet.model.Livro;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LivroServicePersistenceTest {
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Reabrir o acervo recupera cadastros, alterações e empréstimos do journal")
+    void recuperaJournalAposQueda() {
+        int id;
+        LivroService service = new LivroService(diretorio);
+        try {
+            id = service.gerarId();
+            service.cadastrarLivroNoAcervo(new Livro(id, "Livro Persistido", "Autor Persistido", "9781111111111"));
+            service.atualizarLivroDoAcervo(2, "Titulo Alterado", "Autor Alterado", "9782222222222");
+            service.removerLivroDoAcervo(3);
+            service.emprestarLivro(id, 7);
+        } finally {
+            //Queda logo após as operações confirmadas: só o journal, sem o snapshot final
+            service.fecharSemSnapshot();
+        }
+
+        LivroService recuperado = new LivroService(diretorio);
+        try {
+            Livro livro = recuperado.buscarLivroPorIDNoAcervo(id);
+            assertEquals("Livro Persistido", livro.getTitulo());
+            assertFalse(livro.isDisponivel());
+            assertEquals(7, livro.getPrazoDevolucao());
+            assertEquals(1, recuperado.listarLivrosEmEmprestimo().size());
+            assertEquals("Titulo Alterado", recuperado.buscarLivroPorIDNoAcervo(2).getTitulo());
+            assertNotNull(recuperado.buscarLivroPorISBN("9782222222222"));
+            assertThrows(NoSuchElementException.class, () -> recuperado.buscarLivroPorIDNoAcervo(3));
+            assertTrue(recuperado.gerarId() > id);
+        } finally {
+            recuperado.fechar();
+        }
+    }
+
+    @Test
+    @DisplayName("Snapshot mais o restante do journal reconstroem o mesmo acervo")
+    void recuperaSnapshotMaisJournal() throws MultaPendenteException {
+        LivroService service = new LivroService(diretorio);
+        try {
+            service.emprestarLivro(1, 5);
+        } finally {
+            service.fechar();
+        }
+
+        int id;
+        LivroService reaberto = new LivroService(diretorio);
+        try {
+            reaberto.devolverLivro(1);
+            id = reaberto.gerarId();
+            reaberto.cadastrarLivroNoAcervo(new Livro(id, "Depois do Snapshot", "Autor", "9783333333333"));
+        } finally {
+            reaberto.fecharSemSnapshot();
+        }
+
+        LivroService recuperado = new LivroService(diretorio);
+        try {
+            assertTrue(recuperado.buscarLivroPorIDNoAcervo(1).isDisponivel());
+            assertTrue(recuperado.listarLivrosEmEmprestimo().isEmpty());
+            assertEquals("Depois do Snapshot", recuperado.buscarLivroPorIDNoAcervo(id).getTitulo());
+            assertEquals(4, recuperado.listarLivrosDoAcervo().size());
+        } finally {
+            recuperado.fechar();
+        }
+    }
+
+    @Test
+    @DisplayName("Registro pela metade no fim do journal é descartado e o restante recuperado")
+    void descartaEscritaInterrompidaNoFim() throws IOException {
+        int id = cadastrarSemSnapshot("Antes da Queda", "9784444444444");
+        try (FileChannel canal = FileChannel.open(ultimoSegmento(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            //Cabeçalho de um registro de 40 bytes seguido só de parte do conteúdo
+            canal.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 5, 6}));
+        }
+
+        int outro;
+        LivroService recuperado = new LivroService(diretorio);
+        try {
+            assertEquals("Antes da Queda", recuperado.buscarLivroPorIDNoAcervo(id).getTitulo());
+            outro = recuperado.gerarId();
+            recuperado.cadastrarLivroNoAcervo(new Livro(outro, "Depois da Queda", "Autor", "9785555555555"));
+        } finally {
+            recuperado.fecharSemSnapshot();
+        }
+
+        //Os registros novos ficam depois do ponto do corte, e não escondidos atrás do pedaço descartado
+        LivroService reaberto = new LivroService(diretorio);
+        try {
+            assertEquals("Depois da Queda", reaberto.buscarLivroPorIDNoAcervo(outro).getTitulo());
+        } finally {
+            reaberto.fechar();
+        }
+    }
+
+    @Test
+    @DisplayName("CRC errado antes do fim do journal falha a recuperação em vez de perder registros")
+    void corrupcaoNoMeioFalhaRecuperacao() throws IOException {
+        cadastrarSemSnapshot("Primeiro", "9786666666666");
+        Path segmento = ultimoSegmento();
+        byte[] conteudo = Files.readAllBytes(segmento);
+        //Um bit trocado no conteúdo do primeiro registro do segmento, com outros registros depois dele
+        conteudo[12] ^= 1;
+        Files.write(segmento, conteudo);
+
+        assertThrows(UncheckedIOException.class, () -> new LivroService(diretorio));
+        //Nada foi cortado: o segmento continua com todos os bytes
+        assertEquals(conteudo.length, Files.size(segmento));
+    }
+
+    @Test
+    @DisplayName("Segmento faltando no meio do journal falha a recuperação")
+    void saltoNaSequenciaFalhaRecuperacao() throws IOException {
+        cadastrarSemSnapshot("Primeiro", "9786666666666");
+        cadastrarSemSnapshot("Segundo", "9787777777777");
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            Files.delete(arquivos.filter(p -> p.getFileName().toString().startsWith("journal-")).sorted().findFirst()
+                    .orElseThrow());
+        }
+
+        assertThrows(UncheckedIOException.class, () -> new LivroService(diretorio));
+    }
+
+    @Test
+    @DisplayName("Só uma instância por diretório de dados")
+    void diretorioTravadoParaOutraInstancia() {
+        LivroService service = new LivroService(diretorio);
+        try {
+            assertThrows(IllegalStateException.class, () -> new LivroService(diretorio));
+        } finally {
+            service.fechar();
+        }
+        new LivroService(diretorio).fechar();
+    }
+
+    @Test
+    @DisplayName("Ordem alfabética gravada no snapshot continua certa com alterações do journal")
+    void ordemAlfabeticaDoSnapshotMaisJournal() {
+        for (int particoes : new int[]{1, 3}) {
+            Path dados = diretorio.resolve("particoes-" + particoes);
+            LivroService service = new LivroService(dados, particoes);
+            try {
+                service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "Éden", "Álvares", "9784444444444"));
+                service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "abacaxi", "Zélia", "9785555555555"));
+                service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "Zebra", "ana", "9786666666666"));
+            } finally {
+                //Snapshot final já com a ordem de título e autor
+                service.fechar();
+            }
+
+            LivroService reaberto = new LivroService(dados, particoes);
+            try {
+                Livro zebra = reaberto.buscarLivroPorISBN("9786666666666");
+                reaberto.atualizarLivroDoAcervo(zebra.getId(), "Árvore", "Ênio", "9786666666666");
+                reaberto.cadastrarLivroNoAcervo(new Livro(reaberto.gerarId(), "Baleia", "Bruno", "9787777777777"));
+                reaberto.removerLivroDoAcervo(1);
+            } finally {
+                reaberto.fecharSemSnapshot();
+            }
+
+            //Recuperado do snapshot com a ordem mais o journal, e de novo do snapshot gravado por ele
+            for (int rodada = 0; rodada < 2; rodada++) {
+                LivroService recuperado = new LivroService(dados, particoes);
+                try {
+                    for (OrdemListagem ordem : new OrdemListagem[]{OrdemListagem.TITULO, OrdemListagem.AUTOR}) {
+                        List<Integer> esperado = LivroService.ordenarResultados(recuperado.listarLivrosDoAcervo(), ordem)
+                                .stream().map(Livro::getId).toList();
+                        List<Integer> listado = recuperado.listarLivrosDoAcervo(ordem, null, null, null, null, 500)
+                                .livros().stream().map(Livro::getId).toList();
+                        assertEquals(esperado, listado, ordem + " com " + particoes + " partições");
+                    }
+                } finally {
+                    recuperado.fechar();
+                }
+            }
+        }
+    }
+
+    //Cadastra um livro e faz um empréstimo, fechando sem snapshot: o journal fica com os dois registros
+    private int cadastrarSemSnapshot(String titulo, String isbn) {
+        LivroService service = new LivroService(diretorio);
+        try {
+            int id = service.gerarId();
+            service.cadastrarLivroNoAcervo(new Livro(id, titulo, "Autor", isbn));
+            service.emprestarLivro(id, 3);
+            return id;
+        } finally {
+            service.fecharSemSnapshot();
+        }
+    }
+
+    private Path ultimoSegmento() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            List<Path> segmentos = arquivos.filter(p -> p.getFileName().toString().startsWith("journal-")).sorted().toList();
+            return segmentos.get(segmentos.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.br.infnet.service;
+
+import com.br.infnet.controller.LivroController;
+import com.br.infnet.controller.ReplicacaoController;
+import com.br.infnet.model.Livro;
+import com.br.infnet.replicacao.LiderReplicacao;
+import com.br.infnet.replicacao.LogReplicacao;
+import com.br.infnet.replicacao.SeguidorReplicacao;
+import io.javalin.Javalin;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LivroServiceReplicacaoTest {
+    private static final long LIMITE_CORPO = 64 * 1024;
+    private static final int TOTAL_IMPORTADOS = 5_000;
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @DisplayName("Seguidor recebe o snapshot e as escritas feitas no líder depois dele")
+    void seguidorAcompanhaLider() {
+        LivroService lider = new LivroService();
+        LogReplicacao log = lider.iniciarLogReplicacao(LogReplicacao.RETENCAO_PADRAO);
+        Livro anterior = new Livro(lider.gerarId(), "Dom Casmurro", "Machado de Assis", "9788535910663");
+        lider.cadastrarLivroNoAcervo(anterior);
+
+        LivroService local = new LivroService(4);
+        try (LiderReplicacao servidor = new LiderReplicacao(lider, log, 0);
+             SeguidorReplicacao seguidor = new SeguidorReplicacao(local, "localhost", servidor.getPorta())) {
+            servidor.iniciar();
+            seguidor.iniciar();
+
+            Livro novo = new Livro(lider.gerarId(), "Vidas Secas", "Graciliano Ramos", "9788501064321");
+            lider.cadastrarLivroNoAcervo(novo);
+            lider.emprestarLivro(novo.getId(), 14);
+            lider.atualizarLivroDoAcervo(anterior.getId(), "Dom Casmurro (edição revista)", "Machado de Assis",
+                    "9788535910663");
+
+            assertTrue(seguidor.aguardarSequencia(log.ultimaSequencia(), 10_000));
+            assertEquals(estado(lider), estado(local));
+            assertFalse(local.buscarLivroPorIDNoAcervo(novo.getId()).isDisponivel());
+            assertEquals(0, seguidor.status().atrasoRegistros());
+            assertEquals(0, seguidor.status().conflitosIgnorados());
+        } finally {
+            lider.fechar();
+            local.fechar();
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    @DisplayName("Registro que não se aplica depois da janela do snapshot leva a um snapshot novo")
+    void seguidorDivergenteRessincroniza() {
+        LivroService lider = new LivroService();
+        LogReplicacao log = lider.iniciarLogReplicacao(LogReplicacao.RETENCAO_PADRAO);
+        LivroService local = new LivroService();
+        try (LiderReplicacao servidor = new LiderReplicacao(lider, log, 0);
+             SeguidorReplicacao seguidor = new SeguidorReplicacao(local, "localhost", servidor.getPorta())) {
+            servidor.iniciar();
+            seguidor.iniciar();
+            lider.cadastrarLivroNoAcervo(new Livro(lider.gerarId(), "Vidas Secas", "Graciliano Ramos", "9788501064321"));
+            assertTrue(seguidor.aguardarSequencia(log.ultimaSequencia(), 10_000));
+
+            //Escrita feita direto no seguidor: o cadastro do líder com o mesmo ISBN não se aplica mais aqui
+            local.cadastrarLivroNoAcervo(new Livro(9_999, "Livro Divergente", "Autor Local", "9788535910663"));
+            lider.cadastrarLivroNoAcervo(new Livro(lider.gerarId(), "Dom Casmurro", "Machado de Assis", "9788535910663"));
+
+            assertTrue(seguidor.aguardarSequencia(log.ultimaSequencia(), 10_000));
+            assertEquals(estado(lider), estado(local));
+            assertEquals(1, seguidor.status().ressincronizacoes());
+            assertEquals(0, seguidor.status().conflitosIgnorados());
+        } finally {
+            lider.fechar();
+            local.fechar();
+        }
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    @DisplayName("Importação enviada ao seguidor segue em fluxo para o líder, mesmo maior que o maxRequestSize")
+    void seguidorEncaminhaImportacaoGrande() throws Exception {
+        LivroService lider = new LivroService();
+        LogReplicacao log = lider.iniciarLogReplicacao(LogReplicacao.RETENCAO_PADRAO);
+        LivroService local = new LivroService();
+        Javalin appLider = Javalin.create(config -> config.http.maxRequestSize = LIMITE_CORPO);
+        Javalin appSeguidor = Javalin.create(config -> config.http.maxRequestSize = LIMITE_CORPO);
+        try (LiderReplicacao servidor = new LiderReplicacao(lider, log, 0);
+             SeguidorReplicacao seguidor = new SeguidorReplicacao(local, "localhost", servidor.getPorta())) {
+            servidor.iniciar();
+            seguidor.iniciar();
+            new ReplicacaoController(appLider, servidor);
+            new LivroController(appLider, lider);
+            appLider.start(0);
+            new ReplicacaoController(appSeguidor, seguidor, "http://localhost:" + appLider.port());
+            new LivroController(appSeguidor, local);
+            appSeguidor.start(0);
+
+            StringBuilder csv = new StringBuilder("titulo,autor,isbn\n");
+            for (int i = 0; i < TOTAL_IMPORTADOS; i++) {
+                csv.append("Importado ").append(i).append(",Autor Importado,")
+                        .append(String.format("977%010d", i)).append('\n');
+            }
+            String fronteira = "fronteira" + System.nanoTime();
+            byte[] corpo = ("--" + fronteira + "\r\n"
+                    + "Content-Disposition: form-data; name=\"arquivo\"; filename=\"livros.csv\"\r\n"
+                    + "Content-Type: text/csv\r\n\r\n" + csv + "\r\n--" + fronteira + "--\r\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            assertTrue(corpo.length > LIMITE_CORPO);
+
+            HttpResponse<String> resposta = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + appSeguidor.port() + "/livros/import"))
+                            .header("Content-Type", "multipart/form-data; boundary=" + fronteira)
+                            .POST(HttpRequest.BodyPublishers.ofByteArray(corpo))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, resposta.statusCode());
+            assertEquals(TOTAL_IMPORTADOS, lider.listarLivrosDoAcervo().stream()
+                    .filter(livro -> livro.getTitulo().startsWith("Importado ")).count());
+            assertTrue(seguidor.aguardarSequencia(log.ultimaSequencia(), 10_000));
+            assertEquals(estado(lider), estado(local));
+        } finally {
+            appSeguidor.stop();
+            appLider.stop();
+            lider.fechar();
+            local.fechar();
+        }
+    }
+
+    private static List<String> estado(LivroService service) {
+        return service.listarLivrosDoAcervo().stream()
+                .sorted(Comparator.comparingInt(Livro::getId))
+                .map(livro -> livro.getId() + "|" + livro.getTitulo() + "|" + livro.getAutor() + "|"
+                        + livro.getIsbn() + "|" + livro.isDisponivel())
+                .toList();
+    }
+}
@@ -14,6 +14,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -58,6 +61,73 @@ public class LivroServiceRobustnessTest {
         executor.shutdown();
     }
 
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("Cadastros concorrentes com o mesmo ISBN devem aceitar apenas um livro")
+    void testCadastroConcorrenteMesmoISBN() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger aceitos = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+            final int index = i;
+            futures.add(executor.submit(() -> {
+                Livro livro = new Livro(service.gerarId(), "Livro " + index, "Autor", "9780000000001");
+                largada.await();
+                try {
+                    service.cadastrarLivroNoAcervo(livro);
+                    aceitos.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    assertTrue(e.getMessage().contains("ISBN"));
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(1, aceitos.get());
+        assertEquals(4, service.listarLivrosDoAcervo().size());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    @DisplayName("Empréstimos concorrentes do mesmo livro devem aceitar apenas um")
+    void testEmprestimoConcorrenteMesmoLivro() throws Exception {
+        Livro livro = new Livro(service.gerarId(), "Livro Disputado", "Autor", "9780000000002");
+        service.cadastrarLivroNoAcervo(livro);
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger aceitos = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+            futures.add(executor.submit(() -> {
+                largada.await();
+                try {
+                    service.emprestarLivro(livro.getId(), 7);
+                    aceitos.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    assertNotNull(e.getMessage());
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(1, aceitos.get());
+        assertFalse(livro.isDisponivel());
+    }
+
     //Limites extremos
     @ParameterizedTest
     @ValueSource(ints = {Integer.MAX_VALUE, Integer.MIN_VALUE, -1, 0})
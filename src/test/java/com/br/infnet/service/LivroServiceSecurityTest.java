@@ -1,12 +1,24 @@
 package com.br.infnet.service;
 
 import com.br.infnet.model.Livro;
+import com.br.infnet.security.DetectorMalicioso;
 import com.br.infnet.security.SecurityConfig;
+import com.br.infnet.security.TextSanitizer;
+import com.br.infnet.utils.FormValidator;
+import net.jqwik.api.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class LivroServiceSecurityTest {
@@ -239,5 +251,104 @@ public class LivroServiceSecurityTest {
         });
     }
 
+    //Pedaços que exercitam cada etapa da antiga cadeia de regex, inclusive os casos de borda do
+    //modo MULTILINE (\u0085, \u2028, \u2029) e do (?i) só ASCII (K de Kelvin, s longo)
+    private static final String[] PEDACOS = {
+            "drop", "DROP", "delete", "Insert", "update", "UPDATE", "select", "Union", "exec", "execute",
+            "alter", "create", "truncate", "table", "from", "into", "set", "SeT", "or", "OR", "'1'", "=",
+            "<script>", "</script>", "< SCRIPT src=x>", "</ script >", "<b>", "<", ">", "javascript", ":",
+            "--", "-", "/*", "*/", "*", "/", "..", "\\", ".", "\t", "\n", "\r", "\u000B", "\f", "\u0000",
+            "\u007F", "\u0085", "\u2028", "\u2029", "\u00A0", " ", "  ", "a", "Livro", "é", "Ç", "\u212A", "ſ",
+            ";", "'", "\"", "&", "@", "#", "(", ")", "1", "UNION SELECT", "OR '1'='1", "<img", "onerror", "alert(",
+            "@#$%&*()+={}[]|\\:;\"<>?/~`"
+    };
+
+    @Provide
+    Arbitrary<String> entradasHostis() {
+        Arbitrary<String> pedaco = Arbitraries.of(PEDACOS);
+        Arbitrary<String> livre = Arbitraries.strings().all().ofMaxLength(6);
+        return Arbitraries.frequencyOf(Tuple.of(4, pedaco), Tuple.of(1, livre))
+                .list().ofMaxSize(40)
+                .map(pedacos -> String.join("", pedacos));
+    }
+
+    //A varredura tem de produzir exatamente a saída da cadeia de regex que substituiu
+    @Property(tries = 5000)
+    void sanitizacaoIgualACadeiaDeRegex(@ForAll("entradasHostis") String entrada) {
+        assertEquals(SanitizadorRegexReferencia.sanitizarEntrada(entrada), TextSanitizer.sanitizarEntrada(entrada));
+    }
+
+    @Property(tries = 1000)
+    void sanitizacaoIgualACadeiaDeRegexEmTextoLivre(@ForAll String entrada) {
+        assertEquals(SanitizadorRegexReferencia.sanitizarEntrada(entrada), TextSanitizer.sanitizarEntrada(entrada));
+    }
+
+    @Test
+    @DisplayName("Casos de borda da cadeia de regex preservados")
+    void sanitizacaoCasosDeBorda() {
+        for (String entrada : List.of("UPDATE  livros set x SET y", "a--b\nc", "drop\u2028", "<script>x</ script >y",
+                "Or '1' = '1' fim", "..\\/..", "\u212Aelvin union  select", "titulo /* comentario */ fim")) {
+            assertEquals(SanitizadorRegexReferencia.sanitizarEntrada(entrada), TextSanitizer.sanitizarEntrada(entrada),
+                    entrada);
+        }
+        assertNull(TextSanitizer.sanitizarEntrada(null));
+    }
+
+    //O autômato de assinaturas tem de concordar com as regex que substituiu
+    @Property(tries = 5000)
+    void deteccaoIgualAsRegex(@ForAll("entradasHostis") String entrada) {
+        assertEquals(SanitizadorRegexReferencia.contemConteudoMalicioso(entrada), TextSanitizer.contemConteudoMalicioso(entrada));
+    }
+
+    @Test
+    @DisplayName("Detector informa a regra violada e aceita assinaturas novas por configuração")
+    void detectorInformaRegraEAceitaAssinaturasNovas() throws IOException {
+        assertEquals("sql", TextSanitizer.regraMaliciosa("'; DROP TABLE livros; --"));
+        assertEquals("script", TextSanitizer.regraMaliciosa("< script src=x>a</ script >"));
+        assertNull(TextSanitizer.regraMaliciosa("<script x</script>"));
+        assertNull(TextSanitizer.regraMaliciosa("Memórias Póstumas de Brás Cubas"));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> SecurityConfig.validarTitulo("../../../etc/passwd"));
+        assertTrue(exception.getMessage().contains("path-traversal"));
+
+        DetectorMalicioso detector = DetectorMalicioso.carregar(new StringReader("""
+                # regras de teste
+                vbscript  protocolo  vbscript
+                marca     texto-i    Lorem Ipsum
+                """));
+        assertEquals("vbscript", detector.regraViolada("VBScript :msgbox"));
+        assertEquals("marca", detector.regraViolada("LOREM IPSUM dolor"));
+        assertNull(detector.regraViolada("'; DROP TABLE livros; --"));
+
+        assertThrows(IllegalArgumentException.class, () -> DetectorMalicioso.carregar(new StringReader("regra desconhecido x")));
+        assertThrows(IllegalArgumentException.class, () -> DetectorMalicioso.carregar(new StringReader("regra texto")));
+    }
+
+    @Test
+    @DisplayName("Entradas acima do teto são recusadas antes de qualquer padrão")
+    void entradasAcimaDoTetoRecusadas() {
+        String enorme = "<script>".repeat(SecurityConfig.MAX_CARACTERES_ENTRADA);
 
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> SecurityConfig.validarTitulo(enorme));
+        assertTrue(exception.getMessage().contains("muito longo"));
+        assertThrows(IllegalArgumentException.class, () -> SecurityConfig.processarEntrada(enorme));
+        assertThrows(IllegalArgumentException.class, () -> SecurityConfig.validarIsbn("9".repeat(SecurityConfig.MAX_CARACTERES_ENTRADA + 1)));
+        assertThrows(IllegalArgumentException.class, () -> service.buscarLivroPorAutorNoAcervo(enorme));
+        assertFalse(FormValidator.validateLivro(Map.of(
+                "titulo", enorme, "autor", "Machado de Assis", "isbn", "9781234567890")).isValid());
+    }
+
+    //Sem o teto, as regex anteriores levavam segundos nestas entradas; a varredura e o autômato seguem lineares
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    void entradasAdversariasEmTempoLinear() {
+        int tamanho = 1 << 20;
+        for (String pedaco : List.of("<script>", "< script x", "/*", "upd\u0001ate x ", "javascript ")) {
+            String entrada = pedaco.repeat(tamanho / pedaco.length());
+            TextSanitizer.sanitizarEntrada(entrada);
+            TextSanitizer.contemConteudoMalicioso(entrada);
+        }
+    }
 }
@@ -5,10 +5,22 @@ import net.jqwik.api.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -75,6 +87,36 @@ class LivroServiceTest {
         assertEquals(2, encontrados.size());
     }
 
+    @Test
+    @DisplayName("Busca por trecho de título e autor deve refletir atualizações e remoções")
+    void buscarPorTrechoAcompanhaAlteracoes() {
+        Livro livro = new Livro(service.gerarId(), "Estruturas de Dados", "Nivio Ziviani", "1111111111111");
+        service.cadastrarLivroNoAcervo(livro);
+
+        assertEquals(1, service.buscarLivroPorTituloNoAcervo("truturas").size());
+        assertEquals(1, service.buscarLivroPorAutorNoAcervo("ZIVI").size());
+
+        service.atualizarLivroDoAcervo(livro.getId(), "Algoritmos", "Thomas Cormen", "1111111111111");
+        assertTrue(service.buscarLivroPorTituloNoAcervo("truturas").isEmpty());
+        assertTrue(service.buscarLivroPorAutorNoAcervo("zivi").isEmpty());
+        assertEquals(1, service.buscarLivroPorTituloNoAcervo("goritmo").size());
+        assertEquals(1, service.buscarLivroPorAutorNoAcervo("corm").size());
+
+        service.removerLivroDoAcervo(livro.getId());
+        assertTrue(service.buscarLivroPorTituloNoAcervo("goritmo").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Busca deve ignorar acentos, caixa e espaços repetidos")
+    void buscarIgnorandoAcentos() {
+        Livro livro = new Livro(service.gerarId(), "O Cortiço", "Aluísio Azevedo", "9788594318602");
+        service.cadastrarLivroNoAcervo(livro);
+
+        assertEquals(1, service.buscarLivroPorAutorNoAcervo("aluisio").size());
+        assertEquals(1, service.buscarLivroPorAutorNoAcervo("ALUÍSIO   azevedo").size());
+        assertEquals(1, service.buscarLivroPorTituloNoAcervo("cortico").size());
+    }
+
     @Test
     @DisplayName("Deve lançar exceção para título nulo ou vazio")
     void buscarLivroPorTituloInvalido() {
@@ -149,6 +191,25 @@ class LivroServiceTest {
                 service.atualizarLivroDoAcervo(999, "Teste", "Teste", "1234567890123"));
     }
 
+    @Test
+    @DisplayName("Edição a partir de revisão desatualizada deve dar conflito sem sobrescrever")
+    void atualizarComRevisaoDesatualizada() {
+        Livro livro = new Livro(service.gerarId(), "Título Original", "Autor", "1234567890123");
+        service.cadastrarLivroNoAcervo(livro);
+        long lidaPorAmbos = livro.getRevisao();
+
+        service.atualizarLivroDoAcervo(livro.getId(), "Edição da Ana", "Autor", "1234567890123", lidaPorAmbos);
+        assertEquals(lidaPorAmbos + 1, livro.getRevisao());
+
+        ConflitoDeVersaoException conflito = assertThrows(ConflitoDeVersaoException.class, () ->
+                service.atualizarLivroDoAcervo(livro.getId(), "Edição do Bruno", "Autor", "1234567890123", lidaPorAmbos));
+        assertEquals(lidaPorAmbos + 1, conflito.getRevisaoAtual());
+        assertEquals("Edição da Ana", livro.getTitulo());
+
+        service.atualizarLivroDoAcervo(livro.getId(), "Edição do Bruno", "Autor", "1234567890123", conflito.getRevisaoAtual());
+        assertEquals("Edição do Bruno", livro.getTitulo());
+    }
+
     @Test
     @DisplayName("Deve lançar exceção ao tentar atualizar com ISBN duplicado")
     void atualizarLivroComISBNDuplicado() {
@@ -162,6 +223,73 @@ class LivroServiceTest {
                 service.atualizarLivroDoAcervo(livro2.getId(), "Livro 2", "Autor B", "1111111111111"));
     }
 
+    @Test
+    @DisplayName("Acervo particionado deve responder como o acervo único")
+    void acervoParticionadoEquivalente() {
+        LivroService particionado = new LivroService(4);
+        for (int i = 0; i < 40; i++) {
+            int id = service.gerarId();
+            assertEquals(id, particionado.gerarId());
+            String isbn = Long.toString(9781000000000L + i % 30);
+            for (LivroService atual : List.of(service, particionado)) {
+                Livro livro = new Livro(id, "Volume " + (char) ('Z' - i % 26), i % 2 == 0 ? "Ana" : "Bia", isbn);
+                if (i < 30) {
+                    atual.cadastrarLivroNoAcervo(livro);
+                } else {
+                    //ISBN único no acervo inteiro, mesmo com o id caindo em outra partição
+                    assertThrows(IllegalArgumentException.class, () -> atual.cadastrarLivroNoAcervo(livro));
+                }
+            }
+        }
+
+        assertEquals(service.listarLivrosDoAcervo().size(), particionado.listarLivrosDoAcervo().size());
+        assertEquals(ids(service.buscarLivroPorTituloNoAcervo("volume")),
+                ids(particionado.buscarLivroPorTituloNoAcervo("volume")));
+        assertEquals(ids(service.buscarLivroPorAutorNoAcervo("ana")), ids(particionado.buscarLivroPorAutorNoAcervo("ana")));
+        assertEquals(service.contarAutoresDistintos(), particionado.contarAutoresDistintos());
+
+        Pagina esperada = service.listarLivrosDoAcervo(OrdemListagem.TITULO, null, null, null, null, 7);
+        Pagina pagina = particionado.listarLivrosDoAcervo(OrdemListagem.TITULO, null, null, null, null, 7);
+        while (esperada.cursorProximo() != null) {
+            assertEquals(ids(esperada.livros()), ids(pagina.livros()));
+            assertEquals(esperada.cursorProximo(), pagina.cursorProximo());
+            esperada = service.listarLivrosDoAcervo(OrdemListagem.TITULO, null, null, esperada.cursorProximo(), null, 7);
+            pagina = particionado.listarLivrosDoAcervo(OrdemListagem.TITULO, null, null, pagina.cursorProximo(), null, 7);
+        }
+        assertEquals(ids(esperada.livros()), ids(pagina.livros()));
+        assertNull(pagina.cursorProximo());
+        particionado.fechar();
+    }
+
+    private static List<Integer> ids(List<Livro> livros) {
+        List<Integer> ids = new ArrayList<>();
+        for (Livro livro : livros) {
+            ids.add(livro.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("Índice de ISBN deve acompanhar cadastro, atualização e remoção")
+    void indiceIsbnAcompanhaAlteracoes() {
+        Livro livro = new Livro(service.gerarId(), "Título", "Autor", "1234567890123");
+        service.cadastrarLivroNoAcervo(livro);
+        assertTrue(service.existeISBN("1234567890123"));
+        assertEquals(livro, service.buscarLivroPorISBN("1234567890123"));
+
+        service.atualizarLivroDoAcervo(livro.getId(), "Título", "Autor", "9876543210987");
+        assertFalse(service.existeISBN("1234567890123"));
+        assertNull(service.buscarLivroPorISBN("1234567890123"));
+        assertEquals(livro, service.buscarLivroPorISBN("9876543210987"));
+
+        service.removerLivroDoAcervo(livro.getId());
+        assertFalse(service.existeISBN("9876543210987"));
+        assertNull(service.buscarLivroPorISBN("9876543210987"));
+
+        Livro novo = new Livro(service.gerarId(), "Outro", "Autor", "1234567890123");
+        assertDoesNotThrow(() -> service.cadastrarLivroNoAcervo(novo));
+    }
+
     @Test
     @DisplayName("Deve efetivamente remover livro do acervo")
     void removerLivroDoAcervo() {
@@ -189,6 +317,185 @@ class LivroServiceTest {
         assertEquals(5, lista.size());
     }
 
+    @Test
+    @DisplayName("Deve importar CSV compactado de um arquivo, relatando linhas recusadas")
+    void importarCsvDeArquivo(@TempDir Path diretorio) throws IOException {
+        Path arquivo = diretorio.resolve("doacao.csv.gz");
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(arquivo)),
+                StandardCharsets.UTF_8)) {
+            writer.write("titulo,autor,isbn\n");
+            writer.write("\"Livro Importado\",\"Autor Importado\",\"9781000000001\"\n");
+            writer.write("\"Outro Importado\",\"Autor Importado\",\"9781000000001\"\n");
+            writer.write("\"Sem ISBN\",\"Autor Importado\"\n");
+            writer.write("\"Terceiro Importado\",\"Autor Importado\",\"9781000000002\"\n");
+        }
+
+        RelatorioImportacao relatorio = service.importarCsv(arquivo);
+
+        assertEquals(2, relatorio.importados());
+        assertEquals(2, relatorio.totalRejeitados());
+        assertEquals(List.of(3, 4), relatorio.rejeitados().stream().map(RelatorioImportacao.Rejeicao::linha).toList());
+        assertEquals("Livro Importado", service.buscarLivroPorIDNoAcervo(4).getTitulo());
+        assertEquals("Terceiro Importado", service.buscarLivroPorIDNoAcervo(5).getTitulo());
+        assertEquals(6, service.gerarId());
+    }
+
+    @Test
+    @DisplayName("Deve importar campos com aspas escapadas e quebras de linha, recusando linha malformada")
+    void importarCsvComAspasEQuebrasDeLinha(@TempDir Path diretorio) throws IOException {
+        Path arquivo = diretorio.resolve("doacao.csv");
+        Files.writeString(arquivo, """
+                titulo,autor,isbn
+                "O ""Grande"" Livro","Autor Citado","9781000000011"
+                "Titulo em
+                duas linhas","Autor Quebrado","9781000000012"
+                Sem"aspas,Autor Errado,9781000000013
+                "Depois do Erro","Autor Final","9781000000014"
+                """);
+
+        RelatorioImportacao relatorio = service.importarCsv(arquivo);
+
+        assertEquals(3, relatorio.importados());
+        assertEquals(1, relatorio.totalRejeitados());
+        assertEquals(5, relatorio.rejeitados().get(0).linha());
+        assertEquals("O Grande Livro", service.buscarLivroPorISBN("9781000000011").getTitulo());
+        assertNotNull(service.buscarLivroPorISBN("9781000000012"));
+        assertNull(service.buscarLivroPorISBN("9781000000013"));
+        assertNotNull(service.buscarLivroPorISBN("9781000000014"));
+    }
+
+    @Test
+    @DisplayName("Deve importar JSON-lines em fluxo, relatando linhas inválidas")
+    void importarJsonLinhas() throws IOException {
+        String conteudo = """
+                {"titulo": "Caf\\u00e9 com Livros", "autor": "Autora JSON", "isbn": "9781000000021"}
+
+                {"titulo": "Sem ISBN", "autor": "Autor"}
+                {"titulo": "Quebrado",
+                {"titulo": "Repetido", "autor": "Autor", "isbn": "9781000000021"}
+                {"titulo": "Ultimo", "autor": "Autor", "isbn": "9781000000022", "ano": 2020}
+                """;
+
+        RelatorioImportacao relatorio = service.importarJsonLinhas(
+                new ByteArrayInputStream(conteudo.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, relatorio.importados());
+        assertEquals(3, relatorio.totalRejeitados());
+        assertEquals(List.of(3, 4, 5), relatorio.rejeitados().stream().map(RelatorioImportacao.Rejeicao::linha).toList());
+        assertEquals("Café com Livros", service.buscarLivroPorISBN("9781000000021").getTitulo());
+        assertEquals(5, service.buscarLivroPorISBN("9781000000022").getId());
+    }
+
+    @Test
+    @DisplayName("Deve exportar o acervo filtrando por status, em CSV reimportável e JSON-lines")
+    void exportarAcervo() throws IOException {
+        service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "Um, Dois e Tres", "Autor Teste", "9781000000031"));
+        service.emprestarLivro(1, 7);
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        assertEquals(4, service.exportarAcervo(csv, FormatoExportacao.CSV, null));
+        LivroService copia = new LivroService();
+        copia.removerLivroDoAcervo(1);
+        copia.removerLivroDoAcervo(2);
+        copia.removerLivroDoAcervo(3);
+        RelatorioImportacao relatorio = copia.importarCsv(new ByteArrayInputStream(csv.toByteArray()));
+        assertEquals(4, relatorio.importados());
+        assertEquals("Um, Dois e Tres", copia.buscarLivroPorISBN("9781000000031").getTitulo());
+
+        ByteArrayOutputStream emprestados = new ByteArrayOutputStream();
+        assertEquals(1, service.exportarAcervo(emprestados, FormatoExportacao.JSON_LINHAS, false));
+        String linha = emprestados.toString(StandardCharsets.UTF_8);
+        assertTrue(linha.startsWith("{\"id\":1,"));
+        assertTrue(linha.contains("\"disponivel\":false"));
+    }
+
+    @Test
+    @DisplayName("Deve paginar o acervo por cursor nos dois sentidos, pulando livros removidos")
+    void paginarAcervoPorCursor() {
+        for (char letra = 'A'; letra <= 'G'; letra++) {
+            service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "Livro " + letra, "Autor " + letra,
+                    "97810000000" + (letra - 'A' + 40)));
+        }
+        service.removerLivroDoAcervo(5);
+
+        Pagina primeira = service.listarLivrosDoAcervo(null, null, 4);
+        assertEquals(List.of(1, 2, 3, 4), primeira.livros().stream().map(Livro::getId).toList());
+        assertNull(primeira.cursorAnterior());
+
+        Pagina segunda = service.listarLivrosDoAcervo(primeira.cursorProximo(), null, 4);
+        assertEquals(List.of(6, 7, 8, 9), segunda.livros().stream().map(Livro::getId).toList());
+
+        Pagina ultima = service.listarLivrosDoAcervo(segunda.cursorProximo(), null, 4);
+        assertEquals(List.of(10), ultima.livros().stream().map(Livro::getId).toList());
+        assertNull(ultima.cursorProximo());
+
+        Pagina voltando = service.listarLivrosDoAcervo(null, ultima.cursorAnterior(), 4);
+        assertEquals(segunda.livros(), voltando.livros());
+        assertThrows(IllegalArgumentException.class, () -> service.listarLivrosDoAcervo("abc", null, 4));
+    }
+
+    @Test
+    @DisplayName("Deve listar em ordem alfabética pt-BR e filtrar faixa de autores por prefixo")
+    void listarEmOrdemAlfabetica() {
+        service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "Água Viva", "Clarice Lispector", "9781000000060"));
+        service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "azul e amarelo", "Machado de Assis", "9781000000061"));
+        service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "Ébano", "Nelson Rodrigues", "9781000000062"));
+        service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "Zebra", "Olavo Bilac", "9781000000063"));
+
+        Pagina primeira = service.listarLivrosDoAcervo(OrdemListagem.TITULO, null, null, null, null, 2);
+        assertEquals(List.of("Água Viva", "A Odisseia"), primeira.livros().stream().map(Livro::getTitulo).toList());
+        Pagina segunda = service.listarLivrosDoAcervo(OrdemListagem.TITULO, null, null, primeira.cursorProximo(), null, 2);
+        assertEquals(List.of("azul e amarelo", "Ébano"), segunda.livros().stream().map(Livro::getTitulo).toList());
+
+        Pagina faixa = service.listarLivrosDoAcervo(OrdemListagem.AUTOR, "M", "N", null, null, 10);
+        assertEquals(List.of("Machado de Assis", "Nelson Rodrigues"), faixa.livros().stream().map(Livro::getAutor).toList());
+        assertNull(faixa.cursorProximo());
+    }
+
+    @Test
+    @DisplayName("Deve buscar por autor exato e por prefixo, compartilhando o nome entre os livros")
+    void buscarPorAutorNoDicionario() {
+        Livro dom = new Livro(service.gerarId(), "Dom Casmurro", "Machado de Assis", "9781000000070");
+        Livro memorias = new Livro(service.gerarId(), "Memórias Póstumas", new String("Machado de Assis"), "9781000000071");
+        service.cadastrarLivroNoAcervo(dom);
+        service.cadastrarLivroNoAcervo(memorias);
+        service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "Macunaíma", "Mário de Andrade", "9781000000072"));
+
+        assertSame(dom.getAutor(), memorias.getAutor());
+        assertEquals(List.of(4, 5), service.buscarLivroPorAutorExatoNoAcervo("MACHADO DE ASSIS").stream().map(Livro::getId).toList());
+        assertTrue(service.buscarLivroPorAutorExatoNoAcervo("Machado").isEmpty());
+        assertEquals(List.of(4, 5, 6), service.buscarLivroPorPrefixoAutorNoAcervo("ma").stream().map(Livro::getId).toList());
+
+        service.atualizarLivroDoAcervo(4, "Dom Casmurro", "Outro Autor", "9781000000070");
+        assertEquals(List.of(5), service.buscarLivroPorAutorExatoNoAcervo("machado de assis").stream().map(Livro::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Visão do acervo deve manter o instante em que foi aberta, sem ver escritas posteriores")
+    void visaoDoAcervoIsolada() {
+        try (VisaoAcervo visao = service.abrirVisaoDoAcervo()) {
+            service.atualizarLivroDoAcervo(1, "Sagarana", "Outro Autor", "9781000000080");
+            service.removerLivroDoAcervo(2);
+            service.emprestarLivro(3, 7);
+            service.cadastrarLivroNoAcervo(new Livro(service.gerarId(), "Livro Novo", "Autor Novo", "9781000000081"));
+
+            List<Livro.Versao> vistos = new ArrayList<>();
+            visao.forEach(vistos::add);
+            assertEquals(List.of(1, 2, 3), vistos.stream().map(Livro.Versao::getId).sorted().toList());
+            Livro.Versao primeiro = vistos.stream().filter(v -> v.getId() == 1).findFirst().orElseThrow();
+            assertEquals("Grande Sertão Veredas", primeiro.getTitulo());
+            assertEquals("9788535909760", primeiro.getIsbn());
+            assertTrue(vistos.stream().allMatch(Livro.Versao::isDisponivel));
+        }
+
+        try (VisaoAcervo visao = service.abrirVisaoDoAcervo()) {
+            List<Livro.Versao> vistos = new ArrayList<>();
+            visao.forEach(vistos::add);
+            assertEquals(List.of(1, 3, 4), vistos.stream().map(Livro.Versao::getId).sorted().toList());
+            assertEquals("Sagarana", service.buscarLivroPorIDNoAcervo(1).versaoAtual().getTitulo());
+        }
+    }
+
     @Test
     @DisplayName("Deve emprestar livro disponível")
     void emprestarLivroDisponivel() {
@@ -243,6 +550,55 @@ class LivroServiceTest {
         assertFalse(livro.isDisponivel());
     }
 
+    @Test
+    @DisplayName("Empréstimo, devolução, busca e remoção devem devolver o desfecho como valor")
+    void desfechosComoValor() {
+        Livro livro = new Livro(service.gerarId(), "Teste", "Teste", "1234567890123");
+        service.cadastrarLivroNoAcervo(livro);
+
+        assertEquals(ResultadoOperacao.Situacao.NAO_ENCONTRADO, service.consultarLivro(9999).situacao());
+        assertEquals(ResultadoOperacao.Situacao.NAO_ENCONTRADO, service.tentarEmprestarLivro(9999, 10).situacao());
+        assertEquals(ResultadoOperacao.Situacao.NAO_ENCONTRADO, service.tentarDevolverLivro(9999).situacao());
+        assertEquals(ResultadoOperacao.Situacao.NAO_ENCONTRADO, service.tentarRemoverLivro(9999).situacao());
+        assertEquals(ResultadoOperacao.Situacao.INDISPONIVEL, service.tentarDevolverLivro(livro.getId()).situacao());
+
+        assertTrue(service.tentarEmprestarLivro(livro.getId(), 20).isOk());
+        assertEquals(ResultadoOperacao.Situacao.INDISPONIVEL, service.tentarEmprestarLivro(livro.getId(), 20).situacao());
+        assertEquals(ResultadoOperacao.Situacao.INDISPONIVEL, service.tentarRemoverLivro(livro.getId()).situacao());
+
+        livro.setDataEfetivaDevolucao(livro.getDataEmprestimo().plusDays(20));
+        ResultadoOperacao devolucao = service.tentarDevolverLivro(livro.getId());
+        assertEquals(ResultadoOperacao.Situacao.MULTA_PENDENTE, devolucao.situacao());
+        assertEquals(1000, devolucao.multaCentavos());
+        assertFalse(livro.isDisponivel());
+
+        livro.setDataEfetivaDevolucao(livro.getDataEmprestimo().plusDays(5));
+        assertTrue(service.tentarDevolverLivro(livro.getId()).isOk());
+        assertTrue(service.tentarRemoverLivro(livro.getId()).isOk());
+        assertEquals(ResultadoOperacao.Situacao.NAO_ENCONTRADO, service.consultarLivro(livro.getId()).situacao());
+    }
+
+    @Test
+    @DisplayName("Deve listar empréstimos ativos, opcionalmente pelos próximos a vencer")
+    void listarLivrosEmEmprestimo() throws MultaPendenteException {
+        Livro livro1 = new Livro(service.gerarId(), "Livro1", "AutorA", "1111111111111");
+        Livro livro2 = new Livro(service.gerarId(), "Livro2", "AutorB", "2222222222222");
+        Livro livro3 = new Livro(service.gerarId(), "Livro3", "AutorC", "3333333333333");
+        service.cadastrarLivroNoAcervo(livro1);
+        service.cadastrarLivroNoAcervo(livro2);
+        service.cadastrarLivroNoAcervo(livro3);
+
+        service.emprestarLivro(livro1.getId(), 30);
+        service.emprestarLivro(livro2.getId(), 5);
+        service.emprestarLivro(livro3.getId(), 10);
+
+        assertEquals(List.of(livro1, livro2, livro3), service.listarLivrosEmEmprestimo());
+        assertEquals(List.of(livro2, livro3, livro1), service.listarLivrosEmEmprestimo(true));
+
+        service.devolverLivro(livro3.getId());
+        assertEquals(List.of(livro2, livro1), service.listarLivrosEmEmprestimo(true));
+    }
+
     @Test
     @DisplayName("Deve calcular a multa corretamente após o prazo gratuito")
     void calcularMulta() {
@@ -255,6 +611,62 @@ class LivroServiceTest {
         assertEquals(9, multa);
     }
 
+    @Test
+    @DisplayName("Atraso que atravessa o fim do mês deve contar os dias corridos")
+    void calcularMultaAtravessandoMes() {
+        Livro livro = new Livro(service.gerarId(), "Teste", "Teste", "1234567890123");
+        service.cadastrarLivroNoAcervo(livro);
+        service.emprestarLivro(livro.getId(), 10);
+        livro.setDataEmprestimo(LocalDate.of(2025, 1, 10));
+        //1 mês e 2 dias: 33 dias corridos, 23 além dos gratuitos
+        livro.setDataEfetivaDevolucao(LocalDate.of(2025, 2, 12));
+        assertEquals(1650, service.calcularMultaEmCentavos(livro.getId()));
+        assertEquals(16.5, service.calcularMulta(livro.getId()));
+    }
+
+    @Test
+    @DisplayName("Relatório de multas em lote deve bater com o cálculo livro a livro")
+    void relatorioDeMultasEmLote() {
+        LocalDate hoje = LocalDate.now();
+        for (int i = 0; i < 40; i++) {
+            Livro livro = new Livro(service.gerarId(), "Livro " + i, "Autor", "978000000" + (1000 + i));
+            service.cadastrarLivroNoAcervo(livro);
+            service.emprestarLivro(livro.getId(), 7);
+            livro.setDataEmprestimo(hoje.minusDays(i * 3L));
+        }
+
+        RelatorioMultas relatorio = service.relatorioDeMultas(hoje);
+        long total = 0;
+        long anterior = Long.MAX_VALUE;
+        for (int i = 0; i < relatorio.quantidade(); i++) {
+            int id = relatorio.livro(i).getId();
+            assertEquals(service.calcularMultaEmCentavos(id), relatorio.centavos(i));
+            assertTrue(relatorio.diasAtraso(i) <= anterior);
+            anterior = relatorio.diasAtraso(i);
+            total += relatorio.centavos(i);
+        }
+        //Multados a partir de 11 dias: i de 4 a 39
+        assertEquals(36, relatorio.quantidade());
+        assertEquals(total, relatorio.getTotalCentavos());
+        assertEquals(service.listarLivrosEmEmprestimo().size(), relatorio.getEmprestimosAtivos());
+    }
+
+    @Test
+    @DisplayName("Varredura diária deve deixar a multa calculada e recalcular se o empréstimo mudar")
+    void varreduraPrecalculaMultas() {
+        Livro livro = new Livro(service.gerarId(), "Teste", "Teste", "1234567890123");
+        service.cadastrarLivroNoAcervo(livro);
+        service.emprestarLivro(livro.getId(), 5);
+        livro.setDataEmprestimo(LocalDate.now().minusDays(20));
+
+        service.varrerAtrasos(LocalDate.now());
+        assertEquals(10.0, service.calcularMulta(livro.getId()));
+
+        livro.setDataEmprestimo(LocalDate.now().minusDays(15));
+        assertEquals(7.5, service.calcularMulta(livro.getId()));
+        assertTrue(service.listarEmprestimosAtrasados().isEmpty());
+    }
+
 //*----------------------------------TESTES PARAMETRIZADOS------------------------------------*//
 
     @Provide
@@ -353,9 +765,9 @@ class LivroServiceTest {
 
         livro.setDataEmprestimo(dataEmprestimo);
         livro.setDataEstimadaDevolucao(dataEmprestimo.plusDays(10));
-        LocalDate dataDevolucao = dataEmprestimo.plusDays((int)(Math.random() * 20));
+        LocalDate dataDevolucao = dataEmprestimo.plusDays((int)(Math.random() * 90));
         livro.setDataEfetivaDevolucao(dataDevolucao);
-        long diasAtraso = livro.getDataEmprestimo().until(dataDevolucao).getDays();
+        long diasAtraso = ChronoUnit.DAYS.between(livro.getDataEmprestimo(), dataDevolucao);
 
         double multaEsperada;
         if (diasAtraso <= 10) {